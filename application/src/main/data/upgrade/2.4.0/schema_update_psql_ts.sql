@@ -0,0 +1,28 @@
+--
+-- Copyright © 2016-2019 The Thingsboard Authors
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Copies the timeseries history from ts_kv_old (the renamed ts_kv table) to the compact ts_kv_compact table.
+-- Partitions of ts_kv_compact must be created before this script is executed.
+-- ts_kv_old is not dropped here: the upgrade checks the copied row count and the operator drops the table afterwards.
+
+INSERT INTO ts_kv_dictionary (key) SELECT DISTINCT key FROM ts_kv_old ON CONFLICT (key) DO NOTHING;
+
+INSERT INTO ts_kv_compact (entity_id, key, ts, bool_v, str_v, long_v, dbl_v)
+SELECT (substring(tkv.entity_id, 8, 8) || '-' || substring(tkv.entity_id, 4, 4) || '-1' || substring(tkv.entity_id, 1, 3) ||
+        '-' || substring(tkv.entity_id, 16, 4) || '-' || substring(tkv.entity_id, 20))::uuid,
+       tkd.key_id, tkv.ts, tkv.bool_v, tkv.str_v, tkv.long_v, tkv.dbl_v
+FROM ts_kv_old tkv INNER JOIN ts_kv_dictionary tkd ON tkv.key = tkd.key
+ON CONFLICT DO NOTHING;
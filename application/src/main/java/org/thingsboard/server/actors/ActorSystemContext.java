@@ -21,9 +21,6 @@ import akka.actor.Scheduler;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import lombok.Getter;
@@ -65,7 +62,9 @@ import org.thingsboard.server.service.cluster.rpc.ClusterRpcService;
 import org.thingsboard.server.service.component.ComponentDiscoveryService;
 import org.thingsboard.server.service.encoding.DataDecodingEncodingService;
 import org.thingsboard.server.service.executors.ClusterRpcCallbackExecutorService;
+import org.thingsboard.server.service.event.RuleNodeDebugEventService;
 import org.thingsboard.server.service.executors.DbCallbackExecutorService;
+import org.thingsboard.server.service.executors.RuleEngineTenantScheduler;
 import org.thingsboard.server.service.executors.ExternalCallExecutorService;
 import org.thingsboard.server.service.executors.SharedEventLoopGroupService;
 import org.thingsboard.server.service.mail.MailExecutorService;
@@ -77,8 +76,6 @@ import org.thingsboard.server.service.state.DeviceStateService;
 import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
 import org.thingsboard.server.service.transport.RuleEngineTransportService;
 
-import javax.annotation.Nullable;
-import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Optional;
@@ -159,6 +156,10 @@ public class ActorSystemContext {
     @Getter
     private EventService eventService;
 
+    @Autowired
+    @Getter
+    private RuleNodeDebugEventService ruleNodeDebugEventService;
+
     @Autowired
     @Getter
     private AlarmService alarmService;
@@ -203,6 +204,10 @@ public class ActorSystemContext {
     @Getter
     private DbCallbackExecutorService dbCallbackExecutor;
 
+    @Autowired
+    @Getter
+    private RuleEngineTenantScheduler ruleEngineTenantScheduler;
+
     @Autowired
     @Getter
     private ExternalCallExecutorService externalCallExecutorService;
@@ -265,6 +270,14 @@ public class ActorSystemContext {
     @Getter
     private long ruleNodeErrorPersistFrequency;
 
+    @Value("${actors.rule.chain.direct_routing_enabled:false}")
+    @Getter
+    private boolean ruleChainDirectRoutingEnabled;
+
+    @Value("${actors.rule.node.stateless_instances:1}")
+    @Getter
+    private int statelessRuleNodeInstances;
+
     @Value("${actors.statistics.enabled}")
     @Getter
     private boolean statisticsEnabled;
@@ -380,46 +393,11 @@ public class ActorSystemContext {
     }
 
     private void persistDebugAsync(TenantId tenantId, EntityId entityId, String type, TbMsg tbMsg, String relationType, Throwable error) {
-        try {
-            Event event = new Event();
-            event.setTenantId(tenantId);
-            event.setEntityId(entityId);
-            event.setType(DataConstants.DEBUG_RULE_NODE);
-
-            String metadata = mapper.writeValueAsString(tbMsg.getMetaData().getData());
-
-            ObjectNode node = mapper.createObjectNode()
-                    .put("type", type)
-                    .put("server", getServerAddress())
-                    .put("entityId", tbMsg.getOriginator().getId().toString())
-                    .put("entityName", tbMsg.getOriginator().getEntityType().name())
-                    .put("msgId", tbMsg.getId().toString())
-                    .put("msgType", tbMsg.getType())
-                    .put("dataType", tbMsg.getDataType().name())
-                    .put("relationType", relationType)
-                    .put("data", tbMsg.getData())
-                    .put("metadata", metadata);
-
-            if (error != null) {
-                node = node.put("error", toString(error));
-            }
-
-            event.setBody(node);
-            ListenableFuture<Event> future = eventService.saveAsync(event);
-            Futures.addCallback(future, new FutureCallback<Event>() {
-                @Override
-                public void onSuccess(@Nullable Event event) {
-
-                }
-
-                @Override
-                public void onFailure(Throwable th) {
-                    log.error("Could not save debug Event for Node", th);
-                }
-            });
-        } catch (IOException ex) {
-            log.warn("Failed to persist rule node debug message", ex);
-        }
+        ruleNodeDebugEventService.persistDebugEvent(tenantId, entityId, type, tbMsg, relationType, error);
+    }
+
+    public void onRuleNodeStopped(EntityId entityId) {
+        ruleNodeDebugEventService.onRuleNodeStopped(entityId);
     }
 
     public static Exception toException(Throwable error) {
@@ -60,6 +60,7 @@ import java.util.Collections;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /**
@@ -69,10 +70,12 @@ class DefaultTbContext implements TbContext {
 
     private final ActorSystemContext mainCtx;
     private final RuleNodeCtx nodeCtx;
+    private final AtomicReference<RuleChainGraph> chainGraph;
 
-    public DefaultTbContext(ActorSystemContext mainCtx, RuleNodeCtx nodeCtx) {
+    public DefaultTbContext(ActorSystemContext mainCtx, RuleNodeCtx nodeCtx, AtomicReference<RuleChainGraph> chainGraph) {
         this.mainCtx = mainCtx;
         this.nodeCtx = nodeCtx;
+        this.chainGraph = chainGraph;
     }
 
     @Override
@@ -94,6 +97,17 @@ class DefaultTbContext implements TbContext {
         if (nodeCtx.getSelf().isDebugMode()) {
             relationTypes.forEach(relationType -> mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), msg, relationType, th));
         }
+        pushToNextNodes(msg, relationTypes);
+    }
+
+    private void pushToNextNodes(TbMsg msg, Set<String> relationTypes) {
+        if (mainCtx.isRuleChainDirectRoutingEnabled()) {
+            RuleChainGraph graph = chainGraph.get();
+            if (graph != null && isLocalEntity(msg.getOriginator())
+                    && graph.tellNext(nodeCtx.getSelf().getId(), relationTypes, msg, nodeCtx.getSelfActor())) {
+                return;
+            }
+        }
         nodeCtx.getChainActor().tell(new RuleNodeToRuleChainTellNextMsg(nodeCtx.getSelf().getId(), relationTypes, msg), nodeCtx.getSelfActor());
     }
 
@@ -118,7 +132,7 @@ class DefaultTbContext implements TbContext {
         if (nodeCtx.getSelf().isDebugMode()) {
             mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), msg, TbRelationTypes.FAILURE, th);
         }
-        nodeCtx.getChainActor().tell(new RuleNodeToRuleChainTellNextMsg(nodeCtx.getSelf().getId(), Collections.singleton(TbRelationTypes.FAILURE), msg), nodeCtx.getSelfActor());
+        pushToNextNodes(msg, Collections.singleton(TbRelationTypes.FAILURE));
     }
 
     @Override
@@ -161,6 +175,11 @@ class DefaultTbContext implements TbContext {
         return mainCtx.getDbCallbackExecutor();
     }
 
+    @Override
+    public ListeningExecutor getDbCallbackExecutor(EntityId entityId) {
+        return mainCtx.getDbCallbackExecutor().forEntity(entityId);
+    }
+
     @Override
     public ListeningExecutor getExternalCallExecutor() {
         return mainCtx.getExternalCallExecutorService();
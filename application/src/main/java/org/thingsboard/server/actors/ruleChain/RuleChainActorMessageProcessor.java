@@ -51,6 +51,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -65,6 +66,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
     private final Map<RuleNodeId, RuleNodeCtx> nodeActors;
     private final Map<RuleNodeId, List<RuleNodeRelation>> nodeRoutes;
     private final RuleChainService service;
+    private final AtomicReference<RuleChainGraph> graph;
 
     private RuleNodeId firstId;
     private RuleNodeCtx firstNode;
@@ -79,6 +81,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         this.nodeActors = new HashMap<>();
         this.nodeRoutes = new HashMap<>();
         this.service = systemContext.getRuleChainService();
+        this.graph = new AtomicReference<>();
         this.ruleChainName = ruleChainId.toString();
     }
 
@@ -97,8 +100,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             // Creating and starting the actors;
             for (RuleNode ruleNode : ruleNodeList) {
                 log.trace("[{}][{}] Creating rule node [{}]: {}", entityId, ruleNode.getId(), ruleNode.getName(), ruleNode);
-                ActorRef ruleNodeActor = createRuleNodeActor(context, ruleNode);
-                nodeActors.put(ruleNode.getId(), new RuleNodeCtx(tenantId, self, ruleNodeActor, ruleNode));
+                nodeActors.put(ruleNode.getId(), createRuleNodeCtx(context, ruleNode));
             }
             initRoutes(ruleChain, ruleNodeList);
             started = true;
@@ -117,12 +119,15 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             RuleNodeCtx existing = nodeActors.get(ruleNode.getId());
             if (existing == null) {
                 log.trace("[{}][{}] Creating rule node [{}]: {}", entityId, ruleNode.getId(), ruleNode.getName(), ruleNode);
-                ActorRef ruleNodeActor = createRuleNodeActor(context, ruleNode);
-                nodeActors.put(ruleNode.getId(), new RuleNodeCtx(tenantId, self, ruleNodeActor, ruleNode));
+                nodeActors.put(ruleNode.getId(), createRuleNodeCtx(context, ruleNode));
+            } else if (existing.getInstanceActors().size() != getInstancesCount(ruleNode)) {
+                log.trace("[{}][{}] Recreating rule node [{}]: {}", entityId, ruleNode.getId(), ruleNode.getName(), ruleNode);
+                tellInstances(existing, ComponentLifecycleEvent.DELETED);
+                nodeActors.put(ruleNode.getId(), createRuleNodeCtx(context, ruleNode));
             } else {
                 log.trace("[{}][{}] Updating rule node [{}]: {}", entityId, ruleNode.getId(), ruleNode.getName(), ruleNode);
                 existing.setSelf(ruleNode);
-                existing.getSelfActor().tell(new ComponentLifecycleMsg(tenantId, existing.getSelf().getId(), ComponentLifecycleEvent.UPDATED), self);
+                tellInstances(existing, ComponentLifecycleEvent.UPDATED);
             }
         }
 
@@ -131,7 +136,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         removedRules.forEach(ruleNodeId -> {
             log.trace("[{}][{}] Removing rule node [{}]", tenantId, entityId, ruleNodeId);
             RuleNodeCtx removed = nodeActors.remove(ruleNodeId);
-            removed.getSelfActor().tell(new ComponentLifecycleMsg(tenantId, removed.getSelf().getId(), ComponentLifecycleEvent.DELETED), self);
+            tellInstances(removed, ComponentLifecycleEvent.DELETED);
         });
 
         initRoutes(ruleChain, ruleNodeList);
@@ -140,7 +145,11 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
     @Override
     public void stop(ActorContext context) {
         log.trace("[{}][{}] Stopping rule chain with {} nodes", tenantId, entityId, nodeActors.size());
-        nodeActors.values().stream().map(RuleNodeCtx::getSelfActor).forEach(context::stop);
+        RuleChainGraph chainGraph = graph.getAndSet(null);
+        if (chainGraph != null) {
+            chainGraph.deactivate();
+        }
+        nodeActors.values().stream().flatMap(nodeCtx -> nodeCtx.getInstanceActors().stream()).forEach(context::stop);
         nodeActors.clear();
         nodeRoutes.clear();
         context.stop(self);
@@ -152,12 +161,41 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
 
     }
 
-    private ActorRef createRuleNodeActor(ActorContext context, RuleNode ruleNode) {
+    private RuleNodeCtx createRuleNodeCtx(ActorContext context, RuleNode ruleNode) {
+        int instancesCount = getInstancesCount(ruleNode);
+        List<ActorRef> instances = new ArrayList<>(instancesCount);
+        for (int i = 0; i < instancesCount; i++) {
+            String actorName = i == 0 ? ruleNode.getId().toString() : ruleNode.getId().toString() + "-" + i;
+            instances.add(createRuleNodeActor(context, ruleNode, actorName));
+        }
+        return new RuleNodeCtx(tenantId, self, instances.get(0), Collections.unmodifiableList(instances), ruleNode);
+    }
+
+    private ActorRef createRuleNodeActor(ActorContext context, RuleNode ruleNode, String actorName) {
         String dispatcherName = tenantId.getId().equals(EntityId.NULL_UUID) ?
                 DefaultActorService.SYSTEM_RULE_DISPATCHER_NAME : DefaultActorService.TENANT_RULE_DISPATCHER_NAME;
         return context.actorOf(
-                Props.create(new RuleNodeActor.ActorCreator(systemContext, tenantId, entityId, ruleNode.getId()))
-                        .withDispatcher(dispatcherName), ruleNode.getId().toString());
+                Props.create(new RuleNodeActor.ActorCreator(systemContext, tenantId, entityId, ruleNode.getId(), graph))
+                        .withDispatcher(dispatcherName), actorName);
+    }
+
+    private int getInstancesCount(RuleNode ruleNode) {
+        int instancesCount = systemContext.getStatelessRuleNodeInstances();
+        if (instancesCount <= 1) {
+            return 1;
+        }
+        try {
+            org.thingsboard.rule.engine.api.RuleNode annotation =
+                    Class.forName(ruleNode.getType()).getAnnotation(org.thingsboard.rule.engine.api.RuleNode.class);
+            return annotation != null && annotation.stateless() ? instancesCount : 1;
+        } catch (ClassNotFoundException e) {
+            log.debug("[{}][{}] Rule node class [{}] is not found", tenantId, entityId, ruleNode.getType());
+            return 1;
+        }
+    }
+
+    private void tellInstances(RuleNodeCtx nodeCtx, ComponentLifecycleEvent event) {
+        nodeCtx.getInstanceActors().forEach(actor -> actor.tell(new ComponentLifecycleMsg(tenantId, nodeCtx.getSelf().getId(), event), self));
     }
 
     private void initRoutes(RuleChain ruleChain, List<RuleNode> ruleNodeList) {
@@ -183,6 +221,8 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             }
         }
 
+        graph.set(new RuleChainGraph(tenantId, entityId, nodeRoutes, nodeActors, systemContext.getRuleEngineTenantScheduler()));
+
         firstId = ruleChain.getFirstRuleNodeId();
         firstNode = nodeActors.get(firstId);
         state = ComponentLifecycleState.ACTIVE;
@@ -246,7 +286,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         TbMsg msg = envelope.getMsg();
         RuleNodeId originatorNodeId = envelope.getOriginator();
         List<RuleNodeRelation> relations = nodeRoutes.get(originatorNodeId).stream()
-                .filter(r -> contains(envelope.getRelationTypes(), r.getType()))
+                .filter(r -> RuleChainGraph.contains(envelope.getRelationTypes(), r.getType()))
                 .collect(Collectors.toList());
         int relationsCount = relations.size();
         EntityId ackId = msg.getRuleNodeId() != null ? msg.getRuleNodeId() : msg.getRuleChainId();
@@ -282,18 +322,6 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         }
     }
 
-    private boolean contains(Set<String> relationTypes, String type) {
-        if (relationTypes == null) {
-            return true;
-        }
-        for (String relationType : relationTypes) {
-            if (relationType.equalsIgnoreCase(type)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private void enqueueAndForwardMsgCopyToChain(TbMsg msg, EntityId target, String fromRelationType) {
         RuleChainId targetRCId = new RuleChainId(target.getId());
         TbMsg copyMsg = msg.copy(UUIDs.timeBased(), targetRCId, null, DEFAULT_CLUSTER_PARTITION);
@@ -320,7 +348,8 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
 
     private void pushMsgToNode(RuleNodeCtx nodeCtx, TbMsg msg, String fromRelationType) {
         if (nodeCtx != null) {
-            nodeCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, nodeCtx), msg, fromRelationType), self);
+            systemContext.getRuleEngineTenantScheduler().onMsgPushed(tenantId);
+            nodeCtx.getInstanceActor(msg.getOriginator()).tell(new RuleChainToRuleNodeMsg(tenantId, msg, fromRelationType), self);
         }
     }
 
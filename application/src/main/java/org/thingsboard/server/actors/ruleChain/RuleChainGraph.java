@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import akka.actor.ActorRef;
+import com.datastax.driver.core.utils.UUIDs;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.service.executors.RuleEngineTenantScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the rule chain routes that is shared between the rule node actors of the chain.
+ * Allows rule nodes to push messages to their successors without the hop through the rule chain actor.
+ * The snapshot is deactivated when the rule chain actor stops.
+ */
+@Slf4j
+final class RuleChainGraph {
+
+    private static final long DEFAULT_CLUSTER_PARTITION = 0L;
+
+    private final TenantId tenantId;
+    private final RuleChainId ruleChainId;
+    private final Map<RuleNodeId, List<RuleNodeRelation>> routes;
+    private final Map<RuleNodeId, RuleNodeCtx> nodes;
+    private final Set<RuleNodeId> directRoutes;
+    private final RuleEngineTenantScheduler scheduler;
+    private volatile boolean active = true;
+
+    RuleChainGraph(TenantId tenantId, RuleChainId ruleChainId, Map<RuleNodeId, List<RuleNodeRelation>> routes,
+                   Map<RuleNodeId, RuleNodeCtx> nodes, RuleEngineTenantScheduler scheduler) {
+        this.tenantId = tenantId;
+        this.ruleChainId = ruleChainId;
+        this.scheduler = scheduler;
+        Map<RuleNodeId, List<RuleNodeRelation>> routesCopy = new HashMap<>();
+        Set<RuleNodeId> directRoutesCopy = new HashSet<>();
+        routes.forEach((nodeId, relations) -> {
+            routesCopy.put(nodeId, Collections.unmodifiableList(new ArrayList<>(relations)));
+            if (relations.stream().allMatch(r -> r.getOut().getEntityType() == EntityType.RULE_NODE)) {
+                directRoutesCopy.add(nodeId);
+            }
+        });
+        this.routes = Collections.unmodifiableMap(routesCopy);
+        this.directRoutes = Collections.unmodifiableSet(directRoutesCopy);
+        this.nodes = Collections.unmodifiableMap(new HashMap<>(nodes));
+    }
+
+    void deactivate() {
+        active = false;
+    }
+
+    /**
+     * Pushes the message to the successors of the originator node.
+     *
+     * @return false if the message has to be routed by the rule chain actor (e.g. relations to other rule chains).
+     * @throws IllegalStateException if the rule chain is no longer active, the same way the rule chain actor rejects the message.
+     */
+    boolean tellNext(RuleNodeId originatorNodeId, Set<String> relationTypes, TbMsg msg, ActorRef sender) {
+        checkActive();
+        if (!directRoutes.contains(originatorNodeId)) {
+            return false;
+        }
+        List<RuleNodeRelation> relations = new ArrayList<>();
+        for (RuleNodeRelation relation : routes.get(originatorNodeId)) {
+            if (contains(relationTypes, relation.getType())) {
+                relations.add(relation);
+            }
+        }
+        if (relations.isEmpty()) {
+            log.trace("[{}][{}] No outbound relations to process", ruleChainId, msg.getId());
+        } else if (relations.size() == 1) {
+            RuleNodeRelation relation = relations.get(0);
+            log.trace("[{}][{}] Pushing message to single target: [{}]", ruleChainId, msg.getId(), relation.getOut());
+            pushMsgToNode(new RuleNodeId(relation.getOut().getId()), msg, relation.getType(), sender);
+        } else {
+            for (RuleNodeRelation relation : relations) {
+                log.trace("[{}][{}] Pushing message to multiple targets: [{}]", ruleChainId, msg.getId(), relation.getOut());
+                RuleNodeId targetId = new RuleNodeId(relation.getOut().getId());
+                TbMsg copy = msg.copy(UUIDs.timeBased(), ruleChainId, targetId, DEFAULT_CLUSTER_PARTITION);
+                pushMsgToNode(targetId, copy, relation.getType(), sender);
+            }
+        }
+        return true;
+    }
+
+    private void pushMsgToNode(RuleNodeId targetId, TbMsg msg, String fromRelationType, ActorRef sender) {
+        RuleNodeCtx targetCtx = nodes.get(targetId);
+        if (targetCtx != null) {
+            scheduler.onMsgPushed(tenantId);
+            targetCtx.getInstanceActor(msg.getOriginator()).tell(new RuleChainToRuleNodeMsg(tenantId, msg, fromRelationType), sender);
+        }
+    }
+
+    private void checkActive() {
+        if (!active) {
+            log.debug("[{}][{}] Rule chain is not active", tenantId, ruleChainId);
+            throw new IllegalStateException("Rule chain is not active! " + ruleChainId + " - " + tenantId);
+        }
+    }
+
+    static boolean contains(Set<String> relationTypes, String type) {
+        if (relationTypes == null) {
+            return true;
+        }
+        for (String relationType : relationTypes) {
+            if (relationType.equalsIgnoreCase(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -16,7 +16,7 @@
 package org.thingsboard.server.actors.ruleChain;
 
 import lombok.Data;
-import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.MsgType;
 import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbMsg;
@@ -27,7 +27,7 @@ import org.thingsboard.server.common.msg.TbMsg;
 @Data
 final class RuleChainToRuleNodeMsg implements TbActorMsg {
 
-    private final TbContext ctx;
+    private final TenantId tenantId;
     private final TbMsg msg;
     private final String fromRelationType;
 
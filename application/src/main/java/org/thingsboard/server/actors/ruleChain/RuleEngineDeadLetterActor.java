@@ -0,0 +1,59 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import akka.actor.DeadLetter;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.actors.service.ContextAwareActor;
+import org.thingsboard.server.actors.service.ContextBasedCreator;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+/**
+ * Releases the tenant scheduler in-flight slots of the messages that were pushed to a rule node
+ * but never delivered, e.g. because the rule node actor was stopped by a rule chain update.
+ */
+public class RuleEngineDeadLetterActor extends ContextAwareActor {
+
+    private RuleEngineDeadLetterActor(ActorSystemContext systemContext) {
+        super(systemContext);
+    }
+
+    @Override
+    protected boolean process(TbActorMsg msg) {
+        return false;
+    }
+
+    @Override
+    public void onReceive(Object msg) {
+        if (msg instanceof DeadLetter && ((DeadLetter) msg).message() instanceof RuleChainToRuleNodeMsg) {
+            RuleChainToRuleNodeMsg ruleNodeMsg = (RuleChainToRuleNodeMsg) ((DeadLetter) msg).message();
+            systemContext.getRuleEngineTenantScheduler().onMsgDiscarded(ruleNodeMsg.getTenantId());
+        }
+    }
+
+    public static class ActorCreator extends ContextBasedCreator<RuleEngineDeadLetterActor> {
+        private static final long serialVersionUID = 1L;
+
+        public ActorCreator(ActorSystemContext context) {
+            super(context);
+        }
+
+        @Override
+        public RuleEngineDeadLetterActor create() {
+            return new RuleEngineDeadLetterActor(context);
+        }
+    }
+}
@@ -23,16 +23,20 @@ import org.thingsboard.server.common.data.id.RuleNodeId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
+import org.thingsboard.server.service.executors.RuleEngineTenantScheduler;
+
+import java.util.concurrent.atomic.AtomicReference;
 
 public class RuleNodeActor extends ComponentActor<RuleNodeId, RuleNodeActorMessageProcessor> {
 
     private final RuleChainId ruleChainId;
 
-    private RuleNodeActor(ActorSystemContext systemContext, TenantId tenantId, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
+    private RuleNodeActor(ActorSystemContext systemContext, TenantId tenantId, RuleChainId ruleChainId, RuleNodeId ruleNodeId,
+                          AtomicReference<RuleChainGraph> graph) {
         super(systemContext, tenantId, ruleNodeId);
         this.ruleChainId = ruleChainId;
         setProcessor(new RuleNodeActorMessageProcessor(tenantId, ruleChainId, ruleNodeId, systemContext,
-                context().parent(), context().self()));
+                context().parent(), context().self(), graph));
     }
 
     @Override
@@ -63,11 +67,15 @@ public class RuleNodeActor extends ComponentActor<RuleNodeId, RuleNodeActorMessa
         if (log.isDebugEnabled()) {
             log.debug("[{}][{}][{}] Going to process rule msg: {}", ruleChainId, id, processor.getComponentName(), msg.getMsg());
         }
+        RuleEngineTenantScheduler scheduler = systemContext.getRuleEngineTenantScheduler();
+        long cpuTime = scheduler.getCurrentThreadCpuTime();
         try {
             processor.onRuleToSelfMsg(msg);
             increaseMessagesProcessedCount();
         } catch (Exception e) {
             logAndPersist("onRuleMsg", e);
+        } finally {
+            scheduler.onSelfMsgProcessed(tenantId, ruleChainId, scheduler.getCurrentThreadCpuTime() - cpuTime);
         }
     }
 
@@ -75,11 +83,15 @@ public class RuleNodeActor extends ComponentActor<RuleNodeId, RuleNodeActorMessa
         if (log.isDebugEnabled()) {
             log.debug("[{}][{}][{}] Going to process rule msg: {}", ruleChainId, id, processor.getComponentName(), msg.getMsg());
         }
+        RuleEngineTenantScheduler scheduler = systemContext.getRuleEngineTenantScheduler();
+        long cpuTime = scheduler.getCurrentThreadCpuTime();
         try {
             processor.onRuleChainToRuleNodeMsg(msg);
             increaseMessagesProcessedCount();
         } catch (Exception e) {
             logAndPersist("onRuleMsg", e);
+        } finally {
+            scheduler.onMsgProcessed(tenantId, ruleChainId, scheduler.getCurrentThreadCpuTime() - cpuTime);
         }
     }
 
@@ -93,18 +105,21 @@ public class RuleNodeActor extends ComponentActor<RuleNodeId, RuleNodeActorMessa
         private final TenantId tenantId;
         private final RuleChainId ruleChainId;
         private final RuleNodeId ruleNodeId;
+        private final AtomicReference<RuleChainGraph> graph;
 
-        public ActorCreator(ActorSystemContext context, TenantId tenantId, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
+        public ActorCreator(ActorSystemContext context, TenantId tenantId, RuleChainId ruleChainId, RuleNodeId ruleNodeId,
+                            AtomicReference<RuleChainGraph> graph) {
             super(context);
             this.tenantId = tenantId;
             this.ruleChainId = ruleChainId;
             this.ruleNodeId = ruleNodeId;
+            this.graph = graph;
 
         }
 
         @Override
         public RuleNodeActor create() throws Exception {
-            return new RuleNodeActor(context, tenantId, ruleChainId, ruleNodeId);
+            return new RuleNodeActor(context, tenantId, ruleChainId, ruleNodeId, graph);
         }
     }
 
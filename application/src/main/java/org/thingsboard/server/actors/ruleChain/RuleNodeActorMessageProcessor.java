@@ -30,6 +30,8 @@ import org.thingsboard.server.common.data.rule.RuleNode;
 import org.thingsboard.server.common.msg.cluster.ClusterEventMsg;
 import org.thingsboard.server.dao.rule.RuleChainService;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * @author Andrew Shvayka
  */
@@ -43,13 +45,13 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
     private TbContext defaultCtx;
 
     RuleNodeActorMessageProcessor(TenantId tenantId, RuleChainId ruleChainId, RuleNodeId ruleNodeId, ActorSystemContext systemContext
-            , ActorRef parent, ActorRef self) {
+            , ActorRef parent, ActorRef self, AtomicReference<RuleChainGraph> graph) {
         super(systemContext, tenantId, ruleNodeId);
         this.parent = parent;
         this.self = self;
         this.service = systemContext.getRuleChainService();
         this.ruleNode = systemContext.getRuleChainService().findRuleNodeById(tenantId, entityId);
-        this.defaultCtx = new DefaultTbContext(systemContext, new RuleNodeCtx(tenantId, parent, self, ruleNode));
+        this.defaultCtx = new DefaultTbContext(systemContext, new RuleNodeCtx(tenantId, parent, self, ruleNode), graph);
     }
 
     @Override
@@ -78,6 +80,7 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
         if (tbNode != null) {
             tbNode.destroy();
         }
+        systemContext.onRuleNodeStopped(entityId);
         context.stop(self);
     }
 
@@ -106,9 +109,9 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
             systemContext.persistDebugInput(tenantId, entityId, msg.getMsg(), msg.getFromRelationType());
         }
         try {
-            tbNode.onMsg(msg.getCtx(), msg.getMsg());
+            tbNode.onMsg(defaultCtx, msg.getMsg());
         } catch (Exception e) {
-            msg.getCtx().tellFailure(msg.getMsg(), e);
+            defaultCtx.tellFailure(msg.getMsg(), e);
         }
     }
 
@@ -18,9 +18,13 @@ package org.thingsboard.server.actors.ruleChain;
 import akka.actor.ActorRef;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.rule.RuleNode;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Created by ashvayka on 19.03.18.
  */
@@ -30,5 +34,17 @@ final class RuleNodeCtx {
     private final TenantId tenantId;
     private final ActorRef chainActor;
     private final ActorRef selfActor;
+    private final List<ActorRef> instanceActors;
     private RuleNode self;
+
+    RuleNodeCtx(TenantId tenantId, ActorRef chainActor, ActorRef selfActor, RuleNode self) {
+        this(tenantId, chainActor, selfActor, Collections.singletonList(selfActor), self);
+    }
+
+    ActorRef getInstanceActor(EntityId originator) {
+        if (instanceActors.size() == 1 || originator == null) {
+            return selfActor;
+        }
+        return instanceActors.get((originator.getId().hashCode() & Integer.MAX_VALUE) % instanceActors.size());
+    }
 }
@@ -17,6 +17,7 @@ package org.thingsboard.server.actors.service;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
+import akka.actor.DeadLetter;
 import akka.actor.Props;
 import akka.actor.Terminated;
 import com.google.protobuf.ByteString;
@@ -33,6 +34,7 @@ import org.thingsboard.server.actors.app.AppInitMsg;
 import org.thingsboard.server.actors.rpc.RpcBroadcastMsg;
 import org.thingsboard.server.actors.rpc.RpcManagerActor;
 import org.thingsboard.server.actors.rpc.RpcSessionCreateRequestMsg;
+import org.thingsboard.server.actors.ruleChain.RuleEngineDeadLetterActor;
 import org.thingsboard.server.actors.stats.StatsActor;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.id.DeviceId;
@@ -109,6 +111,12 @@ public class DefaultActorService implements ActorService {
         ActorRef statsActor = system.actorOf(Props.create(new StatsActor.ActorCreator(actorContext)).withDispatcher(CORE_DISPATCHER_NAME), "statsActor");
         actorContext.setStatsActor(statsActor);
 
+        if (actorContext.getRuleEngineTenantScheduler().isEnabled()) {
+            ActorRef deadLetterActor = system.actorOf(Props.create(new RuleEngineDeadLetterActor.ActorCreator(actorContext))
+                    .withDispatcher(CORE_DISPATCHER_NAME), "ruleEngineDeadLetterActor");
+            system.eventStream().subscribe(deadLetterActor, DeadLetter.class);
+        }
+
         rpcService.init(this);
         log.info("Actor system initialized.");
     }
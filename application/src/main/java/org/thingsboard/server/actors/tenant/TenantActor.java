@@ -40,10 +40,15 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
 import org.thingsboard.server.common.data.rule.RuleChain;
 import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.aware.DeviceAwareMsg;
 import org.thingsboard.server.common.msg.aware.RuleChainAwareMsg;
 import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
+import org.thingsboard.server.common.msg.session.SessionMsgType;
 import org.thingsboard.server.common.msg.system.ServiceToRuleEngineMsg;
+import org.thingsboard.server.common.msg.timeout.DeviceActorClientSideRpcTimeoutMsg;
+import org.thingsboard.server.service.transport.msg.TransportToDeviceActorBatchMsgWrapper;
+import org.thingsboard.server.service.transport.msg.TransportToDeviceActorMsgWrapper;
 import scala.concurrent.duration.Duration;
 
 import java.util.HashMap;
@@ -104,6 +109,9 @@ public class TenantActor extends RuleChainManagerActor {
             case SERVER_RPC_RESPONSE_TO_DEVICE_ACTOR_MSG:
                 onToDeviceActorMsg((DeviceAwareMsg) msg);
                 break;
+            case TRANSPORT_TO_DEVICE_ACTOR_BATCH_MSG:
+                onToDeviceActorBatchMsg((TransportToDeviceActorBatchMsgWrapper) msg);
+                break;
             case RULE_CHAIN_TO_RULE_CHAIN_MSG:
             case REMOTE_TO_RULE_CHAIN_TELL_NEXT_MSG:
                 onRuleChainMsg((RuleChainAwareMsg) msg);
@@ -115,21 +123,36 @@ public class TenantActor extends RuleChainManagerActor {
     }
 
     private void onServiceToRuleEngineMsg(ServiceToRuleEngineMsg msg) {
-        if (ruleChainManager.getRootChainActor() != null) {
-            ruleChainManager.getRootChainActor().tell(msg, self());
-        } else {
-            log.info("[{}] No Root Chain: {}", tenantId, msg);
-        }
+        pushToRootChain(msg, msg.getTbMsg());
     }
 
     private void onDeviceActorToRuleEngineMsg(DeviceActorToRuleEngineMsg msg) {
-        if (ruleChainManager.getRootChainActor() != null) {
-            ruleChainManager.getRootChainActor().tell(msg, self());
+        pushToRootChain(msg, msg.getTbMsg());
+    }
+
+    private void pushToRootChain(TbActorMsg msg, TbMsg tbMsg) {
+        ActorRef rootChainActor = ruleChainManager.getRootChainActor();
+        if (rootChainActor != null) {
+            ActorRef self = self();
+            systemContext.getRuleEngineTenantScheduler().submit(tenantId, () -> rootChainActor.tell(msg, self), () -> onDropped(msg, tbMsg));
         } else {
             log.info("[{}] No Root Chain: {}", tenantId, msg);
         }
     }
 
+    /**
+     * Client side RPC requests are answered with a timeout right away instead of after the RPC timeout.
+     */
+    private void onDropped(TbActorMsg msg, TbMsg tbMsg) {
+        log.debug("[{}] Rule engine message dropped: {}", tenantId, tbMsg);
+        if (msg instanceof DeviceActorToRuleEngineMsg && SessionMsgType.TO_SERVER_RPC_REQUEST.name().equals(tbMsg.getType())) {
+            String requestId = tbMsg.getMetaData().getValue("requestId");
+            if (requestId != null) {
+                ((DeviceActorToRuleEngineMsg) msg).getCallbackRef().tell(new DeviceActorClientSideRpcTimeoutMsg(Integer.parseInt(requestId), 0), ActorRef.noSender());
+            }
+        }
+    }
+
     private void onRuleChainMsg(RuleChainAwareMsg msg) {
         ruleChainManager.getOrCreateActor(context(), msg.getRuleChainId()).tell(msg, self());
     }
@@ -138,6 +161,12 @@ public class TenantActor extends RuleChainManagerActor {
         getOrCreateDeviceActor(msg.getDeviceId()).tell(msg, ActorRef.noSender());
     }
 
+    private void onToDeviceActorBatchMsg(TransportToDeviceActorBatchMsgWrapper msg) {
+        for (TransportToDeviceActorMsgWrapper deviceMsg : msg.getMsgs()) {
+            onToDeviceActorMsg(deviceMsg);
+        }
+    }
+
     private void onComponentLifecycleMsg(ComponentLifecycleMsg msg) {
         ActorRef target = getEntityActorRef(msg.getEntityId());
         if (target != null) {
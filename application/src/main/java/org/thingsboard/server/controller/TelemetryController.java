@@ -20,6 +20,7 @@ import com.google.common.base.Function;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import lombok.extern.slf4j.Slf4j;
@@ -41,6 +42,7 @@ import org.thingsboard.rule.engine.api.msg.DeviceAttributesEventNotificationMsg;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.audit.ActionType;
+import org.thingsboard.server.common.data.exception.ThingsboardErrorCode;
 import org.thingsboard.server.common.data.exception.ThingsboardException;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
@@ -69,6 +71,8 @@ import org.thingsboard.server.service.security.AccessValidator;
 import org.thingsboard.server.service.security.model.SecurityUser;
 import org.thingsboard.server.service.security.permission.Operation;
 import org.thingsboard.server.service.telemetry.AttributeData;
+import org.thingsboard.server.service.telemetry.EntitiesTimeseriesQuery;
+import org.thingsboard.server.service.telemetry.EntitiesTsData;
 import org.thingsboard.server.service.telemetry.TsData;
 import org.thingsboard.server.service.telemetry.exception.InvalidParametersException;
 import org.thingsboard.server.service.telemetry.exception.UncheckedApiException;
@@ -78,13 +82,17 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -104,6 +112,12 @@ public class TelemetryController extends BaseController {
     @Value("${transport.json.max_string_value_length:0}")
     private int maxStringValueLength;
 
+    @Value("${dashboard.max_entities_per_request:1000}")
+    private int maxEntitiesPerRequest;
+
+    @Value("${dashboard.max_parallel_queries_per_request:16}")
+    private int maxParallelQueriesPerRequest;
+
     private ExecutorService executor;
 
     @PostConstruct
@@ -204,6 +218,47 @@ public class TelemetryController extends BaseController {
                 });
     }
 
+    @PreAuthorize("hasAnyAuthority('SYS_ADMIN', 'TENANT_ADMIN', 'CUSTOMER_USER')")
+    @RequestMapping(value = "/entities/values/timeseries", method = RequestMethod.POST)
+    @ResponseBody
+    public DeferredResult<ResponseEntity> getEntitiesTimeseries(@RequestBody EntitiesTimeseriesQuery query) throws ThingsboardException {
+        List<EntityId> entityIds = new ArrayList<>(new LinkedHashSet<>(checkNotNull(query.getEntityIds())));
+        if (entityIds.isEmpty() || entityIds.size() > maxEntitiesPerRequest) {
+            throw new ThingsboardException("Number of requested entities should be between 1 and " + maxEntitiesPerRequest + "!",
+                    ThingsboardErrorCode.BAD_REQUEST_PARAMS);
+        }
+        List<String> keys = query.getKeys() != null ? query.getKeys() : Collections.emptyList();
+        boolean latest = query.getStartTs() == null || query.getEndTs() == null;
+        if (!latest && keys.isEmpty()) {
+            throw new ThingsboardException("Keys should be specified to fetch the timeseries history!", ThingsboardErrorCode.BAD_REQUEST_PARAMS);
+        }
+        return accessValidator.validateEntitiesAndCallback(getCurrentUser(), Operation.READ_TELEMETRY, entityIds,
+                (result, tenantId, validatedIds) -> {
+                    ListenableFuture<Map<EntityId, List<TsKvEntry>>> future;
+                    if (latest) {
+                        future = tsService.findLatest(tenantId, validatedIds, keys);
+                    } else {
+                        Aggregation agg = query.getInterval() == 0L ? Aggregation.NONE : Aggregation.valueOf(query.getAgg());
+                        List<ReadTsKvQuery> queries = keys.stream()
+                                .map(key -> new BaseReadTsKvQuery(key, query.getStartTs(), query.getEndTs(), query.getInterval(), query.getLimit(), agg))
+                                .collect(Collectors.toList());
+                        future = findAllWithBoundedParallelism(tenantId, validatedIds, queries);
+                    }
+                    Futures.addCallback(future, new FutureCallback<Map<EntityId, List<TsKvEntry>>>() {
+                        @Override
+                        public void onSuccess(Map<EntityId, List<TsKvEntry>> data) {
+                            result.setResult(new ResponseEntity<>(new EntitiesTsData(validatedIds, data), HttpStatus.OK));
+                        }
+
+                        @Override
+                        public void onFailure(Throwable e) {
+                            log.error("Failed to fetch entities timeseries data", e);
+                            AccessValidator.handleError(e, result, HttpStatus.INTERNAL_SERVER_ERROR);
+                        }
+                    });
+                });
+    }
+
     @PreAuthorize("hasAnyAuthority('SYS_ADMIN', 'TENANT_ADMIN', 'CUSTOMER_USER')")
     @RequestMapping(value = "/{deviceId}/{scope}", method = RequestMethod.POST)
     @ResponseBody
@@ -456,6 +511,49 @@ public class TelemetryController extends BaseController {
         Futures.addCallback(future, getTsKvListCallback(result));
     }
 
+    /**
+     * Runs the queries entity by entity keeping at most maxParallelQueriesPerRequest entities in flight,
+     * so a single request can't flood the database with queries.
+     */
+    private ListenableFuture<Map<EntityId, List<TsKvEntry>>> findAllWithBoundedParallelism(TenantId tenantId, List<EntityId> entityIds, List<ReadTsKvQuery> queries) {
+        SettableFuture<Map<EntityId, List<TsKvEntry>>> future = SettableFuture.create();
+        Map<EntityId, List<TsKvEntry>> data = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(entityIds.size());
+        int parallelism = Math.max(1, Math.min(maxParallelQueriesPerRequest, entityIds.size()));
+        for (int i = 0; i < parallelism; i++) {
+            findAllNext(tenantId, entityIds, queries, next, remaining, data, future);
+        }
+        return future;
+    }
+
+    private void findAllNext(TenantId tenantId, List<EntityId> entityIds, List<ReadTsKvQuery> queries, AtomicInteger next, AtomicInteger remaining,
+                             Map<EntityId, List<TsKvEntry>> data, SettableFuture<Map<EntityId, List<TsKvEntry>>> future) {
+        int idx = next.getAndIncrement();
+        if (idx >= entityIds.size() || future.isDone()) {
+            return;
+        }
+        EntityId entityId = entityIds.get(idx);
+        Futures.addCallback(tsService.findAll(tenantId, entityId, queries), new FutureCallback<List<TsKvEntry>>() {
+            @Override
+            public void onSuccess(@Nullable List<TsKvEntry> entries) {
+                if (entries != null) {
+                    data.put(entityId, entries);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    future.set(data);
+                } else {
+                    findAllNext(tenantId, entityIds, queries, next, remaining, data, future);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.setException(t);
+            }
+        }, executor);
+    }
+
     private void getAttributeValuesCallback(@Nullable DeferredResult<ResponseEntity> result, SecurityUser user, EntityId entityId, String scope, String keys) {
         List<String> keyList = toKeysList(keys);
         FutureCallback<List<AttributeKvEntry>> callback = getAttributeValuesToResponseCallback(result, user, scope, entityId, keyList);
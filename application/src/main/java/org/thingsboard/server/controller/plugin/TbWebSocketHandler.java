@@ -15,6 +15,8 @@
  */
 package org.thingsboard.server.controller.plugin;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.BeanCreationNotAllowedException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,11 +41,14 @@ import org.thingsboard.server.service.telemetry.SessionEvent;
 import org.thingsboard.server.service.telemetry.TelemetryWebSocketMsgEndpoint;
 import org.thingsboard.server.service.telemetry.TelemetryWebSocketService;
 import org.thingsboard.server.service.telemetry.TelemetryWebSocketSessionRef;
+import org.thingsboard.server.service.telemetry.sub.PendingSubscriptionUpdates;
+import org.thingsboard.server.service.telemetry.sub.SubscriptionUpdate;
 
 import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.security.InvalidParameterException;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
@@ -57,6 +62,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements Telemetr
 
     private static final ConcurrentMap<String, SessionMetaData> internalSessionMap = new ConcurrentHashMap<>();
     private static final ConcurrentMap<String, String> externalSessionMap = new ConcurrentHashMap<>();
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
 
     @Autowired
     private TelemetryWebSocketService webSocketService;
@@ -185,8 +191,9 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements Telemetr
         private final RemoteEndpoint.Async asyncRemote;
         private final TelemetryWebSocketSessionRef sessionRef;
 
-        private volatile boolean isSending = false;
+        private boolean isSending = false;
         private final Queue<String> msgQueue;
+        private final PendingSubscriptionUpdates pendingUpdates = new PendingSubscriptionUpdates();
 
         SessionMetaData(WebSocketSession session, TelemetryWebSocketSessionRef sessionRef, int maxMsgQueuePerSession) {
             super();
@@ -219,6 +226,42 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements Telemetr
             }
         }
 
+        synchronized void sendUpdate(SubscriptionUpdate update) {
+            if (isSending) {
+                pendingUpdates.add(update);
+            } else {
+                String msg = toJson(update);
+                if (msg != null) {
+                    isSending = true;
+                    sendMsgInternal(msg);
+                }
+            }
+        }
+
+        private synchronized String nextMsg() {
+            String msg = msgQueue.poll();
+            while (msg == null && !pendingUpdates.isEmpty()) {
+                List<SubscriptionUpdate> updates = pendingUpdates.drain();
+                msg = toJson(updates.size() == 1 ? updates.get(0) : updates);
+            }
+            if (msg == null) {
+                isSending = false;
+            }
+            return msg;
+        }
+
+        private String toJson(Object update) {
+            try {
+                if (update instanceof SubscriptionUpdate) {
+                    return ((SubscriptionUpdate) update).toJson(jsonMapper);
+                }
+                return jsonMapper.writeValueAsString(update);
+            } catch (JsonProcessingException e) {
+                log.warn("[{}] Failed to encode update: {}", session.getId(), update, e);
+                return null;
+            }
+        }
+
         private void sendMsgInternal(String msg) {
             try {
                 this.asyncRemote.sendText(msg, this);
@@ -242,11 +285,9 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements Telemetr
                     log.trace("[{}] Session transport error", session.getId(), ioe);
                 }
             } else {
-                String msg = msgQueue.poll();
+                String msg = nextMsg();
                 if (msg != null) {
                     sendMsgInternal(msg);
-                } else {
-                    isSending = false;
                 }
             }
         }
@@ -254,35 +295,56 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements Telemetr
 
     @Override
     public void send(TelemetryWebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException {
+        log.debug("[{}] Processing {}", sessionRef.getSessionId(), msg);
+        SessionMetaData sessionMd = getSessionMetaData(sessionRef);
+        if (sessionMd != null && checkUpdateLimits(sessionRef, sessionMd, subscriptionId)) {
+            sessionMd.sendMsg(msg);
+        }
+    }
+
+    @Override
+    public void send(TelemetryWebSocketSessionRef sessionRef, SubscriptionUpdate update) throws IOException {
+        log.debug("[{}] Processing {}", sessionRef.getSessionId(), update);
+        SessionMetaData sessionMd = getSessionMetaData(sessionRef);
+        if (sessionMd != null && checkUpdateLimits(sessionRef, sessionMd, update.getSubscriptionId())) {
+            sessionMd.sendUpdate(update);
+        }
+    }
+
+    private SessionMetaData getSessionMetaData(TelemetryWebSocketSessionRef sessionRef) {
         String externalId = sessionRef.getSessionId();
-        log.debug("[{}] Processing {}", externalId, msg);
         String internalId = externalSessionMap.get(externalId);
         if (internalId != null) {
             SessionMetaData sessionMd = internalSessionMap.get(internalId);
-            if (sessionMd != null) {
-                if (!StringUtils.isEmpty(perSessionUpdatesConfiguration)) {
-                    TbRateLimits rateLimits = perSessionUpdateLimits.computeIfAbsent(sessionRef.getSessionId(), sid -> new TbRateLimits(perSessionUpdatesConfiguration));
-                    if (!rateLimits.tryConsume()) {
-                        if (blacklistedSessions.putIfAbsent(externalId, sessionRef) == null) {
-                            log.info("[{}][{}][{}] Failed to process session update. Max session updates limit reached"
-                                    , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), externalId);
-                            sessionMd.sendMsg("{\"subscriptionId\":" + subscriptionId + ", \"errorCode\":" + ThingsboardErrorCode.TOO_MANY_UPDATES.getErrorCode() + ", \"errorMsg\":\"Too many updates!\"}");
-                        }
-                        return;
-                    } else {
-                        log.debug("[{}][{}][{}] Session is no longer blacklisted.", sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), externalId);
-                        blacklistedSessions.remove(externalId);
-                    }
-                }
-                sessionMd.sendMsg(msg);
-            } else {
+            if (sessionMd == null) {
                 log.warn("[{}][{}] Failed to find session by internal id", externalId, internalId);
             }
+            return sessionMd;
         } else {
             log.warn("[{}] Failed to find session by external id", externalId);
+            return null;
         }
     }
 
+    private boolean checkUpdateLimits(TelemetryWebSocketSessionRef sessionRef, SessionMetaData sessionMd, int subscriptionId) {
+        if (!StringUtils.isEmpty(perSessionUpdatesConfiguration)) {
+            String externalId = sessionRef.getSessionId();
+            TbRateLimits rateLimits = perSessionUpdateLimits.computeIfAbsent(sessionRef.getSessionId(), sid -> new TbRateLimits(perSessionUpdatesConfiguration));
+            if (!rateLimits.tryConsume()) {
+                if (blacklistedSessions.putIfAbsent(externalId, sessionRef) == null) {
+                    log.info("[{}][{}][{}] Failed to process session update. Max session updates limit reached"
+                            , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), externalId);
+                    sessionMd.sendMsg("{\"subscriptionId\":" + subscriptionId + ", \"errorCode\":" + ThingsboardErrorCode.TOO_MANY_UPDATES.getErrorCode() + ", \"errorMsg\":\"Too many updates!\"}");
+                }
+                return false;
+            } else {
+                log.debug("[{}][{}][{}] Session is no longer blacklisted.", sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), externalId);
+                blacklistedSessions.remove(externalId);
+            }
+        }
+        return true;
+    }
+
     @Override
     public void close(TelemetryWebSocketSessionRef sessionRef, CloseStatus reason) throws IOException {
         String externalId = sessionRef.getSessionId();
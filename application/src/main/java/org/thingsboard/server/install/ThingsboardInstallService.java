@@ -126,6 +126,10 @@ public class ThingsboardInstallService {
                         systemDataLoaderService.deleteSystemWidgetBundle("input_widgets");
 
                         systemDataLoaderService.loadSystemWidgets();
+                    case "2.3.1":
+                        log.info("Upgrading ThingsBoard from version 2.3.1 to 2.4.0 ...");
+
+                        databaseUpgradeService.upgradeDatabase("2.3.1");
                         break;
                     default:
                         throw new RuntimeException("Unable to upgrade ThingsBoard, unsupported fromVersion: " + upgradeFromVersion);
@@ -0,0 +1,242 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.Event;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.tools.TbRateLimits;
+import org.thingsboard.server.dao.event.EventService;
+import org.thingsboard.server.service.cluster.discovery.DiscoveryService;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the latest debug events of each rule node in a bounded in-memory buffer
+ * and periodically writes them to the database in batches. The buffer of a rule node
+ * is flushed and removed when the rule node actor stops.
+ */
+@Service
+@Slf4j
+public class DefaultRuleNodeDebugEventService implements RuleNodeDebugEventService {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private DiscoveryService discoveryService;
+
+    @Value("${actors.rule.node.debug.rate_limit:}")
+    private String rateLimitConfiguration;
+
+    @Value("${actors.rule.node.debug.buffer_size:100}")
+    private int bufferSize;
+
+    @Value("${actors.rule.node.debug.batch_size:100}")
+    private int batchSize;
+
+    @Value("${actors.rule.node.debug.flush_interval_ms:1000}")
+    private long flushIntervalMs;
+
+    private final ConcurrentMap<EntityId, DebugEventBuffer> buffers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger totalAdded = new AtomicInteger();
+    private final AtomicInteger totalPersisted = new AtomicInteger();
+    private final AtomicInteger totalFailed = new AtomicInteger();
+    private final AtomicInteger totalRateLimited = new AtomicInteger();
+    private final AtomicInteger totalOverwritten = new AtomicInteger();
+
+    private ScheduledExecutorService flushExecutor;
+
+    @PostConstruct
+    public void init() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+        flush();
+    }
+
+    @Override
+    public void persistDebugEvent(TenantId tenantId, EntityId entityId, String type, TbMsg tbMsg, String relationType, Throwable error) {
+        DebugEventBuffer buffer = buffers.computeIfAbsent(entityId, id -> new DebugEventBuffer(rateLimitConfiguration, bufferSize));
+        if (!buffer.tryConsume()) {
+            totalRateLimited.incrementAndGet();
+            return;
+        }
+        try {
+            Event event = new Event();
+            event.setTenantId(tenantId);
+            event.setEntityId(entityId);
+            event.setType(DataConstants.DEBUG_RULE_NODE);
+
+            String metadata = mapper.writeValueAsString(tbMsg.getMetaData().getData());
+
+            ObjectNode node = mapper.createObjectNode()
+                    .put("type", type)
+                    .put("server", discoveryService.getCurrentServer().getServerAddress().toString())
+                    .put("entityId", tbMsg.getOriginator().getId().toString())
+                    .put("entityName", tbMsg.getOriginator().getEntityType().name())
+                    .put("msgId", tbMsg.getId().toString())
+                    .put("msgType", tbMsg.getType())
+                    .put("dataType", tbMsg.getDataType().name())
+                    .put("relationType", relationType)
+                    .put("data", tbMsg.getData())
+                    .put("metadata", metadata);
+
+            if (error != null) {
+                node = node.put("error", toString(error));
+            }
+
+            event.setBody(node);
+            totalAdded.incrementAndGet();
+            if (!buffer.add(event)) {
+                totalOverwritten.incrementAndGet();
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to persist rule node debug message", ex);
+        }
+    }
+
+    @Override
+    public void onRuleNodeStopped(EntityId entityId) {
+        DebugEventBuffer buffer = buffers.remove(entityId);
+        if (buffer != null) {
+            List<Event> events = new ArrayList<>();
+            buffer.drainTo(events);
+            save(events);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${actors.rule.node.debug.stats_print_interval_ms:60000}")
+    public void printStats() {
+        int added = totalAdded.getAndSet(0);
+        int persisted = totalPersisted.getAndSet(0);
+        int failed = totalFailed.getAndSet(0);
+        int rateLimited = totalRateLimited.getAndSet(0);
+        int overwritten = totalOverwritten.getAndSet(0);
+        if (added > 0 || persisted > 0 || failed > 0 || rateLimited > 0 || overwritten > 0) {
+            log.info("Rule node debug events buffers [{}] totalAdded [{}] totalPersisted [{}] totalFailed [{}] totalRateLimited [{}] totalOverwritten [{}]",
+                    buffers.size(), added, persisted, failed, rateLimited, overwritten);
+        }
+    }
+
+    private void flush() {
+        List<Event> events = new ArrayList<>();
+        buffers.values().forEach(buffer -> buffer.drainTo(events));
+        save(events);
+    }
+
+    private void save(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            for (List<Event> batch : Lists.partition(events, batchSize)) {
+                Futures.addCallback(eventService.saveAllAsync(batch), new FutureCallback<Void>() {
+                    @Override
+                    public void onSuccess(@Nullable Void result) {
+                        totalPersisted.addAndGet(batch.size());
+                    }
+
+                    @Override
+                    public void onFailure(Throwable th) {
+                        totalFailed.addAndGet(batch.size());
+                        log.error("Could not save debug Events for Nodes", th);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.warn("Failed to flush rule node debug events", e);
+        }
+    }
+
+    private String toString(Throwable e) {
+        StringWriter sw = new StringWriter();
+        e.printStackTrace(new PrintWriter(sw));
+        return sw.toString();
+    }
+
+    private static class DebugEventBuffer {
+
+        private final TbRateLimits rateLimits;
+        private final int capacity;
+        private final Deque<Event> events;
+
+        DebugEventBuffer(String rateLimitConfiguration, int capacity) {
+            this.rateLimits = StringUtils.isEmpty(rateLimitConfiguration) ? null : new TbRateLimits(rateLimitConfiguration);
+            this.capacity = capacity;
+            this.events = new ArrayDeque<>(capacity);
+        }
+
+        boolean tryConsume() {
+            return rateLimits == null || rateLimits.tryConsume();
+        }
+
+        /**
+         * @return false if the oldest buffered event was overwritten
+         */
+        synchronized boolean add(Event event) {
+            boolean overwritten = false;
+            if (events.size() >= capacity) {
+                events.pollFirst();
+                overwritten = true;
+            }
+            events.addLast(event);
+            return !overwritten;
+        }
+
+        synchronized void drainTo(List<Event> target) {
+            target.addAll(events);
+            events.clear();
+        }
+    }
+}
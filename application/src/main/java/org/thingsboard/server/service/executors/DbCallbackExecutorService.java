@@ -15,18 +15,136 @@
  */
 package org.thingsboard.server.service.executors;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.thingsboard.rule.engine.api.ListeningExecutor;
+import org.thingsboard.server.common.data.id.EntityId;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes database callbacks on a fixed set of single-threaded lanes.
+ * Callbacks submitted for the same entity always run on the same lane, so their order is preserved.
+ * Callbacks submitted without an entity run on the first lane, in submission order.
+ */
 @Component
-public class DbCallbackExecutorService extends AbstractListeningExecutor {
+@Slf4j
+public class DbCallbackExecutorService implements ListeningExecutor {
 
     @Value("${actors.rule.db_callback_thread_pool_size}")
     private int dbCallbackExecutorThreadPoolSize;
 
+    private Lane[] lanes;
+
+    @PostConstruct
+    public void init() {
+        int lanesCount = dbCallbackExecutorThreadPoolSize > 0 ? dbCallbackExecutorThreadPoolSize : Runtime.getRuntime().availableProcessors();
+        lanes = new Lane[lanesCount];
+        for (int i = 0; i < lanesCount; i++) {
+            lanes[i] = new Lane(i);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (lanes != null) {
+            for (Lane lane : lanes) {
+                lane.service.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Returns the lane that executes all callbacks related to the given entity.
+     */
+    public ListeningExecutor forEntity(EntityId entityId) {
+        if (entityId == null) {
+            return this;
+        }
+        return lanes[(entityId.getId().hashCode() & Integer.MAX_VALUE) % lanes.length];
+    }
+
+    @Override
+    public <T> ListenableFuture<T> executeAsync(Callable<T> task) {
+        return lanes[0].executeAsync(task);
+    }
+
     @Override
-    protected int getThreadPollSize() {
-        return dbCallbackExecutorThreadPoolSize;
+    public void execute(Runnable command) {
+        lanes[0].execute(command);
+    }
+
+    @Scheduled(fixedDelayString = "${actors.rule.db_callback_stats_print_interval_ms:60000}")
+    public void printStats() {
+        if (lanes == null) {
+            return;
+        }
+        int[] queueSize = new int[lanes.length];
+        int[] maxQueueSize = new int[lanes.length];
+        long executed = 0;
+        for (int i = 0; i < lanes.length; i++) {
+            queueSize[i] = lanes[i].executor.getQueue().size();
+            maxQueueSize[i] = lanes[i].maxQueueSize.getAndSet(0);
+            executed += lanes[i].executed.getAndSet(0);
+        }
+        if (executed > 0) {
+            log.info("DB callback lanes totalExecuted [{}] queueSize {} maxQueueSize {}",
+                    executed, Arrays.toString(queueSize), Arrays.toString(maxQueueSize));
+        }
+    }
+
+    private static final class Lane implements ListeningExecutor {
+
+        private final ThreadPoolExecutor executor;
+        private final ListeningExecutorService service;
+        private final AtomicInteger maxQueueSize = new AtomicInteger();
+        private final AtomicInteger executed = new AtomicInteger();
+
+        private Lane(int index) {
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "db-callback-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.service = MoreExecutors.listeningDecorator(executor);
+        }
+
+        @Override
+        public <T> ListenableFuture<T> executeAsync(Callable<T> task) {
+            ListenableFuture<T> future = service.submit(() -> {
+                executed.incrementAndGet();
+                return task.call();
+            });
+            updateMaxQueueSize();
+            return future;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            service.execute(() -> {
+                executed.incrementAndGet();
+                command.run();
+            });
+            updateMaxQueueSize();
+        }
+
+        private void updateMaxQueueSize() {
+            int size = executor.getQueue().size();
+            maxQueueSize.accumulateAndGet(size, Math::max);
+        }
     }
 
 }
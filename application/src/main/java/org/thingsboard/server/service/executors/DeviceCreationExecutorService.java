@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the blocking lookup and creation of gateway child devices, so that they do not hold the DB callback lanes.
+ */
+@Component
+public class DeviceCreationExecutorService extends AbstractListeningExecutor {
+
+    @Value("${transport.device_creation_thread_pool_size:4}")
+    private int deviceCreationThreadPoolSize;
+
+    @Override
+    protected int getThreadPollSize() {
+        return deviceCreationThreadPoolSize;
+    }
+
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.executors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weighted fair scheduler of the messages that enter the tenant root rule chains.
+ * <p>
+ * Each tenant has its own queue. Queues are served in the order of their virtual time,
+ * which advances by the CPU time spent in the rule nodes of the tenant divided by the tenant weight.
+ * Tenant is not served while the number of its pending rule node invocations exceeds the configured limit.
+ */
+@Component
+@Slf4j
+public class RuleEngineTenantScheduler {
+
+    private static final long MIN_MSG_COST_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    @Value("${actors.rule.tenant_scheduler.enabled:false}")
+    private boolean enabled;
+
+    @Value("${actors.rule.tenant_scheduler.queue_size:10000}")
+    private int queueSize;
+
+    @Value("${actors.rule.tenant_scheduler.max_in_flight:1000}")
+    private int maxInFlight;
+
+    @Value("${actors.rule.tenant_scheduler.in_flight_timeout_ms:60000}")
+    private long inFlightTimeoutMs;
+
+    @Value("${actors.rule.tenant_scheduler.default_weight:1}")
+    private int defaultWeight;
+
+    @Value("${actors.rule.tenant_scheduler.weights:}")
+    private String weightsConfig;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final ConcurrentMap<TenantId, TenantQueue> tenantQueues = new ConcurrentHashMap<>();
+    private final Set<TenantQueue> activeQueues = new LinkedHashSet<>();
+    private final Object lock = new Object();
+    private final Map<UUID, Integer> weights = new HashMap<>();
+
+    private boolean cpuTimeSupported;
+    private long virtualTime;
+    private volatile boolean stopped;
+    private Thread dispatcher;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!StringUtils.isEmpty(weightsConfig)) {
+            for (String entry : weightsConfig.split(",")) {
+                String[] parts = entry.trim().split(":");
+                weights.put(UUID.fromString(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+        if (cpuTimeSupported && !threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+        dispatcher = new Thread(this::dispatchLoop, "rule-engine-tenant-scheduler");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopped = true;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Submits the task that pushes a new message to the tenant root rule chain.
+     * The task is executed immediately if the scheduler is disabled.
+     *
+     * @param onDropped executed instead of the task if the tenant queue is full.
+     */
+    public void submit(TenantId tenantId, Runnable task, Runnable onDropped) {
+        if (!enabled) {
+            task.run();
+            return;
+        }
+        TenantQueue tenantQueue = getTenantQueue(tenantId);
+        if (tenantQueue.size.incrementAndGet() > queueSize) {
+            tenantQueue.size.decrementAndGet();
+            // the counter is reset by printStats, so the warning is logged at most once per stats interval
+            if (tenantQueue.dropped.incrementAndGet() == 1) {
+                log.warn("[{}] Tenant rule engine queue is full, dropping messages", tenantId);
+            }
+            onDropped.run();
+            return;
+        }
+        tenantQueue.queue.add(task);
+        synchronized (lock) {
+            if (activeQueues.add(tenantQueue)) {
+                tenantQueue.virtualTime = Math.max(tenantQueue.virtualTime, virtualTime);
+            }
+            lock.notify();
+        }
+    }
+
+    public void onMsgPushed(TenantId tenantId) {
+        if (enabled) {
+            getTenantQueue(tenantId).inFlight.incrementAndGet();
+        }
+    }
+
+    public void onMsgProcessed(TenantId tenantId, RuleChainId ruleChainId, long cpuTimeNanos) {
+        if (enabled) {
+            TenantQueue tenantQueue = getTenantQueue(tenantId);
+            tenantQueue.lastProcessedTs = System.currentTimeMillis();
+            onCpuTimeUsed(tenantQueue, ruleChainId, cpuTimeNanos);
+            releaseInFlight(tenantQueue);
+        }
+    }
+
+    /**
+     * Releases the in-flight slot of a pushed message that will never be processed by the rule node,
+     * e.g. because the rule node actor was stopped before the message was delivered.
+     */
+    public void onMsgDiscarded(TenantId tenantId) {
+        if (enabled) {
+            releaseInFlight(getTenantQueue(tenantId));
+        }
+    }
+
+    private void releaseInFlight(TenantQueue tenantQueue) {
+        int inFlight = tenantQueue.inFlight.decrementAndGet();
+        if (inFlight < 0) {
+            tenantQueue.inFlight.compareAndSet(inFlight, 0);
+        } else if (inFlight == maxInFlight - 1) {
+            synchronized (lock) {
+                lock.notify();
+            }
+        }
+    }
+
+    public void onSelfMsgProcessed(TenantId tenantId, RuleChainId ruleChainId, long cpuTimeNanos) {
+        if (enabled) {
+            onCpuTimeUsed(getTenantQueue(tenantId), ruleChainId, cpuTimeNanos);
+        }
+    }
+
+    /**
+     * @return CPU time of the current thread in nanoseconds, or 0 if the scheduler is disabled.
+     */
+    public long getCurrentThreadCpuTime() {
+        return enabled && cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0L;
+    }
+
+    private void onCpuTimeUsed(TenantQueue tenantQueue, RuleChainId ruleChainId, long cpuTimeNanos) {
+        if (cpuTimeNanos > 0) {
+            tenantQueue.cpuTime.addAndGet(cpuTimeNanos);
+            tenantQueue.pendingCost.addAndGet(cpuTimeNanos);
+            tenantQueue.ruleChainCpuTime.computeIfAbsent(ruleChainId, id -> new AtomicLong()).addAndGet(cpuTimeNanos);
+        }
+    }
+
+    private TenantQueue getTenantQueue(TenantId tenantId) {
+        return tenantQueues.computeIfAbsent(tenantId, id -> new TenantQueue(id, weights.getOrDefault(id.getId(), defaultWeight)));
+    }
+
+    private void dispatchLoop() {
+        while (!stopped) {
+            try {
+                TenantQueue next;
+                synchronized (lock) {
+                    next = pollNext();
+                    if (next == null) {
+                        lock.wait(100);
+                        continue;
+                    }
+                }
+                Runnable task = next.queue.poll();
+                if (task != null) {
+                    next.size.decrementAndGet();
+                    next.dispatched.incrementAndGet();
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                log.warn("Failed to dispatch rule engine message", t);
+            }
+        }
+    }
+
+    private TenantQueue pollNext() {
+        long ts = System.currentTimeMillis();
+        TenantQueue next = null;
+        Iterator<TenantQueue> it = activeQueues.iterator();
+        while (it.hasNext()) {
+            TenantQueue tenantQueue = it.next();
+            if (tenantQueue.size.get() <= 0) {
+                it.remove();
+                continue;
+            }
+            tenantQueue.virtualTime += tenantQueue.pendingCost.getAndSet(0) / tenantQueue.weight;
+            if (tenantQueue.inFlight.get() >= maxInFlight) {
+                if (ts - tenantQueue.lastProcessedTs > inFlightTimeoutMs) {
+                    log.warn("[{}] No rule engine messages processed during {} ms, resetting in-flight counter [{}]",
+                            tenantQueue.tenantId, inFlightTimeoutMs, tenantQueue.inFlight.get());
+                    tenantQueue.inFlight.set(0);
+                    tenantQueue.lastProcessedTs = ts;
+                } else {
+                    continue;
+                }
+            }
+            if (next == null || tenantQueue.virtualTime < next.virtualTime) {
+                next = tenantQueue;
+            }
+        }
+        if (next != null) {
+            next.virtualTime += MIN_MSG_COST_NANOS / next.weight;
+            virtualTime = next.virtualTime;
+        }
+        return next;
+    }
+
+    @Scheduled(fixedDelayString = "${actors.rule.tenant_scheduler.stats_print_interval_ms:60000}")
+    public void printStats() {
+        if (!enabled) {
+            return;
+        }
+        tenantQueues.values().forEach(tenantQueue -> {
+            int dispatched = tenantQueue.dispatched.getAndSet(0);
+            int dropped = tenantQueue.dropped.getAndSet(0);
+            long cpuTime = tenantQueue.cpuTime.getAndSet(0);
+            if (dispatched > 0 || dropped > 0 || cpuTime > 0) {
+                Map<RuleChainId, Long> ruleChainCpuTime = new HashMap<>();
+                tenantQueue.ruleChainCpuTime.forEach((id, time) -> ruleChainCpuTime.put(id, TimeUnit.NANOSECONDS.toMillis(time.getAndSet(0))));
+                log.info("[{}] Tenant rule engine stats: weight [{}] queueSize [{}] inFlight [{}] totalDispatched [{}] totalDropped [{}] cpuTimeMs [{}] ruleChainCpuTimeMs {}",
+                        tenantQueue.tenantId, tenantQueue.weight, tenantQueue.size.get(), tenantQueue.inFlight.get(),
+                        dispatched, dropped, TimeUnit.NANOSECONDS.toMillis(cpuTime), ruleChainCpuTime);
+            }
+        });
+    }
+
+    private static final class TenantQueue {
+        private final TenantId tenantId;
+        private final int weight;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger dispatched = new AtomicInteger();
+        private final AtomicInteger dropped = new AtomicInteger();
+        private final AtomicLong cpuTime = new AtomicLong();
+        private final AtomicLong pendingCost = new AtomicLong();
+        private final ConcurrentMap<RuleChainId, AtomicLong> ruleChainCpuTime = new ConcurrentHashMap<>();
+        private volatile long lastProcessedTs = System.currentTimeMillis();
+        private long virtualTime;
+
+        private TenantQueue(TenantId tenantId, int weight) {
+            this.tenantId = tenantId;
+            this.weight = Math.max(1, weight);
+        }
+    }
+}
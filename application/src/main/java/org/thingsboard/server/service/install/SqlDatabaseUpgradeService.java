@@ -21,6 +21,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.thingsboard.server.dao.dashboard.DashboardService;
+import org.thingsboard.server.dao.sql.timeseries.PsqlPartitioningRepository;
 import org.thingsboard.server.dao.util.SqlDao;
 import org.thingsboard.server.service.install.sql.SqlDbHelper;
 
@@ -30,6 +31,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
 
 import static org.thingsboard.server.service.install.DatabaseHelper.ADDITIONAL_INFO;
 import static org.thingsboard.server.service.install.DatabaseHelper.ASSIGNED_CUSTOMERS;
@@ -57,6 +60,9 @@ import static org.thingsboard.server.service.install.DatabaseHelper.TYPE;
 public class SqlDatabaseUpgradeService implements DatabaseUpgradeService {
 
     private static final String SCHEMA_UPDATE_SQL = "schema_update.sql";
+    private static final String SCHEMA_UPDATE_PSQL_TS_SQL = "schema_update_psql_ts.sql";
+    private static final String PSQL_TS_TYPE = "psql";
+    private static final String TS_KV_OLD = "ts_kv_old";
 
     @Value("${spring.datasource.url}")
     private String dbUrl;
@@ -67,9 +73,15 @@ public class SqlDatabaseUpgradeService implements DatabaseUpgradeService {
     @Value("${spring.datasource.password}")
     private String dbPassword;
 
+    @Value("${database.ts.type}")
+    private String tsType;
+
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired(required = false)
+    private PsqlPartitioningRepository psqlPartitioningRepository;
+
     @Autowired
     private InstallScripts installScripts;
 
@@ -165,11 +177,61 @@ public class SqlDatabaseUpgradeService implements DatabaseUpgradeService {
                     log.info("Schema updated.");
                 }
                 break;
+            case "2.3.1":
+                if (PSQL_TS_TYPE.equalsIgnoreCase(tsType)) {
+                    try (Connection conn = DriverManager.getConnection(dbUrl, dbUserName, dbPassword)) {
+                        if (!tableExists(conn, TS_KV_OLD)) {
+                            log.info("Renaming ts_kv to {} ...", TS_KV_OLD);
+                            try (Statement statement = conn.createStatement()) {
+                                statement.execute("ALTER TABLE ts_kv RENAME TO " + TS_KV_OLD);
+                                statement.execute("ALTER TABLE " + TS_KV_OLD + " RENAME CONSTRAINT ts_kv_pkey TO " + TS_KV_OLD + "_pkey");
+                            }
+                        }
+                        log.info("Creating compact timeseries schema ...");
+                        loadSql(Paths.get(installScripts.getDataDir(), "sql", "schema-ts-psql.sql"), conn);
+                        log.info("Creating timeseries partitions ...");
+                        try (Statement statement = conn.createStatement();
+                             ResultSet rs = statement.executeQuery("SELECT MIN(ts), MAX(ts) FROM " + TS_KV_OLD)) {
+                            if (rs.next()) {
+                                long minTs = rs.getLong(1);
+                                if (!rs.wasNull()) {
+                                    psqlPartitioningRepository.createPartitions(minTs, rs.getLong(2));
+                                }
+                            }
+                        }
+                        log.info("Migrating timeseries data ...");
+                        schemaUpdateFile = Paths.get(installScripts.getDataDir(), "upgrade", "2.4.0", SCHEMA_UPDATE_PSQL_TS_SQL);
+                        loadSql(schemaUpdateFile, conn);
+                        long oldCount = count(conn, TS_KV_OLD);
+                        long compactCount = count(conn, "ts_kv_compact");
+                        if (compactCount < oldCount) {
+                            throw new RuntimeException("Timeseries data migration is incomplete: " + oldCount + " rows in " + TS_KV_OLD +
+                                    ", " + compactCount + " rows in ts_kv_compact. Table " + TS_KV_OLD + " is left intact.");
+                        }
+                        log.info("Timeseries data migrated: {} rows. Table {} is kept, drop it manually once the migration is verified: DROP TABLE {};",
+                                oldCount, TS_KV_OLD, TS_KV_OLD);
+                    }
+                }
+                break;
             default:
                 throw new RuntimeException("Unable to upgrade SQL database, unsupported fromVersion: " + fromVersion);
         }
     }
 
+    private boolean tableExists(Connection conn, String tableName) throws Exception {
+        try (ResultSet rs = conn.getMetaData().getTables(null, null, tableName, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private long count(Connection conn, String tableName) throws Exception {
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + tableName)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
     private void loadSql(Path sqlFile, Connection conn) throws Exception {
         String sql = new String(Files.readAllBytes(sqlFile), Charset.forName("UTF-8"));
         conn.createStatement().execute(sql); //NOSONAR, ignoring because method used to execute thingsboard database upgrade script
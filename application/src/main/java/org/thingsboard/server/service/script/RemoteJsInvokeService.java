@@ -70,6 +70,9 @@ public class RemoteJsInvokeService extends AbstractJsInvokeService {
     @Value("${js.remote.max_errors}")
     private int maxErrors;
 
+    @Value("${js.remote.invoke_by_script_id:false}")
+    private boolean invokeByScriptId;
+
     private TbKafkaRequestTemplate<JsInvokeProtos.RemoteJsRequest, JsInvokeProtos.RemoteJsResponse> kafkaTemplate;
     private Map<UUID, String> scriptIdToBodysMap = new ConcurrentHashMap<>();
 
@@ -163,20 +166,27 @@ public class RemoteJsInvokeService extends AbstractJsInvokeService {
                 .setScriptIdMSB(scriptId.getMostSignificantBits())
                 .setScriptIdLSB(scriptId.getLeastSignificantBits())
                 .setFunctionName(functionName)
-                .setTimeout((int) maxRequestsTimeout)
-                .setScriptBody(scriptIdToBodysMap.get(scriptId));
+                .setTimeout((int) maxRequestsTimeout);
 
         for (int i = 0; i < args.length; i++) {
             jsRequestBuilder.addArgs(args[i].toString());
         }
 
-        JsInvokeProtos.RemoteJsRequest jsRequestWrapper = JsInvokeProtos.RemoteJsRequest.newBuilder()
-                .setInvokeRequest(jsRequestBuilder.build())
-                .build();
-
-        ListenableFuture<JsInvokeProtos.RemoteJsResponse> future = kafkaTemplate.post(scriptId.toString(), jsRequestWrapper);
-        return Futures.transform(future, response -> {
-            JsInvokeProtos.JsInvokeResponse invokeResult = response.getInvokeResponse();
+        ListenableFuture<JsInvokeProtos.JsInvokeResponse> future;
+        if (invokeByScriptId) {
+            // The script body is sent only if the executor does not have the compiled script anymore
+            JsInvokeProtos.JsInvokeRequest jsRequest = jsRequestBuilder.build();
+            future = Futures.transformAsync(invoke(scriptId, jsRequest), invokeResult -> {
+                if (!invokeResult.getSuccess() && invokeResult.getErrorCode() == JsInvokeProtos.JsInvokeErrorCode.NOT_FOUND_ERROR) {
+                    log.trace("[{}] Script is missing in the executor, resending the script body", scriptId);
+                    return invoke(scriptId, jsRequest.toBuilder().setScriptBody(scriptBody).build());
+                }
+                return Futures.immediateFuture(invokeResult);
+            });
+        } else {
+            future = invoke(scriptId, jsRequestBuilder.setScriptBody(scriptBody).build());
+        }
+        return Futures.transform(future, invokeResult -> {
             if (invokeResult.getSuccess()) {
                 return invokeResult.getResult();
             } else {
@@ -186,6 +196,13 @@ public class RemoteJsInvokeService extends AbstractJsInvokeService {
         });
     }
 
+    private ListenableFuture<JsInvokeProtos.JsInvokeResponse> invoke(UUID scriptId, JsInvokeProtos.JsInvokeRequest jsRequest) {
+        JsInvokeProtos.RemoteJsRequest jsRequestWrapper = JsInvokeProtos.RemoteJsRequest.newBuilder()
+                .setInvokeRequest(jsRequest)
+                .build();
+        return Futures.transform(kafkaTemplate.post(scriptId.toString(), jsRequestWrapper), JsInvokeProtos.RemoteJsResponse::getInvokeResponse);
+    }
+
     @Override
     protected void doRelease(UUID scriptId, String functionName) throws Exception {
         JsInvokeProtos.JsReleaseRequest jsRequest = JsInvokeProtos.JsReleaseRequest.newBuilder()
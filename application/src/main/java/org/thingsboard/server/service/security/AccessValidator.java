@@ -19,23 +19,20 @@ import com.google.common.base.Function;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.async.DeferredResult;
 import org.thingsboard.server.common.data.Customer;
-import org.thingsboard.server.common.data.Device;
-import org.thingsboard.server.common.data.EntityView;
+import org.thingsboard.server.common.data.EntityOwnership;
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.Tenant;
-import org.thingsboard.server.common.data.asset.Asset;
 import org.thingsboard.server.common.data.exception.ThingsboardException;
-import org.thingsboard.server.common.data.id.AssetId;
 import org.thingsboard.server.common.data.id.CustomerId;
-import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.EntityIdFactory;
-import org.thingsboard.server.common.data.id.EntityViewId;
 import org.thingsboard.server.common.data.id.RuleChainId;
 import org.thingsboard.server.common.data.id.RuleNodeId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -46,6 +43,7 @@ import org.thingsboard.server.dao.alarm.AlarmService;
 import org.thingsboard.server.dao.asset.AssetService;
 import org.thingsboard.server.dao.customer.CustomerService;
 import org.thingsboard.server.dao.device.DeviceService;
+import org.thingsboard.server.dao.entity.EntityService;
 import org.thingsboard.server.dao.entityview.EntityViewService;
 import org.thingsboard.server.dao.rule.RuleChainService;
 import org.thingsboard.server.dao.tenant.TenantService;
@@ -59,6 +57,9 @@ import org.thingsboard.server.service.telemetry.exception.ToErrorResponseEntity;
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.BiConsumer;
@@ -73,6 +74,7 @@ public class AccessValidator {
     public static final String SYSTEM_ADMINISTRATOR_IS_NOT_ALLOWED_TO_PERFORM_THIS_OPERATION = "System administrator is not allowed to perform this operation!";
     public static final String DEVICE_WITH_REQUESTED_ID_NOT_FOUND = "Device with requested id wasn't found!";
     public static final String ENTITY_VIEW_WITH_REQUESTED_ID_NOT_FOUND = "Entity-view with requested id wasn't found!";
+    public static final String ASSET_WITH_REQUESTED_ID_NOT_FOUND = "Asset with requested id wasn't found!";
 
     @Autowired
     protected TenantService tenantService;
@@ -98,6 +100,9 @@ public class AccessValidator {
     @Autowired
     protected EntityViewService entityViewService;
 
+    @Autowired
+    protected EntityService entityService;
+
     @Autowired
     protected AccessControlService accessControlService;
 
@@ -180,21 +185,125 @@ public class AccessValidator {
         }
     }
 
+    public DeferredResult<ResponseEntity> validateEntitiesAndCallback(SecurityUser currentUser, Operation operation, List<EntityId> entityIds,
+                                                                      ThreeConsumer<DeferredResult<ResponseEntity>, TenantId, List<EntityId>> onSuccess) {
+        final DeferredResult<ResponseEntity> response = new DeferredResult<>();
+
+        validate(currentUser, operation, entityIds, new HttpValidationCallback(response,
+                new FutureCallback<DeferredResult<ResponseEntity>>() {
+                    @Override
+                    public void onSuccess(@Nullable DeferredResult<ResponseEntity> result) {
+                        onSuccess.accept(response, currentUser.getTenantId(), entityIds);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        handleError(t, response, HttpStatus.INTERNAL_SERVER_ERROR);
+                    }
+                }));
+
+        return response;
+    }
+
+    /**
+     * Validates access to all the entities at once. Devices, assets and entity views are checked against their ownerships
+     * fetched in bulk, other entities are validated one by one. Reports the first failed validation, if any.
+     */
+    public void validate(SecurityUser currentUser, Operation operation, List<EntityId> entityIds, FutureCallback<ValidationResult> callback) {
+        List<EntityId> ownedEntityIds = new ArrayList<>();
+        List<EntityId> otherEntityIds = new ArrayList<>();
+        for (EntityId entityId : entityIds) {
+            if (getOwnedEntityResource(entityId.getEntityType()) != null) {
+                ownedEntityIds.add(entityId);
+            } else {
+                otherEntityIds.add(entityId);
+            }
+        }
+        if (!ownedEntityIds.isEmpty() && currentUser.isSystemAdmin()) {
+            callback.onSuccess(ValidationResult.accessDenied(SYSTEM_ADMINISTRATOR_IS_NOT_ALLOWED_TO_PERFORM_THIS_OPERATION));
+            return;
+        }
+        List<ListenableFuture<ValidationResult>> results = new ArrayList<>();
+        if (!ownedEntityIds.isEmpty()) {
+            ListenableFuture<Map<EntityId, EntityOwnership>> ownershipsFuture = entityService.fetchEntityOwnershipsAsync(currentUser.getTenantId(), ownedEntityIds);
+            results.add(Futures.transform(ownershipsFuture, ownerships -> validateOwnerships(currentUser, operation, ownedEntityIds, ownerships), executor));
+        }
+        for (EntityId entityId : otherEntityIds) {
+            SettableFuture<ValidationResult> result = SettableFuture.create();
+            validate(currentUser, operation, entityId, new FutureCallback<ValidationResult>() {
+                @Override
+                public void onSuccess(@Nullable ValidationResult validationResult) {
+                    result.set(validationResult);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    result.setException(t);
+                }
+            });
+            results.add(result);
+        }
+        Futures.addCallback(Futures.allAsList(results), getCallback(callback, validationResults ->
+                validationResults.stream()
+                        .filter(validationResult -> validationResult.getResultCode() != ValidationResultCode.OK)
+                        .findFirst()
+                        .orElse(ValidationResult.ok(null))), executor);
+    }
+
+    private ValidationResult validateOwnerships(SecurityUser currentUser, Operation operation, List<EntityId> entityIds, Map<EntityId, EntityOwnership> ownerships) {
+        for (EntityId entityId : entityIds) {
+            EntityOwnership ownership = ownerships.get(entityId);
+            if (ownership == null) {
+                return ValidationResult.entityNotFound(getNotFoundMessage(entityId.getEntityType()));
+            }
+            try {
+                accessControlService.checkPermission(currentUser, getOwnedEntityResource(entityId.getEntityType()), operation, entityId, ownership);
+            } catch (ThingsboardException e) {
+                return ValidationResult.accessDenied(e.getMessage());
+            }
+        }
+        return ValidationResult.ok(ownerships);
+    }
+
+    private static Resource getOwnedEntityResource(EntityType entityType) {
+        switch (entityType) {
+            case DEVICE:
+                return Resource.DEVICE;
+            case ASSET:
+                return Resource.ASSET;
+            case ENTITY_VIEW:
+                return Resource.ENTITY_VIEW;
+            default:
+                return null;
+        }
+    }
+
+    private static String getNotFoundMessage(EntityType entityType) {
+        switch (entityType) {
+            case DEVICE:
+                return DEVICE_WITH_REQUESTED_ID_NOT_FOUND;
+            case ASSET:
+                return ASSET_WITH_REQUESTED_ID_NOT_FOUND;
+            default:
+                return ENTITY_VIEW_WITH_REQUESTED_ID_NOT_FOUND;
+        }
+    }
+
     private void validateDevice(final SecurityUser currentUser, Operation operation, EntityId entityId, FutureCallback<ValidationResult> callback) {
         if (currentUser.isSystemAdmin()) {
             callback.onSuccess(ValidationResult.accessDenied(SYSTEM_ADMINISTRATOR_IS_NOT_ALLOWED_TO_PERFORM_THIS_OPERATION));
         } else {
-            ListenableFuture<Device> deviceFuture = deviceService.findDeviceByIdAsync(currentUser.getTenantId(), new DeviceId(entityId.getId()));
-            Futures.addCallback(deviceFuture, getCallback(callback, device -> {
-                if (device == null) {
+            ListenableFuture<EntityOwnership> ownershipFuture = entityService.fetchEntityOwnershipAsync(currentUser.getTenantId(), entityId);
+            Futures.addCallback(ownershipFuture, getCallback(callback, ownership -> {
+                if (ownership == null) {
                     return ValidationResult.entityNotFound(DEVICE_WITH_REQUESTED_ID_NOT_FOUND);
                 } else {
                     try {
-                        accessControlService.checkPermission(currentUser, Resource.DEVICE, operation, entityId, device);
+                        accessControlService.checkPermission(currentUser, Resource.DEVICE, operation, entityId, ownership);
                     } catch (ThingsboardException e) {
                         return ValidationResult.accessDenied(e.getMessage());
                     }
-                    return ValidationResult.ok(device);
+                    return ValidationResult.ok(ownership);
                 }
             }), executor);
         }
@@ -204,17 +313,17 @@ public class AccessValidator {
         if (currentUser.isSystemAdmin()) {
             callback.onSuccess(ValidationResult.accessDenied(SYSTEM_ADMINISTRATOR_IS_NOT_ALLOWED_TO_PERFORM_THIS_OPERATION));
         } else {
-            ListenableFuture<Asset> assetFuture = assetService.findAssetByIdAsync(currentUser.getTenantId(), new AssetId(entityId.getId()));
-            Futures.addCallback(assetFuture, getCallback(callback, asset -> {
-                if (asset == null) {
-                    return ValidationResult.entityNotFound("Asset with requested id wasn't found!");
+            ListenableFuture<EntityOwnership> ownershipFuture = entityService.fetchEntityOwnershipAsync(currentUser.getTenantId(), entityId);
+            Futures.addCallback(ownershipFuture, getCallback(callback, ownership -> {
+                if (ownership == null) {
+                    return ValidationResult.entityNotFound(ASSET_WITH_REQUESTED_ID_NOT_FOUND);
                 } else {
                     try {
-                        accessControlService.checkPermission(currentUser, Resource.ASSET, operation, entityId, asset);
+                        accessControlService.checkPermission(currentUser, Resource.ASSET, operation, entityId, ownership);
                     } catch (ThingsboardException e) {
                         return ValidationResult.accessDenied(e.getMessage());
                     }
-                    return ValidationResult.ok(asset);
+                    return ValidationResult.ok(ownership);
                 }
             }), executor);
         }
@@ -311,17 +420,17 @@ public class AccessValidator {
         if (currentUser.isSystemAdmin()) {
             callback.onSuccess(ValidationResult.accessDenied(SYSTEM_ADMINISTRATOR_IS_NOT_ALLOWED_TO_PERFORM_THIS_OPERATION));
         } else {
-            ListenableFuture<EntityView> entityViewFuture = entityViewService.findEntityViewByIdAsync(currentUser.getTenantId(), new EntityViewId(entityId.getId()));
-            Futures.addCallback(entityViewFuture, getCallback(callback, entityView -> {
-                if (entityView == null) {
+            ListenableFuture<EntityOwnership> ownershipFuture = entityService.fetchEntityOwnershipAsync(currentUser.getTenantId(), entityId);
+            Futures.addCallback(ownershipFuture, getCallback(callback, ownership -> {
+                if (ownership == null) {
                     return ValidationResult.entityNotFound(ENTITY_VIEW_WITH_REQUESTED_ID_NOT_FOUND);
                 } else {
                     try {
-                        accessControlService.checkPermission(currentUser, Resource.ENTITY_VIEW, operation, entityId, entityView);
+                        accessControlService.checkPermission(currentUser, Resource.ENTITY_VIEW, operation, entityId, ownership);
                     } catch (ThingsboardException e) {
                         return ValidationResult.accessDenied(e.getMessage());
                     }
-                    return ValidationResult.ok(entityView);
+                    return ValidationResult.ok(ownership);
                 }
             }), executor);
         }
@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -55,7 +56,9 @@ import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -126,6 +129,7 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
 
     private final Map<EntityId, Set<Subscription>> subscriptionsByEntityId = new ConcurrentHashMap<>();
     private final Map<String, Map<Integer, Subscription>> subscriptionsByWsSessionId = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, Map<EntityId, Subscription>>> multiEntitySubscriptionsByWsSessionId = new ConcurrentHashMap<>();
 
     @Override
     public void addLocalWsSubscription(String sessionId, EntityId entityId, SubscriptionState sub) {
@@ -161,7 +165,8 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
                     .stream().filter(entry -> entityView.getKeys().getTimeseries().contains(entry.getKey()))
                     .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
         }
-        return new SubscriptionState(sub.getWsSessionId(), sub.getSubscriptionId(), sub.getTenantId(), entityId, sub.getType(), false, keyStates, sub.getScope());
+        return new SubscriptionState(sub.getWsSessionId(), sub.getSubscriptionId(), sub.getTenantId(), entityId, sub.getType(), false, keyStates, sub.getScope(),
+                sub.isMultiEntity(), sub.isTimeWindow());
     }
 
     @Override
@@ -172,6 +177,14 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
     @Override
     public void removeSubscription(String sessionId, int subscriptionId) {
         log.debug("[{}][{}] Going to remove subscription.", sessionId, subscriptionId);
+        Map<Integer, Map<EntityId, Subscription>> sessionMultiEntitySubscriptions = multiEntitySubscriptionsByWsSessionId.get(sessionId);
+        if (sessionMultiEntitySubscriptions != null) {
+            Map<EntityId, Subscription> subscriptions = sessionMultiEntitySubscriptions.remove(subscriptionId);
+            if (subscriptions != null) {
+                processMultiEntitySubscriptionRemoval(sessionId, sessionMultiEntitySubscriptions, subscriptionId, subscriptions);
+                return;
+            }
+        }
         Map<Integer, Subscription> sessionSubscriptions = subscriptionsByWsSessionId.get(sessionId);
         if (sessionSubscriptions != null) {
             Subscription subscription = sessionSubscriptions.remove(subscriptionId);
@@ -249,7 +262,7 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
                 new SubscriptionState(proto.getSessionId(), proto.getSubscriptionId(),
                         new TenantId(UUID.fromString(proto.getTenantId())),
                         EntityIdFactory.getByTypeAndId(proto.getEntityType(), proto.getEntityId()),
-                        TelemetryFeature.valueOf(proto.getType()), proto.getAllKeys(), statesMap, proto.getScope()),
+                        TelemetryFeature.valueOf(proto.getType()), proto.getAllKeys(), statesMap, proto.getScope(), proto.getMultiEntity()),
                 false, new ServerAddress(serverAddress.getHost(), serverAddress.getPort(), serverAddress.getServerType()));
 
         addRemoteWsSubscription(serverAddress, proto.getSessionId(), subscription);
@@ -266,9 +279,10 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
         SubscriptionUpdate update = convert(proto);
         String sessionId = proto.getSessionId();
         log.trace("[{}] Processing remote subscription onUpdate [{}]", sessionId, update);
-        Optional<Subscription> subOpt = getSubscription(sessionId, update.getSubscriptionId());
+        Optional<Subscription> subOpt = getSubscription(sessionId, update.getSubscriptionId(), update.getEntityId());
         if (subOpt.isPresent()) {
             updateSubscriptionState(sessionId, subOpt.get(), update);
+            update.setConflatable(subOpt.get().isLatestValues());
             wsService.sendWsMsg(sessionId, update);
         }
     }
@@ -382,7 +396,7 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
                             }
                         });
                         if (!missedUpdates.isEmpty()) {
-                            tellRemoteSubUpdate(address, sessionId, new SubscriptionUpdate(subscription.getSubscriptionId(), missedUpdates));
+                            tellRemoteSubUpdate(address, sessionId, toSubscriptionUpdate(subscription, missedUpdates));
                         }
                     },
                     e -> log.error("Failed to fetch missed updates.", e), tsCallBackExecutor);
@@ -400,7 +414,7 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
                 DonAsynchron.withCallback(tsService.findAll(subscription.getSub().getTenantId(), entityId, queries),
                         missedUpdates -> {
                             if (missedUpdates != null && !missedUpdates.isEmpty()) {
-                                tellRemoteSubUpdate(address, sessionId, new SubscriptionUpdate(subscription.getSubscriptionId(), missedUpdates));
+                                tellRemoteSubUpdate(address, sessionId, toSubscriptionUpdate(subscription, missedUpdates));
                             }
                         },
                         e -> log.error("Failed to fetch missed updates.", e),
@@ -472,13 +486,23 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
     private void onLocalSubUpdate(EntityId entityId, Predicate<Subscription> filter, Function<Subscription, List<TsKvEntry>> f) {
         Set<Subscription> deviceSubscriptions = subscriptionsByEntityId.get(entityId);
         if (deviceSubscriptions != null) {
+            // Subscriptions with the same keys and time range receive the same data, so the update is built and encoded once per group
+            Map<SubscriptionGroup, Optional<SubscriptionUpdate>> groupUpdates = new HashMap<>();
             deviceSubscriptions.stream().filter(filter).forEach(s -> {
                 String sessionId = s.getWsSessionId();
-                List<TsKvEntry> subscriptionUpdate = f.apply(s);
-                if (subscriptionUpdate != null && !subscriptionUpdate.isEmpty()) {
-                    SubscriptionUpdate update = new SubscriptionUpdate(s.getSubscriptionId(), subscriptionUpdate);
+                Optional<SubscriptionUpdate> groupUpdate = groupUpdates.computeIfAbsent(new SubscriptionGroup(s), g -> {
+                    List<TsKvEntry> subscriptionUpdate = f.apply(s);
+                    if (subscriptionUpdate != null && !subscriptionUpdate.isEmpty()) {
+                        return Optional.of(toSubscriptionUpdate(s, subscriptionUpdate));
+                    } else {
+                        return Optional.empty();
+                    }
+                });
+                if (groupUpdate.isPresent()) {
+                    SubscriptionUpdate update = groupUpdate.get().withSubscriptionId(s.getSubscriptionId());
                     if (s.isLocal()) {
                         updateSubscriptionState(sessionId, s, update);
+                        update.setConflatable(s.isLatestValues());
                         wsService.sendWsMsg(sessionId, update);
                     } else {
                         tellRemoteSubUpdate(s.getServer(), sessionId, update);
@@ -490,6 +514,33 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
         }
     }
 
+    @Data
+    private static class SubscriptionGroup {
+        private final TelemetryFeature type;
+        private final boolean allKeys;
+        private final Set<String> keys;
+        private final long startTime;
+        private final long endTime;
+        private final EntityId updateEntityId;
+
+        SubscriptionGroup(Subscription s) {
+            this.type = s.getType();
+            this.allKeys = s.isAllKeys();
+            this.keys = s.isAllKeys() ? null : s.getKeyStates().keySet();
+            this.startTime = s.getStartTime();
+            this.endTime = s.getEndTime();
+            this.updateEntityId = s.getSub().isMultiEntity() ? s.getEntityId() : null;
+        }
+    }
+
+    private SubscriptionUpdate toSubscriptionUpdate(Subscription subscription, List<TsKvEntry> data) {
+        if (subscription.getSub().isMultiEntity()) {
+            return new SubscriptionUpdate(subscription.getSubscriptionId(), subscription.getEntityId(), data);
+        } else {
+            return new SubscriptionUpdate(subscription.getSubscriptionId(), data);
+        }
+    }
+
     private void updateSubscriptionState(String sessionId, Subscription subState, SubscriptionUpdate update) {
         log.trace("[{}] updating subscription state {} using onUpdate {}", sessionId, subState, update);
         update.getLatestValues().entrySet().forEach(e -> subState.setKeyState(e.getKey(), e.getValue()));
@@ -498,8 +549,13 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
     private void registerSubscription(String sessionId, EntityId entityId, Subscription subscription) {
         Set<Subscription> deviceSubscriptions = subscriptionsByEntityId.computeIfAbsent(entityId, k -> ConcurrentHashMap.newKeySet());
         deviceSubscriptions.add(subscription);
-        Map<Integer, Subscription> sessionSubscriptions = subscriptionsByWsSessionId.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>());
-        sessionSubscriptions.put(subscription.getSubscriptionId(), subscription);
+        if (subscription.getSub().isMultiEntity()) {
+            Map<Integer, Map<EntityId, Subscription>> sessionSubscriptions = multiEntitySubscriptionsByWsSessionId.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>());
+            sessionSubscriptions.computeIfAbsent(subscription.getSubscriptionId(), k -> new ConcurrentHashMap<>()).put(entityId, subscription);
+        } else {
+            Map<Integer, Subscription> sessionSubscriptions = subscriptionsByWsSessionId.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>());
+            sessionSubscriptions.put(subscription.getSubscriptionId(), subscription);
+        }
     }
 
     private void cleanupLocalWsSessionSubscriptions(String sessionId) {
@@ -512,20 +568,20 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
 
     private void cleanupWsSessionSubscriptions(String sessionId, boolean localSession) {
         log.debug("[{}] Removing all subscriptions for particular session.", sessionId);
-        Map<Integer, Subscription> sessionSubscriptions = subscriptionsByWsSessionId.get(sessionId);
-        if (sessionSubscriptions != null) {
-            int sessionSubscriptionSize = sessionSubscriptions.size();
-
-            for (Subscription subscription : sessionSubscriptions.values()) {
-                EntityId entityId = subscription.getEntityId();
-                Set<Subscription> deviceSubscriptions = subscriptionsByEntityId.get(entityId);
-                deviceSubscriptions.remove(subscription);
-                if (deviceSubscriptions.isEmpty()) {
-                    subscriptionsByEntityId.remove(entityId);
-                }
+        List<Subscription> sessionSubscriptions = new ArrayList<>();
+        Map<Integer, Subscription> singleEntitySubscriptions = subscriptionsByWsSessionId.remove(sessionId);
+        if (singleEntitySubscriptions != null) {
+            sessionSubscriptions.addAll(singleEntitySubscriptions.values());
+        }
+        Map<Integer, Map<EntityId, Subscription>> multiEntitySubscriptions = multiEntitySubscriptionsByWsSessionId.remove(sessionId);
+        if (multiEntitySubscriptions != null) {
+            multiEntitySubscriptions.values().forEach(subscriptions -> sessionSubscriptions.addAll(subscriptions.values()));
+        }
+        if (!sessionSubscriptions.isEmpty()) {
+            for (Subscription subscription : sessionSubscriptions) {
+                removeEntitySubscription(subscription);
             }
-            subscriptionsByWsSessionId.remove(sessionId);
-            log.debug("[{}] Removed {} subscriptions for particular session.", sessionId, sessionSubscriptionSize);
+            log.debug("[{}] Removed {} subscriptions for particular session.", sessionId, sessionSubscriptions.size());
 
             if (localSession) {
                 notifyWsSubscriptionClosed(sessionId, sessionSubscriptions);
@@ -535,9 +591,20 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
         }
     }
 
-    private void notifyWsSubscriptionClosed(String sessionId, Map<Integer, Subscription> sessionSubscriptions) {
+    private void removeEntitySubscription(Subscription subscription) {
+        EntityId entityId = subscription.getEntityId();
+        Set<Subscription> deviceSubscriptions = subscriptionsByEntityId.get(entityId);
+        if (deviceSubscriptions != null) {
+            deviceSubscriptions.remove(subscription);
+            if (deviceSubscriptions.isEmpty()) {
+                subscriptionsByEntityId.remove(entityId);
+            }
+        }
+    }
+
+    private void notifyWsSubscriptionClosed(String sessionId, Collection<Subscription> sessionSubscriptions) {
         Set<ServerAddress> affectedServers = new HashSet<>();
-        for (Subscription subscription : sessionSubscriptions.values()) {
+        for (Subscription subscription : sessionSubscriptions) {
             if (subscription.getServer() != null) {
                 affectedServers.add(subscription.getServer());
             }
@@ -577,6 +644,24 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
         }
     }
 
+    private void processMultiEntitySubscriptionRemoval(String sessionId, Map<Integer, Map<EntityId, Subscription>> sessionSubscriptions,
+                                                       int subscriptionId, Map<EntityId, Subscription> subscriptions) {
+        Set<ServerAddress> affectedServers = new HashSet<>();
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.isLocal() && subscription.getServer() != null) {
+                affectedServers.add(subscription.getServer());
+            }
+            removeEntitySubscription(subscription);
+        }
+        for (ServerAddress address : affectedServers) {
+            tellRemoteSubClose(address, sessionId, subscriptionId);
+        }
+        if (sessionSubscriptions.isEmpty()) {
+            multiEntitySubscriptionsByWsSessionId.remove(sessionId);
+        }
+        log.debug("[{}][{}] Removed subscription of {} entities.", sessionId, subscriptionId, subscriptions.size());
+    }
+
     private void addMainCallback(ListenableFuture<List<Void>> saveFuture, final FutureCallback<Void> callback) {
         Futures.addCallback(saveFuture, new FutureCallback<List<Void>>() {
             @Override
@@ -613,6 +698,7 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
         builder.setEntityId(sub.getEntityId().getId().toString());
         builder.setType(sub.getType().name());
         builder.setAllKeys(sub.isAllKeys());
+        builder.setMultiEntity(sub.getSub().isMultiEntity());
         if (sub.getScope() != null) {
             builder.setScope(sub.getScope());
         }
@@ -626,6 +712,10 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
         builder.setSessionId(sessionId);
         builder.setSubscriptionId(update.getSubscriptionId());
         builder.setErrorCode(update.getErrorCode());
+        if (update.getEntityId() != null) {
+            builder.setEntityType(update.getEntityId().getEntityType().name());
+            builder.setEntityId(update.getEntityId().getId().toString());
+        }
         if (update.getErrorMsg() != null) {
             builder.setErrorMsg(update.getErrorMsg());
         }
@@ -741,15 +831,26 @@ public class DefaultTelemetrySubscriptionService implements TelemetrySubscriptio
                     values.add(value);
                 }
             });
-            return new SubscriptionUpdate(proto.getSubscriptionId(), data);
+            EntityId entityId = StringUtils.isEmpty(proto.getEntityId()) ? null : EntityIdFactory.getByTypeAndId(proto.getEntityType(), proto.getEntityId());
+            return new SubscriptionUpdate(proto.getSubscriptionId(), entityId, data);
         }
     }
 
-    private Optional<Subscription> getSubscription(String sessionId, int subscriptionId) {
+    private Optional<Subscription> getSubscription(String sessionId, int subscriptionId, EntityId entityId) {
         Subscription state = null;
-        Map<Integer, Subscription> subMap = subscriptionsByWsSessionId.get(sessionId);
-        if (subMap != null) {
-            state = subMap.get(subscriptionId);
+        if (entityId != null) {
+            Map<Integer, Map<EntityId, Subscription>> subMap = multiEntitySubscriptionsByWsSessionId.get(sessionId);
+            if (subMap != null) {
+                Map<EntityId, Subscription> subscriptions = subMap.get(subscriptionId);
+                if (subscriptions != null) {
+                    state = subscriptions.get(entityId);
+                }
+            }
+        } else {
+            Map<Integer, Subscription> subMap = subscriptionsByWsSessionId.get(sessionId);
+            if (subMap != null) {
+                state = subMap.get(subscriptionId);
+            }
         }
         return Optional.ofNullable(state);
     }
@@ -29,6 +29,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketSession;
 import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.EntityIdFactory;
@@ -50,6 +51,7 @@ import org.thingsboard.server.service.security.ValidationResultCode;
 import org.thingsboard.server.service.security.model.UserPrincipal;
 import org.thingsboard.server.service.security.permission.Operation;
 import org.thingsboard.server.service.telemetry.cmd.AttributesSubscriptionCmd;
+import org.thingsboard.server.service.telemetry.cmd.EntitiesTimeseriesSubscriptionCmd;
 import org.thingsboard.server.service.telemetry.cmd.GetHistoryCmd;
 import org.thingsboard.server.service.telemetry.cmd.SubscriptionCmd;
 import org.thingsboard.server.service.telemetry.cmd.TelemetryPluginCmd;
@@ -59,6 +61,7 @@ import org.thingsboard.server.service.telemetry.exception.AccessDeniedException;
 import org.thingsboard.server.service.telemetry.exception.EntityNotFoundException;
 import org.thingsboard.server.service.telemetry.exception.InternalErrorException;
 import org.thingsboard.server.service.telemetry.exception.UnauthorizedException;
+import org.thingsboard.server.service.telemetry.sub.EntitiesSubscriptionUpdate;
 import org.thingsboard.server.service.telemetry.sub.SubscriptionErrorCode;
 import org.thingsboard.server.service.telemetry.sub.SubscriptionState;
 import org.thingsboard.server.service.telemetry.sub.SubscriptionUpdate;
@@ -72,6 +75,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -121,6 +125,8 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
     private int maxSubscriptionsPerRegularUser;
     @Value("${server.ws.limits.max_subscriptions_per_public_user:0}")
     private int maxSubscriptionsPerPublicUser;
+    @Value("${server.ws.limits.max_entities_per_subscription:5000}")
+    private int maxEntitiesPerSubscription;
 
     private ConcurrentMap<TenantId, Set<String>> tenantSubscriptionsMap = new ConcurrentHashMap<>();
     private ConcurrentMap<CustomerId, Set<String>> customerSubscriptionsMap = new ConcurrentHashMap<>();
@@ -186,6 +192,9 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
                 if (cmdsWrapper.getHistoryCmds() != null) {
                     cmdsWrapper.getHistoryCmds().forEach(cmd -> handleWsHistoryCmd(sessionRef, cmd));
                 }
+                if (cmdsWrapper.getEntitiesTsSubCmds() != null) {
+                    cmdsWrapper.getEntitiesTsSubCmds().forEach(cmd -> handleWsEntitiesTimeseriesSubscriptionCmd(sessionRef, cmd));
+                }
             }
         } catch (IOException e) {
             log.warn("Failed to decode subscription cmd: {}", e.getMessage(), e);
@@ -198,7 +207,11 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
     public void sendWsMsg(String sessionId, SubscriptionUpdate update) {
         WsSessionMetaData md = wsSessionsMap.get(sessionId);
         if (md != null) {
-            sendWsMsg(md.getSessionRef(), update);
+            if (update.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode()) {
+                sendWsUpdate(md.getSessionRef(), update);
+            } else {
+                sendWsMsg(md.getSessionRef(), update);
+            }
         }
     }
 
@@ -234,63 +247,57 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
 
     private boolean processSubscription(TelemetryWebSocketSessionRef sessionRef, SubscriptionCmd cmd) {
         String subId = "[" + sessionRef.getSessionId() + "]:[" + cmd.getCmdId() + "]";
+        return processSubscription(sessionRef, subId, cmd.isUnsubscribe(), false, Collections.singletonList(subId));
+    }
+
+    /**
+     * Each entity of the entities subscription is counted against the subscription limits, as if it was subscribed separately.
+     */
+    private boolean processSubscription(TelemetryWebSocketSessionRef sessionRef, EntitiesTimeseriesSubscriptionCmd cmd, List<EntityId> entityIds) {
+        String subId = "[" + sessionRef.getSessionId() + "]:[" + cmd.getCmdId() + "]";
+        List<String> entitySubIds = entityIds.stream().map(entityId -> subId + ":[" + entityId.getId() + "]").collect(Collectors.toList());
+        return processSubscription(sessionRef, subId, cmd.isUnsubscribe(), true, entitySubIds);
+    }
+
+    private boolean processSubscription(TelemetryWebSocketSessionRef sessionRef, String subId, boolean unsubscribe,
+                                        boolean multiEntity, List<String> subIds) {
         try {
             if (maxSubscriptionsPerTenant > 0) {
                 Set<String> tenantSubscriptions = tenantSubscriptionsMap.computeIfAbsent(sessionRef.getSecurityCtx().getTenantId(), id -> ConcurrentHashMap.newKeySet());
-                synchronized (tenantSubscriptions) {
-                    if (cmd.isUnsubscribe()) {
-                        tenantSubscriptions.remove(subId);
-                    } else if (tenantSubscriptions.size() < maxSubscriptionsPerTenant) {
-                        tenantSubscriptions.add(subId);
-                    } else {
-                        log.info("[{}][{}][{}] Failed to start subscription. Max tenant subscriptions limit reached"
-                                , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), subId);
-                        msgEndpoint.close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max tenant subscriptions limit reached!"));
-                        return false;
-                    }
+                if (!updateSubscriptions(tenantSubscriptions, subId, unsubscribe, multiEntity, subIds, maxSubscriptionsPerTenant)) {
+                    log.info("[{}][{}][{}] Failed to start subscription. Max tenant subscriptions limit reached"
+                            , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), subId);
+                    msgEndpoint.close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max tenant subscriptions limit reached!"));
+                    return false;
                 }
             }
 
             if (sessionRef.getSecurityCtx().isCustomerUser()) {
                 if (maxSubscriptionsPerCustomer > 0) {
                     Set<String> customerSessions = customerSubscriptionsMap.computeIfAbsent(sessionRef.getSecurityCtx().getCustomerId(), id -> ConcurrentHashMap.newKeySet());
-                    synchronized (customerSessions) {
-                        if (cmd.isUnsubscribe()) {
-                            customerSessions.remove(subId);
-                        } else if (customerSessions.size() < maxSubscriptionsPerCustomer) {
-                            customerSessions.add(subId);
-                        } else {
-                            log.info("[{}][{}][{}] Failed to start subscription. Max customer subscriptions limit reached"
-                                    , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), subId);
-                            msgEndpoint.close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max customer subscriptions limit reached"));
-                            return false;
-                        }
+                    if (!updateSubscriptions(customerSessions, subId, unsubscribe, multiEntity, subIds, maxSubscriptionsPerCustomer)) {
+                        log.info("[{}][{}][{}] Failed to start subscription. Max customer subscriptions limit reached"
+                                , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), subId);
+                        msgEndpoint.close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max customer subscriptions limit reached"));
+                        return false;
                     }
                 }
                 if (maxSubscriptionsPerRegularUser > 0 && UserPrincipal.Type.USER_NAME.equals(sessionRef.getSecurityCtx().getUserPrincipal().getType())) {
                     Set<String> regularUserSessions = regularUserSubscriptionsMap.computeIfAbsent(sessionRef.getSecurityCtx().getId(), id -> ConcurrentHashMap.newKeySet());
-                    synchronized (regularUserSessions) {
-                        if (regularUserSessions.size() < maxSubscriptionsPerRegularUser) {
-                            regularUserSessions.add(subId);
-                        } else {
-                            log.info("[{}][{}][{}] Failed to start subscription. Max regular user subscriptions limit reached"
-                                    , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), subId);
-                            msgEndpoint.close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max regular user subscriptions limit reached"));
-                            return false;
-                        }
+                    if (!updateSubscriptions(regularUserSessions, subId, unsubscribe, multiEntity, subIds, maxSubscriptionsPerRegularUser)) {
+                        log.info("[{}][{}][{}] Failed to start subscription. Max regular user subscriptions limit reached"
+                                , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), subId);
+                        msgEndpoint.close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max regular user subscriptions limit reached"));
+                        return false;
                     }
                 }
                 if (maxSubscriptionsPerPublicUser > 0 && UserPrincipal.Type.PUBLIC_ID.equals(sessionRef.getSecurityCtx().getUserPrincipal().getType())) {
                     Set<String> publicUserSessions = publicUserSubscriptionsMap.computeIfAbsent(sessionRef.getSecurityCtx().getId(), id -> ConcurrentHashMap.newKeySet());
-                    synchronized (publicUserSessions) {
-                        if (publicUserSessions.size() < maxSubscriptionsPerPublicUser) {
-                            publicUserSessions.add(subId);
-                        } else {
-                            log.info("[{}][{}][{}] Failed to start subscription. Max public user subscriptions limit reached"
-                                    , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), subId);
-                            msgEndpoint.close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max public user subscriptions limit reached"));
-                            return false;
-                        }
+                    if (!updateSubscriptions(publicUserSessions, subId, unsubscribe, multiEntity, subIds, maxSubscriptionsPerPublicUser)) {
+                        log.info("[{}][{}][{}] Failed to start subscription. Max public user subscriptions limit reached"
+                                , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), subId);
+                        msgEndpoint.close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max public user subscriptions limit reached"));
+                        return false;
                     }
                 }
             }
@@ -301,6 +308,27 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
         return true;
     }
 
+    private static boolean updateSubscriptions(Set<String> subscriptions, String subId, boolean unsubscribe,
+                                               boolean multiEntity, List<String> subIds, int limit) {
+        synchronized (subscriptions) {
+            if (multiEntity) {
+                // The entities of the previous command with the same id are replaced
+                String entityPrefix = subId + ":";
+                subscriptions.removeIf(id -> id.startsWith(entityPrefix));
+            }
+            if (unsubscribe) {
+                subscriptions.remove(subId);
+                return true;
+            }
+            long newSubscriptions = subIds.stream().filter(id -> !subscriptions.contains(id)).count();
+            if (subscriptions.size() + newSubscriptions > limit) {
+                return false;
+            }
+            subscriptions.addAll(subIds);
+            return true;
+        }
+    }
+
     private void handleWsAttributesSubscriptionCmd(TelemetryWebSocketSessionRef sessionRef, AttributesSubscriptionCmd cmd) {
         String sessionId = sessionRef.getSessionId();
         log.debug("[{}] Processing: {}", sessionId, cmd);
@@ -525,7 +553,8 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
                 Map<String, Long> subState = new HashMap<>(keys.size());
                 keys.forEach(key -> subState.put(key, startTs));
                 data.forEach(v -> subState.put(v.getKey(), v.getTs()));
-                SubscriptionState sub = new SubscriptionState(sessionId, cmd.getCmdId(), sessionRef.getSecurityCtx().getTenantId(), entityId, TelemetryFeature.TIMESERIES, false, subState, cmd.getScope());
+                SubscriptionState sub = new SubscriptionState(sessionId, cmd.getCmdId(), sessionRef.getSecurityCtx().getTenantId(), entityId, TelemetryFeature.TIMESERIES, false, subState, cmd.getScope(),
+                        false, cmd.getTimeWindow() > 0);
                 subscriptionManager.addLocalWsSubscription(sessionId, entityId, sub);
             }
 
@@ -543,6 +572,90 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
         };
     }
 
+    private void handleWsEntitiesTimeseriesSubscriptionCmd(TelemetryWebSocketSessionRef sessionRef, EntitiesTimeseriesSubscriptionCmd cmd) {
+        String sessionId = sessionRef.getSessionId();
+        log.debug("[{}] Processing: {}", sessionId, cmd);
+
+        if (validateSessionMetadata(sessionRef, cmd, sessionId)) {
+            if (cmd.isUnsubscribe()) {
+                processSubscription(sessionRef, cmd, Collections.emptyList());
+                subscriptionManager.removeSubscription(sessionId, cmd.getCmdId());
+            } else {
+                List<EntityId> entityIds = getEntityIds(sessionRef, cmd);
+                if (entityIds != null && processSubscription(sessionRef, cmd, entityIds)) {
+                    handleWsEntitiesTimeseriesSubscription(sessionRef, cmd, sessionId, entityIds);
+                }
+            }
+        }
+    }
+
+    private void handleWsEntitiesTimeseriesSubscription(TelemetryWebSocketSessionRef sessionRef, EntitiesTimeseriesSubscriptionCmd cmd,
+                                                        String sessionId, List<EntityId> entityIds) {
+        TenantId tenantId = sessionRef.getSecurityCtx().getTenantId();
+        List<String> keys = new ArrayList<>(getKeys(cmd).orElse(Collections.emptySet()));
+        long startTs = System.currentTimeMillis();
+        log.debug("[{}] fetching latest timeseries data for keys: ({}) of {} entities", sessionId, cmd.getKeys(), entityIds.size());
+        FutureCallback<Map<EntityId, List<TsKvEntry>>> callback = new FutureCallback<Map<EntityId, List<TsKvEntry>>>() {
+            @Override
+            public void onSuccess(Map<EntityId, List<TsKvEntry>> data) {
+                sendWsMsg(sessionRef, cmd.getCmdId(), new EntitiesSubscriptionUpdate(cmd.getCmdId(), entityIds, data));
+                for (EntityId entityId : entityIds) {
+                    List<TsKvEntry> entityData = data.getOrDefault(entityId, Collections.emptyList());
+                    Map<String, Long> subState = new HashMap<>(Math.max(keys.size(), entityData.size()));
+                    keys.forEach(key -> subState.put(key, startTs));
+                    entityData.forEach(v -> subState.put(v.getKey(), v.getTs()));
+                    SubscriptionState sub = new SubscriptionState(sessionId, cmd.getCmdId(), tenantId, entityId, TelemetryFeature.TIMESERIES, keys.isEmpty(), subState, null, true);
+                    subscriptionManager.addLocalWsSubscription(sessionId, entityId, sub);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                SubscriptionUpdate update;
+                if (UnauthorizedException.class.isInstance(e)) {
+                    update = new SubscriptionUpdate(cmd.getCmdId(), SubscriptionErrorCode.UNAUTHORIZED,
+                            SubscriptionErrorCode.UNAUTHORIZED.getDefaultMsg());
+                } else {
+                    if (e instanceof TenantRateLimitException || e.getCause() instanceof TenantRateLimitException) {
+                        log.trace("[{}] Tenant rate limit detected for subscription: {}", tenantId, cmd);
+                    } else {
+                        log.info(FAILED_TO_FETCH_DATA, e);
+                    }
+                    update = new SubscriptionUpdate(cmd.getCmdId(), SubscriptionErrorCode.INTERNAL_ERROR,
+                            FAILED_TO_FETCH_DATA);
+                }
+                sendWsMsg(sessionRef, update);
+            }
+        };
+        accessValidator.validate(sessionRef.getSecurityCtx(), Operation.READ_TELEMETRY, entityIds,
+                on(r -> Futures.addCallback(tsService.findLatest(tenantId, entityIds, keys), callback, executor), callback::onFailure));
+    }
+
+    private List<EntityId> getEntityIds(TelemetryWebSocketSessionRef sessionRef, EntitiesTimeseriesSubscriptionCmd cmd) {
+        String error = null;
+        Set<EntityId> entityIds = new LinkedHashSet<>();
+        if (StringUtils.isEmpty(cmd.getEntityType()) || cmd.getEntityIds() == null || cmd.getEntityIds().isEmpty()) {
+            error = "Entity ids are empty!";
+        } else if (cmd.getEntityIds().size() > maxEntitiesPerSubscription) {
+            error = "Number of entities should not exceed " + maxEntitiesPerSubscription + "!";
+        } else if (EntityType.ENTITY_VIEW.name().equals(cmd.getEntityType())) {
+            error = "Entity views are not supported by entities subscription!";
+        } else {
+            try {
+                for (String entityId : cmd.getEntityIds()) {
+                    entityIds.add(EntityIdFactory.getByTypeAndId(cmd.getEntityType(), entityId));
+                }
+            } catch (IllegalArgumentException e) {
+                error = "Invalid entity id: " + e.getMessage();
+            }
+        }
+        if (error != null) {
+            sendWsMsg(sessionRef, new SubscriptionUpdate(cmd.getCmdId(), SubscriptionErrorCode.BAD_REQUEST, error));
+            return null;
+        }
+        return new ArrayList<>(entityIds);
+    }
+
     private void unsubscribe(TelemetryWebSocketSessionRef sessionRef, SubscriptionCmd cmd, String sessionId) {
         if (cmd.getEntityId() == null || cmd.getEntityId().isEmpty()) {
             subscriptionManager.cleanupLocalWsSessionSubscriptions(sessionRef, sessionId);
@@ -561,7 +674,7 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
         return true;
     }
 
-    private boolean validateSessionMetadata(TelemetryWebSocketSessionRef sessionRef, SubscriptionCmd cmd, String sessionId) {
+    private boolean validateSessionMetadata(TelemetryWebSocketSessionRef sessionRef, TelemetryPluginCmd cmd, String sessionId) {
         WsSessionMetaData sessionMD = wsSessionsMap.get(sessionId);
         if (sessionMD == null) {
             log.warn("[{}] Session meta data not found. ", sessionId);
@@ -575,9 +688,23 @@ public class DefaultTelemetryWebSocketService implements TelemetryWebSocketServi
     }
 
     private void sendWsMsg(TelemetryWebSocketSessionRef sessionRef, SubscriptionUpdate update) {
+        sendWsMsg(sessionRef, update.getSubscriptionId(), update);
+    }
+
+    private void sendWsUpdate(TelemetryWebSocketSessionRef sessionRef, SubscriptionUpdate update) {
+        executor.submit(() -> {
+            try {
+                msgEndpoint.send(sessionRef, update);
+            } catch (IOException e) {
+                log.warn("[{}] Failed to send reply: {}", sessionRef.getSessionId(), update, e);
+            }
+        });
+    }
+
+    private void sendWsMsg(TelemetryWebSocketSessionRef sessionRef, int subscriptionId, Object update) {
         executor.submit(() -> {
             try {
-                msgEndpoint.send(sessionRef, update.getSubscriptionId(), jsonMapper.writeValueAsString(update));
+                msgEndpoint.send(sessionRef, subscriptionId, jsonMapper.writeValueAsString(update));
             } catch (JsonProcessingException e) {
                 log.warn("[{}] Failed to encode reply: {}", sessionRef.getSessionId(), update, e);
             } catch (IOException e) {
@@ -0,0 +1,37 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import lombok.Data;
+import org.thingsboard.server.common.data.id.EntityId;
+
+import java.util.List;
+
+/**
+ * Timeseries request of multiple entities. Latest values are fetched if the time range is not set.
+ */
+@Data
+public class EntitiesTimeseriesQuery {
+
+    private List<EntityId> entityIds;
+    private List<String> keys;
+    private Long startTs;
+    private Long endTs;
+    private long interval;
+    private int limit = 100;
+    private String agg = "NONE";
+
+}
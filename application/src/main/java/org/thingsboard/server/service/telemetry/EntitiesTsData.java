@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timeseries data of multiple entities, keyed by the entity id, in the same per key format as the single entity data.
+ * The entries of each entity are grouped by key while the entity is written, the fetched data is not copied otherwise.
+ */
+public class EntitiesTsData implements JsonSerializable {
+
+    private final List<EntityId> entityIds;
+    private final Map<EntityId, List<TsKvEntry>> data;
+
+    public EntitiesTsData(List<EntityId> entityIds, Map<EntityId, List<TsKvEntry>> data) {
+        this.entityIds = entityIds;
+        this.data = data;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartObject();
+        for (EntityId entityId : entityIds) {
+            gen.writeObjectFieldStart(entityId.getId().toString());
+            Map<String, List<TsKvEntry>> entriesByKey = new LinkedHashMap<>();
+            for (TsKvEntry entry : data.getOrDefault(entityId, Collections.emptyList())) {
+                entriesByKey.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry);
+            }
+            for (Map.Entry<String, List<TsKvEntry>> keyEntries : entriesByKey.entrySet()) {
+                gen.writeArrayFieldStart(keyEntries.getKey());
+                for (TsKvEntry entry : keyEntries.getValue()) {
+                    gen.writeStartObject();
+                    gen.writeNumberField("ts", entry.getTs());
+                    gen.writeStringField("value", entry.getValueAsString());
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+}
@@ -16,6 +16,7 @@
 package org.thingsboard.server.service.telemetry;
 
 import org.springframework.web.socket.CloseStatus;
+import org.thingsboard.server.service.telemetry.sub.SubscriptionUpdate;
 
 import java.io.IOException;
 
@@ -26,5 +27,10 @@ public interface TelemetryWebSocketMsgEndpoint {
 
     void send(TelemetryWebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException;
 
+    /**
+     * Sends the data update of the subscription. Updates that can't be written immediately are conflated per subscription key.
+     */
+    void send(TelemetryWebSocketSessionRef sessionRef, SubscriptionUpdate update) throws IOException;
+
     void close(TelemetryWebSocketSessionRef sessionRef, CloseStatus withReason) throws IOException;
 }
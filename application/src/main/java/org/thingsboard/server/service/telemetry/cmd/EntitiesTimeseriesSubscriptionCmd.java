@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry.cmd;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Subscription to the latest timeseries values of the list of entities of the same type.
+ * The initial values and all further updates are delivered using the single command id.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class EntitiesTimeseriesSubscriptionCmd implements TelemetryPluginCmd {
+
+    private int cmdId;
+    private String entityType;
+    private List<String> entityIds;
+    private String keys;
+    private boolean unsubscribe;
+
+    @Override
+    public String toString() {
+        return "EntitiesTimeseriesSubscriptionCmd [entityType=" + entityType + ", entities=" + (entityIds != null ? entityIds.size() : 0)
+                + ", tags=" + keys + ", unsubscribe=" + unsubscribe + "]";
+    }
+
+}
@@ -28,6 +28,8 @@ public class TelemetryPluginCmdsWrapper {
 
     private List<GetHistoryCmd> historyCmds;
 
+    private List<EntitiesTimeseriesSubscriptionCmd> entitiesTsSubCmds;
+
     public TelemetryPluginCmdsWrapper() {
         super();
     }
@@ -55,4 +57,12 @@ public class TelemetryPluginCmdsWrapper {
     public void setHistoryCmds(List<GetHistoryCmd> historyCmds) {
         this.historyCmds = historyCmds;
     }
+
+    public List<EntitiesTimeseriesSubscriptionCmd> getEntitiesTsSubCmds() {
+        return entitiesTsSubCmds;
+    }
+
+    public void setEntitiesTsSubCmds(List<EntitiesTimeseriesSubscriptionCmd> entitiesTsSubCmds) {
+        this.entitiesTsSubCmds = entitiesTsSubCmds;
+    }
 }
@@ -0,0 +1,58 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry.sub;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Initial state of the entity list subscription. Contains the entry for each subscribed entity, even if it has no data.
+ */
+public class EntitiesSubscriptionUpdate {
+
+    private final int subscriptionId;
+    private final Map<String, Map<String, List<Object>>> data;
+
+    public EntitiesSubscriptionUpdate(int subscriptionId, List<EntityId> entityIds, Map<EntityId, List<TsKvEntry>> data) {
+        this.subscriptionId = subscriptionId;
+        this.data = new LinkedHashMap<>(entityIds.size());
+        for (EntityId entityId : entityIds) {
+            this.data.put(entityId.getId().toString(), SubscriptionUpdate.toData(data.getOrDefault(entityId, Collections.emptyList())));
+        }
+    }
+
+    public int getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public int getErrorCode() {
+        return SubscriptionErrorCode.NO_ERROR.getCode();
+    }
+
+    public Map<String, Map<String, List<Object>>> getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "EntitiesSubscriptionUpdate [subscriptionId=" + subscriptionId + ", entities=" + data.size() + "]";
+    }
+}
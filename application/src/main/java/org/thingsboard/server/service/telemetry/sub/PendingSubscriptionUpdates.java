@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry.sub;
+
+import lombok.Data;
+import org.thingsboard.server.common.data.id.EntityId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Subscription updates waiting for the websocket session to become writable.
+ * The updates of the latest value and attribute subscriptions keep only the latest value of each key per subscription
+ * (and entity, for the entity list subscriptions). The values of other updates, e.g. of the time window subscriptions
+ * and the initial data, are appended. Not thread safe.
+ */
+public class PendingSubscriptionUpdates {
+
+    private final Map<UpdateKey, Map<String, List<Object>>> updates = new LinkedHashMap<>();
+
+    public void add(SubscriptionUpdate update) {
+        if (update.getData() == null || update.getData().isEmpty()) {
+            return;
+        }
+        Map<String, List<Object>> pendingValues = updates.computeIfAbsent(new UpdateKey(update.getSubscriptionId(), update.getEntityId()), k -> new TreeMap<>());
+        update.getData().forEach((key, values) -> {
+            List<Object> pending = pendingValues.computeIfAbsent(key, k -> new ArrayList<>());
+            if (update.isConflatable()) {
+                for (Object value : values) {
+                    Object[] tsValue = (Object[]) value;
+                    if (pending.isEmpty() || (long) ((Object[]) pending.get(0))[0] <= (long) tsValue[0]) {
+                        pending.clear();
+                        pending.add(tsValue);
+                    }
+                }
+            } else {
+                pending.addAll(values);
+            }
+        });
+    }
+
+    public boolean isEmpty() {
+        return updates.isEmpty();
+    }
+
+    public List<SubscriptionUpdate> drain() {
+        if (updates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<SubscriptionUpdate> result = new ArrayList<>(updates.size());
+        updates.forEach((key, data) -> result.add(new SubscriptionUpdate(key.getSubscriptionId(), key.getEntityId(), data)));
+        updates.clear();
+        return result;
+    }
+
+    @Data
+    private static class UpdateKey {
+        private final int subscriptionId;
+        private final EntityId entityId;
+    }
+}
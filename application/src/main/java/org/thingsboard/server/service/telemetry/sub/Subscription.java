@@ -61,6 +61,10 @@ public class Subscription {
         return getSub().isAllKeys();
     }
 
+    public boolean isLatestValues() {
+        return !getSub().isTimeWindow();
+    }
+
     public Map<String, Long> getKeyStates() {
         return getSub().getKeyStates();
     }
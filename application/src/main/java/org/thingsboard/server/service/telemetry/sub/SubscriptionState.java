@@ -37,6 +37,19 @@ public class SubscriptionState {
     @Getter private final boolean allKeys;
     @Getter private final Map<String, Long> keyStates;
     @Getter private final String scope;
+    @Getter private final boolean multiEntity;
+    // Set for the timeseries subscriptions with a time window, that need every value and not only the latest one
+    @Getter private final boolean timeWindow;
+
+    public SubscriptionState(String wsSessionId, int subscriptionId, TenantId tenantId, EntityId entityId, TelemetryFeature type,
+                             boolean allKeys, Map<String, Long> keyStates, String scope) {
+        this(wsSessionId, subscriptionId, tenantId, entityId, type, allKeys, keyStates, scope, false);
+    }
+
+    public SubscriptionState(String wsSessionId, int subscriptionId, TenantId tenantId, EntityId entityId, TelemetryFeature type,
+                             boolean allKeys, Map<String, Long> keyStates, String scope, boolean multiEntity) {
+        this(wsSessionId, subscriptionId, tenantId, entityId, type, allKeys, keyStates, scope, multiEntity, false);
+    }
 
     @Override
     public boolean equals(Object o) {
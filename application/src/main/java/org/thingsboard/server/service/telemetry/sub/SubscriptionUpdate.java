@@ -15,6 +15,12 @@
  */
 package org.thingsboard.server.service.telemetry.sub;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 
 import java.util.ArrayList;
@@ -22,33 +28,40 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+@JsonPropertyOrder({"subscriptionId"})
 public class SubscriptionUpdate {
 
+    private static final String SUBSCRIPTION_ID_PREFIX = "{\"subscriptionId\":";
+
     private int subscriptionId;
+    private EntityId entityId;
     private int errorCode;
     private String errorMsg;
     private Map<String, List<Object>> data;
+    // JSON of the update without the subscription id, shared by the copies created with withSubscriptionId
+    private AtomicReference<String> encodedTail = new AtomicReference<>();
+    // Not sent to the client. Pending updates of latest value subscriptions are conflated to the latest value of each key
+    private boolean conflatable;
 
     public SubscriptionUpdate(int subscriptionId, List<TsKvEntry> data) {
-        super();
-        this.subscriptionId = subscriptionId;
-        this.data = new TreeMap<>();
-        if (data != null) {
-            for (TsKvEntry tsEntry : data) {
-                List<Object> values = this.data.computeIfAbsent(tsEntry.getKey(), k -> new ArrayList<>());
-                Object[] value = new Object[2];
-                value[0] = tsEntry.getTs();
-                value[1] = tsEntry.getValueAsString();
-                values.add(value);
-            }
-        }
+        this(subscriptionId, null, data);
+    }
+
+    public SubscriptionUpdate(int subscriptionId, EntityId entityId, List<TsKvEntry> data) {
+        this(subscriptionId, entityId, toData(data));
     }
 
     public SubscriptionUpdate(int subscriptionId, Map<String, List<Object>> data) {
+        this(subscriptionId, null, data);
+    }
+
+    public SubscriptionUpdate(int subscriptionId, EntityId entityId, Map<String, List<Object>> data) {
         super();
         this.subscriptionId = subscriptionId;
+        this.entityId = entityId;
         this.data = data;
     }
 
@@ -63,10 +76,52 @@ public class SubscriptionUpdate {
         this.errorMsg = errorMsg != null ? errorMsg : errorCode.getDefaultMsg();
     }
 
+    /**
+     * Creates the same update for another subscription. The copy reuses the data and the JSON encoding of this update.
+     */
+    public SubscriptionUpdate withSubscriptionId(int subscriptionId) {
+        SubscriptionUpdate copy = new SubscriptionUpdate(subscriptionId, entityId, data);
+        copy.errorCode = errorCode;
+        copy.errorMsg = errorMsg;
+        copy.encodedTail = encodedTail;
+        return copy;
+    }
+
+    /**
+     * Same as {@link ObjectMapper#writeValueAsString(Object)}, but encodes the data only once for all the copies of the update.
+     */
+    public String toJson(ObjectMapper mapper) throws JsonProcessingException {
+        String tail = encodedTail.get();
+        if (tail == null) {
+            String json = mapper.writeValueAsString(this);
+            tail = json.substring(SUBSCRIPTION_ID_PREFIX.length() + Integer.toString(subscriptionId).length());
+            encodedTail.compareAndSet(null, tail);
+            return json;
+        }
+        return SUBSCRIPTION_ID_PREFIX + subscriptionId + tail;
+    }
+
+    @JsonIgnore
+    public boolean isConflatable() {
+        return conflatable;
+    }
+
+    public void setConflatable(boolean conflatable) {
+        this.conflatable = conflatable;
+    }
+
     public int getSubscriptionId() {
         return subscriptionId;
     }
 
+    /**
+     * Set only for the updates of the entity list subscriptions.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public EntityId getEntityId() {
+        return entityId;
+    }
+
     public Map<String, List<Object>> getData() {
         return data;
     }
@@ -91,9 +146,23 @@ public class SubscriptionUpdate {
         return errorMsg;
     }
 
+    static Map<String, List<Object>> toData(List<TsKvEntry> data) {
+        Map<String, List<Object>> result = new TreeMap<>();
+        if (data != null) {
+            for (TsKvEntry tsEntry : data) {
+                List<Object> values = result.computeIfAbsent(tsEntry.getKey(), k -> new ArrayList<>());
+                Object[] value = new Object[2];
+                value[0] = tsEntry.getTs();
+                value[1] = tsEntry.getValueAsString();
+                values.add(value);
+            }
+        }
+        return result;
+    }
+
     @Override
     public String toString() {
-        return "SubscriptionUpdate [subscriptionId=" + subscriptionId + ", errorCode=" + errorCode + ", errorMsg=" + errorMsg + ", data="
+        return "SubscriptionUpdate [subscriptionId=" + subscriptionId + ", entityId=" + entityId + ", errorCode=" + errorCode + ", errorMsg=" + errorMsg + ", data="
                 + data + "]";
     }
 }
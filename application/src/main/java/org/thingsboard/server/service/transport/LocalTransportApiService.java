@@ -19,10 +19,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Striped;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.thingsboard.server.common.data.Device;
@@ -35,8 +37,11 @@ import org.thingsboard.server.dao.device.DeviceCredentialsService;
 import org.thingsboard.server.dao.device.DeviceService;
 import org.thingsboard.server.dao.relation.RelationService;
 import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.GatewayDeviceProto;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.TransportApiResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
@@ -47,15 +52,20 @@ import org.thingsboard.server.kafka.TBKafkaProducerTemplate;
 import org.thingsboard.server.kafka.TbKafkaResponseTemplate;
 import org.thingsboard.server.kafka.TbKafkaSettings;
 import org.thingsboard.server.service.cluster.discovery.DiscoveryService;
-import org.thingsboard.server.service.executors.DbCallbackExecutorService;
+import org.thingsboard.server.service.executors.DeviceCreationExecutorService;
 import org.thingsboard.server.service.state.DeviceStateService;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.Lock;
+
+import static org.thingsboard.server.common.data.CacheConstants.DEVICE_CACHE;
 
 /**
  * Created by ashvayka on 05.10.18.
@@ -79,9 +89,20 @@ public class LocalTransportApiService implements TransportApiService {
     private DeviceStateService deviceStateService;
 
     @Autowired
-    private DbCallbackExecutorService dbCallbackExecutorService;
+    private DeviceCreationExecutorService deviceCreationExecutorService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${transport.device_creation_lock_stripes:1024}")
+    private int deviceCreationLockStripes;
+
+    private Striped<Lock> deviceCreationLocks;
 
-    private ReentrantLock deviceCreationLock = new ReentrantLock();
+    @PostConstruct
+    public void init() {
+        deviceCreationLocks = Striped.lazyWeakLock(deviceCreationLockStripes);
+    }
 
     @Override
     public ListenableFuture<TransportApiResponseMsg> handle(TransportApiRequestMsg transportApiRequestMsg) {
@@ -93,6 +114,8 @@ public class LocalTransportApiService implements TransportApiService {
             return validateCredentials(msg.getHash(), DeviceCredentialsType.X509_CERTIFICATE);
         } else if (transportApiRequestMsg.hasGetOrCreateDeviceRequestMsg()) {
             return handle(transportApiRequestMsg.getGetOrCreateDeviceRequestMsg());
+        } else if (transportApiRequestMsg.hasGetOrCreateDevicesRequestMsg()) {
+            return handle(transportApiRequestMsg.getGetOrCreateDevicesRequestMsg());
         }
         return getEmptyTransportApiResponseFuture();
     }
@@ -111,28 +134,71 @@ public class LocalTransportApiService implements TransportApiService {
         DeviceId gatewayId = new DeviceId(new UUID(requestMsg.getGatewayIdMSB(), requestMsg.getGatewayIdLSB()));
         ListenableFuture<Device> gatewayFuture = deviceService.findDeviceByIdAsync(TenantId.SYS_TENANT_ID, gatewayId);
         return Futures.transform(gatewayFuture, gateway -> {
-            deviceCreationLock.lock();
             try {
-                Device device = deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), requestMsg.getDeviceName());
-                if (device == null) {
-                    device = new Device();
-                    device.setTenantId(gateway.getTenantId());
-                    device.setName(requestMsg.getDeviceName());
-                    device.setType(requestMsg.getDeviceType());
-                    device.setCustomerId(gateway.getCustomerId());
-                    device = deviceService.saveDevice(device);
-                    relationService.saveRelationAsync(TenantId.SYS_TENANT_ID, new EntityRelation(gateway.getId(), device.getId(), "Created"));
-                    deviceStateService.onDeviceAdded(device);
-                }
+                Device device = getOrCreateDevice(gateway, requestMsg.getDeviceName(), requestMsg.getDeviceType());
                 return TransportApiResponseMsg.newBuilder()
                         .setGetOrCreateDeviceResponseMsg(GetOrCreateDeviceFromGatewayResponseMsg.newBuilder().setDeviceInfo(getDeviceInfoProto(device)).build()).build();
             } catch (JsonProcessingException e) {
                 log.warn("[{}] Failed to lookup device by gateway id and name", gatewayId, requestMsg.getDeviceName(), e);
                 throw new RuntimeException(e);
-            } finally {
-                deviceCreationLock.unlock();
             }
-        }, dbCallbackExecutorService);
+        }, deviceCreationExecutorService);
+    }
+
+    private ListenableFuture<TransportApiResponseMsg> handle(GetOrCreateDevicesFromGatewayRequestMsg requestMsg) {
+        DeviceId gatewayId = new DeviceId(new UUID(requestMsg.getGatewayIdMSB(), requestMsg.getGatewayIdLSB()));
+        ListenableFuture<Device> gatewayFuture = deviceService.findDeviceByIdAsync(TenantId.SYS_TENANT_ID, gatewayId);
+        return Futures.transformAsync(gatewayFuture, gateway -> {
+            List<ListenableFuture<DeviceInfoProto>> deviceFutures = new ArrayList<>(requestMsg.getDevicesCount());
+            for (GatewayDeviceProto deviceProto : requestMsg.getDevicesList()) {
+                deviceFutures.add(deviceCreationExecutorService.executeAsync(() -> {
+                    try {
+                        return getDeviceInfoProto(getOrCreateDevice(gateway, deviceProto.getDeviceName(), deviceProto.getDeviceType()));
+                    } catch (JsonProcessingException e) {
+                        log.warn("[{}] Failed to lookup device by gateway id and name [{}]", gatewayId, deviceProto.getDeviceName(), e);
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            return Futures.transform(Futures.allAsList(deviceFutures), deviceInfos -> TransportApiResponseMsg.newBuilder()
+                    .setGetOrCreateDevicesResponseMsg(GetOrCreateDevicesFromGatewayResponseMsg.newBuilder().addAllDeviceInfo(deviceInfos).build()).build());
+        });
+    }
+
+    /**
+     * Existing devices are resolved through the cached device name lookup without locking.
+     * Creation is serialized only between the requests for the same tenant and device name.
+     */
+    private Device getOrCreateDevice(Device gateway, String deviceName, String deviceType) {
+        Device device = deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), deviceName);
+        if (device != null) {
+            return device;
+        }
+        boolean created = false;
+        List<Object> deviceKey = Arrays.asList(gateway.getTenantId(), deviceName);
+        Lock deviceCreationLock = deviceCreationLocks.get(deviceKey);
+        deviceCreationLock.lock();
+        try {
+            // The missing device may have been cached concurrently with its creation, so the lookup has to hit the database
+            cacheManager.getCache(DEVICE_CACHE).evict(deviceKey);
+            device = deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), deviceName);
+            if (device == null) {
+                device = new Device();
+                device.setTenantId(gateway.getTenantId());
+                device.setName(deviceName);
+                device.setType(deviceType);
+                device.setCustomerId(gateway.getCustomerId());
+                device = deviceService.saveDevice(device);
+                created = true;
+            }
+        } finally {
+            deviceCreationLock.unlock();
+        }
+        if (created) {
+            relationService.saveRelationAsync(TenantId.SYS_TENANT_ID, new EntityRelation(gateway.getId(), device.getId(), "Created"));
+            deviceStateService.onDeviceAdded(device);
+        }
+        return device;
     }
 
 
@@ -30,10 +30,15 @@ import org.thingsboard.server.gen.transport.TransportProtos.*;
 import org.thingsboard.server.service.cluster.routing.ClusterRoutingService;
 import org.thingsboard.server.service.cluster.rpc.ClusterRpcService;
 import org.thingsboard.server.service.encoding.DataDecodingEncodingService;
+import org.thingsboard.server.service.transport.msg.TransportToDeviceActorBatchMsgWrapper;
 import org.thingsboard.server.service.transport.msg.TransportToDeviceActorMsgWrapper;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -105,6 +110,18 @@ public class LocalTransportService extends AbstractTransportService implements R
                 getThrowableConsumer(callback), transportCallbackExecutor);
     }
 
+    @Override
+    public void process(GetOrCreateDevicesFromGatewayRequestMsg msg, TransportServiceCallback<GetOrCreateDevicesFromGatewayResponseMsg> callback) {
+        DonAsynchron.withCallback(
+                transportApiService.handle(TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(msg).build()),
+                transportApiResponseMsg -> {
+                    if (callback != null) {
+                        callback.onSuccess(transportApiResponseMsg.getGetOrCreateDevicesResponseMsg());
+                    }
+                },
+                getThrowableConsumer(callback), transportCallbackExecutor);
+    }
+
     @Override
     protected void doProcess(SessionInfoProto sessionInfo, SessionEventMsg msg, TransportServiceCallback<Void> callback) {
         forwardToDeviceActor(TransportToDeviceActorMsg.newBuilder().setSessionInfo(sessionInfo).setSessionEvent(msg).build(), callback);
@@ -150,6 +167,14 @@ public class LocalTransportService extends AbstractTransportService implements R
         forwardToDeviceActor(TransportToDeviceActorMsg.newBuilder().setSessionInfo(sessionInfo).setToServerRPCCallRequest(msg).build(), callback);
     }
 
+    @Override
+    protected void doProcess(SessionInfoProto gatewaySessionInfo, GatewayBatchMsg msg, TransportServiceCallback<Void> callback) {
+        forwardToDeviceActors(msg);
+        if (callback != null) {
+            callback.onSuccess(null);
+        }
+    }
+
     @Override
     public void process(String nodeId, DeviceActorToTransportMsg msg) {
         process(nodeId, msg, null, null);
@@ -176,6 +201,22 @@ public class LocalTransportService extends AbstractTransportService implements R
         }
     }
 
+    private void forwardToDeviceActors(GatewayBatchMsg batchMsg) {
+        Map<Optional<ServerAddress>, List<TransportToDeviceActorMsgWrapper>> msgsByServer = new LinkedHashMap<>();
+        for (TransportToDeviceActorMsg deviceMsg : batchMsg.getDeviceMsgsList()) {
+            TransportToDeviceActorMsgWrapper wrapper = new TransportToDeviceActorMsgWrapper(deviceMsg);
+            msgsByServer.computeIfAbsent(routingService.resolveById(wrapper.getDeviceId()), address -> new ArrayList<>()).add(wrapper);
+        }
+        msgsByServer.forEach((address, msgs) -> {
+            TransportToDeviceActorBatchMsgWrapper wrapper = new TransportToDeviceActorBatchMsgWrapper(msgs);
+            if (address.isPresent()) {
+                rpcService.tell(encodingService.convertToProtoDataMessage(address.get(), wrapper));
+            } else {
+                actorContext.getAppActor().tell(wrapper, ActorRef.noSender());
+            }
+        });
+    }
+
     private <T> Consumer<Throwable> getThrowableConsumer(TransportServiceCallback<T> callback) {
         return e -> {
             if (callback != null) {
@@ -37,6 +37,7 @@ import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.service.ActorService;
 import org.thingsboard.server.common.msg.cluster.ServerAddress;
 import org.thingsboard.server.gen.transport.TransportProtos.DeviceActorToTransportMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GatewayBatchMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ToTransportMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.TransportToDeviceActorMsg;
@@ -48,11 +49,16 @@ import org.thingsboard.server.service.cluster.discovery.DiscoveryService;
 import org.thingsboard.server.service.cluster.routing.ClusterRoutingService;
 import org.thingsboard.server.service.cluster.rpc.ClusterRpcService;
 import org.thingsboard.server.service.encoding.DataDecodingEncodingService;
+import org.thingsboard.server.service.transport.msg.TransportToDeviceActorBatchMsgWrapper;
 import org.thingsboard.server.service.transport.msg.TransportToDeviceActorMsgWrapper;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
@@ -160,6 +166,9 @@ public class RemoteRuleEngineTransportService implements RuleEngineTransportServ
                             if (toRuleEngineMsg.hasToDeviceActorMsg()) {
                                 forwardToDeviceActor(toRuleEngineMsg.getToDeviceActorMsg());
                             }
+                            if (toRuleEngineMsg.hasGatewayBatchMsg()) {
+                                forwardToDeviceActors(toRuleEngineMsg.getGatewayBatchMsg());
+                            }
                         } catch (Throwable e) {
                             log.warn("Failed to process the notification.", e);
                         }
@@ -202,6 +211,24 @@ public class RemoteRuleEngineTransportService implements RuleEngineTransportServ
         }
     }
 
+    private void forwardToDeviceActors(GatewayBatchMsg batchMsg) {
+        Map<Optional<ServerAddress>, List<TransportToDeviceActorMsgWrapper>> msgsByServer = new LinkedHashMap<>();
+        for (TransportToDeviceActorMsg deviceMsg : batchMsg.getDeviceMsgsList()) {
+            TransportToDeviceActorMsgWrapper wrapper = new TransportToDeviceActorMsgWrapper(deviceMsg);
+            msgsByServer.computeIfAbsent(routingService.resolveById(wrapper.getDeviceId()), address -> new ArrayList<>()).add(wrapper);
+        }
+        msgsByServer.forEach((address, msgs) -> {
+            TransportToDeviceActorBatchMsgWrapper wrapper = new TransportToDeviceActorBatchMsgWrapper(msgs);
+            if (address.isPresent()) {
+                log.trace("[{}] Pushing [{}] gateway device msgs to remote server", address.get(), msgs.size());
+                rpcService.tell(encodingService.convertToProtoDataMessage(address.get(), wrapper));
+            } else {
+                log.trace("Pushing [{}] gateway device msgs to local server", msgs.size());
+                actorContext.getAppActor().tell(wrapper, ActorRef.noSender());
+            }
+        });
+    }
+
     @PreDestroy
     public void destroy() {
         stopped = true;
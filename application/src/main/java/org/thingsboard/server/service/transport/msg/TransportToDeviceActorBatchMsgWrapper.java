@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.transport.msg;
+
+import lombok.Data;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.aware.TenantAwareMsg;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Messages of the gateway child devices that belong to the same server. Split per device actor by the tenant actor.
+ */
+@Data
+public class TransportToDeviceActorBatchMsgWrapper implements TbActorMsg, TenantAwareMsg, Serializable {
+
+    private final TenantId tenantId;
+    private final List<TransportToDeviceActorMsgWrapper> msgs;
+
+    public TransportToDeviceActorBatchMsgWrapper(List<TransportToDeviceActorMsgWrapper> msgs) {
+        this.msgs = msgs;
+        this.tenantId = msgs.get(0).getTenantId();
+    }
+
+    @Override
+    public MsgType getMsgType() {
+        return MsgType.TRANSPORT_TO_DEVICE_ACTOR_BATCH_MSG;
+    }
+}
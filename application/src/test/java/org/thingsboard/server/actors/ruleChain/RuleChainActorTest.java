@@ -0,0 +1,250 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import com.datastax.driver.core.utils.UUIDs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.rule.engine.api.EmptyNodeConfiguration;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNode;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.api.TbRelationTypes;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.actors.service.DefaultActorService;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.plugin.ComponentType;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.rule.RuleChain;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.system.ServiceToRuleEngineMsg;
+import org.thingsboard.server.dao.rule.RuleChainService;
+import org.thingsboard.server.service.cluster.routing.ClusterRoutingService;
+import org.thingsboard.server.service.executors.RuleEngineTenantScheduler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RuleChainActorTest {
+
+    private static final int MSG_COUNT = 50;
+
+    private static final ConcurrentMap<UUID, TbNode> received = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<UUID, TbNode> receivedBySelf = new ConcurrentHashMap<>();
+    private static final Set<TbNode> instances = ConcurrentHashMap.newKeySet();
+    private static volatile CountDownLatch latch;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TenantId tenantId = new TenantId(UUIDs.timeBased());
+    private final RuleChainId ruleChainId = new RuleChainId(UUIDs.timeBased());
+
+    private ActorSystem actorSystem;
+    private ActorSystemContext systemContext;
+    private RuleChainService ruleChainService;
+
+    @Before
+    public void before() {
+        received.clear();
+        receivedBySelf.clear();
+        instances.clear();
+        latch = new CountDownLatch(MSG_COUNT);
+
+        actorSystem = ActorSystem.create("RuleChainActorTest", ConfigFactory.parseResources("actor-system.conf"));
+        ruleChainService = mock(RuleChainService.class);
+        ClusterRoutingService routingService = mock(ClusterRoutingService.class);
+        when(routingService.resolveById(any(EntityId.class))).thenReturn(Optional.empty());
+
+        systemContext = mock(ActorSystemContext.class);
+        when(systemContext.getActorSystem()).thenReturn(actorSystem);
+        when(systemContext.getScheduler()).thenReturn(actorSystem.scheduler());
+        when(systemContext.getRuleChainService()).thenReturn(ruleChainService);
+        when(systemContext.getRoutingService()).thenReturn(routingService);
+        when(systemContext.getRuleEngineTenantScheduler()).thenReturn(mock(RuleEngineTenantScheduler.class));
+        when(systemContext.isRuleChainDirectRoutingEnabled()).thenReturn(true);
+        when(systemContext.getStatelessRuleNodeInstances()).thenReturn(4);
+    }
+
+    @After
+    public void after() {
+        actorSystem.shutdown();
+        actorSystem.awaitTermination();
+    }
+
+    @Test
+    public void testSelfMsgIsDeliveredToTheSameInstance() throws Exception {
+        RuleNode selfNode = createRuleNode(SelfMsgNode.class);
+        startRuleChain(Collections.singletonList(selfNode), Collections.emptyMap());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(instances.size() > 1);
+        assertEquals(MSG_COUNT, receivedBySelf.size());
+        receivedBySelf.forEach((msgId, instance) -> assertTrue(received.get(msgId) == instance));
+    }
+
+    @Test
+    public void testMsgIsPushedDirectlyToNextNode() throws Exception {
+        RuleNode forwardNode = createRuleNode(ForwardNode.class);
+        RuleNode selfNode = createRuleNode(SelfMsgNode.class);
+        Map<RuleNodeId, List<EntityRelation>> relations = new HashMap<>();
+        relations.put(forwardNode.getId(), Collections.singletonList(new EntityRelation(forwardNode.getId(), selfNode.getId(), TbRelationTypes.SUCCESS)));
+        startRuleChain(Arrays.asList(forwardNode, selfNode), relations);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(MSG_COUNT, receivedBySelf.size());
+        receivedBySelf.forEach((msgId, instance) -> assertTrue(received.get(msgId) == instance));
+    }
+
+    @Test
+    public void testStoppedRuleChainGraphRejectsMsg() {
+        RuleNodeId from = new RuleNodeId(UUIDs.timeBased());
+        RuleNodeId to = new RuleNodeId(UUIDs.timeBased());
+        Map<RuleNodeId, List<RuleNodeRelation>> routes = new HashMap<>();
+        routes.put(from, Collections.singletonList(new RuleNodeRelation(from, to, TbRelationTypes.SUCCESS)));
+        RuleChainGraph graph = new RuleChainGraph(tenantId, ruleChainId, routes, Collections.emptyMap(), mock(RuleEngineTenantScheduler.class));
+        TbMsg msg = newMsg();
+
+        assertTrue(graph.tellNext(from, Collections.singleton(TbRelationTypes.SUCCESS), msg, ActorRef.noSender()));
+        graph.deactivate();
+        try {
+            graph.tellNext(from, Collections.singleton(TbRelationTypes.SUCCESS), msg, ActorRef.noSender());
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private void startRuleChain(List<RuleNode> ruleNodes, Map<RuleNodeId, List<EntityRelation>> relations) {
+        RuleChain ruleChain = new RuleChain(ruleChainId);
+        ruleChain.setTenantId(tenantId);
+        ruleChain.setName("Test Rule Chain");
+        ruleChain.setFirstRuleNodeId(ruleNodes.get(0).getId());
+        when(ruleChainService.findRuleChainById(tenantId, ruleChainId)).thenReturn(ruleChain);
+        when(ruleChainService.getRuleChainNodes(tenantId, ruleChainId)).thenReturn(ruleNodes);
+        for (RuleNode ruleNode : ruleNodes) {
+            when(ruleChainService.findRuleNodeById(tenantId, ruleNode.getId())).thenReturn(ruleNode);
+            when(ruleChainService.getRuleNodeRelations(eq(TenantId.SYS_TENANT_ID), eq(ruleNode.getId())))
+                    .thenReturn(relations.getOrDefault(ruleNode.getId(), Collections.emptyList()));
+        }
+
+        ActorRef ruleChainActor = actorSystem.actorOf(Props.create(new RuleChainActor.ActorCreator(systemContext, tenantId, ruleChainId))
+                .withDispatcher(DefaultActorService.TENANT_RULE_DISPATCHER_NAME));
+        for (int i = 0; i < MSG_COUNT; i++) {
+            ruleChainActor.tell(new ServiceToRuleEngineMsg(tenantId, newMsg()), ActorRef.noSender());
+        }
+    }
+
+    private RuleNode createRuleNode(Class<? extends TbNode> type) {
+        RuleNode ruleNode = new RuleNode(new RuleNodeId(UUIDs.timeBased()));
+        ruleNode.setRuleChainId(ruleChainId);
+        ruleNode.setName(type.getSimpleName());
+        ruleNode.setType(type.getName());
+        ruleNode.setConfiguration(mapper.createObjectNode());
+        return ruleNode;
+    }
+
+    private TbMsg newMsg() {
+        return new TbMsg(UUIDs.timeBased(), "POST_TELEMETRY_REQUEST", new DeviceId(UUIDs.timeBased()), new TbMsgMetaData(), "{}",
+                ruleChainId, null, 0L);
+    }
+
+    @org.thingsboard.rule.engine.api.RuleNode(
+            type = ComponentType.TRANSFORMATION,
+            name = "forward",
+            configClazz = EmptyNodeConfiguration.class,
+            nodeDescription = "",
+            nodeDetails = "",
+            stateless = true)
+    public static class ForwardNode implements TbNode {
+
+        @Override
+        public void init(TbContext ctx, TbNodeConfiguration configuration) {
+        }
+
+        @Override
+        public void onMsg(TbContext ctx, TbMsg msg) {
+            ctx.tellNext(msg, TbRelationTypes.SUCCESS);
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    /**
+     * Sends every message back to itself once and records which instance processed the original and the self message.
+     */
+    @org.thingsboard.rule.engine.api.RuleNode(
+            type = ComponentType.TRANSFORMATION,
+            name = "self",
+            configClazz = EmptyNodeConfiguration.class,
+            nodeDescription = "",
+            nodeDetails = "",
+            stateless = true)
+    public static class SelfMsgNode implements TbNode {
+
+        private static final String SELF_MSG_TYPE = "SELF";
+
+        @Override
+        public void init(TbContext ctx, TbNodeConfiguration configuration) {
+            instances.add(this);
+        }
+
+        @Override
+        public void onMsg(TbContext ctx, TbMsg msg) {
+            if (SELF_MSG_TYPE.equals(msg.getType())) {
+                receivedBySelf.put(msg.getId(), this);
+                latch.countDown();
+            } else {
+                received.put(msg.getId(), this);
+                ctx.tellSelf(ctx.transformMsg(msg, SELF_MSG_TYPE, msg.getOriginator(), msg.getMetaData(), msg.getData()), 0);
+            }
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.controller;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.Tenant;
+import org.thingsboard.server.common.data.User;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.security.Authority;
+import org.springframework.test.web.servlet.ResultActions;
+import org.thingsboard.server.service.telemetry.EntitiesTimeseriesQuery;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public abstract class BaseTelemetryControllerTest extends AbstractControllerTest {
+
+    private static final String ENTITIES_TIMESERIES_URL = "/api/plugins/telemetry/entities/values/timeseries";
+
+    private Tenant savedTenant;
+
+    @Before
+    public void beforeTest() throws Exception {
+        loginSysAdmin();
+
+        Tenant tenant = new Tenant();
+        tenant.setTitle("My tenant");
+        savedTenant = doPost("/api/tenant", tenant, Tenant.class);
+        Assert.assertNotNull(savedTenant);
+
+        User tenantAdmin = new User();
+        tenantAdmin.setAuthority(Authority.TENANT_ADMIN);
+        tenantAdmin.setTenantId(savedTenant.getId());
+        tenantAdmin.setEmail("tenant2@thingsboard.org");
+        tenantAdmin.setFirstName("Joe");
+        tenantAdmin.setLastName("Downs");
+
+        createUserAndLogin(tenantAdmin, "testPassword1");
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        loginSysAdmin();
+
+        doDelete("/api/tenant/" + savedTenant.getId().getId().toString())
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testGetEntitiesTimeseries() throws Exception {
+        Device device = new Device();
+        device.setName("My device");
+        device.setType("default");
+        Device savedDevice = doPost("/api/device", device, Device.class);
+        Device otherDevice = new Device();
+        otherDevice.setName("My other device");
+        otherDevice.setType("default");
+        Device savedOtherDevice = doPost("/api/device", otherDevice, Device.class);
+
+        long ts = System.currentTimeMillis();
+        doPostAsync("/api/plugins/telemetry/DEVICE/" + savedDevice.getId().getId() + "/timeseries/ANY",
+                Collections.singletonMap("temperature", 42), -1L).andExpect(status().isOk());
+        Map<String, Object> telemetry = new HashMap<>();
+        telemetry.put("ts", ts);
+        telemetry.put("values", Collections.singletonMap("temperature", 43));
+        doPostAsync("/api/plugins/telemetry/DEVICE/" + savedOtherDevice.getId().getId() + "/timeseries/ANY", telemetry, -1L)
+                .andExpect(status().isOk());
+
+        EntitiesTimeseriesQuery query = new EntitiesTimeseriesQuery();
+        query.setEntityIds(Arrays.asList(savedDevice.getId(), savedOtherDevice.getId()));
+        query.setKeys(Collections.singletonList("temperature"));
+        Map<String, Map<String, List<Map<String, Object>>>> latest =
+                readResponse(doPostAsync(ENTITIES_TIMESERIES_URL, query, -1L).andExpect(status().isOk()), Map.class);
+        Assert.assertEquals(2, latest.size());
+        Assert.assertEquals("42", latest.get(savedDevice.getId().getId().toString()).get("temperature").get(0).get("value"));
+        Assert.assertEquals("43", latest.get(savedOtherDevice.getId().getId().toString()).get("temperature").get(0).get("value"));
+
+        query.setStartTs(ts - 1);
+        query.setEndTs(ts + 1);
+        Map<String, Map<String, List<Map<String, Object>>>> history =
+                readResponse(doPostAsync(ENTITIES_TIMESERIES_URL, query, -1L).andExpect(status().isOk()), Map.class);
+        Assert.assertTrue(history.get(savedDevice.getId().getId().toString()).isEmpty());
+        Assert.assertEquals(ts, ((Number) history.get(savedOtherDevice.getId().getId().toString()).get("temperature").get(0).get("ts")).longValue());
+
+        query.setEntityIds(Arrays.asList(savedDevice.getId(), new DeviceId(UUIDs.timeBased())));
+        doPostAsync(ENTITIES_TIMESERIES_URL, query, -1L).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetEntitiesTimeseriesWithRepeatedEntityIds() throws Exception {
+        Device device = new Device();
+        device.setName("My device");
+        device.setType("default");
+        Device savedDevice = doPost("/api/device", device, Device.class);
+        doPostAsync("/api/plugins/telemetry/DEVICE/" + savedDevice.getId().getId() + "/timeseries/ANY",
+                Collections.singletonMap("temperature", 42), -1L).andExpect(status().isOk());
+
+        EntitiesTimeseriesQuery query = new EntitiesTimeseriesQuery();
+        query.setEntityIds(Arrays.asList(savedDevice.getId(), savedDevice.getId(), savedDevice.getId()));
+        query.setKeys(Collections.singletonList("temperature"));
+        ResultActions result = doPostAsync(ENTITIES_TIMESERIES_URL, query, -1L).andExpect(status().isOk());
+        String response = result.andReturn().getResponse().getContentAsString();
+        Map<String, Map<String, List<Map<String, Object>>>> latest = readResponse(result, Map.class);
+        Assert.assertEquals(1, latest.size());
+        Assert.assertEquals(1, latest.get(savedDevice.getId().getId().toString()).get("temperature").size());
+        // each entity is written once, a repeated id would produce a duplicate JSON field
+        Assert.assertEquals(response.indexOf(savedDevice.getId().getId().toString()), response.lastIndexOf(savedDevice.getId().getId().toString()));
+    }
+}
@@ -97,6 +97,43 @@ public abstract class AbstractMqttTelemetryIntegrationTest extends AbstractContr
         assertEquals("4", values.get("key4").get(0).get("value"));
     }
 
+    @Test
+    public void testPushMqttGatewayTelemetry() throws Exception {
+        Device gateway = new Device();
+        gateway.setName("Test gateway");
+        gateway.setType("gateway");
+        gateway.setAdditionalInfo(mapper.readTree("{\"gateway\":true}"));
+        gateway = doPost("/api/device", gateway, Device.class);
+        DeviceCredentials gatewayCredentials =
+                doGet("/api/device/" + gateway.getId().getId().toString() + "/credentials", DeviceCredentials.class);
+
+        MqttAsyncClient client = new MqttAsyncClient(MQTT_URL, MqttAsyncClient.generateClientId());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setUserName(gatewayCredentials.getCredentialsId());
+        client.connect(options).waitForCompletion(3000);
+
+        String connectPayload = "{\"devices\":[{\"device\":\"Gateway child A\",\"type\":\"sensor\"},{\"device\":\"Gateway child B\"}]}";
+        client.publish("v1/gateway/connect", new MqttMessage(connectPayload.getBytes())).waitForCompletion(3000);
+        String telemetryPayload = "{\"Gateway child A\":[{\"ts\":1000,\"values\":{\"temperature\":1}},{\"ts\":2000,\"values\":{\"temperature\":2}}]," +
+                "\"Gateway child B\":[{\"ts\":1000,\"values\":{\"temperature\":3}}]," +
+                "\"Gateway child C\":[{\"ts\":1000,\"values\":{\"temperature\":4}}]}";
+        client.publish("v1/gateway/telemetry", new MqttMessage(telemetryPayload.getBytes())).waitForCompletion(3000);
+
+        Thread.sleep(1000);
+        Device childA = doGet("/api/tenant/devices?deviceName=Gateway child A", Device.class);
+        assertEquals("sensor", childA.getType());
+        assertGatewayTelemetry(childA, "2");
+        assertGatewayTelemetry(doGet("/api/tenant/devices?deviceName=Gateway child B", Device.class), "3");
+        assertGatewayTelemetry(doGet("/api/tenant/devices?deviceName=Gateway child C", Device.class), "4");
+        client.disconnect().waitForCompletion(3000);
+    }
+
+    private void assertGatewayTelemetry(Device device, String expectedValue) throws Exception {
+        String getTelemetryValuesUrl = "/api/plugins/telemetry/DEVICE/" + device.getId().getId().toString() + "/values/timeseries?keys=temperature";
+        Map<String, List<Map<String, String>>> values = doGetAsync(getTelemetryValuesUrl, Map.class);
+        assertEquals(expectedValue, values.get("temperature").get(0).get("value"));
+    }
+
     @Test
     public void testMqttQoSLevel() throws Exception {
         String clientId = MqttAsyncClient.generateClientId();
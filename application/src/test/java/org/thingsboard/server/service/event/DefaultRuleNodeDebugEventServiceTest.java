@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.event;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.Event;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.cluster.ServerAddress;
+import org.thingsboard.server.common.msg.cluster.ServerType;
+import org.thingsboard.server.dao.event.EventService;
+import org.thingsboard.server.service.cluster.discovery.DiscoveryService;
+import org.thingsboard.server.service.cluster.discovery.ServerInstance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultRuleNodeDebugEventServiceTest {
+
+    private final TenantId tenantId = new TenantId(UUID.randomUUID());
+    private final RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+
+    @Mock
+    private EventService eventService;
+    @Mock
+    private DiscoveryService discoveryService;
+
+    private DefaultRuleNodeDebugEventService debugEventService;
+
+    @Before
+    public void before() {
+        when(discoveryService.getCurrentServer()).thenReturn(new ServerInstance(new ServerAddress("localhost", 9001, ServerType.CORE)));
+        when(eventService.saveAllAsync(anyListOf(Event.class))).thenReturn(Futures.immediateFuture(null));
+
+        debugEventService = new DefaultRuleNodeDebugEventService();
+        ReflectionTestUtils.setField(debugEventService, "eventService", eventService);
+        ReflectionTestUtils.setField(debugEventService, "discoveryService", discoveryService);
+        ReflectionTestUtils.setField(debugEventService, "rateLimitConfiguration", "");
+        ReflectionTestUtils.setField(debugEventService, "bufferSize", 3);
+        ReflectionTestUtils.setField(debugEventService, "batchSize", 100);
+    }
+
+    @Test
+    public void testStoppedRuleNodeBufferIsFlushedAndRemoved() {
+        for (int i = 0; i < 5; i++) {
+            debugEventService.persistDebugEvent(tenantId, ruleNodeId, "IN", newMsg(), "Success", null);
+        }
+
+        debugEventService.onRuleNodeStopped(ruleNodeId);
+
+        ArgumentCaptor<List> events = ArgumentCaptor.forClass(List.class);
+        verify(eventService).saveAllAsync(events.capture());
+        assertEquals(3, events.getValue().size());
+        assertEquals(0, ((Map<?, ?>) ReflectionTestUtils.getField(debugEventService, "buffers")).size());
+    }
+
+    @Test
+    public void testStoppedRuleNodeWithoutEventsIsIgnored() {
+        debugEventService.onRuleNodeStopped(ruleNodeId);
+
+        verify(eventService, never()).saveAllAsync(anyListOf(Event.class));
+    }
+
+    private TbMsg newMsg() {
+        return new TbMsg(UUID.randomUUID(), "POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{}",
+                null, null, 0L);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.rule.engine.api.ListeningExecutor;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DbCallbackExecutorServiceTest {
+
+    private static final int ENTITIES = 16;
+    private static final int TASKS_PER_ENTITY = 1000;
+
+    private DbCallbackExecutorService executor;
+
+    @Before
+    public void before() {
+        executor = new DbCallbackExecutorService();
+        ReflectionTestUtils.setField(executor, "dbCallbackExecutorThreadPoolSize", 4);
+        executor.init();
+    }
+
+    @After
+    public void after() {
+        executor.destroy();
+    }
+
+    @Test
+    public void testCallbacksOfEntityAreExecutedInOrder() throws InterruptedException {
+        List<EntityId> entities = new ArrayList<>();
+        Map<EntityId, List<Integer>> results = new HashMap<>();
+        for (int i = 0; i < ENTITIES; i++) {
+            EntityId entityId = new DeviceId(UUID.randomUUID());
+            entities.add(entityId);
+            results.put(entityId, new ArrayList<>());
+        }
+        int[] submitted = new int[ENTITIES];
+        CountDownLatch latch = new CountDownLatch(ENTITIES * TASKS_PER_ENTITY);
+        Random random = new Random();
+        for (int i = 0; i < ENTITIES * TASKS_PER_ENTITY; i++) {
+            int entityIdx = random.nextInt(ENTITIES);
+            while (submitted[entityIdx] == TASKS_PER_ENTITY) {
+                entityIdx = (entityIdx + 1) % ENTITIES;
+            }
+            EntityId entityId = entities.get(entityIdx);
+            int seq = submitted[entityIdx]++;
+            executor.forEntity(entityId).execute(() -> {
+                results.get(entityId).add(seq);
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (EntityId entityId : entities) {
+            List<Integer> result = results.get(entityId);
+            assertEquals(TASKS_PER_ENTITY, result.size());
+            for (int i = 0; i < TASKS_PER_ENTITY; i++) {
+                assertEquals(i, (int) result.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSameEntityUsesSameLane() {
+        EntityId entityId = new DeviceId(UUID.randomUUID());
+        ListeningExecutor lane = executor.forEntity(entityId);
+        assertSame(lane, executor.forEntity(new DeviceId(entityId.getId())));
+        assertSame(executor, executor.forEntity(null));
+    }
+
+    @Test
+    public void testCallbacksWithoutEntityAreExecutedInOrder() throws InterruptedException {
+        List<Integer> result = new ArrayList<>();
+        Map<String, Integer> threads = new HashMap<>();
+        CountDownLatch latch = new CountDownLatch(TASKS_PER_ENTITY);
+        for (int i = 0; i < TASKS_PER_ENTITY; i++) {
+            int seq = i;
+            executor.execute(() -> {
+                result.add(seq);
+                threads.merge(Thread.currentThread().getName(), 1, Integer::sum);
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+        for (int i = 0; i < TASKS_PER_ENTITY; i++) {
+            assertEquals(i, (int) result.get(i));
+        }
+    }
+}
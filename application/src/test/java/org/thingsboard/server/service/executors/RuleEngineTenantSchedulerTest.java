@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RuleEngineTenantSchedulerTest {
+
+    private final TenantId tenantId = new TenantId(UUID.randomUUID());
+    private final RuleChainId ruleChainId = new RuleChainId(UUID.randomUUID());
+
+    private RuleEngineTenantScheduler scheduler;
+
+    @Before
+    public void before() {
+        scheduler = new RuleEngineTenantScheduler();
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "queueSize", 1);
+        ReflectionTestUtils.setField(scheduler, "maxInFlight", 1);
+        ReflectionTestUtils.setField(scheduler, "inFlightTimeoutMs", TimeUnit.MINUTES.toMillis(1));
+        ReflectionTestUtils.setField(scheduler, "defaultWeight", 1);
+        ReflectionTestUtils.setField(scheduler, "weightsConfig", "");
+        scheduler.init();
+    }
+
+    @After
+    public void after() {
+        scheduler.destroy();
+    }
+
+    @Test
+    public void testMessageIsDroppedWhenQueueIsFull() throws InterruptedException {
+        scheduler.onMsgPushed(tenantId);
+        AtomicInteger dropped = new AtomicInteger();
+        CountDownLatch executed = new CountDownLatch(1);
+        scheduler.submit(tenantId, executed::countDown, dropped::incrementAndGet);
+        scheduler.submit(tenantId, () -> {
+        }, dropped::incrementAndGet);
+
+        assertEquals(1, dropped.get());
+        assertFalse(executed.await(200, TimeUnit.MILLISECONDS));
+
+        scheduler.onMsgProcessed(tenantId, ruleChainId, 0);
+        assertTrue(executed.await(1, TimeUnit.SECONDS));
+        assertEquals(1, dropped.get());
+    }
+
+    @Test
+    public void testDiscardedMessageReleasesInFlight() throws InterruptedException {
+        scheduler.onMsgPushed(tenantId);
+        CountDownLatch executed = new CountDownLatch(1);
+        scheduler.submit(tenantId, executed::countDown, () -> {
+        });
+        assertFalse(executed.await(200, TimeUnit.MILLISECONDS));
+
+        scheduler.onMsgDiscarded(tenantId);
+        assertTrue(executed.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInFlightIsNotReleasedTwice() throws InterruptedException {
+        scheduler.onMsgPushed(tenantId);
+        scheduler.onMsgProcessed(tenantId, ruleChainId, 0);
+        scheduler.onMsgDiscarded(tenantId);
+        scheduler.onMsgPushed(tenantId);
+
+        CountDownLatch executed = new CountDownLatch(1);
+        scheduler.submit(tenantId, executed::countDown, () -> {
+        });
+        assertFalse(executed.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testMessagesAreExecutedWhenDisabled() {
+        ReflectionTestUtils.setField(scheduler, "enabled", false);
+        AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            scheduler.submit(tenantId, executed::incrementAndGet, () -> {
+            });
+        }
+        assertEquals(10, executed.get());
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.script;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.gen.js.JsInvokeProtos;
+import org.thingsboard.server.kafka.TbKafkaRequestTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RemoteJsInvokeServiceTest {
+
+    private static final String FUNCTION_NAME = "invokeInternal";
+    private static final String SCRIPT_BODY = "function invokeInternal(msg) { return msg; }";
+
+    private final UUID scriptId = UUID.randomUUID();
+
+    @Mock
+    private TbKafkaRequestTemplate<JsInvokeProtos.RemoteJsRequest, JsInvokeProtos.RemoteJsResponse> kafkaTemplate;
+
+    private RemoteJsInvokeService invokeService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        invokeService = new RemoteJsInvokeService();
+        ReflectionTestUtils.setField(invokeService, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(invokeService, "maxRequestsTimeout", 10000L);
+        ((Map<UUID, String>) ReflectionTestUtils.getField(invokeService, "scriptIdToBodysMap")).put(scriptId, SCRIPT_BODY);
+    }
+
+    @Test
+    public void testScriptBodyIsSentWithEveryInvokeByDefault() throws Exception {
+        when(kafkaTemplate.post(anyString(), any(JsInvokeProtos.RemoteJsRequest.class)))
+                .thenReturn(Futures.immediateFuture(successResponse()));
+
+        assertEquals("{}", invokeService.doInvokeFunction(scriptId, FUNCTION_NAME, new Object[]{"{}"}).get(1, TimeUnit.SECONDS));
+
+        ArgumentCaptor<JsInvokeProtos.RemoteJsRequest> requests = ArgumentCaptor.forClass(JsInvokeProtos.RemoteJsRequest.class);
+        verify(kafkaTemplate).post(anyString(), requests.capture());
+        assertEquals(SCRIPT_BODY, requests.getValue().getInvokeRequest().getScriptBody());
+    }
+
+    @Test
+    public void testScriptBodyIsResentWhenScriptIsNotFound() throws Exception {
+        ReflectionTestUtils.setField(invokeService, "invokeByScriptId", true);
+        when(kafkaTemplate.post(anyString(), any(JsInvokeProtos.RemoteJsRequest.class)))
+                .thenReturn(Futures.immediateFuture(errorResponse(JsInvokeProtos.JsInvokeErrorCode.NOT_FOUND_ERROR)))
+                .thenReturn(Futures.immediateFuture(successResponse()));
+
+        assertEquals("{}", invokeService.doInvokeFunction(scriptId, FUNCTION_NAME, new Object[]{"{}"}).get(1, TimeUnit.SECONDS));
+
+        ArgumentCaptor<JsInvokeProtos.RemoteJsRequest> requests = ArgumentCaptor.forClass(JsInvokeProtos.RemoteJsRequest.class);
+        verify(kafkaTemplate, times(2)).post(anyString(), requests.capture());
+        assertTrue(requests.getAllValues().get(0).getInvokeRequest().getScriptBody().isEmpty());
+        assertEquals(SCRIPT_BODY, requests.getAllValues().get(1).getInvokeRequest().getScriptBody());
+    }
+
+    @Test
+    public void testScriptBodyIsNotResentOnOtherErrors() throws Exception {
+        ReflectionTestUtils.setField(invokeService, "invokeByScriptId", true);
+        when(kafkaTemplate.post(anyString(), any(JsInvokeProtos.RemoteJsRequest.class)))
+                .thenReturn(Futures.immediateFuture(errorResponse(JsInvokeProtos.JsInvokeErrorCode.RUNTIME_ERROR)));
+
+        try {
+            invokeService.doInvokeFunction(scriptId, FUNCTION_NAME, new Object[]{"{}"}).get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("error", e.getCause().getMessage());
+        }
+        verify(kafkaTemplate, times(1)).post(anyString(), any(JsInvokeProtos.RemoteJsRequest.class));
+    }
+
+    private JsInvokeProtos.RemoteJsResponse successResponse() {
+        return JsInvokeProtos.RemoteJsResponse.newBuilder()
+                .setInvokeResponse(JsInvokeProtos.JsInvokeResponse.newBuilder().setSuccess(true).setResult("{}"))
+                .build();
+    }
+
+    private JsInvokeProtos.RemoteJsResponse errorResponse(JsInvokeProtos.JsInvokeErrorCode errorCode) {
+        return JsInvokeProtos.RemoteJsResponse.newBuilder()
+                .setInvokeResponse(JsInvokeProtos.JsInvokeResponse.newBuilder().setSuccess(false).setErrorCode(errorCode).setErrorDetails("error"))
+                .build();
+    }
+}
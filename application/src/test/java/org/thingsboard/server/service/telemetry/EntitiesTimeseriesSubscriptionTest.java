@@ -0,0 +1,225 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.thingsboard.server.common.data.User;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.security.Authority;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+import org.thingsboard.server.service.cluster.routing.ClusterRoutingService;
+import org.thingsboard.server.service.security.AccessValidator;
+import org.thingsboard.server.service.security.ValidationResult;
+import org.thingsboard.server.service.security.model.SecurityUser;
+import org.thingsboard.server.service.security.model.UserPrincipal;
+import org.thingsboard.server.service.telemetry.cmd.EntitiesTimeseriesSubscriptionCmd;
+import org.thingsboard.server.service.telemetry.cmd.TelemetryPluginCmdsWrapper;
+import org.thingsboard.server.service.telemetry.sub.SubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EntitiesTimeseriesSubscriptionTest {
+
+    private static final int MAX_SUBSCRIPTIONS_PER_TENANT = 3;
+    private static final String KEY = "temperature";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Mock
+    private TelemetryWebSocketMsgEndpoint msgEndpoint;
+    @Mock
+    private AccessValidator accessValidator;
+    @Mock
+    private TimeseriesService tsService;
+    @Mock
+    private ClusterRoutingService routingService;
+
+    private DefaultTelemetryWebSocketService wsService;
+    private DefaultTelemetrySubscriptionService subscriptionService;
+    private TelemetryWebSocketSessionRef sessionRef;
+    private TenantId tenantId;
+
+    @Before
+    public void before() {
+        tenantId = new TenantId(UUID.randomUUID());
+        User user = new User(new UserId(UUID.randomUUID()));
+        user.setTenantId(tenantId);
+        user.setAuthority(Authority.TENANT_ADMIN);
+        SecurityUser securityUser = new SecurityUser(user, true, new UserPrincipal(UserPrincipal.Type.USER_NAME, "tenant@thingsboard.org"));
+        sessionRef = new TelemetryWebSocketSessionRef(UUID.randomUUID().toString(), securityUser, null, null);
+
+        doAnswer(invocation -> {
+            ((FutureCallback<ValidationResult>) invocation.getArguments()[3]).onSuccess(ValidationResult.ok(null));
+            return null;
+        }).when(accessValidator).validate(eq(securityUser), any(), anyListOf(EntityId.class), any());
+        when(tsService.findLatest(eq(tenantId), anyListOf(EntityId.class), anyCollection())).thenAnswer(invocation -> {
+            Map<EntityId, List<TsKvEntry>> data = new HashMap<>();
+            for (EntityId entityId : (List<EntityId>) invocation.getArguments()[1]) {
+                data.put(entityId, Collections.singletonList(new BasicTsKvEntry(1L, new DoubleDataEntry(KEY, 20.0))));
+            }
+            return Futures.immediateFuture(data);
+        });
+        when(tsService.save(eq(tenantId), any(EntityId.class), anyListOf(TsKvEntry.class), anyLong()))
+                .thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        when(routingService.resolveById(any(EntityId.class))).thenReturn(Optional.empty());
+
+        subscriptionService = new DefaultTelemetrySubscriptionService();
+        wsService = new DefaultTelemetryWebSocketService();
+        ReflectionTestUtils.setField(subscriptionService, "wsService", wsService);
+        ReflectionTestUtils.setField(subscriptionService, "tsService", tsService);
+        ReflectionTestUtils.setField(subscriptionService, "routingService", routingService);
+        subscriptionService.initExecutor();
+        ReflectionTestUtils.setField(wsService, "subscriptionManager", subscriptionService);
+        ReflectionTestUtils.setField(wsService, "msgEndpoint", msgEndpoint);
+        ReflectionTestUtils.setField(wsService, "accessValidator", accessValidator);
+        ReflectionTestUtils.setField(wsService, "tsService", tsService);
+        ReflectionTestUtils.setField(wsService, "maxSubscriptionsPerTenant", MAX_SUBSCRIPTIONS_PER_TENANT);
+        ReflectionTestUtils.setField(wsService, "maxEntitiesPerSubscription", 5000);
+        wsService.initExecutor();
+
+        wsService.handleWebSocketSessionEvent(sessionRef, SessionEvent.onEstablished());
+    }
+
+    @After
+    public void after() {
+        wsService.shutdownExecutor();
+        subscriptionService.shutdownExecutor();
+    }
+
+    @Test
+    public void testSubscribeUpdateAndUnsubscribe() throws Exception {
+        List<EntityId> devices = devices(2);
+        subscribe(1, devices, false);
+
+        ArgumentCaptor<String> initialMsg = ArgumentCaptor.forClass(String.class);
+        verify(msgEndpoint, timeout(5000)).send(eq(sessionRef), eq(1), initialMsg.capture());
+        JsonNode initial = mapper.readTree(initialMsg.getValue());
+        assertEquals(1, initial.get("subscriptionId").asInt());
+        for (EntityId device : devices) {
+            assertEquals(20.0, initial.get("data").get(device.getId().toString()).get(KEY).get(0).get(1).asDouble(), 0.0);
+        }
+        awaitSubscribed(devices);
+
+        subscriptionService.saveAndNotify(tenantId, devices.get(1), Collections.singletonList(new BasicTsKvEntry(2L, new DoubleDataEntry(KEY, 21.0))), new NoOpCallback());
+        ArgumentCaptor<SubscriptionUpdate> update = ArgumentCaptor.forClass(SubscriptionUpdate.class);
+        verify(msgEndpoint, timeout(5000)).send(eq(sessionRef), update.capture());
+        assertEquals(1, update.getValue().getSubscriptionId());
+        assertEquals(devices.get(1), update.getValue().getEntityId());
+        assertEquals(Long.valueOf(2L), update.getValue().getLatestValues().get(KEY));
+
+        subscribe(1, Collections.emptyList(), true);
+        for (EntityId device : devices) {
+            Set<?> entitySubscriptions = getSubscriptionsByEntityId().get(device);
+            assertTrue(entitySubscriptions == null || entitySubscriptions.isEmpty());
+        }
+
+        // The slots of the unsubscribed entities are released
+        subscribe(2, devices(MAX_SUBSCRIPTIONS_PER_TENANT), false);
+        verify(msgEndpoint, timeout(5000)).send(eq(sessionRef), eq(2), any(String.class));
+        verify(msgEndpoint, never()).close(any(), any());
+    }
+
+    @Test
+    public void testEachEntityIsCountedAgainstSubscriptionLimits() throws Exception {
+        subscribe(1, devices(MAX_SUBSCRIPTIONS_PER_TENANT - 1), false);
+        verify(msgEndpoint, timeout(5000)).send(eq(sessionRef), eq(1), any(String.class));
+
+        List<EntityId> rejected = devices(2);
+        subscribe(2, rejected, false);
+        verify(msgEndpoint).close(sessionRef, CloseStatus.POLICY_VIOLATION.withReason("Max tenant subscriptions limit reached!"));
+        verify(tsService, never()).findLatest(tenantId, rejected, Collections.singletonList(KEY));
+    }
+
+    private void subscribe(int cmdId, List<EntityId> entityIds, boolean unsubscribe) throws Exception {
+        EntitiesTimeseriesSubscriptionCmd cmd = new EntitiesTimeseriesSubscriptionCmd(cmdId, "DEVICE",
+                entityIds.stream().map(id -> id.getId().toString()).collect(Collectors.toList()), KEY, unsubscribe);
+        TelemetryPluginCmdsWrapper wrapper = new TelemetryPluginCmdsWrapper();
+        wrapper.setEntitiesTsSubCmds(Collections.singletonList(cmd));
+        wsService.handleWebSocketMsg(sessionRef, mapper.writeValueAsString(wrapper));
+    }
+
+    private void awaitSubscribed(List<EntityId> entityIds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!entityIds.stream().allMatch(id -> getSubscriptionsByEntityId().containsKey(id))) {
+            assertTrue("Subscriptions are not registered", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<EntityId, Set<?>> getSubscriptionsByEntityId() {
+        return (Map<EntityId, Set<?>>) ReflectionTestUtils.getField(subscriptionService, "subscriptionsByEntityId");
+    }
+
+    private static List<EntityId> devices(int count) {
+        List<EntityId> devices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            devices.add(new DeviceId(UUID.randomUUID()));
+        }
+        return devices;
+    }
+
+    private static class NoOpCallback implements FutureCallback<Void> {
+        @Override
+        public void onSuccess(Void result) {
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+        }
+    }
+
+}
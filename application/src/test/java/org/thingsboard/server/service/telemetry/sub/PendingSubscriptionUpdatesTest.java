@@ -0,0 +1,104 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry.sub;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PendingSubscriptionUpdatesTest {
+
+    @Test
+    public void testLatestValueOfKeyIsKept() {
+        PendingSubscriptionUpdates pending = new PendingSubscriptionUpdates();
+        pending.add(latest(new SubscriptionUpdate(1, Arrays.asList(entry("temperature", 1, 20), entry("humidity", 1, 40)))));
+        pending.add(latest(new SubscriptionUpdate(1, Arrays.asList(entry("temperature", 3, 22), entry("temperature", 2, 21)))));
+
+        List<SubscriptionUpdate> updates = pending.drain();
+        assertEquals(1, updates.size());
+        SubscriptionUpdate update = updates.get(0);
+        assertEquals(1, update.getSubscriptionId());
+        assertEquals(2, update.getData().size());
+        assertValue(update, "temperature", 3L, "22");
+        assertValue(update, "humidity", 1L, "40");
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    public void testUpdatesAreKeptPerSubscriptionAndEntity() {
+        DeviceId firstDevice = new DeviceId(UUID.randomUUID());
+        DeviceId secondDevice = new DeviceId(UUID.randomUUID());
+        PendingSubscriptionUpdates pending = new PendingSubscriptionUpdates();
+        pending.add(latest(new SubscriptionUpdate(1, Collections.singletonList(entry("temperature", 1, 20)))));
+        pending.add(latest(new SubscriptionUpdate(2, firstDevice, Collections.singletonList(entry("temperature", 1, 30)))));
+        pending.add(latest(new SubscriptionUpdate(2, secondDevice, Collections.singletonList(entry("temperature", 1, 40)))));
+        pending.add(latest(new SubscriptionUpdate(2, firstDevice, Collections.singletonList(entry("temperature", 2, 31)))));
+
+        List<SubscriptionUpdate> updates = pending.drain();
+        assertEquals(3, updates.size());
+        assertNull(updates.get(0).getEntityId());
+        assertValue(updates.get(0), "temperature", 1L, "20");
+        assertEquals(firstDevice, updates.get(1).getEntityId());
+        assertValue(updates.get(1), "temperature", 2L, "31");
+        assertEquals(secondDevice, updates.get(2).getEntityId());
+        assertValue(updates.get(2), "temperature", 1L, "40");
+    }
+
+    @Test
+    public void testTimeWindowValuesAreAppended() {
+        PendingSubscriptionUpdates pending = new PendingSubscriptionUpdates();
+        pending.add(new SubscriptionUpdate(1, Arrays.asList(entry("temperature", 1, 20), entry("humidity", 1, 40))));
+        pending.add(new SubscriptionUpdate(1, Arrays.asList(entry("temperature", 2, 21), entry("temperature", 3, 22))));
+
+        List<SubscriptionUpdate> updates = pending.drain();
+        assertEquals(1, updates.size());
+        List<Object> temperature = updates.get(0).getData().get("temperature");
+        assertEquals(3, temperature.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1L, ((Object[]) temperature.get(i))[0]);
+            assertEquals(Integer.toString(20 + i), ((Object[]) temperature.get(i))[1]);
+        }
+        assertValue(updates.get(0), "humidity", 1L, "40");
+    }
+
+    private static SubscriptionUpdate latest(SubscriptionUpdate update) {
+        update.setConflatable(true);
+        return update;
+    }
+
+    private static TsKvEntry entry(String key, long ts, long value) {
+        return new BasicTsKvEntry(ts, new LongDataEntry(key, value));
+    }
+
+    private static void assertValue(SubscriptionUpdate update, String key, long ts, String value) {
+        List<Object> values = update.getData().get(key);
+        assertEquals(1, values.size());
+        Object[] tsValue = (Object[]) values.get(0);
+        assertEquals(ts, tsValue[0]);
+        assertEquals(value, tsValue[1]);
+    }
+}
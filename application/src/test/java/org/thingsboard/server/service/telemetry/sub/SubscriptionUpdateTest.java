@@ -0,0 +1,51 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry.sub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class SubscriptionUpdateTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testCopiesAreEncodedAsRegularUpdates() throws Exception {
+        SubscriptionUpdate update = new SubscriptionUpdate(7, Collections.singletonList(new BasicTsKvEntry(42L, new StringDataEntry("status", "ON"))));
+        assertEquals(mapper.writeValueAsString(update), update.toJson(mapper));
+        for (int subscriptionId : new int[]{7, 1, 1234567}) {
+            SubscriptionUpdate copy = update.withSubscriptionId(subscriptionId);
+            assertEquals(mapper.writeValueAsString(copy), copy.toJson(mapper));
+        }
+    }
+
+    @Test
+    public void testEntityUpdateCopiesAreEncodedAsRegularUpdates() throws Exception {
+        SubscriptionUpdate update = new SubscriptionUpdate(3, new DeviceId(UUID.randomUUID()),
+                Collections.singletonList(new BasicTsKvEntry(42L, new StringDataEntry("status", "ON"))));
+        SubscriptionUpdate copy = update.withSubscriptionId(15);
+        assertEquals(mapper.writeValueAsString(copy), copy.toJson(mapper));
+        assertEquals(mapper.writeValueAsString(update), update.toJson(mapper));
+    }
+}
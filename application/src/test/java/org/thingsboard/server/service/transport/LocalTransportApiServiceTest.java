@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.transport;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.dao.device.DeviceService;
+import org.thingsboard.server.dao.relation.RelationService;
+import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.GatewayDeviceProto;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiResponseMsg;
+import org.thingsboard.server.service.executors.DeviceCreationExecutorService;
+import org.thingsboard.server.service.state.DeviceStateService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocalTransportApiServiceTest {
+
+    private static final int THREADS = 8;
+
+    @Mock
+    private DeviceService deviceService;
+    @Mock
+    private RelationService relationService;
+    @Mock
+    private DeviceStateService deviceStateService;
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private Cache cache;
+
+    private final ConcurrentMap<String, Device> devices = new ConcurrentHashMap<>();
+    private final AtomicInteger savedDevices = new AtomicInteger();
+
+    private DeviceCreationExecutorService deviceCreationExecutorService;
+    private LocalTransportApiService service;
+    private Device gateway;
+
+    @Before
+    public void before() {
+        gateway = new Device(new DeviceId(UUID.randomUUID()));
+        gateway.setTenantId(new TenantId(UUID.randomUUID()));
+        gateway.setName("Gateway");
+        gateway.setType("gateway");
+        when(deviceService.findDeviceByIdAsync(TenantId.SYS_TENANT_ID, gateway.getId())).thenReturn(Futures.immediateFuture(gateway));
+        when(deviceService.findDeviceByTenantIdAndName(eq(gateway.getTenantId()), anyString()))
+                .thenAnswer(invocation -> devices.get((String) invocation.getArguments()[1]));
+        when(deviceService.saveDevice(any(Device.class))).thenAnswer(invocation -> {
+            Device device = new Device((Device) invocation.getArguments()[0]);
+            device.setId(new DeviceId(UUID.randomUUID()));
+            // Widens the window between the lookup and the creation of the device
+            Thread.sleep(10);
+            devices.put(device.getName(), device);
+            savedDevices.incrementAndGet();
+            return device;
+        });
+        when(cacheManager.getCache(anyString())).thenReturn(cache);
+
+        deviceCreationExecutorService = new DeviceCreationExecutorService();
+        ReflectionTestUtils.setField(deviceCreationExecutorService, "deviceCreationThreadPoolSize", THREADS);
+        deviceCreationExecutorService.init();
+
+        service = new LocalTransportApiService();
+        ReflectionTestUtils.setField(service, "deviceService", deviceService);
+        ReflectionTestUtils.setField(service, "relationService", relationService);
+        ReflectionTestUtils.setField(service, "deviceStateService", deviceStateService);
+        ReflectionTestUtils.setField(service, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(service, "deviceCreationExecutorService", deviceCreationExecutorService);
+        ReflectionTestUtils.setField(service, "deviceCreationLockStripes", 16);
+        service.init();
+    }
+
+    @After
+    public void after() {
+        deviceCreationExecutorService.destroy();
+    }
+
+    @Test
+    public void testConcurrentGetOrCreateOfSameDeviceCreatesOneDevice() throws Exception {
+        TransportApiRequestMsg request = TransportApiRequestMsg.newBuilder().setGetOrCreateDeviceRequestMsg(
+                GetOrCreateDeviceFromGatewayRequestMsg.newBuilder()
+                        .setGatewayIdMSB(gateway.getUuidId().getMostSignificantBits())
+                        .setGatewayIdLSB(gateway.getUuidId().getLeastSignificantBits())
+                        .setDeviceName("Device A").setDeviceType("default").build()).build();
+
+        ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ListenableFuture<TransportApiResponseMsg>>> calls = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                calls.add(callers.submit(() -> {
+                    start.await();
+                    return service.handle(request);
+                }));
+            }
+            start.countDown();
+            UUID deviceId = null;
+            for (Future<ListenableFuture<TransportApiResponseMsg>> call : calls) {
+                DeviceInfoProto deviceInfo = call.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS)
+                        .getGetOrCreateDeviceResponseMsg().getDeviceInfo();
+                UUID id = new UUID(deviceInfo.getDeviceIdMSB(), deviceInfo.getDeviceIdLSB());
+                if (deviceId == null) {
+                    deviceId = id;
+                }
+                assertEquals(deviceId, id);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1, savedDevices.get());
+        verify(relationService, times(1)).saveRelationAsync(eq(TenantId.SYS_TENANT_ID), any(EntityRelation.class));
+        verify(deviceStateService, times(1)).onDeviceAdded(any(Device.class));
+    }
+
+    @Test
+    public void testBulkGetOrCreateReturnsAllDevices() throws Exception {
+        Device existing = new Device(new DeviceId(UUID.randomUUID()));
+        existing.setTenantId(gateway.getTenantId());
+        existing.setName("Device 0");
+        existing.setType("default");
+        devices.put(existing.getName(), existing);
+
+        int count = 20;
+        GetOrCreateDevicesFromGatewayRequestMsg.Builder requestMsg = GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
+                .setGatewayIdMSB(gateway.getUuidId().getMostSignificantBits())
+                .setGatewayIdLSB(gateway.getUuidId().getLeastSignificantBits());
+        for (int i = 0; i < count; i++) {
+            requestMsg.addDevices(GatewayDeviceProto.newBuilder().setDeviceName("Device " + i).setDeviceType("default").build());
+        }
+        // The same device twice in one request must not be created twice
+        requestMsg.addDevices(GatewayDeviceProto.newBuilder().setDeviceName("Device 1").setDeviceType("default").build());
+
+        TransportApiResponseMsg response = service.handle(TransportApiRequestMsg.newBuilder()
+                .setGetOrCreateDevicesRequestMsg(requestMsg.build()).build()).get(10, TimeUnit.SECONDS);
+
+        List<DeviceInfoProto> deviceInfos = response.getGetOrCreateDevicesResponseMsg().getDeviceInfoList();
+        assertEquals(count + 1, deviceInfos.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals("Device " + i, deviceInfos.get(i).getDeviceName());
+        }
+        assertEquals(existing.getId().getId().getMostSignificantBits(), deviceInfos.get(0).getDeviceIdMSB());
+        assertEquals(deviceInfos.get(1).getDeviceIdMSB(), deviceInfos.get(count).getDeviceIdMSB());
+        assertEquals(deviceInfos.get(1).getDeviceIdLSB(), deviceInfos.get(count).getDeviceIdLSB());
+        assertEquals(count - 1, savedDevices.get());
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sample payloads shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Flat telemetry object with the given number of keys, cycling through the value types supported by the transports.
+     */
+    static String telemetryJson(int keys) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < keys; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"key").append(i).append("\":");
+            switch (i % 4) {
+                case 0:
+                    json.append(i * 1.5);
+                    break;
+                case 1:
+                    json.append(i);
+                    break;
+                case 2:
+                    json.append(i / 4 % 2 == 0);
+                    break;
+                default:
+                    json.append("\"value").append(i).append('"');
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    static TbMsgMetaData metaData(int keys) {
+        Map<String, String> data = new HashMap<>();
+        data.put("deviceName", "Thermostat A1");
+        data.put("deviceType", "thermostat");
+        for (int i = 2; i < keys; i++) {
+            data.put("key" + i, "value" + i);
+        }
+        return new TbMsgMetaData(data);
+    }
+}
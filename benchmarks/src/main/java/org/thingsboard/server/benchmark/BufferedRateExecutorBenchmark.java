@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.datastax.driver.core.utils.UUIDs;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.dao.util.AbstractBufferedRateExecutor;
+import org.thingsboard.server.dao.util.AsyncTask;
+import org.thingsboard.server.dao.util.AsyncTaskContext;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a task through the buffered rate executor: per-tenant queueing, dispatching and callback.
+ * The stand-in executor completes every task immediately, so only the executor overhead is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class BufferedRateExecutorBenchmark {
+
+    @Param({"1", "16"})
+    private int tenants;
+
+    private ImmediateExecutor executor;
+    private TenantId[] tenantIds;
+
+    @Setup
+    public void setup() {
+        executor = new ImmediateExecutor();
+        tenantIds = new TenantId[tenants];
+        for (int i = 0; i < tenants; i++) {
+            tenantIds[i] = new TenantId(UUIDs.timeBased());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private int index;
+    }
+
+    @Benchmark
+    public Object submitAndWait(ThreadState state) throws ExecutionException, InterruptedException {
+        state.index++;
+        TenantId tenantId = tenantIds[state.index % tenantIds.length];
+        return executor.submit(() -> tenantId).get();
+    }
+
+    private static class ImmediateExecutor extends AbstractBufferedRateExecutor<AsyncTask, ListenableFuture<Object>, Object> {
+
+        private static final Object RESULT = new Object();
+
+        ImmediateExecutor() {
+            super(100000, 1000, 10000, 1, 2, 100, false, null);
+        }
+
+        @Override
+        protected SettableFuture<Object> create() {
+            return SettableFuture.create();
+        }
+
+        @Override
+        protected ListenableFuture<Object> wrap(AsyncTask task, SettableFuture<Object> future) {
+            return future;
+        }
+
+        @Override
+        protected ListenableFuture<Object> execute(AsyncTaskContext<AsyncTask, Object> taskCtx) {
+            return Futures.immediateFuture(RESULT);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.msg.cluster.ServerAddress;
+import org.thingsboard.server.common.msg.cluster.ServerType;
+import org.thingsboard.server.service.cluster.discovery.DiscoveryService;
+import org.thingsboard.server.service.cluster.discovery.ServerInstance;
+import org.thingsboard.server.service.cluster.routing.ConsistentClusterRoutingService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consistent hash lookup of the cluster node responsible for an entity.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClusterRoutingBenchmark {
+
+    private static final int ENTITIES = 1024;
+
+    @Param({"1", "3", "10"})
+    private int servers;
+
+    @Param({"16"})
+    private int virtualNodes;
+
+    private ConsistentClusterRoutingService routingService;
+    private EntityId[] entityIds;
+    private int index;
+
+    @Setup
+    public void setup() {
+        List<ServerInstance> instances = new ArrayList<>();
+        for (int i = 0; i < servers; i++) {
+            instances.add(new ServerInstance(new ServerAddress("tb-node-" + i, 9001, ServerType.CORE)));
+        }
+        routingService = new ConsistentClusterRoutingService();
+        ReflectionTestUtils.setField(routingService, "discoveryService", new StaticDiscoveryService(instances));
+        ReflectionTestUtils.setField(routingService, "hashFunctionName", "murmur3_128");
+        ReflectionTestUtils.setField(routingService, "virtualNodesSize", virtualNodes);
+        routingService.init();
+        entityIds = new EntityId[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) {
+            entityIds[i] = new DeviceId(UUIDs.timeBased());
+        }
+    }
+
+    @Benchmark
+    public Optional<ServerAddress> resolveById() {
+        index = (index + 1) & (ENTITIES - 1);
+        return routingService.resolveById(entityIds[index]);
+    }
+
+    private static class StaticDiscoveryService implements DiscoveryService {
+
+        private final List<ServerInstance> instances;
+
+        StaticDiscoveryService(List<ServerInstance> instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public void publishCurrentServer() {
+        }
+
+        @Override
+        public void unpublishCurrentServer() {
+        }
+
+        @Override
+        public ServerInstance getCurrentServer() {
+            return instances.get(0);
+        }
+
+        @Override
+        public List<ServerInstance> getOtherServers() {
+            return instances.subList(1, instances.size());
+        }
+    }
+}
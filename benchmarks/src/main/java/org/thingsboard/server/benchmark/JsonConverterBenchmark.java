@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.transport.adaptor.JsonConverter;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of device telemetry and attributes from JSON to the transport protos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonConverterBenchmark {
+
+    @Param({"10", "100"})
+    private int keys;
+
+    private JsonElement telemetry;
+    private JsonElement telemetryWithTs;
+    private JsonElement attributes;
+
+    @Setup
+    public void setup() {
+        telemetry = new JsonParser().parse(BenchmarkData.telemetryJson(keys));
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < 10; i++) {
+            JsonObject tsObject = new JsonObject();
+            tsObject.addProperty("ts", 1550000000000L + i);
+            tsObject.add("values", telemetry);
+            array.add(tsObject);
+        }
+        telemetryWithTs = array;
+        attributes = new JsonParser().parse(BenchmarkData.telemetryJson(keys));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg convertTelemetry() {
+        return JsonConverter.convertToTelemetryProto(telemetry);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg convertTelemetryWithTs() {
+        return JsonConverter.convertToTelemetryProto(telemetryWithTs);
+    }
+
+    @Benchmark
+    public TransportProtos.PostAttributeMsg convertAttributes() {
+        return JsonConverter.convertToAttributesProto(attributes);
+    }
+}
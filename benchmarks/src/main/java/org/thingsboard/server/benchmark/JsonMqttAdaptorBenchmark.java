@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.transport.adaptor.AdaptorException;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.mqtt.adaptors.JsonMqttAdaptor;
+import org.thingsboard.server.transport.mqtt.session.DeviceSessionCtx;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of MQTT publish payloads into the transport protos, as done for every device telemetry message.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonMqttAdaptorBenchmark {
+
+    private static final MqttFixedHeader FIXED_HEADER = new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_LEAST_ONCE, false, 0);
+    private static final MqttPublishVariableHeader VARIABLE_HEADER = new MqttPublishVariableHeader("v1/devices/me/telemetry", 1);
+
+    @Param({"10", "100"})
+    private int keys;
+
+    private JsonMqttAdaptor adaptor;
+    private DeviceSessionCtx ctx;
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        adaptor = new JsonMqttAdaptor();
+        ctx = new DeviceSessionCtx(UUID.randomUUID(), new ConcurrentHashMap<>());
+        payload = BenchmarkData.telemetryJson(keys).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg convertToPostTelemetry() throws AdaptorException {
+        // The adaptor releases the payload, so every invocation gets a fresh wrapper around the same bytes
+        MqttPublishMessage inbound = new MqttPublishMessage(FIXED_HEADER, VARIABLE_HEADER, Unpooled.wrappedBuffer(payload));
+        return adaptor.convertToPostTelemetry(ctx, inbound);
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.cluster.ServerAddress;
+import org.thingsboard.server.common.msg.cluster.ServerType;
+import org.thingsboard.server.common.msg.system.ServiceToRuleEngineMsg;
+import org.thingsboard.server.gen.cluster.ClusterAPIProtos;
+import org.thingsboard.server.service.encoding.ProtoWithFSTService;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FST encoding of actor messages that are forwarded to other cluster nodes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProtoWithFSTServiceBenchmark {
+
+    @Param({"10", "100"})
+    private int keys;
+
+    private ProtoWithFSTService service;
+    private ServerAddress serverAddress;
+    private TbActorMsg msg;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        service = new ProtoWithFSTService();
+        serverAddress = new ServerAddress("localhost", 9001, ServerType.CORE);
+        TbMsg tbMsg = new TbMsg(UUIDs.timeBased(), "POST_TELEMETRY_REQUEST", new DeviceId(UUIDs.timeBased()), BenchmarkData.metaData(keys),
+                BenchmarkData.telemetryJson(keys), new RuleChainId(UUIDs.timeBased()), new RuleNodeId(UUIDs.timeBased()), 0L);
+        msg = new ServiceToRuleEngineMsg(new TenantId(UUIDs.timeBased()), tbMsg);
+        bytes = service.encode(msg);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return service.encode(msg);
+    }
+
+    @Benchmark
+    public Optional<TbActorMsg> decode() {
+        return service.decode(bytes);
+    }
+
+    @Benchmark
+    public ClusterAPIProtos.ClusterMessage convertToProtoDataMessage() {
+        return service.convertToProtoDataMessage(serverAddress, msg);
+    }
+}
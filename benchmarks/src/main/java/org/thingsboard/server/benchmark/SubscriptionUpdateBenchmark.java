@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.service.telemetry.sub.SubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of one entity telemetry update to all the websocket sessions subscribed to the entity.
+ * Compares encoding the update for every session with sharing the encoding between the session copies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubscriptionUpdateBenchmark {
+
+    @Param({"1000"})
+    private int sessions;
+
+    @Param({"10"})
+    private int keys;
+
+    private ObjectMapper mapper;
+    private List<TsKvEntry> data;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper();
+        data = new ArrayList<>();
+        long ts = System.currentTimeMillis();
+        for (int i = 0; i < keys; i++) {
+            data.add(new BasicTsKvEntry(ts, new DoubleDataEntry("key" + i, i * 1.5)));
+        }
+    }
+
+    @Benchmark
+    public void encodePerSession(Blackhole blackhole) throws JsonProcessingException {
+        for (int i = 0; i < sessions; i++) {
+            blackhole.consume(mapper.writeValueAsString(new SubscriptionUpdate(i, data)));
+        }
+    }
+
+    @Benchmark
+    public void encodeShared(Blackhole blackhole) throws JsonProcessingException {
+        SubscriptionUpdate update = new SubscriptionUpdate(0, data);
+        for (int i = 0; i < sessions; i++) {
+            blackhole.consume(update.withSubscriptionId(i).toJson(mapper));
+        }
+    }
+}
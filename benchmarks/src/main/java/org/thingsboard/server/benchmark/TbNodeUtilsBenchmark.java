@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Substitution of message metadata into rule node configuration patterns, e.g. alarm types and topic names.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TbNodeUtilsBenchmark {
+
+    @Param({"5", "50"})
+    private int metaDataKeys;
+
+    private TbMsgMetaData metaData;
+
+    @Setup
+    public void setup() {
+        metaData = BenchmarkData.metaData(metaDataKeys);
+    }
+
+    @Benchmark
+    public String processPattern() {
+        return TbNodeUtils.processPattern("devices/${deviceType}/${deviceName}/telemetry", metaData);
+    }
+
+    @Benchmark
+    public String processPatternWithoutVariables() {
+        return TbNodeUtils.processPattern("devices/telemetry", metaData);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Request/response latency of the Kafka request template, e.g. for JS invocations and transport API calls.
+ * The broker and the remote service are replaced with an in-process stand-in that echoes every request,
+ * so the result is the overhead of correlation, timeouts and the response polling loop.
+ * Lives in the template package to start the response loop without the topic creation done by init().
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KafkaRequestTemplateBenchmark {
+
+    private static final String RESPONSE_TOPIC = "benchmark.responses";
+
+    private final BlockingQueue<ConsumerRecord<String, byte[]>> responses = new LinkedBlockingQueue<>();
+    private TbKafkaRequestTemplate<String, String> template;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        TBKafkaProducerTemplate<String> requestTemplate = mock(TBKafkaProducerTemplate.class);
+        TBKafkaConsumerTemplate<String> responseTemplate = mock(TBKafkaConsumerTemplate.class);
+        when(responseTemplate.getTopic()).thenReturn(RESPONSE_TOPIC);
+        when(requestTemplate.enrich(anyString(), anyString(), any(UUID.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            ConsumerRecord<String, byte[]> response = new ConsumerRecord<>(RESPONSE_TOPIC, 0, 0, (String) args[0],
+                    ((String) args[1]).getBytes(StandardCharsets.UTF_8));
+            for (Header header : (Iterable<Header>) args[2]) {
+                response.headers().add(header);
+            }
+            responses.add(response);
+            ((Callback) args[3]).onCompletion(null, null);
+            return null;
+        }).when(requestTemplate).send(anyString(), anyString(), any(Iterable.class), any(Callback.class));
+        when(responseTemplate.poll(any(Duration.class))).thenAnswer(invocation -> {
+            Duration timeout = (Duration) invocation.getArguments()[0];
+            ConsumerRecord<String, byte[]> first = responses.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return ConsumerRecords.empty();
+            }
+            List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+            records.add(first);
+            responses.drainTo(records);
+            return new ConsumerRecords<>(Collections.singletonMap(new TopicPartition(RESPONSE_TOPIC, 0), records));
+        });
+        when(responseTemplate.decode(any(ConsumerRecord.class))).thenAnswer(invocation ->
+                new String(((ConsumerRecord<String, byte[]>) invocation.getArguments()[0]).value(), StandardCharsets.UTF_8));
+
+        template = TbKafkaRequestTemplate.<String, String>builder()
+                .requestTemplate(requestTemplate)
+                .responseTemplate(responseTemplate)
+                .maxRequestTimeout(10000)
+                .maxPendingRequests(10000)
+                .pollInterval(25)
+                .build();
+        template.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        template.stop();
+    }
+
+    @Benchmark
+    public String postAndWait() throws Exception {
+        return template.post("key", "request").get(1, TimeUnit.SECONDS);
+    }
+}
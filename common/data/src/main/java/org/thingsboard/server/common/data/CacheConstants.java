@@ -22,4 +22,5 @@ public class CacheConstants {
     public static final String SESSIONS_CACHE = "sessions";
     public static final String ASSET_CACHE = "assets";
     public static final String ENTITY_VIEW_CACHE = "entityViews";
+    public static final String ENTITY_OWNERSHIP_CACHE = "entityOwnerships";
 }
@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.data;
+
+import lombok.Data;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.io.Serializable;
+
+/**
+ * Tenant and customer that own the entity. Enough to check the access to the entity without loading it.
+ */
+@Data
+public class EntityOwnership implements HasTenantId, HasCustomerId, Serializable {
+
+    private static final long serialVersionUID = 3121486736425217413L;
+
+    private final TenantId tenantId;
+    private final CustomerId customerId;
+
+}
@@ -106,6 +106,11 @@ public enum MsgType {
     /**
      * Message that is sent by TransportRuleEngineService to Device Actor. Represents messages from the device itself.
      */
-    TRANSPORT_TO_DEVICE_ACTOR_MSG;
+    TRANSPORT_TO_DEVICE_ACTOR_MSG,
+
+    /**
+     * Message that is sent by TransportRuleEngineService to Tenant Actor. Represents messages from the gateway child devices.
+     */
+    TRANSPORT_TO_DEVICE_ACTOR_BATCH_MSG;
 
 }
@@ -18,13 +18,16 @@ package org.thingsboard.server.kafka;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.admin.CreateTopicsResult;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.producer.Callback;
-import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.errors.InterruptException;
 import org.apache.kafka.common.errors.TopicExistsException;
 import org.apache.kafka.common.header.Header;
@@ -39,6 +42,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -47,16 +52,19 @@ import java.util.concurrent.TimeoutException;
 @Slf4j
 public class TbKafkaRequestTemplate<Request, Response> extends AbstractTbKafkaTemplate {
 
+    private static final long TIMEOUT_TICK_MS = 10;
+
     private final TBKafkaProducerTemplate<Request> requestTemplate;
     private final TBKafkaConsumerTemplate<Response> responseTemplate;
     private final ConcurrentMap<UUID, ResponseMetaData<Response>> pendingRequests;
+    private final Semaphore pendingRequestsPermits;
+    private final Timer timeoutTimer;
     private final boolean internalExecutor;
     private final ExecutorService executor;
+    private final boolean internalCallbackExecutor;
+    private final ExecutorService callbackExecutor;
     private final long maxRequestTimeout;
-    private final long maxPendingRequests;
     private final long pollInterval;
-    private volatile long tickTs = 0L;
-    private volatile long tickSize = 0L;
     private volatile boolean stopped = false;
 
     @Builder
@@ -65,12 +73,14 @@ public class TbKafkaRequestTemplate<Request, Response> extends AbstractTbKafkaTe
                                   long maxRequestTimeout,
                                   long maxPendingRequests,
                                   long pollInterval,
-                                  ExecutorService executor) {
+                                  ExecutorService executor,
+                                  ExecutorService callbackExecutor) {
         this.requestTemplate = requestTemplate;
         this.responseTemplate = responseTemplate;
         this.pendingRequests = new ConcurrentHashMap<>();
+        this.pendingRequestsPermits = new Semaphore((int) Math.min(maxPendingRequests, Integer.MAX_VALUE));
+        this.timeoutTimer = new HashedWheelTimer(new DefaultThreadFactory("kafka-request-timeout", true), TIMEOUT_TICK_MS, TimeUnit.MILLISECONDS);
         this.maxRequestTimeout = maxRequestTimeout;
-        this.maxPendingRequests = maxPendingRequests;
         this.pollInterval = pollInterval;
         if (executor != null) {
             internalExecutor = false;
@@ -79,6 +89,13 @@ public class TbKafkaRequestTemplate<Request, Response> extends AbstractTbKafkaTe
             internalExecutor = true;
             this.executor = Executors.newSingleThreadExecutor();
         }
+        if (callbackExecutor != null) {
+            internalCallbackExecutor = false;
+            this.callbackExecutor = callbackExecutor;
+        } else {
+            internalCallbackExecutor = true;
+            this.callbackExecutor = Executors.newSingleThreadExecutor(new DefaultThreadFactory("kafka-request-callback", true));
+        }
     }
 
     public void init() {
@@ -96,65 +113,20 @@ public class TbKafkaRequestTemplate<Request, Response> extends AbstractTbKafkaTe
 
         }
         this.requestTemplate.init();
-        tickTs = System.currentTimeMillis();
+        start();
+    }
+
+    void start() {
         responseTemplate.subscribe();
         executor.submit(() -> {
-            long nextCleanupMs = 0L;
             while (!stopped) {
                 try {
+                    // Returns as soon as the responses arrive, the poll interval only limits the idle wait
                     ConsumerRecords<String, byte[]> responses = responseTemplate.poll(Duration.ofMillis(pollInterval));
                     if (responses.count() > 0) {
                         log.trace("Polling responses completed, consumer records count [{}]", responses.count());
                     }
-                    responses.forEach(response -> {
-                        log.trace("Received response to Kafka Template request: {}", response);
-                        Header requestIdHeader = response.headers().lastHeader(TbKafkaSettings.REQUEST_ID_HEADER);
-                        Response decodedResponse = null;
-                        UUID requestId = null;
-                        if (requestIdHeader == null) {
-                            try {
-                                decodedResponse = responseTemplate.decode(response);
-                                requestId = responseTemplate.extractRequestId(decodedResponse);
-                            } catch (IOException e) {
-                                log.error("Failed to decode response", e);
-                            }
-                        } else {
-                            requestId = bytesToUuid(requestIdHeader.value());
-                        }
-                        if (requestId == null) {
-                            log.error("[{}] Missing requestId in header and body", response);
-                        } else {
-                            log.trace("[{}] Response received", requestId);
-                            ResponseMetaData<Response> expectedResponse = pendingRequests.remove(requestId);
-                            if (expectedResponse == null) {
-                                log.trace("[{}] Invalid or stale request", requestId);
-                            } else {
-                                try {
-                                    if (decodedResponse == null) {
-                                        decodedResponse = responseTemplate.decode(response);
-                                    }
-                                    expectedResponse.future.set(decodedResponse);
-                                } catch (IOException e) {
-                                    expectedResponse.future.setException(e);
-                                }
-                            }
-                        }
-                    });
-                    tickTs = System.currentTimeMillis();
-                    tickSize = pendingRequests.size();
-                    if (nextCleanupMs < tickTs) {
-                        //cleanup;
-                        pendingRequests.entrySet().forEach(kv -> {
-                            if (kv.getValue().expTime < tickTs) {
-                                ResponseMetaData<Response> staleRequest = pendingRequests.remove(kv.getKey());
-                                if (staleRequest != null) {
-                                    log.trace("[{}] Request timeout detected, expTime [{}], tickTs [{}]", kv.getKey(), staleRequest.expTime, tickTs);
-                                    staleRequest.future.setException(new TimeoutException());
-                                }
-                            }
-                        });
-                        nextCleanupMs = tickTs + maxRequestTimeout;
-                    }
+                    responses.forEach(this::processResponse);
                 } catch (InterruptException ie) {
                     if (!stopped) {
                         log.warn("Fetching data from kafka was interrupted.", ie);
@@ -171,15 +143,54 @@ public class TbKafkaRequestTemplate<Request, Response> extends AbstractTbKafkaTe
         });
     }
 
+    private void processResponse(ConsumerRecord<String, byte[]> response) {
+        log.trace("Received response to Kafka Template request: {}", response);
+        Header requestIdHeader = response.headers().lastHeader(TbKafkaSettings.REQUEST_ID_HEADER);
+        Response decodedResponse = null;
+        UUID requestId = null;
+        if (requestIdHeader == null) {
+            try {
+                decodedResponse = responseTemplate.decode(response);
+                requestId = responseTemplate.extractRequestId(decodedResponse);
+            } catch (IOException e) {
+                log.error("Failed to decode response", e);
+            }
+        } else {
+            requestId = bytesToUuid(requestIdHeader.value());
+        }
+        if (requestId == null) {
+            log.error("[{}] Missing requestId in header and body", response);
+        } else {
+            log.trace("[{}] Response received", requestId);
+            ResponseMetaData<Response> expectedResponse = complete(requestId);
+            if (expectedResponse == null) {
+                log.trace("[{}] Invalid or stale request", requestId);
+            } else {
+                try {
+                    if (decodedResponse == null) {
+                        decodedResponse = responseTemplate.decode(response);
+                    }
+                    expectedResponse.future.set(decodedResponse);
+                } catch (IOException e) {
+                    expectedResponse.future.setException(e);
+                }
+            }
+        }
+    }
+
     public void stop() {
         stopped = true;
+        timeoutTimer.stop();
         if (internalExecutor) {
             executor.shutdownNow();
         }
+        if (internalCallbackExecutor) {
+            callbackExecutor.shutdownNow();
+        }
     }
 
     public ListenableFuture<Response> post(String key, Request request) {
-        if (tickSize > maxPendingRequests) {
+        if (!pendingRequestsPermits.tryAcquire()) {
             return Futures.immediateFailedFuture(new RuntimeException("Pending request map is full!"));
         }
         UUID requestId = UUID.randomUUID();
@@ -187,26 +198,63 @@ public class TbKafkaRequestTemplate<Request, Response> extends AbstractTbKafkaTe
         headers.add(new RecordHeader(TbKafkaSettings.REQUEST_ID_HEADER, uuidToBytes(requestId)));
         headers.add(new RecordHeader(TbKafkaSettings.RESPONSE_TOPIC_HEADER, stringToBytes(responseTemplate.getTopic())));
         SettableFuture<Response> future = SettableFuture.create();
-        ResponseMetaData<Response> responseMetaData = new ResponseMetaData<>(tickTs + maxRequestTimeout, future);
-        pendingRequests.putIfAbsent(requestId, responseMetaData);
-        request = requestTemplate.enrich(request, responseTemplate.getTopic(), requestId);
-        log.trace("[{}] Sending request, key [{}], expTime [{}]", requestId, key, responseMetaData.expTime);
-        requestTemplate.send(key, request, headers, (metadata, exception) -> {
-            if (exception != null) {
-                log.trace("[{}] Failed to post the request", requestId, exception);
-            } else {
-                log.trace("[{}] Posted the request", requestId, metadata);
+        ResponseMetaData<Response> responseMetaData = new ResponseMetaData<>(future);
+        pendingRequests.put(requestId, responseMetaData);
+        responseMetaData.timeout = timeoutTimer.newTimeout(t -> {
+            ResponseMetaData<Response> staleRequest = complete(requestId);
+            if (staleRequest != null) {
+                log.trace("[{}] Request timeout detected, timeout [{}] ms", requestId, maxRequestTimeout);
+                // the future runs the listeners of the caller, so it is completed off the timer thread
+                callbackExecutor.execute(() -> staleRequest.future.setException(new TimeoutException()));
             }
-        });
+        }, maxRequestTimeout, TimeUnit.MILLISECONDS);
+        request = requestTemplate.enrich(request, responseTemplate.getTopic(), requestId);
+        log.trace("[{}] Sending request, key [{}], timeout [{}] ms", requestId, key, maxRequestTimeout);
+        try {
+            requestTemplate.send(key, request, headers, (metadata, exception) -> {
+                if (exception != null) {
+                    log.trace("[{}] Failed to post the request", requestId, exception);
+                    onSendFailure(requestId, exception);
+                } else {
+                    log.trace("[{}] Posted the request", requestId, metadata);
+                }
+            });
+        } catch (Exception e) {
+            log.trace("[{}] Failed to post the request", requestId, e);
+            onSendFailure(requestId, e);
+        }
         return future;
     }
 
+    private void onSendFailure(UUID requestId, Exception e) {
+        ResponseMetaData<Response> failedRequest = complete(requestId);
+        if (failedRequest != null) {
+            failedRequest.future.setException(e);
+        }
+    }
+
+    /**
+     * Removes the pending request and releases its in-flight permit exactly once.
+     *
+     * @return the pending request or null if it is already completed by the response, timeout or send failure
+     */
+    private ResponseMetaData<Response> complete(UUID requestId) {
+        ResponseMetaData<Response> responseMetaData = pendingRequests.remove(requestId);
+        if (responseMetaData != null) {
+            pendingRequestsPermits.release();
+            Timeout timeout = responseMetaData.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+        return responseMetaData;
+    }
+
     private static class ResponseMetaData<T> {
-        private final long expTime;
         private final SettableFuture<T> future;
+        private volatile Timeout timeout;
 
-        ResponseMetaData(long ts, SettableFuture<T> future) {
-            this.expTime = ts;
+        ResponseMetaData(SettableFuture<T> future) {
             this.future = future;
         }
     }
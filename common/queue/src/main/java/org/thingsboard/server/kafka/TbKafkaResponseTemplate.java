@@ -25,13 +25,11 @@ import org.apache.kafka.common.header.internals.RecordHeader;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by ashvayka on 25.09.18.
@@ -42,16 +40,14 @@ public class TbKafkaResponseTemplate<Request, Response> extends AbstractTbKafkaT
     private final TBKafkaConsumerTemplate<Request> requestTemplate;
     private final TBKafkaProducerTemplate<Response> responseTemplate;
     private final TbKafkaHandler<Request, Response> handler;
-    private final ConcurrentMap<UUID, String> pendingRequests;
     private final ExecutorService loopExecutor;
     private final ScheduledExecutorService timeoutExecutor;
     private final ExecutorService callbackExecutor;
-    private final int maxPendingRequests;
     private final long requestTimeout;
 
     private final long pollInterval;
     private volatile boolean stopped = false;
-    private final AtomicInteger pendingRequestCount = new AtomicInteger();
+    private final Semaphore pendingRequestsPermits;
 
     @Builder
     public TbKafkaResponseTemplate(TBKafkaConsumerTemplate<Request> requestTemplate,
@@ -64,8 +60,7 @@ public class TbKafkaResponseTemplate<Request, Response> extends AbstractTbKafkaT
         this.requestTemplate = requestTemplate;
         this.responseTemplate = responseTemplate;
         this.handler = handler;
-        this.pendingRequests = new ConcurrentHashMap<>();
-        this.maxPendingRequests = maxPendingRequests;
+        this.pendingRequestsPermits = new Semaphore(maxPendingRequests);
         this.pollInterval = pollInterval;
         this.requestTimeout = requestTimeout;
         this.callbackExecutor = executor;
@@ -79,13 +74,6 @@ public class TbKafkaResponseTemplate<Request, Response> extends AbstractTbKafkaT
         loopExecutor.submit(() -> {
             while (!stopped) {
                 try {
-                    while (pendingRequestCount.get() >= maxPendingRequests) {
-                        try {
-                            Thread.sleep(pollInterval);
-                        } catch (InterruptedException e) {
-                            log.trace("Failed to wait until the server has capacity to handle new requests", e);
-                        }
-                    }
                     ConsumerRecords<String, byte[]> requests = requestTemplate.poll(Duration.ofMillis(pollInterval));
                     requests.forEach(request -> {
                         Header requestIdHeader = request.headers().lastHeader(TbKafkaSettings.REQUEST_ID_HEADER);
@@ -105,15 +93,26 @@ public class TbKafkaResponseTemplate<Request, Response> extends AbstractTbKafkaT
                         }
                         String responseTopic = bytesToString(responseTopicHeader.value());
                         try {
-                            pendingRequestCount.getAndIncrement();
+                            // Blocks the polling until one of the requests in progress is completed
+                            pendingRequestsPermits.acquire();
+                        } catch (InterruptedException e) {
+                            log.trace("[{}] Interrupted while waiting for the capacity to handle the request", requestId, e);
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        try {
                             Request decodedRequest = requestTemplate.decode(request);
                             AsyncCallbackTemplate.withCallbackAndTimeout(handler.handle(decodedRequest),
                                     response -> {
-                                        pendingRequestCount.decrementAndGet();
-                                        reply(requestId, responseTopic, response);
+                                        pendingRequestsPermits.release();
+                                        try {
+                                            reply(requestId, responseTopic, response);
+                                        } catch (Throwable e) {
+                                            log.warn("[{}] Failed to reply to the request: {}", requestId, request, e);
+                                        }
                                     },
                                     e -> {
-                                        pendingRequestCount.decrementAndGet();
+                                        pendingRequestsPermits.release();
                                         if (e.getCause() != null && e.getCause() instanceof TimeoutException) {
                                             log.warn("[{}] Timedout to process the request: {}", requestId, request, e);
                                         } else {
@@ -124,7 +123,7 @@ public class TbKafkaResponseTemplate<Request, Response> extends AbstractTbKafkaT
                                     timeoutExecutor,
                                     callbackExecutor);
                         } catch (Throwable e) {
-                            pendingRequestCount.decrementAndGet();
+                            pendingRequestsPermits.release();
                             log.warn("[{}] Failed to process the request: {}", requestId, request, e);
                         }
                     });
@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.kafka;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TbKafkaRequestTemplateTest {
+
+    private static final String RESPONSE_TOPIC = "test.responses";
+    private static final long MAX_REQUEST_TIMEOUT = 200;
+
+    private final BlockingQueue<ConsumerRecord<String, byte[]>> responses = new LinkedBlockingQueue<>();
+    private volatile boolean reply = true;
+    private TbKafkaRequestTemplate<String, String> template;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() throws Exception {
+        TBKafkaProducerTemplate<String> requestTemplate = mock(TBKafkaProducerTemplate.class);
+        TBKafkaConsumerTemplate<String> responseTemplate = mock(TBKafkaConsumerTemplate.class);
+        when(responseTemplate.getTopic()).thenReturn(RESPONSE_TOPIC);
+        when(requestTemplate.enrich(anyString(), anyString(), any(UUID.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        // In-process stand-in for the broker and the remote service: every request is echoed back to the response topic
+        doAnswer(invocation -> {
+            if (reply) {
+                Object[] args = invocation.getArguments();
+                ConsumerRecord<String, byte[]> response = new ConsumerRecord<>(RESPONSE_TOPIC, 0, 0, (String) args[0],
+                        ((String) args[1]).getBytes(StandardCharsets.UTF_8));
+                for (Header header : (Iterable<Header>) args[2]) {
+                    response.headers().add(header);
+                }
+                responses.add(response);
+            }
+            ((Callback) invocation.getArguments()[3]).onCompletion(null, null);
+            return null;
+        }).when(requestTemplate).send(anyString(), anyString(), any(Iterable.class), any(Callback.class));
+        when(responseTemplate.poll(any(Duration.class))).thenAnswer(invocation -> {
+            Duration timeout = (Duration) invocation.getArguments()[0];
+            ConsumerRecord<String, byte[]> first = responses.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return ConsumerRecords.empty();
+            }
+            List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+            records.add(first);
+            responses.drainTo(records);
+            return new ConsumerRecords<>(Collections.singletonMap(new TopicPartition(RESPONSE_TOPIC, 0), records));
+        });
+        when(responseTemplate.decode(any(ConsumerRecord.class))).thenAnswer(invocation ->
+                new String(((ConsumerRecord<String, byte[]>) invocation.getArguments()[0]).value(), StandardCharsets.UTF_8));
+
+        template = TbKafkaRequestTemplate.<String, String>builder()
+                .requestTemplate(requestTemplate)
+                .responseTemplate(responseTemplate)
+                .maxRequestTimeout(MAX_REQUEST_TIMEOUT)
+                .maxPendingRequests(2)
+                .pollInterval(1000)
+                .build();
+        template.start();
+    }
+
+    @After
+    public void after() {
+        template.stop();
+    }
+
+    @Test
+    public void testResponseIsCorrelatedWithoutWaitingForPollInterval() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            long startTs = System.currentTimeMillis();
+            assertEquals("request" + i, template.post("key", "request" + i).get(1, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - startTs < 500);
+        }
+    }
+
+    @Test
+    public void testRequestTimeoutReleasesPendingRequest() throws Exception {
+        reply = false;
+        ListenableFuture<String> first = template.post("key", "first");
+        ListenableFuture<String> second = template.post("key", "second");
+        try {
+            template.post("key", "third").get();
+            fail("Pending requests limit is not applied");
+        } catch (ExecutionException e) {
+            assertEquals("Pending request map is full!", e.getCause().getMessage());
+        }
+        assertTimeout(first);
+        assertTimeout(second);
+
+        reply = true;
+        assertEquals("fourth", template.post("key", "fourth").get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimedOutRequestIsCompletedOffTimerThread() throws Exception {
+        reply = false;
+        ListenableFuture<String> request = template.post("key", "request");
+        AtomicReference<String> listenerThread = new AtomicReference<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        request.addListener(() -> {
+            listenerThread.set(Thread.currentThread().getName());
+            completed.countDown();
+        }, MoreExecutors.directExecutor());
+        assertTrue(completed.await(MAX_REQUEST_TIMEOUT * 5, TimeUnit.MILLISECONDS));
+        assertTimeout(request);
+        assertFalse(listenerThread.get().startsWith("kafka-request-timeout"));
+    }
+
+    private void assertTimeout(ListenableFuture<String> future) throws Exception {
+        try {
+            future.get(MAX_REQUEST_TIMEOUT * 5, TimeUnit.MILLISECONDS);
+            fail("Request is not timed out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+}
@@ -37,8 +37,11 @@ import org.thingsboard.server.common.transport.adaptor.JsonConverter;
 import org.thingsboard.server.common.transport.service.AbstractTransportService;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.GatewayDeviceProto;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
 import org.thingsboard.server.transport.mqtt.MqttTransportContext;
 import org.thingsboard.server.transport.mqtt.MqttTransportHandler;
@@ -47,7 +50,9 @@ import org.thingsboard.server.transport.mqtt.adaptors.MqttTransportAdaptor;
 
 import javax.annotation.Nullable;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -63,15 +68,18 @@ public class GatewaySessionHandler {
     private static final String DEFAULT_DEVICE_TYPE = "default";
     private static final String CAN_T_PARSE_VALUE = "Can't parse value: ";
     private static final String DEVICE_PROPERTY = "device";
+    private static final String DEVICES_PROPERTY = "devices";
 
     private final MqttTransportContext context;
     private final TransportService transportService;
     private final DeviceInfoProto gateway;
+    private final SessionInfoProto gatewaySessionInfo;
     private final UUID sessionId;
     private final Map<String, GatewayDeviceSessionCtx> devices;
     private final ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap;
     private final ChannelHandlerContext channel;
     private final DeviceSessionCtx deviceSessionCtx;
+    private volatile ListenableFuture<?> telemetryBatch = Futures.immediateFuture(null);
 
     public GatewaySessionHandler(MqttTransportContext context, DeviceSessionCtx deviceSessionCtx, UUID sessionId) {
         this.context = context;
@@ -79,6 +87,15 @@ public class GatewaySessionHandler {
         this.deviceSessionCtx = deviceSessionCtx;
         this.gateway = deviceSessionCtx.getDeviceInfo();
         this.sessionId = sessionId;
+        this.gatewaySessionInfo = SessionInfoProto.newBuilder()
+                .setNodeId(context.getNodeId())
+                .setSessionIdMSB(sessionId.getMostSignificantBits())
+                .setSessionIdLSB(sessionId.getLeastSignificantBits())
+                .setDeviceIdMSB(gateway.getDeviceIdMSB())
+                .setDeviceIdLSB(gateway.getDeviceIdLSB())
+                .setTenantIdMSB(gateway.getTenantIdMSB())
+                .setTenantIdLSB(gateway.getTenantIdLSB())
+                .build();
         this.devices = new ConcurrentHashMap<>();
         this.mqttQoSMap = deviceSessionCtx.getMqttQoSMap();
         this.channel = deviceSessionCtx.getChannel();
@@ -86,6 +103,10 @@ public class GatewaySessionHandler {
 
     public void onDeviceConnect(MqttPublishMessage msg) throws AdaptorException {
         JsonElement json = getJson(msg);
+        if (json.isJsonObject() && json.getAsJsonObject().has(DEVICES_PROPERTY)) {
+            onDevicesConnect(msg, json.getAsJsonObject().get(DEVICES_PROPERTY));
+            return;
+        }
         String deviceName = checkDeviceName(getDeviceName(json));
         String deviceType = getDeviceType(json);
         log.trace("[{}] onDeviceConnect: {}", sessionId, deviceName);
@@ -116,15 +137,7 @@ public class GatewaySessionHandler {
                     new TransportServiceCallback<GetOrCreateDeviceFromGatewayResponseMsg>() {
                         @Override
                         public void onSuccess(GetOrCreateDeviceFromGatewayResponseMsg msg) {
-                            GatewayDeviceSessionCtx deviceSessionCtx = new GatewayDeviceSessionCtx(GatewaySessionHandler.this, msg.getDeviceInfo(), mqttQoSMap);
-                            if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
-                                SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
-                                transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
-                                transportService.process(deviceSessionInfo, AbstractTransportService.getSessionEventMsg(TransportProtos.SessionEvent.OPEN), null);
-                                transportService.process(deviceSessionInfo, TransportProtos.SubscribeToRPCMsg.getDefaultInstance(), null);
-                                transportService.process(deviceSessionInfo, TransportProtos.SubscribeToAttributeUpdatesMsg.getDefaultInstance(), null);
-                            }
-                            future.set(devices.get(deviceName));
+                            future.set(registerDevice(deviceName, msg.getDeviceInfo()));
                         }
 
                         @Override
@@ -139,6 +152,82 @@ public class GatewaySessionHandler {
         return future;
     }
 
+    private void onDevicesConnect(MqttPublishMessage msg, JsonElement devicesJson) throws AdaptorException {
+        if (!devicesJson.isJsonArray()) {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + devicesJson);
+        }
+        Map<String, String> deviceTypes = new LinkedHashMap<>();
+        for (JsonElement deviceJson : devicesJson.getAsJsonArray()) {
+            deviceTypes.put(checkDeviceName(getDeviceName(deviceJson)), getDeviceType(deviceJson));
+        }
+        log.trace("[{}] onDevicesConnect: {}", sessionId, deviceTypes.keySet());
+        Futures.addCallback(checkDevicesConnected(deviceTypes), new FutureCallback<Map<String, GatewayDeviceSessionCtx>>() {
+            @Override
+            public void onSuccess(@Nullable Map<String, GatewayDeviceSessionCtx> result) {
+                ack(msg);
+                log.trace("[{}] onDevicesConnectOk: {}", sessionId, deviceTypes.size());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}] Failed to process devices connect command: {}", sessionId, deviceTypes.keySet(), t);
+            }
+        }, context.getExecutor());
+    }
+
+    /**
+     * Resolves the devices that are not connected yet using the single transport API request.
+     *
+     * @param deviceTypes device types by device names
+     * @return session contexts of all the requested devices by device names
+     */
+    private ListenableFuture<Map<String, GatewayDeviceSessionCtx>> checkDevicesConnected(Map<String, String> deviceTypes) {
+        Map<String, GatewayDeviceSessionCtx> result = new HashMap<>();
+        GetOrCreateDevicesFromGatewayRequestMsg.Builder requestMsg = GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
+                .setGatewayIdMSB(gateway.getDeviceIdMSB())
+                .setGatewayIdLSB(gateway.getDeviceIdLSB());
+        deviceTypes.forEach((deviceName, deviceType) -> {
+            GatewayDeviceSessionCtx ctx = devices.get(deviceName);
+            if (ctx != null) {
+                result.put(deviceName, ctx);
+            } else {
+                requestMsg.addDevices(GatewayDeviceProto.newBuilder().setDeviceName(deviceName).setDeviceType(deviceType));
+            }
+        });
+        if (requestMsg.getDevicesCount() == 0) {
+            return Futures.immediateFuture(result);
+        }
+        SettableFuture<Map<String, GatewayDeviceSessionCtx>> future = SettableFuture.create();
+        transportService.process(requestMsg.build(), new TransportServiceCallback<GetOrCreateDevicesFromGatewayResponseMsg>() {
+            @Override
+            public void onSuccess(GetOrCreateDevicesFromGatewayResponseMsg msg) {
+                for (DeviceInfoProto deviceInfo : msg.getDeviceInfoList()) {
+                    result.put(deviceInfo.getDeviceName(), registerDevice(deviceInfo.getDeviceName(), deviceInfo));
+                }
+                future.set(result);
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                log.warn("[{}] Failed to process devices connect command: {}", sessionId, deviceTypes.keySet(), e);
+                future.setException(e);
+            }
+        });
+        return future;
+    }
+
+    private GatewayDeviceSessionCtx registerDevice(String deviceName, DeviceInfoProto deviceInfo) {
+        GatewayDeviceSessionCtx deviceSessionCtx = new GatewayDeviceSessionCtx(this, deviceInfo, mqttQoSMap);
+        if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
+            SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
+            transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
+            transportService.process(deviceSessionInfo, AbstractTransportService.getSessionEventMsg(TransportProtos.SessionEvent.OPEN), null);
+            transportService.process(deviceSessionInfo, TransportProtos.SubscribeToRPCMsg.getDefaultInstance(), null);
+            transportService.process(deviceSessionInfo, TransportProtos.SubscribeToAttributeUpdatesMsg.getDefaultInstance(), null);
+        }
+        return devices.get(deviceName);
+    }
+
     public void onDeviceDisconnect(MqttPublishMessage msg) throws AdaptorException {
         String deviceName = checkDeviceName(getDeviceName(getJson(msg)));
         deregisterSession(deviceName);
@@ -162,26 +251,32 @@ public class GatewaySessionHandler {
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, mqttMsg.payload());
         int msgId = mqttMsg.variableHeader().packetId();
         if (json.isJsonObject()) {
-            JsonObject jsonObj = json.getAsJsonObject();
-            for (Map.Entry<String, JsonElement> deviceEntry : jsonObj.entrySet()) {
-                String deviceName = deviceEntry.getKey();
-                Futures.addCallback(checkDeviceConnected(deviceName),
-                        new FutureCallback<GatewayDeviceSessionCtx>() {
-                            @Override
-                            public void onSuccess(@Nullable GatewayDeviceSessionCtx deviceCtx) {
-                                if (!deviceEntry.getValue().isJsonArray()) {
-                                    throw new JsonSyntaxException(CAN_T_PARSE_VALUE + json);
-                                }
-                                TransportProtos.PostTelemetryMsg postTelemetryMsg = JsonConverter.convertToTelemetryProto(deviceEntry.getValue().getAsJsonArray());
-                                transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
-                            }
-
-                            @Override
-                            public void onFailure(Throwable t) {
-                                log.debug("[{}] Failed to process device teleemtry command: {}", sessionId, deviceName, t);
-                            }
-                        }, context.getExecutor());
+            Map<String, TransportProtos.PostTelemetryMsg> telemetryMsgs = new LinkedHashMap<>();
+            Map<String, String> deviceTypes = new LinkedHashMap<>();
+            for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
+                if (!deviceEntry.getValue().isJsonArray()) {
+                    throw new JsonSyntaxException(CAN_T_PARSE_VALUE + json);
+                }
+                telemetryMsgs.put(deviceEntry.getKey(), JsonConverter.convertToTelemetryProto(deviceEntry.getValue().getAsJsonArray()));
+                deviceTypes.put(deviceEntry.getKey(), DEFAULT_DEVICE_TYPE);
             }
+            ListenableFuture<Map<String, GatewayDeviceSessionCtx>> devicesFuture = checkDevicesConnected(deviceTypes);
+            // Batches wait for the previous ones, so the telemetry of the same device is never reordered by the device lookups
+            telemetryBatch = Futures.whenAllComplete(telemetryBatch, devicesFuture).call(() -> {
+                try {
+                    Map<String, GatewayDeviceSessionCtx> deviceCtxs = Futures.getDone(devicesFuture);
+                    TransportProtos.GatewayBatchMsg.Builder batchMsg = TransportProtos.GatewayBatchMsg.newBuilder();
+                    telemetryMsgs.forEach((deviceName, postTelemetryMsg) -> batchMsg.addDeviceMsgs(
+                            TransportProtos.TransportToDeviceActorMsg.newBuilder()
+                                    .setSessionInfo(deviceCtxs.get(deviceName).getSessionInfo())
+                                    .setPostTelemetry(postTelemetryMsg)));
+                    TransportProtos.GatewayBatchMsg gatewayBatchMsg = batchMsg.build();
+                    transportService.process(gatewaySessionInfo, gatewayBatchMsg, getPubAckCallback(channel, gateway.getDeviceName(), msgId, gatewayBatchMsg));
+                } catch (Exception e) {
+                    log.debug("[{}] Failed to process device telemetry command: {}", sessionId, telemetryMsgs.keySet(), e);
+                }
+                return null;
+            }, context.getExecutor());
         } else {
             throw new JsonSyntaxException(CAN_T_PARSE_VALUE + json);
         }
@@ -43,6 +43,9 @@ public interface TransportService {
     void process(TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg msg,
                  TransportServiceCallback<TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg> callback);
 
+    void process(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg msg,
+                 TransportServiceCallback<TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg> callback);
+
     boolean checkLimits(SessionInfoProto sessionInfo, Object msg, TransportServiceCallback<Void> callback);
 
     void process(SessionInfoProto sessionInfo, SessionEventMsg msg, TransportServiceCallback<Void> callback);
@@ -63,6 +66,13 @@ public interface TransportService {
 
     void process(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.SubscriptionInfoProto msg, TransportServiceCallback<Void> callback);
 
+    /**
+     * Processes the messages of the gateway child devices as a single unit. The callback is invoked once for the whole batch.
+     *
+     * @param gatewaySessionInfo session of the gateway that owns the child devices
+     */
+    void process(SessionInfoProto gatewaySessionInfo, TransportProtos.GatewayBatchMsg msg, TransportServiceCallback<Void> callback);
+
     void registerAsyncSession(SessionInfoProto sessionInfo, SessionMsgListener listener);
 
     void registerSyncSession(SessionInfoProto sessionInfo, SessionMsgListener listener, long timeout);
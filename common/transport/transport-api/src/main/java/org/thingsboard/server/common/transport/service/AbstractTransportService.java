@@ -127,6 +127,26 @@ public abstract class AbstractTransportService implements TransportService {
         }
     }
 
+    @Override
+    public void process(TransportProtos.SessionInfoProto gatewaySessionInfo, TransportProtos.GatewayBatchMsg msg, TransportServiceCallback<Void> callback) {
+        TransportProtos.GatewayBatchMsg.Builder acceptedMsg = TransportProtos.GatewayBatchMsg.newBuilder();
+        for (TransportProtos.TransportToDeviceActorMsg deviceMsg : msg.getDeviceMsgsList()) {
+            if (checkLimits(deviceMsg.getSessionInfo(), deviceMsg, null)) {
+                reportActivityInternal(deviceMsg.getSessionInfo());
+                acceptedMsg.addDeviceMsgs(deviceMsg);
+            }
+        }
+        if (acceptedMsg.getDeviceMsgsCount() == msg.getDeviceMsgsCount()) {
+            doProcess(gatewaySessionInfo, msg, callback);
+        } else if (acceptedMsg.getDeviceMsgsCount() > 0) {
+            log.trace("[{}] Rate limits dropped [{}] of [{}] gateway device msgs", toId(gatewaySessionInfo),
+                    msg.getDeviceMsgsCount() - acceptedMsg.getDeviceMsgsCount(), msg.getDeviceMsgsCount());
+            doProcess(gatewaySessionInfo, acceptedMsg.build(), callback);
+        } else if (callback != null) {
+            callback.onError(new TbRateLimitsException(EntityType.DEVICE));
+        }
+    }
+
     @Override
     public void reportActivity(TransportProtos.SessionInfoProto sessionInfo) {
         reportActivityInternal(sessionInfo);
@@ -148,6 +168,8 @@ public abstract class AbstractTransportService implements TransportService {
 
     protected abstract void doProcess(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.ToServerRpcRequestMsg msg, TransportServiceCallback<Void> callback);
 
+    protected abstract void doProcess(TransportProtos.SessionInfoProto gatewaySessionInfo, TransportProtos.GatewayBatchMsg msg, TransportServiceCallback<Void> callback);
+
     private SessionMetaData reportActivityInternal(TransportProtos.SessionInfoProto sessionInfo) {
         UUID sessionId = toId(sessionInfo);
         SessionMetaData sessionMetaData = sessions.get(sessionId);
@@ -33,6 +33,8 @@ import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.*;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.PostAttributeMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.SessionEventMsg;
@@ -221,6 +223,14 @@ public class RemoteTransportService extends AbstractTransportService {
                 response -> callback.onSuccess(response.getGetOrCreateDeviceResponseMsg()), callback::onError, transportCallbackExecutor);
     }
 
+    @Override
+    public void process(GetOrCreateDevicesFromGatewayRequestMsg msg, TransportServiceCallback<GetOrCreateDevicesFromGatewayResponseMsg> callback) {
+        log.trace("Processing msg: {}", msg);
+        AsyncCallbackTemplate.withCallback(transportApiTemplate.post(new UUID(msg.getGatewayIdMSB(), msg.getGatewayIdLSB()).toString(),
+                TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(msg).build()),
+                response -> callback.onSuccess(response.getGetOrCreateDevicesResponseMsg()), callback::onError, transportCallbackExecutor);
+    }
+
     @Override
     public void process(SessionInfoProto sessionInfo, SubscriptionInfoProto msg, TransportServiceCallback<Void> callback) {
         if (log.isTraceEnabled()) {
@@ -305,6 +315,12 @@ public class RemoteTransportService extends AbstractTransportService {
         send(sessionInfo, toRuleEngineMsg, callback);
     }
 
+    @Override
+    protected void doProcess(SessionInfoProto gatewaySessionInfo, GatewayBatchMsg msg, TransportServiceCallback<Void> callback) {
+        ToRuleEngineMsg toRuleEngineMsg = ToRuleEngineMsg.newBuilder().setGatewayBatchMsg(msg).build();
+        send(gatewaySessionInfo, toRuleEngineMsg, callback);
+    }
+
     private static class TransportCallbackAdaptor implements Callback {
         private final TransportServiceCallback<Void> callback;
 
@@ -44,6 +44,7 @@ import org.thingsboard.server.common.data.relation.EntityRelation;
 import org.thingsboard.server.common.data.relation.EntitySearchDirection;
 import org.thingsboard.server.dao.customer.CustomerDao;
 import org.thingsboard.server.dao.entity.AbstractEntityService;
+import org.thingsboard.server.dao.entity.EntityOwnershipCache;
 import org.thingsboard.server.dao.entityview.EntityViewService;
 import org.thingsboard.server.dao.exception.DataValidationException;
 import org.thingsboard.server.dao.service.DataValidator;
@@ -85,6 +86,9 @@ public class BaseAssetService extends AbstractEntityService implements AssetServ
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private EntityOwnershipCache entityOwnershipCache;
+
     @Override
     public Asset findAssetById(TenantId tenantId, AssetId assetId) {
         log.trace("Executing findAssetById [{}]", assetId);
@@ -113,7 +117,9 @@ public class BaseAssetService extends AbstractEntityService implements AssetServ
     public Asset saveAsset(Asset asset) {
         log.trace("Executing saveAsset [{}]", asset);
         assetValidator.validate(asset, Asset::getTenantId);
-        return assetDao.save(asset.getTenantId(), asset);
+        Asset savedAsset = assetDao.save(asset.getTenantId(), asset);
+        entityOwnershipCache.evict(savedAsset.getId());
+        return savedAsset;
     }
 
     @Override
@@ -154,6 +160,7 @@ public class BaseAssetService extends AbstractEntityService implements AssetServ
         cache.evict(list);
 
         assetDao.removeById(tenantId, assetId.getId());
+        entityOwnershipCache.evict(assetId);
     }
 
     @Override
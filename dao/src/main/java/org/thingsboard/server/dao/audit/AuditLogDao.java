@@ -37,6 +37,14 @@ public interface AuditLogDao {
 
     ListenableFuture<Void> savePartitionsByTenantId(AuditLog auditLog);
 
+    /**
+     * Save list of audit logs to all audit log tables using batch writes
+     *
+     * @param auditLogs the audit log objects
+     * @return future that is completed when all audit logs are saved
+     */
+    ListenableFuture<Void> saveAll(List<AuditLog> auditLogs);
+
     List<AuditLog> findAuditLogsByTenantIdAndEntityId(UUID tenantId, EntityId entityId, TimePageLink pageLink);
 
     List<AuditLog> findAuditLogsByTenantIdAndCustomerId(UUID tenantId, CustomerId customerId, TimePageLink pageLink);
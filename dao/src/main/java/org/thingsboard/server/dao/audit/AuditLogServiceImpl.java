@@ -20,12 +20,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.thingsboard.server.common.data.BaseData;
@@ -51,13 +53,28 @@ import org.thingsboard.server.dao.entity.EntityService;
 import org.thingsboard.server.dao.exception.DataValidationException;
 import org.thingsboard.server.dao.service.DataValidator;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.thingsboard.server.dao.service.Validator.validateEntityId;
 import static org.thingsboard.server.dao.service.Validator.validateId;
 
+/**
+ * Audit log entries are put to a bounded queue and written to the database by a single writer
+ * that drains the queue into batches, so the entries that arrive while a batch is written are coalesced into the next one.
+ * The caller never waits for the queue: when it is full, the entry is dropped and counted.
+ */
 @Slf4j
 @Service
 @ConditionalOnProperty(prefix = "audit_log", value = "enabled", havingValue = "true")
@@ -66,7 +83,6 @@ public class AuditLogServiceImpl implements AuditLogService {
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
     private static final String INCORRECT_TENANT_ID = "Incorrect tenantId ";
-    private static final int INSERTS_PER_ENTRY = 3;
 
     @Autowired
     private AuditLogLevelFilter auditLogLevelFilter;
@@ -80,6 +96,37 @@ public class AuditLogServiceImpl implements AuditLogService {
     @Autowired
     private AuditLogSink auditLogSink;
 
+    @Value("${audit_log.queue.max_size:10000}")
+    private int queueMaxSize;
+
+    @Value("${audit_log.queue.batch_size:100}")
+    private int queueBatchSize;
+
+    private BlockingQueue<PendingAuditLog> queue;
+    private ExecutorService writeExecutor;
+    private volatile boolean stopped;
+
+    private final AtomicInteger totalAdded = new AtomicInteger();
+    private final AtomicInteger totalPersisted = new AtomicInteger();
+    private final AtomicInteger totalBatches = new AtomicInteger();
+    private final AtomicInteger totalFailed = new AtomicInteger();
+    private final AtomicInteger totalDropped = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(queueMaxSize);
+        writeExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "audit-log-writer"));
+        writeExecutor.execute(this::writeLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        if (writeExecutor != null) {
+            writeExecutor.shutdownNow();
+        }
+    }
+
     @Override
     public TimePageData<AuditLog> findAuditLogsByTenantIdAndCustomerId(TenantId tenantId, CustomerId customerId, TimePageLink pageLink) {
         log.trace("Executing findAuditLogsByTenantIdAndCustomerId [{}], [{}], [{}]", tenantId, customerId, pageLink);
@@ -316,16 +363,79 @@ public class AuditLogServiceImpl implements AuditLogService {
                 actionType, actionData, actionStatus, actionFailureDetails);
         log.trace("Executing logAction [{}]", auditLogEntry);
         auditLogValidator.validate(auditLogEntry, AuditLog::getTenantId);
-        List<ListenableFuture<Void>> futures = Lists.newArrayListWithExpectedSize(INSERTS_PER_ENTRY);
-        futures.add(auditLogDao.savePartitionsByTenantId(auditLogEntry));
-        futures.add(auditLogDao.saveByTenantId(auditLogEntry));
-        futures.add(auditLogDao.saveByTenantIdAndEntityId(auditLogEntry));
-        futures.add(auditLogDao.saveByTenantIdAndCustomerId(auditLogEntry));
-        futures.add(auditLogDao.saveByTenantIdAndUserId(auditLogEntry));
+        ListenableFuture<Void> future = enqueue(auditLogEntry);
 
         auditLogSink.logAction(auditLogEntry);
 
-        return Futures.allAsList(futures);
+        return Futures.allAsList(Collections.singletonList(future));
+    }
+
+    private ListenableFuture<Void> enqueue(AuditLog auditLog) {
+        PendingAuditLog pending = new PendingAuditLog(auditLog);
+        if (queue.offer(pending)) {
+            totalAdded.incrementAndGet();
+        } else {
+            totalDropped.incrementAndGet();
+            log.debug("[{}] Audit log queue is full, dropping entry [{}]", auditLog.getTenantId(), auditLog.getId());
+            pending.future.setException(new IllegalStateException("Audit log queue is full!"));
+        }
+        return pending.future;
+    }
+
+    private void writeLoop() {
+        List<PendingAuditLog> batch = new ArrayList<>(queueBatchSize);
+        while (!stopped) {
+            try {
+                PendingAuditLog first = queue.take();
+                batch.add(first);
+                queue.drainTo(batch, queueBatchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                if (!stopped) {
+                    log.warn("Audit log writer was interrupted", e);
+                }
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                log.warn("Failed to persist audit logs", t);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<PendingAuditLog> batch) throws InterruptedException {
+        List<AuditLog> auditLogs = new ArrayList<>(batch.size());
+        batch.forEach(pending -> auditLogs.add(pending.auditLog));
+        try {
+            auditLogDao.saveAll(auditLogs).get();
+            totalPersisted.addAndGet(batch.size());
+            totalBatches.incrementAndGet();
+            batch.forEach(pending -> pending.future.set(null));
+        } catch (ExecutionException e) {
+            totalFailed.addAndGet(batch.size());
+            log.warn("Failed to persist batch of {} audit logs", batch.size(), e.getCause());
+            batch.forEach(pending -> pending.future.setException(e.getCause()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${audit_log.queue.stats_print_interval_ms:60000}")
+    public void printStats() {
+        int added = totalAdded.getAndSet(0);
+        int dropped = totalDropped.getAndSet(0);
+        if (added > 0 || dropped > 0) {
+            log.info("Audit logs queueSize [{}] totalAdded [{}] totalPersisted [{}] totalBatches [{}] totalFailed [{}] totalDropped [{}]",
+                    queue.size(), added, totalPersisted.getAndSet(0), totalBatches.getAndSet(0), totalFailed.getAndSet(0), dropped);
+        }
+    }
+
+    private static class PendingAuditLog {
+        private final AuditLog auditLog;
+        private final SettableFuture<Void> future = SettableFuture.create();
+
+        PendingAuditLog(AuditLog auditLog) {
+            this.auditLog = auditLog;
+        }
     }
 
     private DataValidator<AuditLog> auditLogValidator =
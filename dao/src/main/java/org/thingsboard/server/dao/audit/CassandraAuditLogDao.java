@@ -39,6 +39,7 @@ import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.model.nosql.AuditLogEntity;
 import org.thingsboard.server.dao.nosql.CassandraAbstractSearchTimeDao;
+import org.thingsboard.server.dao.nosql.CassandraWriteBatches;
 import org.thingsboard.server.dao.timeseries.TsPartitionDate;
 import org.thingsboard.server.dao.util.NoSqlDao;
 
@@ -51,10 +52,14 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
@@ -63,6 +68,7 @@ import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static org.thingsboard.server.dao.model.ModelConstants.AUDIT_LOG_BY_CUSTOMER_ID_CF;
 import static org.thingsboard.server.dao.model.ModelConstants.AUDIT_LOG_BY_ENTITY_ID_CF;
 import static org.thingsboard.server.dao.model.ModelConstants.AUDIT_LOG_BY_TENANT_ID_CF;
+import static org.thingsboard.server.dao.model.ModelConstants.AUDIT_LOG_BY_TENANT_ID_PARTITIONS_CF;
 import static org.thingsboard.server.dao.model.ModelConstants.AUDIT_LOG_BY_USER_ID_CF;
 import static org.thingsboard.server.dao.model.ModelConstants.AUDIT_LOG_COLUMN_FAMILY_NAME;
 
@@ -95,6 +101,14 @@ public class CassandraAuditLogDao extends CassandraAbstractSearchTimeDao<AuditLo
     @Value("${audit_log.default_query_period}")
     private Integer defaultQueryPeriodInDays;
 
+    @Value("${cassandra.query.write_batch_max_statements:100}")
+    private int batchMaxStatements;
+
+    @Value("${cassandra.query.write_batch_max_bytes:40960}")
+    private int batchMaxBytes;
+
+    private final ConcurrentMap<TenantId, Long> savedPartitions = new ConcurrentHashMap<>();
+
     private PreparedStatement partitionInsertStmt;
     private PreparedStatement saveByTenantStmt;
     private PreparedStatement saveByTenantIdAndUserIdStmt;
@@ -204,6 +218,47 @@ public class CassandraAuditLogDao extends CassandraAbstractSearchTimeDao<AuditLo
         return getFuture(executeAsyncWrite(auditLog.getTenantId(), stmt), rs -> null);
     }
 
+    @Override
+    public ListenableFuture<Void> saveAll(List<AuditLog> auditLogs) {
+        log.debug("Save saveAll [{}] audit logs", auditLogs.size());
+
+        long partition = toPartitionTs(LocalDate.now().atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli());
+        CassandraWriteBatches<List<Object>> batches = new CassandraWriteBatches<>(batchMaxStatements, batchMaxBytes);
+        Set<TenantId> newPartitionTenants = new HashSet<>();
+        for (AuditLog auditLog : auditLogs) {
+            TenantId tenantId = auditLog.getTenantId();
+            if (!Long.valueOf(partition).equals(savedPartitions.get(tenantId)) && newPartitionTenants.add(tenantId)) {
+                addToBatch(batches, getPartitionInsertStmt().bind().setUUID(0, tenantId.getId()).setLong(1, partition),
+                        AUDIT_LOG_BY_TENANT_ID_PARTITIONS_CF, tenantId);
+            }
+            addToBatch(batches, setSaveStmtVariables(getSaveByTenantStmt().bind(), auditLog, partition),
+                    AUDIT_LOG_BY_TENANT_ID_CF, tenantId, partition);
+            addToBatch(batches, setSaveStmtVariables(getSaveByTenantIdAndEntityIdStmt().bind(), auditLog, -1),
+                    AUDIT_LOG_BY_ENTITY_ID_CF, tenantId, auditLog.getEntityId());
+            addToBatch(batches, setSaveStmtVariables(getSaveByTenantIdAndCustomerIdStmt().bind(), auditLog, -1),
+                    AUDIT_LOG_BY_CUSTOMER_ID_CF, tenantId, auditLog.getCustomerId());
+            addToBatch(batches, setSaveStmtVariables(getSaveByTenantIdAndUserIdStmt().bind(), auditLog, -1),
+                    AUDIT_LOG_BY_USER_ID_CF, tenantId, auditLog.getUserId());
+        }
+        List<ListenableFuture<ResultSet>> futures = new ArrayList<>(batches.size());
+        batches.forEach((key, batch) -> futures.add(executeAsyncWrite((TenantId) key.get(1), batch)));
+        return Futures.transform(Futures.allAsList(futures), rs -> {
+            newPartitionTenants.forEach(tenantId -> savedPartitions.put(tenantId, partition));
+            return null;
+        });
+    }
+
+    /**
+     * Groups statements by table and partition key. The first element of the key is the table name
+     * and the second one is the tenant id, that is a part of the partition key of each audit log table.
+     */
+    private void addToBatch(CassandraWriteBatches<List<Object>> batches, BoundStatement stmt, String cfName, Object... partitionKey) {
+        List<Object> key = new ArrayList<>(partitionKey.length + 1);
+        key.add(cfName);
+        key.addAll(Arrays.asList(partitionKey));
+        batches.add(key, stmt, getRequestSize(stmt));
+    }
+
     private PreparedStatement getSaveByTenantStmt() {
         if (saveByTenantStmt == null) {
             saveByTenantStmt = getSaveByTenantIdAndCFName(ModelConstants.AUDIT_LOG_BY_TENANT_ID_CF, true);
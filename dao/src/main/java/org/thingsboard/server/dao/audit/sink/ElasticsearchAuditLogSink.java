@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.audit.sink;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +28,7 @@ import org.apache.http.client.CredentialsProvider;
 import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
@@ -34,15 +36,38 @@ import org.elasticsearch.client.RestClientBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.audit.AuditLog;
 import org.thingsboard.server.common.data.id.TenantId;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Buffers audit log records in a bounded queue and sends them to Elasticsearch using the bulk API.
+ * <p>
+ * A bulk request is sent when the batch size is reached or when the flush interval passes.
+ * The number of concurrent bulk requests is limited, so the queue fills up and new records are dropped
+ * while Elasticsearch is not able to keep up. Records rejected with a retryable status are sent again
+ * up to the configured number of retries.
+ */
 @Component
 @ConditionalOnProperty(prefix = "audit_log.sink", value = "type", havingValue = "elasticsearch")
 @Slf4j
@@ -51,6 +76,9 @@ public class ElasticsearchAuditLogSink implements AuditLogSink {
     private static final String TENANT_PLACEHOLDER = "@{TENANT}";
     private static final String DATE_PLACEHOLDER = "@{DATE}";
     private static final String INDEX_TYPE = "audit_log";
+    private static final String BULK_ENDPOINT = "/_bulk";
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
 
     private final ObjectMapper mapper = new ObjectMapper();
 
@@ -68,8 +96,34 @@ public class ElasticsearchAuditLogSink implements AuditLogSink {
     private String password;
     @Value("${audit_log.sink.date_format}")
     private String dateFormat;
+    @Value("${audit_log.sink.queue_size:10000}")
+    private int queueSize;
+    @Value("${audit_log.sink.batch_size:500}")
+    private int batchSize;
+    @Value("${audit_log.sink.flush_interval_ms:1000}")
+    private long flushIntervalMs;
+    @Value("${audit_log.sink.max_concurrent_requests:4}")
+    private int maxConcurrentRequests;
+    @Value("${audit_log.sink.max_retries:3}")
+    private int maxRetries;
+    @Value("${audit_log.sink.shutdown_timeout_ms:5000}")
+    private long shutdownTimeoutMs;
 
     private RestClient restClient;
+    private BlockingQueue<SinkRecord> queue;
+    private Semaphore requestPermits;
+    private ScheduledExecutorService flushExecutor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private volatile IndexNames indexNames;
+    private DateTimeFormatter dateFormatter;
+
+    private final AtomicInteger totalAdded = new AtomicInteger();
+    private final AtomicInteger totalSent = new AtomicInteger();
+    private final AtomicInteger totalRequests = new AtomicInteger();
+    private final AtomicInteger totalRetried = new AtomicInteger();
+    private final AtomicInteger totalFailed = new AtomicInteger();
+    private final AtomicInteger totalDropped = new AtomicInteger();
 
     @PostConstruct
     public void init() {
@@ -93,22 +147,174 @@ public class ElasticsearchAuditLogSink implements AuditLogSink {
             log.error("Sink init failed!", e);
             throw new RuntimeException(e.getMessage(), e);
         }
+        dateFormatter = DateTimeFormatter.ofPattern(dateFormat);
+        queue = new LinkedBlockingQueue<>(queueSize);
+        requestPermits = new Semaphore(maxConcurrentRequests);
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "elasticsearch-audit-log-sink"));
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushExecutor != null) {
+            drainOnStop();
+        }
+        if (restClient != null) {
+            try {
+                restClient.close();
+            } catch (IOException e) {
+                log.warn("Failed to close elastic rest client", e);
+            }
+        }
+    }
+
+    /**
+     * Sends the queued records and waits for the bulk requests in progress, at most for the shutdown timeout.
+     */
+    private void drainOnStop() {
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        flushExecutor.execute(this::flush);
+        flushExecutor.shutdown();
+        try {
+            if (flushExecutor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)
+                    && requestPermits.tryAcquire(maxConcurrentRequests, Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                requestPermits.release(maxConcurrentRequests);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushExecutor.shutdownNow();
+        if (!queue.isEmpty()) {
+            log.warn("Elasticsearch sink stopped with [{}] audit logs not sent", queue.size());
+        }
     }
 
     @Override
     public void logAction(AuditLog auditLogEntry) {
-        String jsonContent = createElasticJsonRecord(auditLogEntry);
-
-        HttpEntity entity = new NStringEntity(
-                jsonContent,
-                ContentType.APPLICATION_JSON);
-
-        restClient.performRequestAsync(
-                HttpMethod.POST.name(),
-                String.format("/%s/%s", getIndexName(auditLogEntry.getTenantId()), INDEX_TYPE),
-                Collections.emptyMap(),
-                entity,
-                responseListener);
+        SinkRecord record = new SinkRecord(getIndexName(auditLogEntry.getTenantId()), createElasticJsonRecord(auditLogEntry));
+        if (queue.offer(record)) {
+            totalAdded.incrementAndGet();
+            if (queue.size() >= batchSize && !flushExecutor.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+                flushExecutor.execute(this::flush);
+            }
+        } else {
+            totalDropped.incrementAndGet();
+            log.debug("[{}] Elasticsearch sink queue is full, dropping audit log [{}]", auditLogEntry.getTenantId(), auditLogEntry.getId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${audit_log.sink.stats_print_interval_ms:60000}")
+    public void printStats() {
+        int added = totalAdded.getAndSet(0);
+        int dropped = totalDropped.getAndSet(0);
+        if (added > 0 || dropped > 0) {
+            log.info("Elasticsearch sink queueSize [{}] totalAdded [{}] totalSent [{}] totalRequests [{}] totalRetried [{}] totalFailed [{}] totalDropped [{}]",
+                    queue.size(), added, totalSent.getAndSet(0), totalRequests.getAndSet(0), totalRetried.getAndSet(0),
+                    totalFailed.getAndSet(0), dropped);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        try {
+            while (!queue.isEmpty()) {
+                requestPermits.acquire();
+                List<SinkRecord> records = new ArrayList<>(batchSize);
+                queue.drainTo(records, batchSize);
+                if (records.isEmpty()) {
+                    requestPermits.release();
+                    return;
+                }
+                sendBulk(records);
+                if (records.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to flush elasticsearch sink", e);
+        }
+    }
+
+    private void sendBulk(List<SinkRecord> records) {
+        StringBuilder body = new StringBuilder();
+        for (SinkRecord record : records) {
+            body.append("{\"index\":{\"_index\":\"").append(record.index).append("\",\"_type\":\"").append(INDEX_TYPE).append("\"}}\n");
+            body.append(record.json).append('\n');
+        }
+        HttpEntity entity = new NStringEntity(body.toString(), ContentType.APPLICATION_JSON);
+        totalRequests.incrementAndGet();
+        try {
+            restClient.performRequestAsync(
+                    HttpMethod.POST.name(),
+                    BULK_ENDPOINT,
+                    Collections.emptyMap(),
+                    entity,
+                    new ResponseListener() {
+                        @Override
+                        public void onSuccess(Response response) {
+                            requestPermits.release();
+                            log.trace("Elasticsearch sink bulk request succeeded. Response result [{}]!", response);
+                            onBulkResponse(records, response);
+                        }
+
+                        @Override
+                        public void onFailure(Exception exception) {
+                            requestPermits.release();
+                            log.warn("Elasticsearch sink bulk request failed!", exception);
+                            retry(records);
+                        }
+                    });
+        } catch (Exception e) {
+            requestPermits.release();
+            log.warn("Elasticsearch sink bulk request failed!", e);
+            retry(records);
+        }
+    }
+
+    private void onBulkResponse(List<SinkRecord> records, Response response) {
+        JsonNode result;
+        try {
+            result = mapper.readTree(EntityUtils.toString(response.getEntity()));
+        } catch (Exception e) {
+            log.warn("Failed to parse elasticsearch bulk response", e);
+            totalSent.addAndGet(records.size());
+            return;
+        }
+        if (!result.path("errors").asBoolean(false)) {
+            totalSent.addAndGet(records.size());
+            return;
+        }
+        JsonNode items = result.path("items");
+        List<SinkRecord> retryable = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            JsonNode item = items.path(i).path("index");
+            int status = item.path("status").asInt(SERVER_ERROR);
+            if (status < 300) {
+                totalSent.incrementAndGet();
+            } else if (status == TOO_MANY_REQUESTS || status >= SERVER_ERROR) {
+                retryable.add(records.get(i));
+            } else {
+                totalFailed.incrementAndGet();
+                log.warn("Elasticsearch sink failed to index audit log record [{}]: {}", records.get(i).json, item.path("error"));
+            }
+        }
+        retry(retryable);
+    }
+
+    private void retry(List<SinkRecord> records) {
+        for (SinkRecord record : records) {
+            if (record.attempts++ < maxRetries) {
+                if (queue.offer(record)) {
+                    totalRetried.incrementAndGet();
+                } else {
+                    totalDropped.incrementAndGet();
+                }
+            } else {
+                totalFailed.incrementAndGet();
+            }
+        }
     }
 
     private String createElasticJsonRecord(AuditLog auditLog) {
@@ -133,28 +339,55 @@ public class ElasticsearchAuditLogSink implements AuditLogSink {
         return auditLogNode.toString();
     }
 
-    private ResponseListener responseListener = new ResponseListener() {
-        @Override
-        public void onSuccess(Response response) {
-            log.trace("Elasticsearch sink log action method succeeded. Response result [{}]!", response);
-        }
+    private String getIndexName(TenantId tenantId) {
+        return getIndexName(tenantId, LocalDateTime.now());
+    }
 
-        @Override
-        public void onFailure(Exception exception) {
-            log.warn("Elasticsearch sink log action method failed!", exception);
+    String getIndexName(TenantId tenantId, LocalDateTime now) {
+        // compared by the formatted date, so the date formats finer than a day roll over to the new index too
+        String dateStr = now.format(dateFormatter);
+        IndexNames names = indexNames;
+        if (names == null || !dateStr.equals(names.dateStr)) {
+            names = new IndexNames(dateStr);
+            indexNames = names;
+        }
+        if (tenantId == null) {
+            return buildIndexName(null, dateStr);
         }
-    };
+        return names.byTenant.computeIfAbsent(tenantId, id -> buildIndexName(id, dateStr));
+    }
 
-    private String getIndexName(TenantId tenantId) {
+    private String buildIndexName(TenantId tenantId, String dateStr) {
         String indexName = indexPattern;
         if (indexName.contains(TENANT_PLACEHOLDER) && tenantId != null) {
             indexName = indexName.replace(TENANT_PLACEHOLDER, tenantId.getId().toString());
         }
         if (indexName.contains(DATE_PLACEHOLDER)) {
-            LocalDateTime now = LocalDateTime.now();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(dateFormat);
-            indexName = indexName.replace(DATE_PLACEHOLDER, now.format(formatter));
+            indexName = indexName.replace(DATE_PLACEHOLDER, dateStr);
         }
         return indexName.toLowerCase();
     }
+
+    /**
+     * Index names of the tenants for a single formatted date.
+     */
+    private static final class IndexNames {
+        private final String dateStr;
+        private final ConcurrentMap<TenantId, String> byTenant = new ConcurrentHashMap<>();
+
+        private IndexNames(String dateStr) {
+            this.dateStr = dateStr;
+        }
+    }
+
+    private static final class SinkRecord {
+        private final String index;
+        private final String json;
+        private int attempts;
+
+        private SinkRecord(String index, String json) {
+            this.index = index;
+            this.json = json;
+        }
+    }
 }
@@ -21,8 +21,14 @@ import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityOwnership;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.HasCustomerId;
 import org.thingsboard.server.common.data.HasName;
+import org.thingsboard.server.common.data.HasTenantId;
 import org.thingsboard.server.common.data.alarm.AlarmId;
+import org.thingsboard.server.common.data.asset.Asset;
 import org.thingsboard.server.common.data.id.*;
 import org.thingsboard.server.dao.alarm.AlarmService;
 import org.thingsboard.server.dao.asset.AssetService;
@@ -34,6 +40,12 @@ import org.thingsboard.server.dao.rule.RuleChainService;
 import org.thingsboard.server.dao.tenant.TenantService;
 import org.thingsboard.server.dao.user.UserService;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Created by ashvayka on 04.05.17.
  */
@@ -68,6 +80,9 @@ public class BaseEntityService extends AbstractEntityService implements EntitySe
     @Autowired
     private RuleChainService ruleChainService;
 
+    @Autowired
+    private EntityOwnershipCache entityOwnershipCache;
+
     @Override
     public void deleteEntityRelations(TenantId tenantId, EntityId entityId) {
         super.deleteEntityRelations(tenantId, entityId);
@@ -113,4 +128,83 @@ public class BaseEntityService extends AbstractEntityService implements EntitySe
         return entityName;
     }
 
+    @Override
+    public ListenableFuture<EntityOwnership> fetchEntityOwnershipAsync(TenantId tenantId, EntityId entityId) {
+        log.trace("Executing fetchEntityOwnershipAsync [{}]", entityId);
+        EntityOwnership cached = entityOwnershipCache.get(entityId);
+        if (cached != null) {
+            return Futures.immediateFuture(cached);
+        }
+        long version = entityOwnershipCache.getVersion();
+        ListenableFuture<? extends HasTenantId> entity;
+        switch (entityId.getEntityType()) {
+            case ASSET:
+                entity = assetService.findAssetByIdAsync(tenantId, new AssetId(entityId.getId()));
+                break;
+            case DEVICE:
+                entity = deviceService.findDeviceByIdAsync(tenantId, new DeviceId(entityId.getId()));
+                break;
+            case ENTITY_VIEW:
+                entity = entityViewService.findEntityViewByIdAsync(tenantId, new EntityViewId(entityId.getId()));
+                break;
+            default:
+                throw new IllegalStateException("Not Implemented!");
+        }
+        return Futures.transform(entity, (Function<HasTenantId, EntityOwnership>) loaded -> {
+            if (loaded == null) {
+                return null;
+            }
+            EntityOwnership ownership = new EntityOwnership(loaded.getTenantId(), ((HasCustomerId) loaded).getCustomerId());
+            entityOwnershipCache.putIfNotEvicted(version, entityId, ownership);
+            return ownership;
+        });
+    }
+
+    @Override
+    public ListenableFuture<Map<EntityId, EntityOwnership>> fetchEntityOwnershipsAsync(TenantId tenantId, List<EntityId> entityIds) {
+        log.trace("Executing fetchEntityOwnershipsAsync [{}]", entityIds);
+        Map<EntityId, EntityOwnership> cached = new HashMap<>();
+        List<DeviceId> deviceIds = new ArrayList<>();
+        List<AssetId> assetIds = new ArrayList<>();
+        List<ListenableFuture<Map<EntityId, EntityOwnership>>> futures = new ArrayList<>();
+        for (EntityId entityId : entityIds) {
+            EntityOwnership ownership = entityOwnershipCache.get(entityId);
+            if (ownership != null) {
+                cached.put(entityId, ownership);
+            } else if (entityId.getEntityType() == EntityType.DEVICE) {
+                deviceIds.add(new DeviceId(entityId.getId()));
+            } else if (entityId.getEntityType() == EntityType.ASSET) {
+                assetIds.add(new AssetId(entityId.getId()));
+            } else {
+                futures.add(Futures.transform(fetchEntityOwnershipAsync(tenantId, entityId),
+                        (Function<EntityOwnership, Map<EntityId, EntityOwnership>>) loaded -> loaded != null ? Collections.singletonMap(entityId, loaded) : Collections.emptyMap()));
+            }
+        }
+        long version = entityOwnershipCache.getVersion();
+        if (!deviceIds.isEmpty()) {
+            futures.add(Futures.transform(deviceService.findDevicesByTenantIdAndIdsAsync(tenantId, deviceIds),
+                    (Function<List<Device>, Map<EntityId, EntityOwnership>>) devices -> cacheOwnerships(version, devices, Device::getId)));
+        }
+        if (!assetIds.isEmpty()) {
+            futures.add(Futures.transform(assetService.findAssetsByTenantIdAndIdsAsync(tenantId, assetIds),
+                    (Function<List<Asset>, Map<EntityId, EntityOwnership>>) assets -> cacheOwnerships(version, assets, Asset::getId)));
+        }
+        return Futures.transform(Futures.allAsList(futures), (Function<List<Map<EntityId, EntityOwnership>>, Map<EntityId, EntityOwnership>>) results -> {
+            Map<EntityId, EntityOwnership> result = new HashMap<>(cached);
+            results.forEach(result::putAll);
+            return result;
+        });
+    }
+
+    private <T extends HasTenantId & HasCustomerId> Map<EntityId, EntityOwnership> cacheOwnerships(long version, List<T> entities,
+                                                                                                    java.util.function.Function<T, EntityId> idExtractor) {
+        Map<EntityId, EntityOwnership> result = new HashMap<>();
+        for (T entity : entities) {
+            EntityOwnership ownership = new EntityOwnership(entity.getTenantId(), entity.getCustomerId());
+            entityOwnershipCache.putIfNotEvicted(version, idExtractor.apply(entity), ownership);
+            result.put(idExtractor.apply(entity), ownership);
+        }
+        return result;
+    }
+
 }
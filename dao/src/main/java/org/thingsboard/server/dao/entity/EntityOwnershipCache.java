@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.entity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.EntityOwnership;
+import org.thingsboard.server.common.data.id.EntityId;
+
+import javax.annotation.PostConstruct;
+
+import static org.thingsboard.server.common.data.CacheConstants.ENTITY_OWNERSHIP_CACHE;
+
+/**
+ * Cache of the entity owners used for the access validation.
+ * <p>
+ * The ownership is loaded asynchronously, so an eviction may happen between the load and the put.
+ * Every eviction bumps the version, and a loaded ownership is put only if no eviction happened since the load has started.
+ */
+@Component
+public class EntityOwnershipCache {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Cache cache;
+    private long version;
+
+    @PostConstruct
+    public void init() {
+        cache = cacheManager.getCache(ENTITY_OWNERSHIP_CACHE);
+    }
+
+    public EntityOwnership get(EntityId entityId) {
+        return cache.get(entityId, EntityOwnership.class);
+    }
+
+    /**
+     * Returns the version to pass to {@link #putIfNotEvicted}, must be taken before the ownership is loaded.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized boolean putIfNotEvicted(long loadVersion, EntityId entityId, EntityOwnership ownership) {
+        if (loadVersion != version) {
+            return false;
+        }
+        cache.put(entityId, ownership);
+        return true;
+    }
+
+    public synchronized void evict(EntityId entityId) {
+        version++;
+        cache.evict(entityId);
+    }
+}
@@ -16,13 +16,21 @@
 package org.thingsboard.server.dao.entity;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import org.thingsboard.server.common.data.EntityOwnership;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 
+import java.util.List;
+import java.util.Map;
+
 public interface EntityService {
 
     ListenableFuture<String> fetchEntityNameAsync(TenantId tenantId, EntityId entityId);
 
+    ListenableFuture<EntityOwnership> fetchEntityOwnershipAsync(TenantId tenantId, EntityId entityId);
+
+    ListenableFuture<Map<EntityId, EntityOwnership>> fetchEntityOwnershipsAsync(TenantId tenantId, List<EntityId> entityIds);
+
     void deleteEntityRelations(TenantId tenantId, EntityId entityId);
 
 }
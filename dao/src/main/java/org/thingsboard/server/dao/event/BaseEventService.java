@@ -50,6 +50,12 @@ public class BaseEventService implements EventService {
         return eventDao.saveAsync(event);
     }
 
+    @Override
+    public ListenableFuture<Void> saveAllAsync(List<Event> events) {
+        events.forEach(event -> eventValidator.validate(event, Event::getTenantId));
+        return eventDao.saveAllAsync(events);
+    }
+
     @Override
     public Optional<Event> saveIfNotExists(Event event) {
         eventValidator.validate(event, Event::getTenantId);
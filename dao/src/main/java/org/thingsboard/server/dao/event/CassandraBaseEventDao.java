@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.event;
 
+import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
@@ -22,10 +23,12 @@ import com.datastax.driver.core.querybuilder.Select;
 import com.datastax.driver.core.utils.UUIDs;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.Event;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.EventId;
@@ -35,8 +38,10 @@ import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.model.nosql.EventEntity;
 import org.thingsboard.server.dao.nosql.CassandraAbstractSearchTimeDao;
+import org.thingsboard.server.dao.nosql.CassandraWriteBatches;
 import org.thingsboard.server.dao.util.NoSqlDao;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -69,6 +74,12 @@ public class CassandraBaseEventDao extends CassandraAbstractSearchTimeDao<EventE
     @Value("${cassandra.query.events_ttl:0}")
     private int eventsTtl;
 
+    @Value("${cassandra.query.write_batch_max_statements:100}")
+    private int batchMaxStatements;
+
+    @Value("${cassandra.query.write_batch_max_bytes:40960}")
+    private int batchMaxBytes;
+
     @Override
     public Event save(TenantId tenantId, Event event) {
         try {
@@ -95,6 +106,34 @@ public class CassandraBaseEventDao extends CassandraAbstractSearchTimeDao<EventE
         return Futures.transform(optionalSave, opt -> opt.orElse(null));
     }
 
+    @Override
+    public ListenableFuture<Void> saveAllAsync(List<Event> events) {
+        CassandraWriteBatches<EventPartitionKey> batches = new CassandraWriteBatches<>(batchMaxStatements, batchMaxBytes);
+        for (Event event : events) {
+            prepareEvent(event);
+            EventEntity entity = new EventEntity(event);
+            EventPartitionKey key = new EventPartitionKey(event.getTenantId(), entity.getEntityType(), entity.getEntityId());
+            Insert insert = toInsert(entity, false, eventsTtl);
+            batches.add(key, insert, getRequestSize(insert));
+        }
+        List<ListenableFuture<ResultSet>> futures = new ArrayList<>(batches.size());
+        batches.forEach((key, batch) -> futures.add(executeAsyncWrite(key.getTenantId(), batch)));
+        return Futures.transform(Futures.allAsList(futures), rs -> null);
+    }
+
+    private void prepareEvent(Event event) {
+        if (event.getTenantId() == null) {
+            log.trace("Save system event with predefined id {}", systemTenantId);
+            event.setTenantId(systemTenantId);
+        }
+        if (event.getId() == null) {
+            event.setId(new EventId(UUIDs.timeBased()));
+        }
+        if (StringUtils.isEmpty(event.getUid())) {
+            event.setUid(event.getId().toString());
+        }
+    }
+
     @Override
     public Optional<Event> saveIfNotExists(Event event) {
         if (event.getTenantId() == null) {
@@ -180,6 +219,17 @@ public class CassandraBaseEventDao extends CassandraAbstractSearchTimeDao<EventE
         if (entity.getId() == null) {
             entity.setId(UUIDs.timeBased());
         }
+        ResultSetFuture resultSetFuture = executeAsyncWrite(tenantId, toInsert(entity, ifNotExists, ttl));
+        return Futures.transform(resultSetFuture, rs -> {
+            if (rs.wasApplied()) {
+                return Optional.of(DaoUtil.getData(entity));
+            } else {
+                return Optional.empty();
+            }
+        });
+    }
+
+    private Insert toInsert(EventEntity entity, boolean ifNotExists, int ttl) {
         Insert insert = QueryBuilder.insertInto(getColumnFamilyName())
                 .value(ModelConstants.ID_PROPERTY, entity.getId())
                 .value(ModelConstants.EVENT_TENANT_ID_PROPERTY, entity.getTenantId())
@@ -194,13 +244,13 @@ public class CassandraBaseEventDao extends CassandraAbstractSearchTimeDao<EventE
         if(ttl > 0){
             insert.using(ttl(ttl));
         }
-        ResultSetFuture resultSetFuture = executeAsyncWrite(tenantId, insert);
-        return Futures.transform(resultSetFuture, rs -> {
-            if (rs.wasApplied()) {
-                return Optional.of(DaoUtil.getData(entity));
-            } else {
-                return Optional.empty();
-            }
-        });
+        return insert;
+    }
+
+    @Data
+    private static class EventPartitionKey {
+        private final TenantId tenantId;
+        private final EntityType entityType;
+        private final UUID entityId;
     }
 }
@@ -47,6 +47,14 @@ public interface EventDao extends Dao<Event> {
      */
     ListenableFuture<Event> saveAsync(Event event);
 
+    /**
+     * Save list of event objects async using batch writes
+     *
+     * @param events the event objects
+     * @return future that is completed when all events are saved
+     */
+    ListenableFuture<Void> saveAllAsync(List<Event> events);
+
     /**
      * Save event object if it is not yet saved
      *
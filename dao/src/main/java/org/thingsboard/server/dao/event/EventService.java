@@ -31,6 +31,8 @@ public interface EventService {
 
     ListenableFuture<Event> saveAsync(Event event);
 
+    ListenableFuture<Void> saveAllAsync(List<Event> events);
+
     Optional<Event> saveIfNotExists(Event event);
 
     Optional<Event> findEvent(TenantId tenantId, EntityId entityId, String eventType, String eventUid);
@@ -17,6 +17,7 @@ package org.thingsboard.server.dao.nosql;
 
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Configuration;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
@@ -85,6 +86,14 @@ public abstract class CassandraAbstractDao {
         }
     }
 
+    /**
+     * Serialized size of the statement in bytes with the protocol version of the session.
+     */
+    protected int getRequestSize(Statement statement) {
+        Configuration configuration = getSession().getCluster().getConfiguration();
+        return statement.requestSizeInBytes(configuration.getProtocolOptions().getProtocolVersion(), configuration.getCodecRegistry());
+    }
+
     protected ResultSet executeRead(TenantId tenantId, Statement statement) {
         return execute(tenantId, statement, defaultReadLevel);
     }
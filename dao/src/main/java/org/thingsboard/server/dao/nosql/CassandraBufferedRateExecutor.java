@@ -53,22 +53,22 @@ public class CassandraBufferedRateExecutor extends AbstractBufferedRateExecutor<
             @Value("${cassandra.query.permit_max_wait_time}") long maxWaitTime,
             @Value("${cassandra.query.dispatcher_threads:2}") int dispatcherThreads,
             @Value("${cassandra.query.callback_threads:4}") int callbackThreads,
-            @Value("${cassandra.query.poll_ms:50}") long pollMs,
+            @Value("${cassandra.query.timeout_tick_ms:10}") long timeoutTickMs,
             @Value("${cassandra.query.tenant_rate_limits.enabled}") boolean tenantRateLimitsEnabled,
             @Value("${cassandra.query.tenant_rate_limits.configuration}") String tenantRateLimitsConfiguration,
             @Value("${cassandra.query.tenant_rate_limits.print_tenant_names}") boolean printTenantNames) {
-        super(queueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, pollMs, tenantRateLimitsEnabled, tenantRateLimitsConfiguration);
+        super(queueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, timeoutTickMs, tenantRateLimitsEnabled, tenantRateLimitsConfiguration);
         this.printTenantNames = printTenantNames;
     }
 
     @Scheduled(fixedDelayString = "${cassandra.query.rate_limit_print_interval_ms}")
     public void printStats() {
         log.info("Permits queueSize [{}] totalAdded [{}] totalLaunched [{}] totalReleased [{}] totalFailed [{}] totalExpired [{}] totalRejected [{}] " +
-                        "totalRateLimited [{}] totalRateLimitedTenants [{}] currBuffer [{}] ",
+                        "totalRateLimited [{}] totalRateLimitedTenants [{}] currBuffer [{}] tenantQueues [{}]",
                 getQueueSize(),
                 totalAdded.getAndSet(0), totalLaunched.getAndSet(0), totalReleased.getAndSet(0),
                 totalFailed.getAndSet(0), totalExpired.getAndSet(0), totalRejected.getAndSet(0),
-                totalRateLimited.getAndSet(0), rateLimitedTenants.size(), concurrencyLevel.get());
+                totalRateLimited.getAndSet(0), rateLimitedTenants.size(), concurrencyLevel.get(), getTenantQueuesCount());
 
         rateLimitedTenants.forEach(((tenantId, counter) -> {
             if (printTenantNames) {
@@ -86,6 +86,7 @@ public class CassandraBufferedRateExecutor extends AbstractBufferedRateExecutor<
             }
         }));
         rateLimitedTenants.clear();
+        evictIdleTenantQueues();
     }
 
     @PreDestroy
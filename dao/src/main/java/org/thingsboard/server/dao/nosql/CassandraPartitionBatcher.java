@@ -0,0 +1,180 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.nosql;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Groups write statements that share the same partition key into UNLOGGED batches.
+ * <p>
+ * A batch is executed when it reaches the statements or size limit or when the linger time passes.
+ * Statements of a batch share the write timestamp, so a second write to the same row starts a new batch
+ * to keep the order of the writes.
+ * Single partition batches are applied by the replicas as a single mutation, and the token aware policy of the driver
+ * routes them by the routing key of the first statement.
+ */
+@Slf4j
+public class CassandraPartitionBatcher {
+
+    private final int maxBatchStatements;
+    private final int maxBatchBytes;
+    private final long lingerMs;
+    private final BiFunction<TenantId, Statement, ResultSetFuture> executor;
+    private final ConcurrentMap<Object, PendingBatch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicInteger totalStatements = new AtomicInteger();
+    private final AtomicInteger totalBatches = new AtomicInteger();
+
+    public CassandraPartitionBatcher(int maxBatchStatements, int maxBatchBytes, long lingerMs,
+                                     BiFunction<TenantId, Statement, ResultSetFuture> executor) {
+        this.maxBatchStatements = maxBatchStatements;
+        this.maxBatchBytes = maxBatchBytes;
+        this.lingerMs = lingerMs;
+        this.executor = executor;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cassandra-partition-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param partitionKey  key of the partition the statement writes to, with the table name included.
+     * @param rowKey        key of the row within the partition.
+     * @param estimatedSize estimated size of the written values in bytes.
+     */
+    public ListenableFuture<Void> add(TenantId tenantId, Object partitionKey, Object rowKey, Statement statement, int estimatedSize) {
+        SettableFuture<Void> future = SettableFuture.create();
+        PendingBatch[] full = new PendingBatch[2];
+        batches.compute(partitionKey, (key, batch) -> {
+            if (batch != null && batch.rowKeys.contains(rowKey)) {
+                full[0] = batch;
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new PendingBatch(key, tenantId);
+                PendingBatch scheduled = batch;
+                scheduler.schedule(() -> flush(scheduled), lingerMs, TimeUnit.MILLISECONDS);
+            }
+            batch.statements.add(statement);
+            batch.futures.add(future);
+            batch.rowKeys.add(rowKey);
+            batch.bytes += estimatedSize;
+            if (batch.statements.size() >= maxBatchStatements || batch.bytes >= maxBatchBytes) {
+                full[1] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (full[0] != null) {
+            execute(full[0]);
+        }
+        if (full[1] != null) {
+            execute(full[1]);
+        }
+        return future;
+    }
+
+    private void flush(PendingBatch batch) {
+        if (batches.remove(batch.key, batch)) {
+            execute(batch);
+        }
+    }
+
+    private void execute(PendingBatch batch) {
+        Statement statement;
+        if (batch.statements.size() == 1) {
+            statement = batch.statements.get(0);
+        } else {
+            BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+            batchStatement.addAll(batch.statements);
+            statement = batchStatement;
+        }
+        totalStatements.addAndGet(batch.statements.size());
+        totalBatches.incrementAndGet();
+        ResultSetFuture result;
+        try {
+            result = executor.apply(batch.tenantId, statement);
+        } catch (Throwable t) {
+            batch.futures.forEach(f -> f.setException(t));
+            return;
+        }
+        Futures.addCallback(result, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(@Nullable ResultSet resultSet) {
+                batch.futures.forEach(f -> f.set(null));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.debug("[{}] Failed to execute batch of {} statements", batch.key, batch.statements.size(), t);
+                batch.futures.forEach(f -> f.setException(t));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    public int getAndResetTotalStatements() {
+        return totalStatements.getAndSet(0);
+    }
+
+    public int getAndResetTotalBatches() {
+        return totalBatches.getAndSet(0);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        batches.values().forEach(batch -> batch.futures.forEach(f -> f.setException(new IllegalStateException("Batcher is stopped"))));
+        batches.clear();
+    }
+
+    private static final class PendingBatch {
+        private final Object key;
+        private final TenantId tenantId;
+        private final List<Statement> statements = new ArrayList<>();
+        private final List<SettableFuture<Void>> futures = new ArrayList<>();
+        private final Set<Object> rowKeys = new HashSet<>();
+        private int bytes;
+
+        private PendingBatch(Object key, TenantId tenantId) {
+            this.key = key;
+            this.tenantId = tenantId;
+        }
+    }
+}
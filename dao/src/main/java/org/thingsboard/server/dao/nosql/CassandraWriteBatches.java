@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.nosql;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.Statement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Groups write statements that share the same partition key into UNLOGGED batches.
+ * <p>
+ * A batch is closed when it reaches the statements or size limit, so that a batch never exceeds
+ * batch_size_fail_threshold_in_kb of Cassandra and is not rejected as a whole.
+ * A statement that exceeds the size limit alone is executed without a batch.
+ *
+ * @param <K> partition key with the table name included.
+ */
+public class CassandraWriteBatches<K> {
+
+    private final int maxBatchStatements;
+    private final int maxBatchBytes;
+    private final Map<K, PendingBatch<K>> openBatches = new HashMap<>();
+    private final List<PendingBatch<K>> batches = new ArrayList<>();
+
+    public CassandraWriteBatches(int maxBatchStatements, int maxBatchBytes) {
+        this.maxBatchStatements = maxBatchStatements;
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    /**
+     * @param size serialized size of the statement in bytes.
+     */
+    public void add(K partitionKey, Statement statement, int size) {
+        PendingBatch<K> batch = openBatches.get(partitionKey);
+        if (batch != null && (batch.statements.size() >= maxBatchStatements || batch.bytes + size > maxBatchBytes)) {
+            batch = null;
+        }
+        if (batch == null) {
+            batch = new PendingBatch<>(partitionKey);
+            openBatches.put(partitionKey, batch);
+            batches.add(batch);
+        }
+        batch.statements.add(statement);
+        batch.bytes += size;
+    }
+
+    /**
+     * Passes every batch in the order of the first statements, a batch of a single statement is passed as is.
+     */
+    public void forEach(BiConsumer<K, Statement> consumer) {
+        for (PendingBatch<K> batch : batches) {
+            if (batch.statements.size() == 1) {
+                consumer.accept(batch.key, batch.statements.get(0));
+            } else {
+                BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                batchStatement.addAll(batch.statements);
+                consumer.accept(batch.key, batchStatement);
+            }
+        }
+    }
+
+    public int size() {
+        return batches.size();
+    }
+
+    private static final class PendingBatch<K> {
+        private final K key;
+        private final List<Statement> statements = new ArrayList<>();
+        private int bytes;
+
+        private PendingBatch(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -100,6 +100,16 @@ public class JpaAuditLogDao extends JpaAbstractDao<AuditLogEntity, AuditLog> imp
         return insertService.submit(() -> null);
     }
 
+    @Override
+    public ListenableFuture<Void> saveAll(List<AuditLog> auditLogs) {
+        List<AuditLogEntity> entities = new ArrayList<>(auditLogs.size());
+        auditLogs.forEach(auditLog -> entities.add(new AuditLogEntity(auditLog)));
+        return insertService.submit(() -> {
+            auditLogRepository.save(entities);
+            return null;
+        });
+    }
+
     @Override
     public List<AuditLog> findAuditLogsByTenantIdAndEntityId(UUID tenantId, EntityId entityId, TimePageLink pageLink) {
         return findAuditLogs(tenantId, entityId, null, null, pageLink);
@@ -38,10 +38,6 @@ public interface EventRepository extends CrudRepository<EventEntity, String>, Jp
                                                                               String eventType,
                                                                               String eventUid);
 
-    EventEntity findByTenantIdAndEntityTypeAndEntityId(String tenantId,
-                                                       EntityType entityType,
-                                                       String entityId);
-
     @Query("SELECT e FROM EventEntity e WHERE e.tenantId = :tenantId AND e.entityType = :entityType " +
             "AND e.entityId = :entityId AND e.eventType = :eventType ORDER BY e.eventType DESC, e.id DESC")
     List<EventEntity> findLatestByTenantIdAndEntityTypeAndEntityIdAndEventType(
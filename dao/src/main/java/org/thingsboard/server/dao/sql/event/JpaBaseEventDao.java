@@ -19,12 +19,16 @@ import com.datastax.driver.core.utils.UUIDs;
 import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.dialect.PostgreSQL81Dialect;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.Event;
 import org.thingsboard.server.common.data.UUIDConverter;
@@ -38,6 +42,7 @@ import org.thingsboard.server.dao.model.sql.EventEntity;
 import org.thingsboard.server.dao.sql.JpaAbstractSearchTimeDao;
 import org.thingsboard.server.dao.util.SqlDao;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.criteria.Predicate;
 import java.util.ArrayList;
 import java.util.List;
@@ -58,9 +63,26 @@ public class JpaBaseEventDao extends JpaAbstractSearchTimeDao<EventEntity, Event
 
     private final UUID systemTenantId = NULL_UUID;
 
+    private static final String INSERT = "INSERT INTO event (id, body, entity_id, entity_type, event_type, event_uid, tenant_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IF_NOT_EXISTS = INSERT + " ON CONFLICT DO NOTHING";
+
     @Autowired
     private EventRepository eventRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.database-platform:}")
+    private String databasePlatform;
+
+    private boolean psql;
+
+    @PostConstruct
+    public void init() {
+        psql = isPostgreSqlDialect(databasePlatform);
+    }
+
     @Override
     protected Class<EventEntity> getEntityClass() {
         return EventEntity.class;
@@ -95,6 +117,31 @@ public class JpaBaseEventDao extends JpaAbstractSearchTimeDao<EventEntity, Event
         return service.submit(() -> save(new EventEntity(event), false).orElse(null));
     }
 
+    @Override
+    public ListenableFuture<Void> saveAllAsync(List<Event> events) {
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (Event event : events) {
+            log.debug("Save event [{}] ", event);
+            if (event.getId() == null) {
+                event.setId(new EventId(UUIDs.timeBased()));
+            }
+            if (StringUtils.isEmpty(event.getUid())) {
+                event.setUid(event.getId().toString());
+            }
+            EventEntity entity = new EventEntity(event);
+            if (entity.getTenantId() == null) {
+                entity.setTenantId(UUIDConverter.fromTimeUUID(systemTenantId));
+            }
+            rows.add(toInsertArgs(entity));
+        }
+        // Repository save() merges entities with assigned ids and selects each row before the insert,
+        // a JDBC batch sends all the inserts in a single round trip instead
+        return service.submit(() -> {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+            return null;
+        });
+    }
+
     @Override
     public Optional<Event> saveIfNotExists(Event event) {
         return save(new EventEntity(event), true);
@@ -143,13 +190,56 @@ public class JpaBaseEventDao extends JpaAbstractSearchTimeDao<EventEntity, Event
         if (StringUtils.isEmpty(entity.getEventUid())) {
             entity.setEventUid(entity.getId().toString());
         }
-        if (ifNotExists &&
-                eventRepository.findByTenantIdAndEntityTypeAndEntityId(entity.getTenantId(), entity.getEntityType(), entity.getEntityId()) != null) {
-            return Optional.empty();
+        if (ifNotExists) {
+            return saveIfNotExists(entity);
         }
         return Optional.of(DaoUtil.getData(eventRepository.save(entity)));
     }
 
+    /**
+     * Relies on the event_unq_key constraint: PostgreSQL skips the duplicate within the insert,
+     * other databases look the event up by the unique key before the insert.
+     */
+    private Optional<Event> saveIfNotExists(EventEntity entity) {
+        if (psql) {
+            int inserted = jdbcTemplate.update(INSERT_IF_NOT_EXISTS, toInsertArgs(entity));
+            return inserted > 0 ? Optional.of(DaoUtil.getData(entity)) : Optional.empty();
+        }
+        if (eventRepository.findByTenantIdAndEntityTypeAndEntityIdAndEventTypeAndEventUid(entity.getTenantId(),
+                entity.getEntityType(), entity.getEntityId(), entity.getEventType(), entity.getEventUid()) != null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(DaoUtil.getData(eventRepository.save(entity)));
+        } catch (DataIntegrityViolationException e) {
+            log.trace("Event [{}] is already saved", entity.getEventUid());
+            return Optional.empty();
+        }
+    }
+
+    private static Object[] toInsertArgs(EventEntity entity) {
+        return new Object[]{
+                UUIDConverter.fromTimeUUID(entity.getId()),
+                entity.getBody() != null ? entity.getBody().toString() : null,
+                entity.getEntityId(),
+                entity.getEntityType() != null ? entity.getEntityType().name() : null,
+                entity.getEventType(),
+                entity.getEventUid(),
+                entity.getTenantId()};
+    }
+
+    static boolean isPostgreSqlDialect(String databasePlatform) {
+        if (StringUtils.isEmpty(databasePlatform)) {
+            return false;
+        }
+        try {
+            return PostgreSQL81Dialect.class.isAssignableFrom(Class.forName(databasePlatform));
+        } catch (ClassNotFoundException e) {
+            log.warn("Unknown database platform [{}]", databasePlatform);
+            return false;
+        }
+    }
+
     private Specification<EventEntity> getEntityFieldsSpec(UUID tenantId, EntityId entityId, String eventType) {
         return (root, criteriaQuery, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
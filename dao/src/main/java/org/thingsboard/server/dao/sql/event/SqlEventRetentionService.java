@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.event;
+
+import com.datastax.driver.core.utils.UUIDs;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.UUIDConverter;
+import org.thingsboard.server.dao.util.SqlDao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes expired events from the SQL event table.
+ * <p>
+ * The event id is a time based UUID stored in the time ordered format, so the expired events are selected
+ * by the primary key range. Rows are deleted in bounded chunks to keep the transactions and locks short.
+ */
+@Service
+@Slf4j
+@SqlDao
+public class SqlEventRetentionService {
+
+    private static final String DELETE_EVENTS = "DELETE FROM event WHERE id IN " +
+            "(SELECT id FROM event WHERE id < ? AND (event_type IS NULL OR event_type <> ?) LIMIT ?)";
+    private static final String DELETE_DEBUG_EVENTS = "DELETE FROM event WHERE id IN " +
+            "(SELECT id FROM event WHERE id < ? AND event_type = ? LIMIT ?)";
+
+    @Value("${sql.ttl.events.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.ttl.events.events_ttl:0}")
+    private long eventsTtl;
+
+    @Value("${sql.ttl.events.debug_events_ttl:0}")
+    private long debugEventsTtl;
+
+    @Value("${sql.ttl.events.delete_batch_size:1000}")
+    private int deleteBatchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Scheduled(initialDelayString = "${sql.ttl.events.execution_interval_ms:86400000}", fixedDelayString = "${sql.ttl.events.execution_interval_ms:86400000}")
+    public void cleanUp() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            if (eventsTtl > 0) {
+                long removed = deleteExpired(DELETE_EVENTS, now - TimeUnit.SECONDS.toMillis(eventsTtl));
+                log.info("Removed {} expired events", removed);
+            }
+            if (debugEventsTtl > 0) {
+                long removed = deleteExpired(DELETE_DEBUG_EVENTS, now - TimeUnit.SECONDS.toMillis(debugEventsTtl));
+                log.info("Removed {} expired debug events", removed);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to clean up expired events", e);
+        }
+    }
+
+    long deleteExpired(String query, long cutoff) {
+        String cutoffId = UUIDConverter.fromTimeUUID(UUIDs.startOf(cutoff));
+        long total = 0;
+        int removed;
+        do {
+            removed = jdbcTemplate.update(query, cutoffId, DataConstants.DEBUG_RULE_NODE, deleteBatchSize);
+            total += removed;
+        } while (removed >= deleteBatchSize);
+        return total;
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.timeseries;
+
+import lombok.Data;
+
+/**
+ * Time range partition of the compact PostgreSQL timeseries table.
+ * Start is inclusive and end is exclusive, in milliseconds.
+ */
+@Data
+public class PsqlPartition {
+
+    public static final String TABLE_PREFIX = "ts_kv_compact_";
+
+    private final long start;
+    private final long end;
+    private final String partitionDate;
+
+    public String getTableName() {
+        return TABLE_PREFIX + partitionDate;
+    }
+
+    public String getCreateQuery() {
+        String range = start == Long.MIN_VALUE ? "FROM (MINVALUE) TO (MAXVALUE)" : "FROM (" + start + ") TO (" + end + ")";
+        return "CREATE TABLE IF NOT EXISTS " + getTableName() + " PARTITION OF ts_kv_compact FOR VALUES " + range;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.timeseries;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.dao.timeseries.TsPartitionDate;
+import org.thingsboard.server.dao.util.PsqlTsDao;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Creates time range partitions of the compact PostgreSQL timeseries table on demand.
+ */
+@Repository
+@Slf4j
+@PsqlTsDao
+public class PsqlPartitioningRepository {
+
+    private static final String SELECT_PARTITIONS = "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+            "INNER JOIN pg_class c ON i.inhrelid = c.oid INNER JOIN pg_class p ON i.inhparent = p.oid WHERE p.relname = 'ts_kv_compact'";
+    private static final Pattern PARTITION_BOUND = Pattern.compile("FROM \\('?(-?\\d+)'?\\) TO \\('?(-?\\d+)'?\\)");
+
+    @Value("${sql.postgres.ts_key_value_partitioning:MONTHS}")
+    private String partitioning;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TsPartitionDate tsFormat;
+    private DateTimeFormatter partitionNameFormatter;
+    private final Map<Long, PsqlPartition> partitions = new ConcurrentHashMap<>();
+    private final ReentrantLock partitionCreationLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        tsFormat = TsPartitionDate.parse(partitioning)
+                .orElseThrow(() -> new IllegalStateException("Unsupported partitioning: " + partitioning));
+        switch (tsFormat) {
+            case DAYS:
+            case MONTHS:
+            case YEARS:
+                partitionNameFormatter = DateTimeFormatter.ofPattern(tsFormat.getPattern().replace('-', '_'));
+                break;
+            case INDEFINITE:
+                break;
+            default:
+                throw new IllegalStateException("Unsupported partitioning for PostgreSQL timeseries: " + partitioning);
+        }
+    }
+
+    public TsPartitionDate getPartitioning() {
+        return tsFormat;
+    }
+
+    public PsqlPartition toPartition(long ts) {
+        if (tsFormat == TsPartitionDate.INDEFINITE) {
+            return new PsqlPartition(Long.MIN_VALUE, Long.MAX_VALUE, "indefinite");
+        }
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), ZoneOffset.UTC);
+        LocalDateTime start = tsFormat.truncatedTo(time);
+        LocalDateTime end = start.plus(1, tsFormat.getTruncateUnit());
+        return new PsqlPartition(start.toInstant(ZoneOffset.UTC).toEpochMilli(), end.toInstant(ZoneOffset.UTC).toEpochMilli(),
+                start.format(partitionNameFormatter));
+    }
+
+    public void createPartitionIfNotExists(long ts) {
+        PsqlPartition partition = toPartition(ts);
+        if (!partitions.containsKey(partition.getStart())) {
+            partitionCreationLock.lock();
+            try {
+                if (!partitions.containsKey(partition.getStart())) {
+                    log.trace("Creating partition: {}", partition.getTableName());
+                    jdbcTemplate.execute(partition.getCreateQuery());
+                    partitions.put(partition.getStart(), partition);
+                }
+            } finally {
+                partitionCreationLock.unlock();
+            }
+        }
+    }
+
+    public void createPartitions(long startTs, long endTs) {
+        long ts = startTs;
+        while (ts <= endTs) {
+            createPartitionIfNotExists(ts);
+            PsqlPartition partition = toPartition(ts);
+            if (partition.getEnd() == Long.MAX_VALUE) {
+                break;
+            }
+            ts = partition.getEnd();
+        }
+        createPartitionIfNotExists(endTs);
+    }
+
+    /**
+     * Loads the existing partitions from the database catalog, ordered by start.
+     * Partitions with unbounded ranges are skipped.
+     */
+    public List<PsqlPartition> findPartitions() {
+        List<PsqlPartition> result = new ArrayList<>();
+        jdbcTemplate.query(SELECT_PARTITIONS, rs -> {
+            String tableName = rs.getString(1);
+            Matcher matcher = PARTITION_BOUND.matcher(rs.getString(2));
+            if (tableName.startsWith(PsqlPartition.TABLE_PREFIX) && matcher.find()) {
+                result.add(new PsqlPartition(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)),
+                        tableName.substring(PsqlPartition.TABLE_PREFIX.length())));
+            }
+        });
+        result.sort(Comparator.comparingLong(PsqlPartition::getStart));
+        return result;
+    }
+
+    public void dropPartition(PsqlPartition partition) {
+        partitionCreationLock.lock();
+        try {
+            log.trace("Dropping partition: {}", partition.getTableName());
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.getTableName());
+            partitions.remove(partition.getStart());
+        } finally {
+            partitionCreationLock.unlock();
+        }
+    }
+
+    public void truncatePartition(PsqlPartition partition) {
+        log.trace("Truncating partition: {}", partition.getTableName());
+        jdbcTemplate.execute("TRUNCATE TABLE " + partition.getTableName());
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.timeseries;
+
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.DaoUtil;
+import org.thingsboard.server.dao.model.sql.TsKvEntity;
+import org.thingsboard.server.dao.util.PsqlTsDao;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timeseries DAO for PostgreSQL 11+ that stores the history in the compact, time partitioned ts_kv_compact table.
+ * Keys are replaced by ids from ts_kv_dictionary and entity ids are stored as native uuid values.
+ * Latest values are still stored in ts_kv_latest.
+ * Saved entries are queued and inserted in JDBC batches, the partitions and TTLs are checked once per batch.
+ */
+@Component
+@Slf4j
+@PsqlTsDao
+public class PsqlTimeseriesDao extends AbstractSqlTimeseriesDao {
+
+    private static final String RANGE_CONDITION = "WHERE entity_id = ? AND key = ? AND ts > ? AND ts <= ?";
+
+    private static final String INSERT_OR_UPDATE_TS_KV = "INSERT INTO ts_kv_compact (entity_id, key, ts, bool_v, str_v, long_v, dbl_v) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (entity_id, key, ts) " +
+            "DO UPDATE SET bool_v = EXCLUDED.bool_v, str_v = EXCLUDED.str_v, long_v = EXCLUDED.long_v, dbl_v = EXCLUDED.dbl_v";
+    private static final String INSERT_KEY = "INSERT INTO ts_kv_dictionary (key) VALUES (?) ON CONFLICT (key) DO NOTHING";
+    private static final String SELECT_KEY_ID = "SELECT key_id FROM ts_kv_dictionary WHERE key = ?";
+    private static final String SELECT_WITH_LIMIT = "SELECT ts, bool_v, str_v, long_v, dbl_v FROM ts_kv_compact " + RANGE_CONDITION +
+            " ORDER BY ts %s LIMIT ?";
+    private static final String DELETE = "DELETE FROM ts_kv_compact " + RANGE_CONDITION;
+
+    private static final String LONG_AND_DOUBLE_COUNT = "SUM(CASE WHEN long_v IS NULL THEN 0 ELSE 1 END), " +
+            "SUM(CASE WHEN dbl_v IS NULL THEN 0 ELSE 1 END)";
+    private static final String SELECT_SUM_OR_AVG = "SELECT SUM(COALESCE(long_v, 0)), SUM(COALESCE(dbl_v, 0.0)), " +
+            LONG_AND_DOUBLE_COUNT + " FROM ts_kv_compact " + RANGE_CONDITION;
+    private static final String SELECT_MAX = "SELECT MAX(str_v), MAX(COALESCE(long_v, -9223372036854775807)), " +
+            "MAX(COALESCE(dbl_v, -1.79769E+308)), " + LONG_AND_DOUBLE_COUNT + " FROM ts_kv_compact " + RANGE_CONDITION;
+    private static final String SELECT_MIN = "SELECT MIN(str_v), MIN(COALESCE(long_v, 9223372036854775807)), " +
+            "MIN(COALESCE(dbl_v, 1.79769E+308)), " + LONG_AND_DOUBLE_COUNT + " FROM ts_kv_compact " + RANGE_CONDITION;
+    private static final String SELECT_COUNT = "SELECT SUM(CASE WHEN bool_v IS NULL THEN 0 ELSE 1 END), " +
+            "SUM(CASE WHEN str_v IS NULL THEN 0 ELSE 1 END), " + LONG_AND_DOUBLE_COUNT + " FROM ts_kv_compact " + RANGE_CONDITION;
+
+    private final ConcurrentMap<String, Integer> keyIds = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PsqlPartitioningRepository partitioningRepository;
+
+    @Autowired
+    private PsqlTimeseriesRetentionService retentionService;
+
+    @Value("${sql.postgres.ts_inserts_batch_size:1000}")
+    private int insertBatchSize;
+
+    @Value("${sql.postgres.ts_inserts_batch_max_delay_ms:50}")
+    private long insertBatchMaxDelayMs;
+
+    private final BlockingQueue<PendingTsKvEntry> insertQueue = new LinkedBlockingQueue<>();
+    private ExecutorService insertDispatcher;
+    private volatile boolean stopped;
+
+    @PostConstruct
+    public void startInsertDispatcher() {
+        insertDispatcher = Executors.newSingleThreadExecutor();
+        insertDispatcher.submit(this::dispatchInserts);
+    }
+
+    @PreDestroy
+    public void stopInsertDispatcher() {
+        stopped = true;
+        if (insertDispatcher != null) {
+            insertDispatcher.shutdown();
+            try {
+                insertDispatcher.awaitTermination(insertBatchMaxDelayMs + 1000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> save(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
+        log.trace("Saving entry: {} for entity: {}", tsKvEntry, entityId);
+        if (stopped) {
+            return Futures.immediateFailedFuture(new IllegalStateException("Timeseries DAO is stopped"));
+        }
+        PendingTsKvEntry pending = new PendingTsKvEntry(tenantId, entityId, tsKvEntry, ttl);
+        insertQueue.add(pending);
+        return pending.future;
+    }
+
+    @Override
+    public ListenableFuture<Void> savePartition(TenantId tenantId, EntityId entityId, long tsKvEntryTs, String key, long ttl) {
+        return insertService.submit(() -> null);
+    }
+
+    @Override
+    public ListenableFuture<Void> remove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
+        return service.submit(() -> {
+            Optional<Integer> keyId = findKeyId(query.getKey());
+            if (keyId.isPresent()) {
+                jdbcTemplate.update(DELETE, entityId.getId(), keyId.get(), query.getStartTs(), query.getEndTs());
+            }
+            return null;
+        });
+    }
+
+    @Override
+    protected ListenableFuture<List<TsKvEntry>> findAllAsyncWithLimit(EntityId entityId, ReadTsKvQuery query) {
+        return service.submit(() -> {
+            Optional<Integer> keyId = findKeyId(query.getKey());
+            if (!keyId.isPresent()) {
+                return Collections.<TsKvEntry>emptyList();
+            }
+            String order = DESC_ORDER.equalsIgnoreCase(query.getOrderBy()) ? "DESC" : "ASC";
+            return jdbcTemplate.query(String.format(SELECT_WITH_LIMIT, order),
+                    (rs, rowNum) -> toTsKvEntry(query.getKey(), rs),
+                    entityId.getId(), keyId.get(), query.getStartTs(), query.getEndTs(), query.getLimit());
+        });
+    }
+
+    @Override
+    protected ListenableFuture<Optional<TsKvEntry>> findAndAggregateAsync(EntityId entityId, String key, long startTs, long endTs, long ts, Aggregation aggregation) {
+        return service.submit(() -> {
+            Optional<Integer> keyId = findKeyId(key);
+            if (!keyId.isPresent()) {
+                return Optional.<TsKvEntry>empty();
+            }
+            Object[] args = new Object[]{entityId.getId(), keyId.get(), startTs, endTs};
+            TsKvEntity entity;
+            switch (aggregation) {
+                case AVG:
+                case SUM:
+                    entity = jdbcTemplate.queryForObject(SELECT_SUM_OR_AVG, args, (rs, rowNum) ->
+                            new TsKvEntity(getLong(rs, 1), getDouble(rs, 2), getLong(rs, 3), getLong(rs, 4), aggregation.name()));
+                    break;
+                case MAX:
+                case MIN:
+                    entity = jdbcTemplate.queryForObject(aggregation == Aggregation.MAX ? SELECT_MAX : SELECT_MIN, args, (rs, rowNum) -> {
+                        String strValue = rs.getString(1);
+                        if (strValue != null) {
+                            return new TsKvEntity(strValue);
+                        }
+                        return new TsKvEntity(getLong(rs, 2), getDouble(rs, 3), getLong(rs, 4), getLong(rs, 5), aggregation.name());
+                    });
+                    break;
+                case COUNT:
+                    entity = jdbcTemplate.queryForObject(SELECT_COUNT, args, (rs, rowNum) ->
+                            new TsKvEntity(getLong(rs, 1), getLong(rs, 2), getLong(rs, 3), getLong(rs, 4)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+            }
+            if (entity != null && entity.isNotEmpty()) {
+                entity.setEntityId(entityId.getId().toString());
+                entity.setEntityType(entityId.getEntityType());
+                entity.setKey(key);
+                entity.setTs(ts);
+                return Optional.of(DaoUtil.getData(entity));
+            } else {
+                return Optional.<TsKvEntry>empty();
+            }
+        });
+    }
+
+    /**
+     * Collects the queued entries into batches of up to insertBatchSize entries, waiting at most insertBatchMaxDelayMs
+     * for a batch to fill, and hands the batches over to the insert executor.
+     */
+    private void dispatchInserts() {
+        while (!stopped || !insertQueue.isEmpty()) {
+            List<PendingTsKvEntry> batch = new ArrayList<>(insertBatchSize);
+            try {
+                Queues.drain(insertQueue, batch, insertBatchSize, stopped ? 0 : insertBatchMaxDelayMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                insertQueue.drainTo(batch);
+                stopped = true;
+            }
+            if (!batch.isEmpty()) {
+                insertService.submit(() -> saveBatch(batch));
+            }
+        }
+    }
+
+    private void saveBatch(List<PendingTsKvEntry> batch) {
+        try {
+            batch.stream().map(pending -> partitioningRepository.toPartition(pending.tsKvEntry.getTs()).getStart())
+                    .distinct()
+                    .forEach(partitioningRepository::createPartitionIfNotExists);
+            // the latest entry that sets a TTL defines the TTL of the entity, same as for the separate saves
+            Map<EntityId, PendingTsKvEntry> ttlEntries = new LinkedHashMap<>();
+            for (PendingTsKvEntry pending : batch) {
+                ttlEntries.merge(pending.entityId, pending, (current, next) -> next.ttl > 0 ? next : current);
+            }
+            ttlEntries.values().forEach(pending -> retentionService.onSave(pending.tenantId, pending.entityId, pending.ttl));
+            int[] keyIds = new int[batch.size()];
+            for (int i = 0; i < keyIds.length; i++) {
+                keyIds[i] = getOrSaveKeyId(batch.get(i).tsKvEntry.getKey());
+            }
+            jdbcTemplate.batchUpdate(INSERT_OR_UPDATE_TS_KV, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    PendingTsKvEntry pending = batch.get(i);
+                    setInsertValues(ps, pending.entityId, keyIds[i], pending.tsKvEntry);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+            batch.forEach(pending -> pending.future.set(null));
+        } catch (Throwable t) {
+            log.warn("Failed to save batch of {} timeseries entries", batch.size(), t);
+            batch.forEach(pending -> pending.future.setException(t));
+        }
+    }
+
+    private static void setInsertValues(PreparedStatement ps, EntityId entityId, int keyId, TsKvEntry tsKvEntry) throws SQLException {
+        ps.setObject(1, entityId.getId());
+        ps.setInt(2, keyId);
+        ps.setLong(3, tsKvEntry.getTs());
+        Optional<Boolean> boolV = tsKvEntry.getBooleanValue();
+        if (boolV.isPresent()) {
+            ps.setBoolean(4, boolV.get());
+        } else {
+            ps.setNull(4, Types.BOOLEAN);
+        }
+        Optional<String> strV = tsKvEntry.getStrValue();
+        if (strV.isPresent()) {
+            ps.setString(5, strV.get());
+        } else {
+            ps.setNull(5, Types.VARCHAR);
+        }
+        Optional<Long> longV = tsKvEntry.getLongValue();
+        if (longV.isPresent()) {
+            ps.setLong(6, longV.get());
+        } else {
+            ps.setNull(6, Types.BIGINT);
+        }
+        Optional<Double> dblV = tsKvEntry.getDoubleValue();
+        if (dblV.isPresent()) {
+            ps.setDouble(7, dblV.get());
+        } else {
+            ps.setNull(7, Types.DOUBLE);
+        }
+    }
+
+    private int getOrSaveKeyId(String key) {
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) {
+            jdbcTemplate.update(INSERT_KEY, key);
+            keyId = jdbcTemplate.queryForObject(SELECT_KEY_ID, Integer.class, key);
+            keyIds.putIfAbsent(key, keyId);
+        }
+        return keyId;
+    }
+
+    private Optional<Integer> findKeyId(String key) {
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) {
+            List<Integer> ids = jdbcTemplate.queryForList(SELECT_KEY_ID, Integer.class, key);
+            if (ids.isEmpty()) {
+                return Optional.empty();
+            }
+            keyId = ids.get(0);
+            keyIds.putIfAbsent(key, keyId);
+        }
+        return Optional.of(keyId);
+    }
+
+    private static TsKvEntry toTsKvEntry(String key, ResultSet rs) throws SQLException {
+        KvEntry kvEntry = null;
+        String strV = rs.getString(3);
+        if (strV != null) {
+            kvEntry = new StringDataEntry(key, strV);
+        } else {
+            Long longV = getLong(rs, 4);
+            if (longV != null) {
+                kvEntry = new LongDataEntry(key, longV);
+            } else {
+                Double dblV = getDouble(rs, 5);
+                if (dblV != null) {
+                    kvEntry = new DoubleDataEntry(key, dblV);
+                } else {
+                    boolean boolV = rs.getBoolean(2);
+                    if (!rs.wasNull()) {
+                        kvEntry = new BooleanDataEntry(key, boolV);
+                    }
+                }
+            }
+        }
+        return new BasicTsKvEntry(rs.getLong(1), kvEntry);
+    }
+
+    private static Long getLong(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static class PendingTsKvEntry {
+        private final TenantId tenantId;
+        private final EntityId entityId;
+        private final TsKvEntry tsKvEntry;
+        private final long ttl;
+        private final SettableFuture<Void> future = SettableFuture.create();
+
+        private PendingTsKvEntry(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
+            this.tenantId = tenantId;
+            this.entityId = entityId;
+            this.tsKvEntry = tsKvEntry;
+            this.ttl = ttl;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.timeseries;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.dao.util.PsqlTsDao;
+
+import javax.annotation.PostConstruct;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Enforces time to live of the compact PostgreSQL timeseries data.
+ * <p>
+ * The time to live of an entity is the time to live of its latest message that sets one, as the Cassandra per-write TTL.
+ * The data of an entity without such messages is kept for its tenant default, 0 means forever. Only the entities whose
+ * time to live differs from the system one are stored in the ts_kv_ttl table.
+ * <p>
+ * Partitions that are expired for every entity are dropped (or truncated) as a whole, unless they contain data of
+ * an entity that is kept forever. The remaining expired rows are deleted partition by partition in bounded batches.
+ */
+@Service
+@Slf4j
+@PsqlTsDao
+public class PsqlTimeseriesRetentionService {
+
+    private static final String UPSERT_TTL = "INSERT INTO ts_kv_ttl (entity_id, ttl) VALUES (?, ?) " +
+            "ON CONFLICT (entity_id) DO UPDATE SET ttl = EXCLUDED.ttl";
+    private static final String SELECT_TTLS = "SELECT entity_id, ttl FROM ts_kv_ttl";
+    private static final String SELECT_PARTITION_STATS = "SELECT pg_total_relation_size(c.oid), c.reltuples::bigint FROM pg_class c WHERE c.relname = ?";
+    private static final String SELECT_ENTITY_ROWS_EXIST = "SELECT EXISTS (SELECT 1 FROM %s WHERE entity_id = ANY (?))";
+    private static final String DELETE_DEFAULT_TTL_ROWS = "DELETE FROM %1$s WHERE (entity_id, key, ts) IN " +
+            "(SELECT c.entity_id, c.key, c.ts FROM %1$s c WHERE c.ts < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM ts_kv_ttl t WHERE t.entity_id = c.entity_id) LIMIT ?)";
+    private static final String DELETE_ENTITY_ROWS = "DELETE FROM %1$s WHERE (entity_id, key, ts) IN " +
+            "(SELECT entity_id, key, ts FROM %1$s WHERE entity_id = ANY (?) AND ts < ? LIMIT ?)";
+
+    @Value("${sql.ttl.ts.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.ttl.ts.ts_key_value_ttl:0}")
+    private long systemTtl;
+
+    @Value("${sql.ttl.ts.tenant_ttls:}")
+    private String tenantTtlsConfig;
+
+    @Value("${sql.ttl.ts.drop_partitions:true}")
+    private boolean dropPartitions;
+
+    @Value("${sql.ttl.ts.delete_batch_size:10000}")
+    private int deleteBatchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PsqlPartitioningRepository partitioningRepository;
+
+    private final Map<UUID, Long> tenantTtls = new HashMap<>();
+    private final ConcurrentMap<UUID, Long> entityTtls = new ConcurrentHashMap<>();
+
+    private final AtomicInteger removedPartitions = new AtomicInteger();
+    private final AtomicLong reclaimedRows = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!StringUtils.isEmpty(tenantTtlsConfig)) {
+            for (String entry : tenantTtlsConfig.split(",")) {
+                String[] parts = entry.trim().split(":");
+                tenantTtls.put(UUID.fromString(parts[0].trim()), Long.parseLong(parts[1].trim()));
+            }
+        }
+        if (enabled) {
+            jdbcTemplate.query(SELECT_TTLS, rs -> {
+                entityTtls.put((UUID) rs.getObject(1), rs.getLong(2));
+            });
+        }
+    }
+
+    /**
+     * Sets the time to live of the entity to the one requested by the message.
+     * Data saved without the message time to live keeps the current time to live of the entity, or the tenant default one.
+     *
+     * @param ttl time to live in seconds from the message, 0 if not set.
+     */
+    public void onSave(TenantId tenantId, EntityId entityId, long ttl) {
+        if (!enabled) {
+            return;
+        }
+        UUID id = entityId.getId();
+        Long currentTtl = entityTtls.get(id);
+        long newTtl;
+        if (ttl > 0) {
+            newTtl = ttl;
+        } else if (currentTtl == null) {
+            newTtl = getTenantTtl(tenantId);
+        } else {
+            return;
+        }
+        if (currentTtl == null ? newTtl != systemTtl : newTtl != currentTtl) {
+            entityTtls.compute(id, (key, oldTtl) -> {
+                if (oldTtl == null || oldTtl != newTtl) {
+                    jdbcTemplate.update(UPSERT_TTL, id, newTtl);
+                }
+                return newTtl;
+            });
+        }
+    }
+
+    private long getTenantTtl(TenantId tenantId) {
+        if (tenantId == null) {
+            return systemTtl;
+        }
+        return tenantTtls.getOrDefault(tenantId.getId(), systemTtl);
+    }
+
+    @Scheduled(initialDelayString = "${sql.ttl.ts.execution_interval_ms:86400000}", fixedDelayString = "${sql.ttl.ts.execution_interval_ms:86400000}")
+    public void cleanUp() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Map<Long, List<UUID>> entitiesByTtl = new TreeMap<>();
+            entityTtls.forEach((id, ttl) -> entitiesByTtl.computeIfAbsent(Math.max(0, ttl), t -> new ArrayList<>()).add(id));
+            List<UUID> keptForever = entitiesByTtl.remove(0L);
+
+            long dropCutoff = getDropCutoff(now, entitiesByTtl.keySet());
+            List<PsqlPartition> partitions = new ArrayList<>();
+            for (PsqlPartition partition : partitioningRepository.findPartitions()) {
+                if (partition.getEnd() > dropCutoff || (keptForever != null && hasEntityRows(partition, keptForever))) {
+                    partitions.add(partition);
+                } else {
+                    removePartition(partition);
+                }
+            }
+            if (systemTtl > 0) {
+                long systemCutoff = now - TimeUnit.SECONDS.toMillis(systemTtl);
+                for (PsqlPartition partition : partitions) {
+                    if (partition.getStart() < systemCutoff) {
+                        deleteExpiredRows(partition, String.format(DELETE_DEFAULT_TTL_ROWS, partition.getTableName()), ps -> {
+                            ps.setLong(1, systemCutoff);
+                            ps.setInt(2, deleteBatchSize);
+                        });
+                    }
+                }
+            }
+            for (Map.Entry<Long, List<UUID>> entry : entitiesByTtl.entrySet()) {
+                long cutoff = now - TimeUnit.SECONDS.toMillis(entry.getKey());
+                for (PsqlPartition partition : partitions) {
+                    if (partition.getStart() < cutoff) {
+                        deleteExpiredRows(partition, String.format(DELETE_ENTITY_ROWS, partition.getTableName()), ps -> {
+                            ps.setArray(1, toUuidArray(ps, entry.getValue()));
+                            ps.setLong(2, cutoff);
+                            ps.setInt(3, deleteBatchSize);
+                        });
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to clean up expired timeseries data", e);
+        }
+    }
+
+    /**
+     * Partitions that end before the returned timestamp do not contain any data within time to live
+     * of the entities with the system or the given time to live values.
+     */
+    private long getDropCutoff(long now, Iterable<Long> ttls) {
+        if (systemTtl <= 0) {
+            return Long.MIN_VALUE;
+        }
+        long maxTtl = systemTtl;
+        for (Long ttl : ttls) {
+            maxTtl = Math.max(maxTtl, ttl);
+        }
+        return now - TimeUnit.SECONDS.toMillis(maxTtl);
+    }
+
+    private boolean hasEntityRows(PsqlPartition partition, List<UUID> entityIds) {
+        return jdbcTemplate.query(String.format(SELECT_ENTITY_ROWS_EXIST, partition.getTableName()),
+                ps -> ps.setArray(1, toUuidArray(ps, entityIds)), rs -> rs.next() && rs.getBoolean(1));
+    }
+
+    private static Array toUuidArray(PreparedStatement ps, List<UUID> ids) throws SQLException {
+        return ps.getConnection().createArrayOf("uuid", ids.toArray());
+    }
+
+    private void removePartition(PsqlPartition partition) {
+        if (!dropPartitions && isEmpty(partition)) {
+            return;
+        }
+        long[] stats = getPartitionStats(partition);
+        if (dropPartitions) {
+            partitioningRepository.dropPartition(partition);
+        } else {
+            partitioningRepository.truncatePartition(partition);
+        }
+        removedPartitions.incrementAndGet();
+        reclaimedBytes.addAndGet(stats[0]);
+        reclaimedRows.addAndGet(stats[1]);
+        log.info("Removed expired timeseries partition [{}]: ~{} rows, {} bytes", partition.getTableName(), stats[1], stats[0]);
+    }
+
+    /**
+     * Repeats the delete query until it removes less rows than the batch size,
+     * so that every statement holds the locks on a bounded number of rows.
+     */
+    private void deleteExpiredRows(PsqlPartition partition, String query, PreparedStatementSetter setter) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(query, setter);
+            total += deleted;
+        } while (deleted >= deleteBatchSize);
+        onRowsDeleted(partition, total);
+    }
+
+    /**
+     * Deleted rows are accounted with the average row size of the partition.
+     */
+    private void onRowsDeleted(PsqlPartition partition, long rows) {
+        if (rows <= 0) {
+            return;
+        }
+        long[] stats = getPartitionStats(partition);
+        reclaimedRows.addAndGet(rows);
+        if (stats[1] > 0) {
+            reclaimedBytes.addAndGet(stats[0] / stats[1] * rows);
+        }
+        log.debug("Deleted {} expired timeseries rows from [{}]", rows, partition.getTableName());
+    }
+
+    private boolean isEmpty(PsqlPartition partition) {
+        return !jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition.getTableName() + ")", Boolean.class);
+    }
+
+    private long[] getPartitionStats(PsqlPartition partition) {
+        List<long[]> stats = jdbcTemplate.query(SELECT_PARTITION_STATS, (rs, rowNum) -> new long[]{rs.getLong(1), Math.max(0, rs.getLong(2))},
+                partition.getTableName());
+        return stats.isEmpty() ? new long[]{0, 0} : stats.get(0);
+    }
+
+    @Scheduled(fixedDelayString = "${sql.ttl.ts.stats_print_interval_ms:60000}")
+    public void printStats() {
+        if (!enabled) {
+            return;
+        }
+        int partitions = removedPartitions.getAndSet(0);
+        long rows = reclaimedRows.getAndSet(0);
+        long bytes = reclaimedBytes.getAndSet(0);
+        if (partitions > 0 || rows > 0) {
+            log.info("Timeseries retention stats: removedPartitions [{}] reclaimedRows [{}] reclaimedBytes [{}] customTtlEntities [{}]",
+                    partitions, rows, bytes, entityTtls.size());
+        }
+    }
+}
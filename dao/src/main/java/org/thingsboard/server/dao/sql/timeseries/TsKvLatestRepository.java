@@ -21,10 +21,15 @@ import org.thingsboard.server.dao.model.sql.TsKvLatestCompositeKey;
 import org.thingsboard.server.dao.model.sql.TsKvLatestEntity;
 import org.thingsboard.server.dao.util.SqlDao;
 
+import java.util.Collection;
 import java.util.List;
 
 @SqlDao
 public interface TsKvLatestRepository extends CrudRepository<TsKvLatestEntity, TsKvLatestCompositeKey> {
 
     List<TsKvLatestEntity> findAllByEntityTypeAndEntityId(EntityType entityType, String entityId);
+
+    List<TsKvLatestEntity> findAllByEntityTypeAndEntityIdIn(EntityType entityType, Collection<String> entityIds);
+
+    List<TsKvLatestEntity> findAllByEntityTypeAndEntityIdInAndKeyIn(EntityType entityType, Collection<String> entityIds, Collection<String> keys);
 }
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.timeseries;
 
+import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -38,7 +39,9 @@ import org.thingsboard.server.dao.service.Validator;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -123,6 +126,30 @@ public class BaseTimeseriesService implements TimeseriesService {
         }
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<TsKvEntry>>> findLatest(TenantId tenantId, List<EntityId> entityIds, Collection<String> keys) {
+        entityIds.forEach(entityId -> validate(entityId));
+        keys.forEach(key -> Validator.validateString(key, "Incorrect key " + key));
+        List<EntityId> entityViewIds = new ArrayList<>();
+        List<EntityId> otherIds = new ArrayList<>();
+        entityIds.forEach(entityId -> (entityId.getEntityType().equals(EntityType.ENTITY_VIEW) ? entityViewIds : otherIds).add(entityId));
+        List<ListenableFuture<List<TsKvEntry>>> entityViewFutures = entityViewIds.stream()
+                .map(entityViewId -> keys.isEmpty() ? findAllLatest(tenantId, entityViewId) : findLatest(tenantId, entityViewId, keys))
+                .collect(Collectors.toList());
+        ListenableFuture<Map<EntityId, List<TsKvEntry>>> othersFuture = otherIds.isEmpty() ?
+                Futures.immediateFuture(new HashMap<>()) : timeseriesDao.findLatest(tenantId, otherIds, keys);
+        return Futures.transformAsync(othersFuture, others -> Futures.transform(Futures.allAsList(entityViewFutures), (Function<List<List<TsKvEntry>>, Map<EntityId, List<TsKvEntry>>>) entityViewResults -> {
+            Map<EntityId, List<TsKvEntry>> result = new HashMap<>(others);
+            for (int i = 0; i < entityViewIds.size(); i++) {
+                List<TsKvEntry> entries = entityViewResults.get(i).stream().filter(entry -> entry.getValue() != null).collect(Collectors.toList());
+                if (!entries.isEmpty()) {
+                    result.put(entityViewIds.get(i), entries);
+                }
+            }
+            return result;
+        }));
+    }
+
     @Override
     public ListenableFuture<List<Void>> save(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry) {
         validate(entityId);
@@ -32,6 +32,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -49,6 +50,7 @@ import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.nosql.CassandraAbstractAsyncDao;
+import org.thingsboard.server.dao.nosql.CassandraPartitionBatcher;
 import org.thingsboard.server.dao.util.NoSqlTsDao;
 
 import javax.annotation.Nullable;
@@ -60,10 +62,14 @@ import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
@@ -77,6 +83,8 @@ import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implements TimeseriesDao {
 
     private static final int MIN_AGGREGATION_STEP_MS = 1000;
+    private static final long MAX_TTL = 630720000;
+    private static final int BATCH_ENTRY_OVERHEAD = 32;
     public static final String INSERT_INTO = "INSERT INTO ";
     public static final String GENERATED_QUERY_FOR_ENTITY_TYPE_AND_ENTITY_ID = "Generated query [{}] for entityType {} and entityId {}";
     public static final String SELECT_PREFIX = "SELECT ";
@@ -94,6 +102,28 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
     @Value("${cassandra.query.ts_key_value_ttl}")
     private long systemTtl;
 
+    @Value("${cassandra.query.ts_key_value_partitions_max_cache_size:100000}")
+    private long partitionsCacheSize;
+
+    @Value("${cassandra.query.ts_key_value_partitions_cache_refresh_interval_sec:3600}")
+    private long partitionsCacheRefreshIntervalSec;
+
+    private CassandraTsPartitionsCache partitionsCache;
+
+    @Value("${cassandra.query.ts_key_value_batching.enabled:false}")
+    private boolean batchingEnabled;
+
+    @Value("${cassandra.query.ts_key_value_batching.max_statements:100}")
+    private int batchMaxStatements;
+
+    @Value("${cassandra.query.ts_key_value_batching.max_bytes:5120}")
+    private int batchMaxBytes;
+
+    @Value("${cassandra.query.ts_key_value_batching.linger_ms:5}")
+    private long batchLingerMs;
+
+    private CassandraPartitionBatcher batcher;
+
     private TsPartitionDate tsFormat;
 
     private PreparedStatement partitionInsertStmt;
@@ -124,11 +154,20 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
                 log.warn("Incorrect configuration of partitioning {}", partitioning);
                 throw new RuntimeException("Failed to parse partitioning property: " + partitioning + "!");
             }
+            if (partitionsCacheSize > 0) {
+                partitionsCache = new CassandraTsPartitionsCache(partitionsCacheSize, TimeUnit.SECONDS.toMillis(partitionsCacheRefreshIntervalSec));
+            }
+            if (batchingEnabled) {
+                batcher = new CassandraPartitionBatcher(batchMaxStatements, batchMaxBytes, batchLingerMs, this::executeAsyncWrite);
+            }
         }
     }
 
     @PreDestroy
     public void stop() {
+        if (batcher != null) {
+            batcher.stop();
+        }
         super.stopExecutor();
     }
 
@@ -305,6 +344,29 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
         return getFuture(executeAsyncRead(tenantId, stmt), rs -> convertResultToTsKvEntryList(rs.all()));
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<TsKvEntry>>> findLatest(TenantId tenantId, List<EntityId> entityIds, Collection<String> keys) {
+        List<ListenableFuture<List<TsKvEntry>>> futures = new ArrayList<>(entityIds.size());
+        for (EntityId entityId : entityIds) {
+            if (keys.isEmpty()) {
+                futures.add(findAllLatest(tenantId, entityId));
+            } else {
+                List<ListenableFuture<TsKvEntry>> keyFutures = keys.stream().map(key -> findLatest(tenantId, entityId, key)).collect(Collectors.toList());
+                futures.add(Futures.transform(Futures.allAsList(keyFutures), (Function<List<TsKvEntry>, List<TsKvEntry>>) entries ->
+                        entries.stream().filter(entry -> entry.getValue() != null).collect(Collectors.toList())));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures), (Function<List<List<TsKvEntry>>, Map<EntityId, List<TsKvEntry>>>) results -> {
+            Map<EntityId, List<TsKvEntry>> result = new HashMap<>();
+            for (int i = 0; i < entityIds.size(); i++) {
+                if (!results.get(i).isEmpty()) {
+                    result.put(entityIds.get(i), results.get(i));
+                }
+            }
+            return result;
+        });
+    }
+
     @Override
     public ListenableFuture<Void> save(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
         ttl = computeTtl(ttl);
@@ -320,7 +382,8 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
         if (ttl > 0) {
             stmt.setInt(6, (int) ttl);
         }
-        return getFuture(executeAsyncWrite(tenantId, stmt), rs -> null);
+        CassandraTsBatchKey batchKey = new CassandraTsBatchKey(ModelConstants.TS_KV_CF, entityId.getEntityType(), entityId.getId(), tsKvEntry.getKey(), partition);
+        return executeWrite(tenantId, batchKey, tsKvEntry.getTs(), stmt, estimateSize(tsKvEntry));
     }
 
     @Override
@@ -330,6 +393,31 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
         }
         ttl = computeTtl(ttl);
         long partition = toPartitionTs(tsKvEntryTs);
+        if (partitionsCache == null) {
+            return doSavePartition(tenantId, entityId, key, partition, ttl);
+        }
+        CassandraPartitionCacheKey cacheKey = new CassandraPartitionCacheKey(entityId.getEntityType(), entityId.getId(), key, partition);
+        if (partitionsCache.has(cacheKey, ttl)) {
+            return Futures.immediateFuture(null);
+        }
+        long partitionTtl = ttl == 0 ? 0 : Math.min(ttl + TimeUnit.MILLISECONDS.toSeconds(partitionsCache.getRefreshIntervalMs()), MAX_TTL);
+        ListenableFuture<Void> future = doSavePartition(tenantId, entityId, key, partition, partitionTtl);
+        final long cachedTtl = ttl;
+        Futures.addCallback(future, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+                partitionsCache.put(cacheKey, cachedTtl);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // not cached, so the partition row is written again on the next save
+            }
+        });
+        return future;
+    }
+
+    private ListenableFuture<Void> doSavePartition(TenantId tenantId, EntityId entityId, String key, long partition, long ttl) {
         log.debug("Saving partition {} for the entity [{}-{}] and key {}", partition, entityId.getEntityType(), entityId.getId(), key);
         BoundStatement stmt = (ttl == 0 ? getPartitionInsertStmt() : getPartitionInsertTtlStmt()).bind();
         stmt = stmt.setString(0, entityId.getEntityType().name())
@@ -339,9 +427,47 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
         if (ttl > 0) {
             stmt.setInt(4, (int) ttl);
         }
+        CassandraTsBatchKey batchKey = new CassandraTsBatchKey(ModelConstants.TS_KV_PARTITIONS_CF, entityId.getEntityType(), entityId.getId(), key, 0L);
+        return executeWrite(tenantId, batchKey, partition, stmt, BATCH_ENTRY_OVERHEAD + key.length());
+    }
+
+    private ListenableFuture<Void> executeWrite(TenantId tenantId, CassandraTsBatchKey batchKey, Object rowKey, Statement stmt, int estimatedSize) {
+        if (batcher != null) {
+            return batcher.add(tenantId, batchKey, rowKey, stmt, estimatedSize);
+        }
         return getFuture(executeAsyncWrite(tenantId, stmt), rs -> null);
     }
 
+    private static int estimateSize(TsKvEntry tsKvEntry) {
+        int valueSize = tsKvEntry.getStrValue().map(String::length).orElse(8);
+        return BATCH_ENTRY_OVERHEAD + tsKvEntry.getKey().length() + valueSize;
+    }
+
+    @Scheduled(fixedDelayString = "${cassandra.query.ts_key_value_batching.stats_print_interval_ms:60000}")
+    public void printBatchingStats() {
+        if (batcher == null) {
+            return;
+        }
+        int statements = batcher.getAndResetTotalStatements();
+        int batches = batcher.getAndResetTotalBatches();
+        if (statements > 0) {
+            log.info("Timeseries write batching stats: statements [{}] batches [{}]", statements, batches);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cassandra.query.ts_key_value_partitions_cache_stats_print_interval_ms:60000}")
+    public void printPartitionsCacheStats() {
+        if (partitionsCache == null) {
+            return;
+        }
+        long hits = partitionsCache.getAndResetHits();
+        long misses = partitionsCache.getAndResetMisses();
+        if (hits > 0 || misses > 0) {
+            log.info("Partitions cache stats: size [{}] hits [{}] misses [{}] hitRate [{}%]",
+                    partitionsCache.size(), hits, misses, hits * 100 / (hits + misses));
+        }
+    }
+
     private long computeTtl(long ttl) {
         if (systemTtl > 0) {
             if (ttl == 0) {
@@ -364,7 +490,8 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
                 .set(5, tsKvEntry.getStrValue().orElse(null), String.class)
                 .set(6, tsKvEntry.getLongValue().orElse(null), Long.class)
                 .set(7, tsKvEntry.getDoubleValue().orElse(null), Double.class);
-        return getFuture(executeAsyncWrite(tenantId, stmt), rs -> null);
+        CassandraTsBatchKey batchKey = new CassandraTsBatchKey(ModelConstants.TS_KV_LATEST_CF, entityId.getEntityType(), entityId.getId(), null, 0L);
+        return executeWrite(tenantId, batchKey, tsKvEntry.getKey(), stmt, estimateSize(tsKvEntry));
     }
 
     @Override
@@ -516,6 +643,9 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
         if (minPartition == maxPartition) {
             return Futures.immediateFuture(null);
         } else {
+            if (partitionsCache != null) {
+                partitionsCache.invalidate(entityId, query.getKey(), minPartition, maxPartition);
+            }
             ResultSetFuture partitionsFuture = fetchPartitions(tenantId, entityId, query.getKey(), minPartition, maxPartition);
 
             final SimpleListenableFuture<Void> resultFuture = new SimpleListenableFuture<>();
@@ -541,6 +671,10 @@ public class CassandraBaseTimeseriesDao extends CassandraAbstractAsyncDao implem
                     log.error("[{}][{}] Failed to fetch partitions for interval {}-{}", entityId.getEntityType().name(), entityId.getId(), minPartition, maxPartition, t);
                 }
             }, readResultsProcessingExecutor);
+            if (partitionsCache != null) {
+                resultFuture.addListener(() -> partitionsCache.invalidate(entityId, query.getKey(), minPartition, maxPartition),
+                        readResultsProcessingExecutor);
+            }
             return resultFuture;
         }
     }
@@ -0,0 +1,163 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.Data;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.EntityId;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the ts_kv_partitions_cf rows that were already written.
+ * <p>
+ * Rows written without TTL stay valid until evicted. Rows written with TTL are valid for the refresh interval
+ * or the TTL, whichever is shorter, and only for the saves with the same or shorter TTL. The caller must write
+ * them with a TTL extended by the refresh interval to outlive the data of the partition.
+ */
+public class CassandraTsPartitionsCache {
+
+    private static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    private final Cache<CassandraPartitionCacheKey, CachedPartition> partitions;
+    private final ConcurrentMap<TsKey, Set<Long>> partitionsByKey = new ConcurrentHashMap<>();
+    private final long refreshIntervalMs;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CassandraTsPartitionsCache(long maxSize, long refreshIntervalMs) {
+        this.partitions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .executor(Runnable::run)
+                .removalListener((CassandraPartitionCacheKey key, CachedPartition value, RemovalCause cause) -> {
+                    if (cause != RemovalCause.REPLACED) {
+                        removeFromIndex(key);
+                    }
+                })
+                .build();
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    public long getRefreshIntervalMs() {
+        return refreshIntervalMs;
+    }
+
+    /**
+     * @return true if the partition row was written without TTL, or with the same or longer TTL less than
+     * the refresh interval (or that TTL, if shorter) ago, and does not need to be written again.
+     */
+    public boolean has(CassandraPartitionCacheKey key, long ttl) {
+        return has(key, ttl, System.currentTimeMillis());
+    }
+
+    boolean has(CassandraPartitionCacheKey key, long ttl, long now) {
+        CachedPartition cached = partitions.getIfPresent(key);
+        boolean hit = cached != null && (cached.ttl == 0 || (ttl != 0 && cached.ttl >= ttl && now < cached.expirationTs));
+        if (hit) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return hit;
+    }
+
+    public void put(CassandraPartitionCacheKey key, long ttl) {
+        put(key, ttl, System.currentTimeMillis());
+    }
+
+    void put(CassandraPartitionCacheKey key, long ttl, long now) {
+        long expirationTs = ttl == 0 ? NO_EXPIRATION : now + Math.min(refreshIntervalMs, TimeUnit.SECONDS.toMillis(ttl));
+        partitions.put(key, new CachedPartition(ttl, expirationTs));
+        partitionsByKey.compute(new TsKey(key), (k, keyPartitions) -> {
+            if (keyPartitions == null) {
+                keyPartitions = ConcurrentHashMap.newKeySet();
+            }
+            keyPartitions.add(key.getPartition());
+            return keyPartitions;
+        });
+    }
+
+    public void invalidate(EntityId entityId, String key, long minPartition, long maxPartition) {
+        Set<Long> keyPartitions = partitionsByKey.get(new TsKey(entityId.getEntityType(), entityId.getId(), key));
+        if (keyPartitions != null) {
+            for (Long partition : keyPartitions) {
+                if (partition >= minPartition && partition <= maxPartition) {
+                    partitions.invalidate(new CassandraPartitionCacheKey(entityId.getEntityType(), entityId.getId(), key, partition));
+                }
+            }
+        }
+    }
+
+    /**
+     * The partition stays in the index if it was put again after the removal.
+     */
+    private void removeFromIndex(CassandraPartitionCacheKey key) {
+        partitionsByKey.computeIfPresent(new TsKey(key), (k, keyPartitions) -> {
+            if (partitions.getIfPresent(key) == null) {
+                keyPartitions.remove(key.getPartition());
+            }
+            return keyPartitions.isEmpty() ? null : keyPartitions;
+        });
+    }
+
+    public long size() {
+        return partitions.estimatedSize();
+    }
+
+    public long getAndResetHits() {
+        return hits.getAndSet(0);
+    }
+
+    public long getAndResetMisses() {
+        return misses.getAndSet(0);
+    }
+
+    private static final class CachedPartition {
+        private final long ttl;
+        private final long expirationTs;
+
+        private CachedPartition(long ttl, long expirationTs) {
+            this.ttl = ttl;
+            this.expirationTs = expirationTs;
+        }
+    }
+
+    @Data
+    private static final class TsKey {
+        private final EntityType entityType;
+        private final UUID entityId;
+        private final String key;
+
+        private TsKey(EntityType entityType, UUID entityId, String key) {
+            this.entityType = entityType;
+            this.entityId = entityId;
+            this.key = key;
+        }
+
+        private TsKey(CassandraPartitionCacheKey partitionKey) {
+            this(partitionKey.getEntityType(), partitionKey.getEntityId(), partitionKey.getKey());
+        }
+    }
+}
@@ -22,7 +22,9 @@ import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Andrew Shvayka
@@ -35,6 +37,12 @@ public interface TimeseriesDao {
 
     ListenableFuture<List<TsKvEntry>> findAllLatest(TenantId tenantId, EntityId entityId);
 
+    /**
+     * Finds latest values of multiple entities. Returns all latest values if the keys are empty.
+     * Keys without values are omitted from the result.
+     */
+    ListenableFuture<Map<EntityId, List<TsKvEntry>>> findLatest(TenantId tenantId, List<EntityId> entityIds, Collection<String> keys);
+
     ListenableFuture<Void> save(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry, long ttl);
 
     ListenableFuture<Void> savePartition(TenantId tenantId, EntityId entityId, long tsKvEntryTs, String key, long ttl);
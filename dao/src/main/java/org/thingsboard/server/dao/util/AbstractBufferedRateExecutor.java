@@ -20,29 +20,43 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.tools.TbRateLimits;
 import org.thingsboard.server.dao.nosql.CassandraStatementTask;
 
 import javax.annotation.Nullable;
-import java.util.UUID;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by ashvayka on 24.10.18.
+ * <p>
+ * Tasks are queued per tenant in lock-free queues and dispatched round robin over the tenants with pending tasks,
+ * so a single tenant can not starve the others. Dispatcher threads block on semaphores for both queued tasks and
+ * concurrency permits instead of polling, and execution timeouts are tracked by a hashed wheel timer. Timed out tasks are
+ * cancelled and completed on the callback executor, so the timer thread never runs the callbacks of the callers.
  */
 @Slf4j
 public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extends ListenableFuture<V>, V> implements BufferedRateExecutor<T, F> {
 
     private final long maxWaitTime;
-    private final long pollMs;
-    private final BlockingQueue<AsyncTaskContext<T, V>> queue;
+    private final int queueLimit;
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final ConcurrentMap<TenantId, TenantQueue<T, V>> tenantQueues = new ConcurrentHashMap<>();
+    private final BlockingQueue<TenantQueue<T, V>> readyTenants = new LinkedBlockingQueue<>();
+    private final Semaphore queuedTasks = new Semaphore(0);
+    private final Semaphore permits;
+    private final AtomicLong taskIdSeq = new AtomicLong();
     private final ExecutorService dispatcherExecutor;
     private final ExecutorService callbackExecutor;
-    private final ScheduledExecutorService timeoutExecutor;
-    private final int concurrencyLimit;
+    private final Timer timeoutTimer;
     private final boolean perTenantLimitsEnabled;
     private final String perTenantLimitsConfiguration;
     private final ConcurrentMap<TenantId, TbRateLimits> perTenantLimits = new ConcurrentHashMap<>();
@@ -57,15 +71,18 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     protected final AtomicInteger totalRejected = new AtomicInteger();
     protected final AtomicInteger totalRateLimited = new AtomicInteger();
 
-    public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads, int callbackThreads, long pollMs,
+    public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads, int callbackThreads, long timeoutTickMs,
                                         boolean perTenantLimitsEnabled, String perTenantLimitsConfiguration) {
         this.maxWaitTime = maxWaitTime;
-        this.pollMs = pollMs;
-        this.concurrencyLimit = concurrencyLimit;
-        this.queue = new LinkedBlockingDeque<>(queueLimit);
+        this.queueLimit = queueLimit;
+        this.permits = new Semaphore(concurrencyLimit);
         this.dispatcherExecutor = Executors.newFixedThreadPool(dispatcherThreads);
         this.callbackExecutor = Executors.newWorkStealingPool(callbackThreads);
-        this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.timeoutTimer = new HashedWheelTimer(r -> {
+            Thread thread = new Thread(r, "buffered-rate-executor-timeout");
+            thread.setDaemon(true);
+            return thread;
+        }, timeoutTickMs, TimeUnit.MILLISECONDS);
         this.perTenantLimitsEnabled = perTenantLimitsEnabled;
         this.perTenantLimitsConfiguration = perTenantLimitsConfiguration;
         for (int i = 0; i < dispatcherThreads; i++) {
@@ -77,29 +94,33 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     public F submit(T task) {
         SettableFuture<V> settableFuture = create();
         F result = wrap(task, settableFuture);
-        boolean perTenantLimitReached = false;
+        TenantId tenantId = task.getTenantId();
         if (perTenantLimitsEnabled) {
-            if (task.getTenantId() == null) {
+            if (tenantId == null) {
                 log.info("Invalid task received: {}", task);
-            } else if (!task.getTenantId().isNullUid()) {
-                TbRateLimits rateLimits = perTenantLimits.computeIfAbsent(task.getTenantId(), id -> new TbRateLimits(perTenantLimitsConfiguration));
+            } else if (!tenantId.isNullUid()) {
+                TbRateLimits rateLimits = perTenantLimits.computeIfAbsent(tenantId, id -> new TbRateLimits(perTenantLimitsConfiguration));
                 if (!rateLimits.tryConsume()) {
-                    rateLimitedTenants.computeIfAbsent(task.getTenantId(), tId -> new AtomicInteger(0)).incrementAndGet();
+                    rateLimitedTenants.computeIfAbsent(tenantId, tId -> new AtomicInteger(0)).incrementAndGet();
                     totalRateLimited.incrementAndGet();
                     settableFuture.setException(new TenantRateLimitException());
-                    perTenantLimitReached = true;
+                    return result;
                 }
             }
         }
-        if (!perTenantLimitReached) {
-            try {
-                totalAdded.incrementAndGet();
-                queue.add(new AsyncTaskContext<>(UUID.randomUUID(), task, settableFuture, System.currentTimeMillis()));
-            } catch (IllegalStateException e) {
-                totalRejected.incrementAndGet();
-                settableFuture.setException(e);
-            }
+        if (queueSize.incrementAndGet() > queueLimit) {
+            queueSize.decrementAndGet();
+            totalRejected.incrementAndGet();
+            settableFuture.setException(new IllegalStateException("Queue full"));
+            return result;
+        }
+        totalAdded.incrementAndGet();
+        TenantQueue<T, V> tenantQueue = tenantQueues.computeIfAbsent(tenantId != null ? tenantId : TenantId.SYS_TENANT_ID, id -> new TenantQueue<>());
+        tenantQueue.tasks.offer(new AsyncTaskContext<>(taskIdSeq.incrementAndGet(), task, settableFuture, System.currentTimeMillis()));
+        if (tenantQueue.scheduled.compareAndSet(false, true)) {
+            readyTenants.offer(tenantQueue);
         }
+        queuedTasks.release();
         return result;
     }
 
@@ -110,8 +131,8 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         if (callbackExecutor != null) {
             callbackExecutor.shutdownNow();
         }
-        if (timeoutExecutor != null) {
-            timeoutExecutor.shutdownNow();
+        if (timeoutTimer != null) {
+            timeoutTimer.stop();
         }
     }
 
@@ -124,49 +145,63 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private void dispatch() {
         log.info("Buffered rate executor thread started");
         while (!Thread.interrupted()) {
-            int curLvl = concurrencyLevel.get();
             AsyncTaskContext<T, V> taskCtx = null;
             try {
-                if (curLvl <= concurrencyLimit) {
-                    taskCtx = queue.take();
-                    final AsyncTaskContext<T, V> finalTaskCtx = taskCtx;
-                    logTask("Processing", finalTaskCtx);
-                    concurrencyLevel.incrementAndGet();
-                    long timeout = finalTaskCtx.getCreateTime() + maxWaitTime - System.currentTimeMillis();
-                    if (timeout > 0) {
-                        totalLaunched.incrementAndGet();
-                        ListenableFuture<V> result = execute(finalTaskCtx);
-                        result = Futures.withTimeout(result, timeout, TimeUnit.MILLISECONDS, timeoutExecutor);
-                        Futures.addCallback(result, new FutureCallback<V>() {
-                            @Override
-                            public void onSuccess(@Nullable V result) {
+                queuedTasks.acquire();
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    queuedTasks.release();
+                    throw e;
+                }
+                taskCtx = pollNextTask();
+                queueSize.decrementAndGet();
+                concurrencyLevel.incrementAndGet();
+                final AsyncTaskContext<T, V> finalTaskCtx = taskCtx;
+                logTask("Processing", finalTaskCtx);
+                long timeout = finalTaskCtx.getCreateTime() + maxWaitTime - System.currentTimeMillis();
+                if (timeout > 0) {
+                    totalLaunched.incrementAndGet();
+                    ListenableFuture<V> result = execute(finalTaskCtx);
+                    AtomicBoolean completed = new AtomicBoolean();
+                    Timeout timer = timeoutTimer.newTimeout(t -> callbackExecutor.execute(() -> {
+                        if (completed.compareAndSet(false, true)) {
+                            logTask("Expired During Execution", finalTaskCtx);
+                            totalFailed.incrementAndGet();
+                            release();
+                            result.cancel(true);
+                            finalTaskCtx.getFuture().setException(new TimeoutException());
+                        }
+                    }), timeout, TimeUnit.MILLISECONDS);
+                    Futures.addCallback(result, new FutureCallback<V>() {
+                        @Override
+                        public void onSuccess(@Nullable V result) {
+                            if (completed.compareAndSet(false, true)) {
+                                timer.cancel();
                                 logTask("Releasing", finalTaskCtx);
                                 totalReleased.incrementAndGet();
-                                concurrencyLevel.decrementAndGet();
+                                release();
                                 finalTaskCtx.getFuture().set(result);
                             }
+                        }
 
-                            @Override
-                            public void onFailure(Throwable t) {
-                                if (t instanceof TimeoutException) {
-                                    logTask("Expired During Execution", finalTaskCtx);
-                                } else {
-                                    logTask("Failed", finalTaskCtx);
-                                }
+                        @Override
+                        public void onFailure(Throwable t) {
+                            if (completed.compareAndSet(false, true)) {
+                                timer.cancel();
+                                logTask("Failed", finalTaskCtx);
                                 totalFailed.incrementAndGet();
-                                concurrencyLevel.decrementAndGet();
+                                release();
                                 finalTaskCtx.getFuture().setException(t);
                                 log.debug("[{}] Failed to execute task: {}", finalTaskCtx.getId(), finalTaskCtx.getTask(), t);
                             }
-                        }, callbackExecutor);
-                    } else {
-                        logTask("Expired Before Execution", finalTaskCtx);
-                        totalExpired.incrementAndGet();
-                        concurrencyLevel.decrementAndGet();
-                        taskCtx.getFuture().setException(new TimeoutException());
-                    }
+                        }
+                    }, callbackExecutor);
                 } else {
-                    Thread.sleep(pollMs);
+                    logTask("Expired Before Execution", finalTaskCtx);
+                    totalExpired.incrementAndGet();
+                    release();
+                    taskCtx.getFuture().setException(new TimeoutException());
                 }
             } catch (InterruptedException e) {
                 break;
@@ -174,7 +209,8 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                 if (taskCtx != null) {
                     log.debug("[{}] Failed to execute task: {}", taskCtx.getId(), taskCtx, e);
                     totalFailed.incrementAndGet();
-                    concurrencyLevel.decrementAndGet();
+                    release();
+                    taskCtx.getFuture().setException(e);
                 } else {
                     log.debug("Failed to queue task:", e);
                 }
@@ -183,6 +219,46 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         log.info("Buffered rate executor thread stopped");
     }
 
+    /**
+     * Takes the next task of the first ready tenant and puts the tenant back to the end of the ready queue
+     * if it has more tasks. Called only after a queued task was acquired, so the task is there. The ready queue may still
+     * be empty while another dispatcher has not yet put the tenant back, so the thread blocks until it does.
+     */
+    private AsyncTaskContext<T, V> pollNextTask() throws InterruptedException {
+        while (true) {
+            TenantQueue<T, V> tenantQueue = readyTenants.take();
+            AsyncTaskContext<T, V> taskCtx = tenantQueue.tasks.poll();
+            if (!tenantQueue.tasks.isEmpty()) {
+                readyTenants.offer(tenantQueue);
+            } else {
+                tenantQueue.scheduled.set(false);
+                if (!tenantQueue.tasks.isEmpty() && tenantQueue.scheduled.compareAndSet(false, true)) {
+                    readyTenants.offer(tenantQueue);
+                }
+            }
+            if (taskCtx != null) {
+                return taskCtx;
+            }
+        }
+    }
+
+    /**
+     * Removes the queues of the tenants without pending tasks. A task submitted concurrently to a removed queue is still
+     * dispatched, because the queue is put to the ready queue by the submitter; the next submit creates a new queue.
+     */
+    protected void evictIdleTenantQueues() {
+        tenantQueues.values().removeIf(tenantQueue -> !tenantQueue.scheduled.get() && tenantQueue.tasks.isEmpty());
+    }
+
+    protected int getTenantQueuesCount() {
+        return tenantQueues.size();
+    }
+
+    private void release() {
+        concurrencyLevel.decrementAndGet();
+        permits.release();
+    }
+
     private void logTask(String action, AsyncTaskContext<T, V> taskCtx) {
         if (log.isTraceEnabled()) {
             if (taskCtx.getTask() instanceof CassandraStatementTask) {
@@ -219,6 +295,11 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     }
 
     protected int getQueueSize() {
-        return queue.size();
+        return queueSize.get();
+    }
+
+    private static final class TenantQueue<T extends AsyncTask, V> {
+        private final Queue<AsyncTaskContext<T, V>> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
     }
 }
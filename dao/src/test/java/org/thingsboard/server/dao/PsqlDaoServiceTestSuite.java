@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao;
+
+import org.junit.Assume;
+import org.junit.ClassRule;
+import org.junit.extensions.cpsuite.ClasspathSuite;
+import org.junit.extensions.cpsuite.ClasspathSuite.ClassnameFilters;
+import org.junit.rules.ExternalResource;
+import org.junit.rules.RuleChain;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Runs the PostgreSQL specific service tests against the database configured in psql-test.properties.
+ * The suite is skipped if the database is not reachable, unless the psql-tests profile is active,
+ * in which case the unreachable database fails the run.
+ */
+@RunWith(ClasspathSuite.class)
+@ClassnameFilters({
+        "org.thingsboard.server.dao.service.*ServicePsqlTest"
+})
+public class PsqlDaoServiceTestSuite {
+
+    private static final String PROPERTIES_FILE = "psql-test.properties";
+    private static final String REQUIRED_PROPERTY = "psql.tests.required";
+
+    @ClassRule
+    public static RuleChain sqlUnit = RuleChain
+            .outerRule(new ExternalResource() {
+                @Override
+                protected void before() {
+                    boolean available = isDatabaseAvailable();
+                    if (!available && Boolean.getBoolean(REQUIRED_PROPERTY)) {
+                        throw new IllegalStateException("PostgreSQL configured in " + PROPERTIES_FILE + " is not available");
+                    }
+                    Assume.assumeTrue("PostgreSQL is not available, skipping", available);
+                }
+            })
+            .around(new CustomSqlUnit(
+                    Arrays.asList("sql/schema-ts-psql.sql", "sql/schema-entities.sql", "sql/system-data.sql", "sql/system-test.sql"),
+                    "sql/psql/drop-all-tables.sql",
+                    PROPERTIES_FILE
+            ));
+
+    private static boolean isDatabaseAvailable() {
+        Properties properties = new Properties();
+        try (InputStream stream = PsqlDaoServiceTestSuite.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE)) {
+            properties.load(stream);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        try (Connection ignored = DriverManager.getConnection(properties.getProperty("spring.datasource.url"),
+                properties.getProperty("spring.datasource.username"), properties.getProperty("spring.datasource.password"))) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.audit;
+
+import com.datastax.driver.core.utils.UUIDs;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.audit.ActionType;
+import org.thingsboard.server.common.data.audit.AuditLog;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+import org.thingsboard.server.dao.audit.sink.AuditLogSink;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuditLogServiceImplTest {
+
+    @Mock
+    private AuditLogDao auditLogDao;
+    @Mock
+    private AuditLogLevelFilter auditLogLevelFilter;
+    @Mock
+    private AuditLogSink auditLogSink;
+
+    private final List<SettableFuture<Void>> batchFutures = new CopyOnWriteArrayList<>();
+    private AuditLogServiceImpl auditLogService;
+    private Device device;
+
+    @Before
+    public void before() {
+        when(auditLogLevelFilter.logEnabled(any(EntityType.class), any(ActionType.class))).thenReturn(true);
+        when(auditLogDao.saveAll(anyListOf(AuditLog.class))).thenAnswer(invocation -> {
+            SettableFuture<Void> future = SettableFuture.create();
+            batchFutures.add(future);
+            return future;
+        });
+
+        auditLogService = new AuditLogServiceImpl();
+        ReflectionTestUtils.setField(auditLogService, "auditLogDao", auditLogDao);
+        ReflectionTestUtils.setField(auditLogService, "auditLogLevelFilter", auditLogLevelFilter);
+        ReflectionTestUtils.setField(auditLogService, "auditLogSink", auditLogSink);
+        ReflectionTestUtils.setField(auditLogService, "queueMaxSize", 2);
+        ReflectionTestUtils.setField(auditLogService, "queueBatchSize", 100);
+        auditLogService.init();
+
+        device = new Device(new DeviceId(UUIDs.timeBased()));
+        device.setTenantId(new TenantId(UUIDs.timeBased()));
+        device.setName("Device");
+        device.setType("default");
+    }
+
+    @After
+    public void after() {
+        auditLogService.stop();
+    }
+
+    @Test
+    public void testEntriesAreCoalescedWhileBatchIsWrittenAndDroppedWhenQueueIsFull() throws Exception {
+        ListenableFuture<List<Void>> first = logAction();
+        verify(auditLogDao, timeout(5000)).saveAll(anyListOf(AuditLog.class));
+
+        // The writer waits for the first batch, so the next entries fill the queue
+        ListenableFuture<List<Void>> second = logAction();
+        ListenableFuture<List<Void>> third = logAction();
+        ListenableFuture<List<Void>> dropped = logAction();
+        assertTrue(dropped.isDone());
+        try {
+            dropped.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, ((AtomicInteger) ReflectionTestUtils.getField(auditLogService, "totalDropped")).get());
+
+        batchFutures.get(0).set(null);
+        first.get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(auditLogDao, timeout(5000).times(2)).saveAll(batches.capture());
+        assertEquals(1, batches.getAllValues().get(0).size());
+        assertEquals(2, batches.getAllValues().get(1).size());
+
+        batchFutures.get(1).set(null);
+        second.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+        verify(auditLogSink, times(4)).logAction(any(AuditLog.class));
+    }
+
+    @Test
+    public void testFailedBatchFailsItsEntriesOnly() throws Exception {
+        ListenableFuture<List<Void>> failed = logAction();
+        verify(auditLogDao, timeout(5000)).saveAll(anyListOf(AuditLog.class));
+        batchFutures.get(0).setException(new RuntimeException("Write failed"));
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("Write failed", e.getCause().getMessage());
+        }
+
+        ListenableFuture<List<Void>> next = logAction();
+        verify(auditLogDao, timeout(5000).times(2)).saveAll(anyListOf(AuditLog.class));
+        batchFutures.get(1).set(null);
+        next.get(5, TimeUnit.SECONDS);
+    }
+
+    private ListenableFuture<List<Void>> logAction() {
+        return auditLogService.logEntityAction(device.getTenantId(), new CustomerId(UUIDs.timeBased()), new UserId(UUIDs.timeBased()),
+                "tenant@thingsboard.org", device.getId(), device, ActionType.UPDATED, null);
+    }
+}
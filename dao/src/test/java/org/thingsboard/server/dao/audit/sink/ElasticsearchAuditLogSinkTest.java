@@ -0,0 +1,192 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.audit.sink;
+
+import com.datastax.driver.core.utils.UUIDs;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.audit.ActionStatus;
+import org.thingsboard.server.common.data.audit.ActionType;
+import org.thingsboard.server.common.data.audit.AuditLog;
+import org.thingsboard.server.common.data.id.AuditLogId;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ElasticsearchAuditLogSinkTest {
+
+    private static final String OK_RESPONSE = "{\"errors\":false,\"items\":[]}";
+
+    private final TenantId tenantId = new TenantId(UUIDs.timeBased());
+    private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+    private final Queue<String> responses = new ConcurrentLinkedQueue<>();
+
+    private HttpServer server;
+    private ElasticsearchAuditLogSink sink;
+
+    @Before
+    public void before() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/_bulk", exchange -> {
+            requests.add(new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8));
+            String response = responses.poll();
+            byte[] body = (response != null ? response : OK_RESPONSE).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void after() {
+        if (sink != null) {
+            sink.stop();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    public void recordsAreSentInSingleBulkRequestWhenBatchIsFull() throws Exception {
+        sink = newSink(3, 60000);
+        for (int i = 0; i < 3; i++) {
+            sink.logAction(newAuditLog());
+        }
+        String request = requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        String[] lines = request.split("\n");
+        assertEquals(6, lines.length);
+        String expectedIndex = (tenantId.getId() + "_audit_log").toLowerCase();
+        assertTrue(lines[0].contains("\"_index\":\"" + expectedIndex + "\""));
+        assertTrue(lines[1].contains("\"tenantId\":\"" + tenantId.getId() + "\""));
+        assertNull(requests.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void recordsAreSentAfterFlushInterval() throws Exception {
+        sink = newSink(100, 50);
+        sink.logAction(newAuditLog());
+        String request = requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals(2, request.split("\n").length);
+        assertNull(requests.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void retryableFailuresAreSentAgain() throws Exception {
+        responses.add("{\"errors\":true,\"items\":[" +
+                "{\"index\":{\"status\":201}}," +
+                "{\"index\":{\"status\":429,\"error\":{\"type\":\"es_rejected_execution_exception\"}}}," +
+                "{\"index\":{\"status\":400,\"error\":{\"type\":\"mapper_parsing_exception\"}}}]}");
+        sink = newSink(3, 50);
+        List<AuditLog> auditLogs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AuditLog auditLog = newAuditLog();
+            auditLogs.add(auditLog);
+            sink.logAction(auditLog);
+        }
+        assertNotNull(requests.poll(5, TimeUnit.SECONDS));
+        String retry = requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(retry);
+        String[] lines = retry.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains(auditLogs.get(1).getId().getId().toString()));
+        assertNull(requests.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void queuedRecordsAreSentOnStop() throws Exception {
+        sink = newSink(100, 60000);
+        sink.logAction(newAuditLog());
+        sink.logAction(newAuditLog());
+        sink.stop();
+        sink = null;
+        String request = requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals(4, request.split("\n").length);
+    }
+
+    @Test
+    public void indexNameFollowsHourlyDateFormat() {
+        sink = newSink(100, 60000);
+        ReflectionTestUtils.setField(sink, "indexPattern", "@{TENANT}_AUDIT_LOG_@{DATE}");
+        ReflectionTestUtils.setField(sink, "dateFormatter", DateTimeFormatter.ofPattern("yyyy.MM.dd.HH"));
+        LocalDateTime time = LocalDateTime.of(2019, 6, 1, 10, 30);
+        String prefix = (tenantId.getId() + "_audit_log_").toLowerCase();
+        assertEquals(prefix + "2019.06.01.10", sink.getIndexName(tenantId, time));
+        assertEquals(prefix + "2019.06.01.10", sink.getIndexName(tenantId, time.plusMinutes(20)));
+        assertEquals(prefix + "2019.06.01.11", sink.getIndexName(tenantId, time.plusHours(1)));
+    }
+
+    private ElasticsearchAuditLogSink newSink(int batchSize, long flushIntervalMs) {
+        ElasticsearchAuditLogSink sink = new ElasticsearchAuditLogSink();
+        ReflectionTestUtils.setField(sink, "indexPattern", "@{TENANT}_AUDIT_LOG");
+        ReflectionTestUtils.setField(sink, "schemeName", "http");
+        ReflectionTestUtils.setField(sink, "host", "localhost");
+        ReflectionTestUtils.setField(sink, "port", server.getAddress().getPort());
+        ReflectionTestUtils.setField(sink, "userName", "");
+        ReflectionTestUtils.setField(sink, "password", "");
+        ReflectionTestUtils.setField(sink, "dateFormat", "yyyy.MM.dd");
+        ReflectionTestUtils.setField(sink, "queueSize", 100);
+        ReflectionTestUtils.setField(sink, "batchSize", batchSize);
+        ReflectionTestUtils.setField(sink, "flushIntervalMs", flushIntervalMs);
+        ReflectionTestUtils.setField(sink, "maxConcurrentRequests", 2);
+        ReflectionTestUtils.setField(sink, "maxRetries", 3);
+        ReflectionTestUtils.setField(sink, "shutdownTimeoutMs", 5000L);
+        sink.init();
+        return sink;
+    }
+
+    private AuditLog newAuditLog() {
+        AuditLog auditLog = new AuditLog();
+        auditLog.setId(new AuditLogId(UUIDs.timeBased()));
+        auditLog.setTenantId(tenantId);
+        auditLog.setCustomerId(new CustomerId(CustomerId.NULL_UUID));
+        auditLog.setEntityId(new DeviceId(UUIDs.timeBased()));
+        auditLog.setEntityName("Device");
+        auditLog.setUserId(new UserId(UUIDs.timeBased()));
+        auditLog.setUserName("tenant@thingsboard.org");
+        auditLog.setActionType(ActionType.ADDED);
+        auditLog.setActionStatus(ActionStatus.SUCCESS);
+        auditLog.setActionFailureDetails("");
+        return auditLog;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.entity;
+
+import com.datastax.driver.core.utils.UUIDs;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityOwnership;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.dao.device.DeviceService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+import static org.thingsboard.server.common.data.CacheConstants.ENTITY_OWNERSHIP_CACHE;
+import static org.thingsboard.server.dao.model.ModelConstants.NULL_UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BaseEntityServiceTest {
+
+    @Mock
+    private DeviceService deviceService;
+
+    private EntityOwnershipCache entityOwnershipCache;
+    private BaseEntityService entityService;
+
+    private final TenantId tenantId = new TenantId(UUIDs.timeBased());
+    private final DeviceId deviceId = new DeviceId(UUIDs.timeBased());
+    private final CustomerId customerId = new CustomerId(UUIDs.timeBased());
+
+    @Before
+    public void before() {
+        entityOwnershipCache = new EntityOwnershipCache();
+        ReflectionTestUtils.setField(entityOwnershipCache, "cacheManager", new ConcurrentMapCacheManager(ENTITY_OWNERSHIP_CACHE));
+        entityOwnershipCache.init();
+
+        entityService = new BaseEntityService();
+        ReflectionTestUtils.setField(entityService, "deviceService", deviceService);
+        ReflectionTestUtils.setField(entityService, "entityOwnershipCache", entityOwnershipCache);
+    }
+
+    @Test
+    public void loadedOwnershipIsCached() throws Exception {
+        when(deviceService.findDeviceByIdAsync(tenantId, deviceId)).thenReturn(Futures.immediateFuture(device(customerId)));
+
+        EntityOwnership ownership = entityService.fetchEntityOwnershipAsync(tenantId, deviceId).get();
+
+        assertEquals(customerId, ownership.getCustomerId());
+        assertEquals(ownership, entityOwnershipCache.get(deviceId));
+    }
+
+    @Test
+    public void ownershipLoadedBeforeUnassignIsNotCached() throws Exception {
+        SettableFuture<Device> loading = SettableFuture.create();
+        when(deviceService.findDeviceByIdAsync(tenantId, deviceId)).thenReturn(loading);
+        ListenableFuture<EntityOwnership> future = entityService.fetchEntityOwnershipAsync(tenantId, deviceId);
+
+        // the device is unassigned from the customer while the old owner is being loaded
+        entityOwnershipCache.evict(deviceId);
+        loading.set(device(customerId));
+
+        assertEquals(customerId, future.get().getCustomerId());
+        assertNull(entityOwnershipCache.get(deviceId));
+
+        when(deviceService.findDeviceByIdAsync(tenantId, deviceId)).thenReturn(Futures.immediateFuture(device(new CustomerId(NULL_UUID))));
+        assertEquals(NULL_UUID, entityService.fetchEntityOwnershipAsync(tenantId, deviceId).get().getCustomerId().getId());
+        assertEquals(NULL_UUID, entityOwnershipCache.get(deviceId).getCustomerId().getId());
+    }
+
+    @Test
+    public void ownershipsLoadedInBatchBeforeUnassignAreNotCached() throws Exception {
+        SettableFuture<List<Device>> loading = SettableFuture.create();
+        when(deviceService.findDevicesByTenantIdAndIdsAsync(tenantId, Collections.singletonList(deviceId))).thenReturn(loading);
+        ListenableFuture<Map<EntityId, EntityOwnership>> future = entityService.fetchEntityOwnershipsAsync(tenantId, Collections.singletonList(deviceId));
+
+        entityOwnershipCache.evict(deviceId);
+        loading.set(Collections.singletonList(device(customerId)));
+
+        assertEquals(customerId, future.get().get(deviceId).getCustomerId());
+        assertNull(entityOwnershipCache.get(deviceId));
+    }
+
+    private Device device(CustomerId customerId) {
+        Device device = new Device(deviceId);
+        device.setTenantId(tenantId);
+        device.setCustomerId(customerId);
+        return device;
+    }
+}
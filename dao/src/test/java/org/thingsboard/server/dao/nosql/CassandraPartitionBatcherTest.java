@@ -0,0 +1,130 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.nosql;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.After;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CassandraPartitionBatcherTest {
+
+    private static final TenantId TENANT_ID = new TenantId(TenantId.NULL_UUID);
+
+    private final List<Statement> executed = new CopyOnWriteArrayList<>();
+    private final List<SettableFuture<ResultSet>> results = new CopyOnWriteArrayList<>();
+
+    private CassandraPartitionBatcher batcher;
+
+    @After
+    public void after() {
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
+
+    @Test
+    public void statementsOfSamePartitionAreBatchedAfterLinger() throws Exception {
+        batcher = newBatcher(100, 10000, 50);
+        ListenableFuture<Void> f1 = batcher.add(TENANT_ID, "p1", 1L, newStatement(), 10);
+        ListenableFuture<Void> f2 = batcher.add(TENANT_ID, "p1", 2L, newStatement(), 10);
+        ListenableFuture<Void> f3 = batcher.add(TENANT_ID, "p2", 1L, newStatement(), 10);
+        awaitExecuted(2);
+        Statement batch = executed.stream().filter(s -> s instanceof BatchStatement).findFirst().orElseThrow(IllegalStateException::new);
+        assertEquals(2, ((BatchStatement) batch).size());
+        assertFalse(f1.isDone());
+        results.forEach(r -> r.set(null));
+        f1.get(1, TimeUnit.SECONDS);
+        f2.get(1, TimeUnit.SECONDS);
+        f3.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void fullBatchIsExecutedImmediately() {
+        batcher = newBatcher(3, 10000, 60000);
+        for (long i = 0; i < 3; i++) {
+            batcher.add(TENANT_ID, "p1", i, newStatement(), 10);
+        }
+        assertEquals(1, executed.size());
+        assertEquals(3, ((BatchStatement) executed.get(0)).size());
+        batcher.add(TENANT_ID, "p1", 4L, newStatement(), 20000);
+        assertEquals(2, executed.size());
+    }
+
+    @Test
+    public void secondWriteToSameRowStartsNewBatch() {
+        batcher = newBatcher(100, 10000, 60000);
+        batcher.add(TENANT_ID, "p1", 1L, newStatement(), 10);
+        batcher.add(TENANT_ID, "p1", 2L, newStatement(), 10);
+        assertTrue(executed.isEmpty());
+        batcher.add(TENANT_ID, "p1", 1L, newStatement(), 10);
+        assertEquals(1, executed.size());
+        assertEquals(2, ((BatchStatement) executed.get(0)).size());
+    }
+
+    @Test
+    public void batchFailureFailsAllEntries() throws Exception {
+        batcher = newBatcher(2, 10000, 60000);
+        ListenableFuture<Void> f1 = batcher.add(TENANT_ID, "p1", 1L, newStatement(), 10);
+        ListenableFuture<Void> f2 = batcher.add(TENANT_ID, "p1", 2L, newStatement(), 10);
+        results.get(0).setException(new RuntimeException("write timeout"));
+        for (ListenableFuture<Void> future : Arrays.asList(f1, f2)) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertEquals("write timeout", e.getCause().getMessage());
+            }
+        }
+    }
+
+    private CassandraPartitionBatcher newBatcher(int maxStatements, int maxBytes, long lingerMs) {
+        return new CassandraPartitionBatcher(maxStatements, maxBytes, lingerMs, (tenantId, statement) -> {
+            SettableFuture<ResultSet> result = SettableFuture.create();
+            results.add(result);
+            executed.add(statement);
+            return new TbResultSetFuture(result);
+        });
+    }
+
+    private void awaitExecuted(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (executed.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, executed.size());
+    }
+
+    private static Statement newStatement() {
+        return new SimpleStatement("INSERT INTO test (k, v) VALUES (1, 1)");
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.nosql;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CassandraWriteBatchesTest {
+
+    @Test
+    public void batchIsSplitByStatementsCount() {
+        CassandraWriteBatches<String> batches = new CassandraWriteBatches<>(2, 10000);
+        for (int i = 0; i < 5; i++) {
+            batches.add("p1", newStatement(), 10);
+        }
+        List<Statement> statements = collect(batches);
+        assertEquals(3, statements.size());
+        assertEquals(2, ((BatchStatement) statements.get(0)).size());
+        assertEquals(2, ((BatchStatement) statements.get(1)).size());
+        assertFalse(statements.get(2) instanceof BatchStatement);
+    }
+
+    @Test
+    public void batchIsSplitBySize() {
+        CassandraWriteBatches<String> batches = new CassandraWriteBatches<>(100, 1000);
+        for (int i = 0; i < 5; i++) {
+            batches.add("p1", newStatement(), 400);
+        }
+        batches.add("p1", newStatement(), 5000);
+        List<Statement> statements = collect(batches);
+        assertEquals(4, statements.size());
+        assertEquals(2, ((BatchStatement) statements.get(0)).size());
+        assertEquals(2, ((BatchStatement) statements.get(1)).size());
+        assertFalse(statements.get(2) instanceof BatchStatement);
+        assertFalse(statements.get(3) instanceof BatchStatement);
+    }
+
+    @Test
+    public void statementsOfDifferentPartitionsAreNotBatchedTogether() {
+        CassandraWriteBatches<String> batches = new CassandraWriteBatches<>(100, 10000);
+        batches.add("p1", newStatement(), 10);
+        batches.add("p2", newStatement(), 10);
+        batches.add("p1", newStatement(), 10);
+        List<String> keys = new ArrayList<>();
+        List<Statement> statements = new ArrayList<>();
+        batches.forEach((key, statement) -> {
+            keys.add(key);
+            statements.add(statement);
+        });
+        assertEquals(2, statements.size());
+        assertEquals("p1", keys.get(0));
+        assertTrue(statements.get(0) instanceof BatchStatement);
+        assertEquals("p2", keys.get(1));
+        assertFalse(statements.get(1) instanceof BatchStatement);
+    }
+
+    private static List<Statement> collect(CassandraWriteBatches<String> batches) {
+        List<Statement> statements = new ArrayList<>();
+        batches.forEach((key, statement) -> statements.add(statement));
+        return statements;
+    }
+
+    private static Statement newStatement() {
+        return new SimpleStatement("INSERT INTO t (k, v) VALUES (1, 1)");
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.thingsboard.server.common.data.Customer;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityOwnership;
+import org.thingsboard.server.common.data.Tenant;
+import org.thingsboard.server.common.data.asset.Asset;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.dao.entity.EntityService;
+
+import static org.thingsboard.server.common.data.CacheConstants.ENTITY_OWNERSHIP_CACHE;
+import static org.thingsboard.server.dao.model.ModelConstants.NULL_UUID;
+
+public abstract class BaseEntityOwnershipCacheTest extends AbstractServiceTest {
+
+    @Autowired
+    private EntityService entityService;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private TenantId tenantId;
+
+    @Before
+    public void before() {
+        Tenant tenant = new Tenant();
+        tenant.setTitle("My tenant");
+        tenantId = tenantService.saveTenant(tenant).getId();
+    }
+
+    @After
+    public void after() {
+        tenantService.deleteTenant(tenantId);
+        cacheManager.getCache(ENTITY_OWNERSHIP_CACHE).clear();
+    }
+
+    @Test
+    public void testFetchDeviceOwnership_Cached() throws Exception {
+        Device device = new Device();
+        device.setTenantId(tenantId);
+        device.setName("My device");
+        device.setType("default");
+        device = deviceService.saveDevice(device);
+
+        EntityOwnership ownership = entityService.fetchEntityOwnershipAsync(tenantId, device.getId()).get();
+        Assert.assertEquals(tenantId, ownership.getTenantId());
+        Assert.assertEquals(NULL_UUID, ownership.getCustomerId().getId());
+        Assert.assertEquals(ownership, cacheManager.getCache(ENTITY_OWNERSHIP_CACHE).get(device.getId(), EntityOwnership.class));
+    }
+
+    @Test
+    public void testAssignDeviceToCustomer_EvictsCache() throws Exception {
+        Device device = new Device();
+        device.setTenantId(tenantId);
+        device.setName("My device");
+        device.setType("default");
+        device = deviceService.saveDevice(device);
+        entityService.fetchEntityOwnershipAsync(tenantId, device.getId()).get();
+
+        Customer customer = new Customer();
+        customer.setTenantId(tenantId);
+        customer.setTitle("My customer");
+        customer = customerService.saveCustomer(customer);
+        deviceService.assignDeviceToCustomer(tenantId, device.getId(), customer.getId());
+
+        Assert.assertEquals(customer.getId(), entityService.fetchEntityOwnershipAsync(tenantId, device.getId()).get().getCustomerId());
+
+        deviceService.unassignDeviceFromCustomer(tenantId, device.getId());
+
+        Assert.assertEquals(NULL_UUID, entityService.fetchEntityOwnershipAsync(tenantId, device.getId()).get().getCustomerId().getId());
+    }
+
+    @Test
+    public void testDeleteAsset_EvictsCache() throws Exception {
+        Asset asset = new Asset();
+        asset.setTenantId(tenantId);
+        asset.setName("My asset");
+        asset.setType("default");
+        asset = assetService.saveAsset(asset);
+        Assert.assertNotNull(entityService.fetchEntityOwnershipAsync(tenantId, asset.getId()).get());
+
+        assetService.deleteAsset(tenantId, asset.getId());
+
+        Assert.assertNull(entityService.fetchEntityOwnershipAsync(tenantId, asset.getId()).get());
+    }
+}
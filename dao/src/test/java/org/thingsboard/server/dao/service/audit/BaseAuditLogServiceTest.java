@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.audit;
+
+import com.datastax.driver.core.utils.UUIDs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.audit.ActionStatus;
+import org.thingsboard.server.common.data.audit.ActionType;
+import org.thingsboard.server.common.data.audit.AuditLog;
+import org.thingsboard.server.common.data.id.AuditLogId;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+import org.thingsboard.server.common.data.page.TimePageLink;
+import org.thingsboard.server.dao.audit.AuditLogDao;
+import org.thingsboard.server.dao.audit.AuditLogService;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public abstract class BaseAuditLogServiceTest extends AbstractServiceTest {
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private AuditLogDao auditLogDao;
+
+    @Test
+    public void testSaveAll() throws Exception {
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        CustomerId customerId = new CustomerId(UUIDs.timeBased());
+        CustomerId otherCustomerId = new CustomerId(UUIDs.timeBased());
+        UserId userId = new UserId(UUIDs.timeBased());
+        DeviceId deviceA = new DeviceId(UUIDs.timeBased());
+        DeviceId deviceB = new DeviceId(UUIDs.timeBased());
+
+        AuditLog first = createAuditLog(tenantId, deviceA, customerId, userId);
+        AuditLog second = createAuditLog(tenantId, deviceB, customerId, userId);
+        AuditLog third = createAuditLog(tenantId, deviceA, otherCustomerId, userId);
+        auditLogDao.saveAll(Arrays.asList(first, second, third)).get(10, TimeUnit.SECONDS);
+
+        assertAuditLogs(auditLogService.findAuditLogsByTenantId(tenantId, new TimePageLink(10)).getData(), first, second, third);
+        assertAuditLogs(auditLogService.findAuditLogsByTenantIdAndEntityId(tenantId, deviceA, new TimePageLink(10)).getData(), first, third);
+        assertAuditLogs(auditLogService.findAuditLogsByTenantIdAndCustomerId(tenantId, customerId, new TimePageLink(10)).getData(), first, second);
+        assertAuditLogs(auditLogService.findAuditLogsByTenantIdAndUserId(tenantId, userId, new TimePageLink(10)).getData(), first, second, third);
+
+        // The partition of the tenant is already saved, the next batch writes the entries only
+        AuditLog fourth = createAuditLog(tenantId, deviceB, otherCustomerId, userId);
+        auditLogDao.saveAll(Collections.singletonList(fourth)).get(10, TimeUnit.SECONDS);
+        assertAuditLogs(auditLogService.findAuditLogsByTenantId(tenantId, new TimePageLink(10)).getData(), first, second, third, fourth);
+        assertAuditLogs(auditLogService.findAuditLogsByTenantIdAndEntityId(tenantId, deviceB, new TimePageLink(10)).getData(), second, fourth);
+    }
+
+    @Test
+    public void testSaveAllLargerThanBatchLimit() throws Exception {
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        CustomerId customerId = new CustomerId(UUIDs.timeBased());
+        UserId userId = new UserId(UUIDs.timeBased());
+        DeviceId deviceId = new DeviceId(UUIDs.timeBased());
+        ObjectNode actionData = new ObjectMapper().createObjectNode().put("data", StringUtils.repeat('x', 2000));
+
+        List<AuditLog> auditLogs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            AuditLog auditLog = createAuditLog(tenantId, deviceId, customerId, userId);
+            auditLog.setActionData(actionData);
+            auditLogs.add(auditLog);
+        }
+        auditLogDao.saveAll(auditLogs).get(10, TimeUnit.SECONDS);
+
+        AuditLog[] expected = auditLogs.toArray(new AuditLog[0]);
+        assertAuditLogs(auditLogService.findAuditLogsByTenantId(tenantId, new TimePageLink(200)).getData(), expected);
+        assertAuditLogs(auditLogService.findAuditLogsByTenantIdAndEntityId(tenantId, deviceId, new TimePageLink(200)).getData(), expected);
+    }
+
+    @Test
+    public void testLogEntityActionIsPersisted() throws Exception {
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        CustomerId customerId = new CustomerId(UUIDs.timeBased());
+        UserId userId = new UserId(UUIDs.timeBased());
+        Device device = new Device(new DeviceId(UUIDs.timeBased()));
+        device.setTenantId(tenantId);
+        device.setName("Device");
+        device.setType("default");
+
+        for (int i = 0; i < 10; i++) {
+            auditLogService.logEntityAction(tenantId, customerId, userId, "tenant@thingsboard.org", device.getId(), device,
+                    ActionType.UPDATED, null).get(10, TimeUnit.SECONDS);
+        }
+
+        List<AuditLog> auditLogs = auditLogService.findAuditLogsByTenantIdAndEntityId(tenantId, device.getId(), new TimePageLink(20)).getData();
+        Assert.assertEquals(10, auditLogs.size());
+        for (AuditLog auditLog : auditLogs) {
+            Assert.assertEquals(ActionType.UPDATED, auditLog.getActionType());
+            Assert.assertEquals(customerId, auditLog.getCustomerId());
+            Assert.assertEquals("Device", auditLog.getEntityName());
+        }
+    }
+
+    private AuditLog createAuditLog(TenantId tenantId, EntityId entityId, CustomerId customerId, UserId userId) {
+        AuditLog auditLog = new AuditLog();
+        auditLog.setId(new AuditLogId(UUIDs.timeBased()));
+        auditLog.setTenantId(tenantId);
+        auditLog.setCustomerId(customerId);
+        auditLog.setEntityId(entityId);
+        auditLog.setEntityName("Device");
+        auditLog.setUserId(userId);
+        auditLog.setUserName("tenant@thingsboard.org");
+        auditLog.setActionType(ActionType.ADDED);
+        auditLog.setActionStatus(ActionStatus.SUCCESS);
+        auditLog.setActionFailureDetails("");
+        return auditLog;
+    }
+
+    private static void assertAuditLogs(List<AuditLog> found, AuditLog... expected) {
+        Set<AuditLogId> foundIds = found.stream().map(AuditLog::getId).collect(Collectors.toSet());
+        Set<AuditLogId> expectedIds = Arrays.stream(expected).map(AuditLog::getId).collect(Collectors.toSet());
+        Assert.assertEquals(expectedIds, foundIds);
+    }
+}
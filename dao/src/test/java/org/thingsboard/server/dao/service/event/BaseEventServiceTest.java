@@ -16,6 +16,9 @@
 package org.thingsboard.server.dao.service.event;
 
 import com.datastax.driver.core.utils.UUIDs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.Test;
 import org.thingsboard.server.common.data.DataConstants;
@@ -33,6 +36,9 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 public abstract class BaseEventServiceTest extends AbstractServiceTest {
@@ -58,6 +64,63 @@ public abstract class BaseEventServiceTest extends AbstractServiceTest {
         Assert.assertFalse(saved.isPresent());
     }
 
+    @Test
+    public void saveIfNotExistsIgnoresDuplicateOfSameTypeAndUid() throws Exception {
+        DeviceId devId = new DeviceId(UUIDs.timeBased());
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        String uid = UUIDs.timeBased().toString();
+        Optional<Event> saved = eventService.saveIfNotExists(generateEvent(tenantId, devId, "ALARM", uid));
+        Assert.assertTrue(saved.isPresent());
+        Assert.assertFalse(eventService.saveIfNotExists(generateEvent(tenantId, devId, "ALARM", uid)).isPresent());
+        Optional<Event> loaded = eventService.findEvent(tenantId, devId, "ALARM", uid);
+        Assert.assertTrue(loaded.isPresent());
+        Assert.assertEquals(saved.get().getId(), loaded.get().getId());
+    }
+
+    @Test
+    public void saveDifferentEventsOfSameEntityIfNotExists() throws Exception {
+        DeviceId devId = new DeviceId(UUIDs.timeBased());
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        Event event = generateEvent(tenantId, devId, "ALARM", UUIDs.timeBased().toString());
+        Event event2 = generateEvent(tenantId, devId, "ALARM", UUIDs.timeBased().toString());
+        Event event3 = generateEvent(tenantId, devId, DataConstants.STATS, event.getUid());
+        Assert.assertTrue(eventService.saveIfNotExists(event).isPresent());
+        Assert.assertTrue(eventService.saveIfNotExists(event2).isPresent());
+        Assert.assertTrue(eventService.saveIfNotExists(event3).isPresent());
+    }
+
+    @Test
+    public void saveAllEvents() throws Exception {
+        DeviceId devId = new DeviceId(UUIDs.timeBased());
+        DeviceId devId2 = new DeviceId(UUIDs.timeBased());
+        Event event = generateEvent(null, devId, "ALARM", UUIDs.timeBased().toString());
+        Event event2 = generateEvent(null, devId, "ALARM", UUIDs.timeBased().toString());
+        Event event3 = generateEvent(null, devId2, "ALARM", UUIDs.timeBased().toString());
+        eventService.saveAllAsync(Arrays.asList(event, event2, event3)).get();
+        for (Event saved : Arrays.asList(event, event2, event3)) {
+            Optional<Event> loaded = eventService.findEvent(saved.getTenantId(), saved.getEntityId(), saved.getType(), saved.getUid());
+            Assert.assertTrue(loaded.isPresent());
+            Assert.assertEquals(saved.getBody(), loaded.get().getBody());
+        }
+    }
+
+    @Test
+    public void saveAllEventsLargerThanBatchLimit() throws Exception {
+        DeviceId devId = new DeviceId(UUIDs.timeBased());
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        ObjectNode body = new ObjectMapper().createObjectNode().put("data", StringUtils.repeat('x', 2000));
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Event event = generateEvent(tenantId, devId, DataConstants.DEBUG_RULE_NODE, UUIDs.timeBased().toString());
+            event.setBody(body);
+            events.add(event);
+        }
+        eventService.saveAllAsync(events).get();
+        for (Event saved : events) {
+            Assert.assertTrue(eventService.findEvent(saved.getTenantId(), saved.getEntityId(), saved.getType(), saved.getUid()).isPresent());
+        }
+    }
+
     @Test
     public void findEventsByTypeAndTimeAscOrder() throws Exception {
         long timeBeforeStartTime = LocalDateTime.of(2016, Month.NOVEMBER, 1, 11, 30).toEpochSecond(ZoneOffset.UTC);
@@ -0,0 +1,61 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.event.psql;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.Event;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.dao.event.EventDao;
+import org.thingsboard.server.dao.service.DaoPsqlTest;
+import org.thingsboard.server.dao.service.event.BaseEventServiceTest;
+
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DaoPsqlTest
+public class EventServicePsqlTest extends BaseEventServiceTest {
+
+    @Autowired
+    private EventDao eventDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void saveIfNotExistsUsesInsertOnConflictForPostgreSqlDialect() throws Exception {
+        Object dao = AopTestUtils.getUltimateTargetObject(eventDao);
+        JdbcTemplate jdbcTemplateSpy = Mockito.spy(jdbcTemplate);
+        ReflectionTestUtils.setField(dao, "jdbcTemplate", jdbcTemplateSpy);
+        try {
+            Event event = generateEvent(null, new DeviceId(UUIDs.timeBased()), DataConstants.ALARM, UUIDs.timeBased().toString());
+            Assert.assertTrue(eventService.saveIfNotExists(event).isPresent());
+            Assert.assertFalse(eventService.saveIfNotExists(event).isPresent());
+            verify(jdbcTemplateSpy, times(2)).update(contains("ON CONFLICT DO NOTHING"), Matchers.<Object>anyVararg());
+        } finally {
+            ReflectionTestUtils.setField(dao, "jdbcTemplate", jdbcTemplate);
+        }
+    }
+}
@@ -15,9 +15,94 @@
  */
 package org.thingsboard.server.dao.service.event.sql;
 
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.Event;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EventId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.dao.event.EventDao;
 import org.thingsboard.server.dao.service.DaoSqlTest;
 import org.thingsboard.server.dao.service.event.BaseEventServiceTest;
+import org.thingsboard.server.dao.sql.event.SqlEventRetentionService;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @DaoSqlTest
 public class EventServiceSqlTest extends BaseEventServiceTest {
+
+    @Autowired
+    private SqlEventRetentionService eventRetentionService;
+
+    @Autowired
+    private EventDao eventDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void saveIfNotExistsFallsBackToLookupForNonPostgreSqlDialect() throws Exception {
+        Object dao = AopTestUtils.getUltimateTargetObject(eventDao);
+        JdbcTemplate jdbcTemplateSpy = Mockito.spy(jdbcTemplate);
+        ReflectionTestUtils.setField(dao, "jdbcTemplate", jdbcTemplateSpy);
+        try {
+            Event event = generateEvent(null, new DeviceId(UUIDs.timeBased()), DataConstants.ALARM, UUIDs.timeBased().toString());
+            Assert.assertTrue(eventService.saveIfNotExists(event).isPresent());
+            Assert.assertFalse(eventService.saveIfNotExists(event).isPresent());
+            verify(jdbcTemplateSpy, never()).update(anyString(), Matchers.<Object>anyVararg());
+        } finally {
+            ReflectionTestUtils.setField(dao, "jdbcTemplate", jdbcTemplate);
+        }
+    }
+
+    @Test
+    public void removeExpiredEvents() throws Exception {
+        long now = System.currentTimeMillis();
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        DeviceId devId = new DeviceId(UUIDs.timeBased());
+        Event expired = saveEvent(tenantId, devId, DataConstants.STATS, now - TimeUnit.DAYS.toMillis(10));
+        Event expired2 = saveEvent(tenantId, devId, DataConstants.STATS, now - TimeUnit.DAYS.toMillis(9));
+        Event expiredDebug = saveEvent(tenantId, devId, DataConstants.DEBUG_RULE_NODE, now - TimeUnit.DAYS.toMillis(2));
+        Event actual = saveEvent(tenantId, devId, DataConstants.STATS, now - TimeUnit.DAYS.toMillis(2));
+        Event actualDebug = saveEvent(tenantId, devId, DataConstants.DEBUG_RULE_NODE, now - TimeUnit.HOURS.toMillis(1));
+
+        ReflectionTestUtils.setField(eventRetentionService, "enabled", true);
+        ReflectionTestUtils.setField(eventRetentionService, "eventsTtl", TimeUnit.DAYS.toSeconds(7));
+        ReflectionTestUtils.setField(eventRetentionService, "debugEventsTtl", TimeUnit.DAYS.toSeconds(1));
+        ReflectionTestUtils.setField(eventRetentionService, "deleteBatchSize", 1);
+        try {
+            eventRetentionService.cleanUp();
+        } finally {
+            ReflectionTestUtils.setField(eventRetentionService, "enabled", false);
+        }
+
+        Assert.assertFalse(isPresent(expired));
+        Assert.assertFalse(isPresent(expired2));
+        Assert.assertFalse(isPresent(expiredDebug));
+        Assert.assertTrue(isPresent(actual));
+        Assert.assertTrue(isPresent(actualDebug));
+    }
+
+    private Event saveEvent(TenantId tenantId, DeviceId deviceId, String type, long time) throws IOException {
+        Event event = generateEvent(tenantId, deviceId, type, null);
+        event.setId(new EventId(UUIDs.startOf(time)));
+        return eventService.save(event);
+    }
+
+    private boolean isPresent(Event event) {
+        return eventService.findEvent(event.getTenantId(), event.getEntityId(), event.getType(), event.getUid()).isPresent();
+    }
 }
@@ -40,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
@@ -148,6 +149,30 @@ public abstract class BaseTimeseriesServiceTest extends AbstractServiceTest {
         Assert.assertEquals(toTsEntry(TS, stringKvEntry), entries.get(0));
     }
 
+    @Test
+    public void testFindLatestOfMultipleEntities() throws Exception {
+        DeviceId deviceId = new DeviceId(UUIDs.timeBased());
+        DeviceId otherDeviceId = new DeviceId(UUIDs.timeBased());
+        DeviceId emptyDeviceId = new DeviceId(UUIDs.timeBased());
+
+        saveEntries(deviceId, TS - 1);
+        saveEntries(deviceId, TS);
+        saveEntries(otherDeviceId, TS - 1);
+        EntityView entityView = saveAndCreateEntityView(deviceId, Arrays.asList(STRING_KEY));
+
+        Map<EntityId, List<TsKvEntry>> latest = tsService.findLatest(tenantId,
+                Arrays.asList(deviceId, otherDeviceId, emptyDeviceId, entityView.getId()), Arrays.asList(STRING_KEY, LONG_KEY)).get();
+        Assert.assertEquals(3, latest.size());
+        Assert.assertEquals(2, latest.get(deviceId).size());
+        Assert.assertTrue(latest.get(deviceId).contains(toTsEntry(TS, stringKvEntry)));
+        Assert.assertTrue(latest.get(otherDeviceId).contains(toTsEntry(TS - 1, longKvEntry)));
+        Assert.assertEquals(Collections.singletonList(toTsEntry(TS, stringKvEntry)), latest.get(entityView.getId()));
+
+        latest = tsService.findLatest(tenantId, Arrays.asList(deviceId, otherDeviceId), Collections.emptyList()).get();
+        Assert.assertEquals(4, latest.get(deviceId).size());
+        Assert.assertEquals(4, latest.get(otherDeviceId).size());
+    }
+
     @Test
     public void testDeleteDeviceTsDataWithoutOverwritingLatest() throws Exception {
         DeviceId deviceId = new DeviceId(UUIDs.timeBased());
@@ -0,0 +1,120 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.timeseries.psql;
+
+import com.datastax.driver.core.utils.UUIDs;
+import com.google.common.util.concurrent.Futures;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.service.DaoPsqlTest;
+import org.thingsboard.server.dao.service.timeseries.BaseTimeseriesServiceTest;
+import org.thingsboard.server.dao.sql.timeseries.PsqlPartition;
+import org.thingsboard.server.dao.sql.timeseries.PsqlPartitioningRepository;
+import org.thingsboard.server.dao.timeseries.TimeseriesDao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@DaoPsqlTest
+public class TimeseriesServicePsqlTest extends BaseTimeseriesServiceTest {
+
+    private static final String KEY = "partitionedKey";
+
+    @Autowired
+    private PsqlPartitioningRepository partitioningRepository;
+
+    @Autowired
+    private TimeseriesDao timeseriesDao;
+
+    @Test
+    public void testFindAllAcrossPartitions() throws Exception {
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        DeviceId deviceId = new DeviceId(UUIDs.timeBased());
+        // 2019-01-15, 2019-02-15 and 2019-03-15 UTC, one row per monthly partition
+        long[] timestamps = {1547510400000L, 1550188800000L, 1552608000000L};
+        for (int i = 0; i < timestamps.length; i++) {
+            tsService.save(tenantId, deviceId, new BasicTsKvEntry(timestamps[i], new LongDataEntry(KEY, (long) i))).get();
+        }
+
+        Set<Long> partitionStarts = partitioningRepository.findPartitions().stream()
+                .map(PsqlPartition::getStart).collect(Collectors.toSet());
+        for (long ts : timestamps) {
+            assertTrue(partitionStarts.contains(partitioningRepository.toPartition(ts).getStart()));
+        }
+
+        List<TsKvEntry> list = tsService.findAll(tenantId, deviceId, Collections.singletonList(
+                new BaseReadTsKvQuery(KEY, 0, timestamps[2] + 1, 0, 10, Aggregation.NONE, "ASC"))).get();
+        assertEquals(3, list.size());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], list.get(i).getTs());
+            assertEquals(Long.valueOf(i), list.get(i).getLongValue().get());
+        }
+
+        list = tsService.findAll(tenantId, deviceId, Collections.singletonList(
+                new BaseReadTsKvQuery(KEY, 0, timestamps[2] + 1, timestamps[2] + 1, 1, Aggregation.SUM, "ASC"))).get();
+        assertEquals(1, list.size());
+        assertEquals(Long.valueOf(3), list.get(0).getLongValue().get());
+    }
+
+    @Test
+    public void testSaveManyEntriesAcrossPartitions() throws Exception {
+        TenantId tenantId = new TenantId(UUIDs.timeBased());
+        DeviceId deviceId = new DeviceId(UUIDs.timeBased());
+        // 2019-04-15 UTC, the entries of a single save are spread over three monthly partitions
+        long startTs = 1555286400000L;
+        long step = TimeUnit.DAYS.toMillis(1);
+        int count = 90;
+        List<TsKvEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(new BasicTsKvEntry(startTs + i * step, new LongDataEntry(KEY, (long) i)));
+        }
+        // the same timestamp is saved again later in the batch and overrides the first value
+        entries.add(new BasicTsKvEntry(startTs, new LongDataEntry(KEY, -1L)));
+        // the history only, the service would also save each entry as the latest value
+        Futures.allAsList(entries.stream().map(entry -> timeseriesDao.save(tenantId, deviceId, entry, 0))
+                .collect(Collectors.toList())).get();
+
+        Set<Long> partitionStarts = partitioningRepository.findPartitions().stream()
+                .map(PsqlPartition::getStart).collect(Collectors.toSet());
+        for (TsKvEntry entry : entries) {
+            assertTrue(partitionStarts.contains(partitioningRepository.toPartition(entry.getTs()).getStart()));
+        }
+
+        List<TsKvEntry> list = tsService.findAll(tenantId, deviceId, Collections.singletonList(
+                new BaseReadTsKvQuery(KEY, 0, startTs + count * step, 0, count * 2, Aggregation.NONE, "ASC"))).get();
+        assertEquals(count, list.size());
+        assertEquals(Long.valueOf(-1L), list.get(0).getLongValue().get());
+        for (int i = 1; i < count; i++) {
+            assertEquals(startTs + i * step, list.get(i).getTs());
+            assertEquals(Long.valueOf(i), list.get(i).getLongValue().get());
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.timeseries;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PsqlTimeseriesRetentionServiceTest {
+
+    private static final long DAY = TimeUnit.DAYS.toSeconds(1);
+    private static final int BATCH_SIZE = 100;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PsqlPartitioningRepository partitioningRepository;
+
+    private PsqlTimeseriesRetentionService service;
+
+    private final TenantId tenantId = new TenantId(UUIDs.timeBased());
+    private final TenantId tenantWithoutTtl = new TenantId(UUIDs.timeBased());
+    private final DeviceId deviceId = new DeviceId(UUIDs.timeBased());
+
+    private PsqlPartition expired;
+    private PsqlPartition expiredWithDataKeptForever;
+    private PsqlPartition current;
+
+    @Before
+    public void before() {
+        service = new PsqlTimeseriesRetentionService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "systemTtl", 30 * DAY);
+        ReflectionTestUtils.setField(service, "tenantTtlsConfig", tenantWithoutTtl.getId() + ":0");
+        ReflectionTestUtils.setField(service, "dropPartitions", true);
+        ReflectionTestUtils.setField(service, "deleteBatchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "partitioningRepository", partitioningRepository);
+        service.init();
+
+        long now = System.currentTimeMillis();
+        long monthMs = TimeUnit.DAYS.toMillis(30);
+        expired = new PsqlPartition(now - 4 * monthMs, now - 3 * monthMs, "expired");
+        expiredWithDataKeptForever = new PsqlPartition(now - 3 * monthMs, now - 2 * monthMs, "kept");
+        current = new PsqlPartition(now - monthMs / 2, now + monthMs / 2, "current");
+        when(partitioningRepository.findPartitions()).thenReturn(Arrays.asList(expired, expiredWithDataKeptForever, current));
+    }
+
+    @Test
+    public void testEntityTtlIsTheLatestMessageTtl() {
+        service.onSave(tenantId, deviceId, 60 * DAY);
+        service.onSave(tenantId, deviceId, DAY);
+        service.onSave(tenantId, deviceId, 0);
+        service.onSave(tenantId, deviceId, 90 * DAY);
+
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ts_kv_ttl"), eq(deviceId.getId()), eq(60 * DAY));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ts_kv_ttl"), eq(deviceId.getId()), eq(DAY));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ts_kv_ttl"), eq(deviceId.getId()), eq(90 * DAY));
+        verify(jdbcTemplate, times(3)).update(startsWith("INSERT INTO ts_kv_ttl"), any(UUID.class), anyLong());
+        assertEquals(90 * DAY, (long) getEntityTtls().get(deviceId.getId()));
+    }
+
+    @Test
+    public void testShorterMessageTtlOverridesUnsetSystemTtl() {
+        ReflectionTestUtils.setField(service, "systemTtl", 0L);
+
+        service.onSave(tenantId, deviceId, DAY);
+        service.onSave(tenantId, deviceId, 0);
+
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ts_kv_ttl"), eq(deviceId.getId()), eq(DAY));
+        verify(jdbcTemplate, times(1)).update(startsWith("INSERT INTO ts_kv_ttl"), any(UUID.class), anyLong());
+        assertEquals(DAY, (long) getEntityTtls().get(deviceId.getId()));
+    }
+
+    @Test
+    public void testMessageTtlEqualToSystemTtlIsNotStored() {
+        service.onSave(tenantId, deviceId, 30 * DAY);
+        service.onSave(tenantId, deviceId, 0);
+
+        verify(jdbcTemplate, never()).update(startsWith("INSERT INTO ts_kv_ttl"), any(UUID.class), anyLong());
+    }
+
+    @Test
+    public void testDataWithoutTtlIsKeptForTenantTtl() {
+        service.onSave(tenantWithoutTtl, deviceId, 0);
+        service.onSave(tenantWithoutTtl, deviceId, 0);
+
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ts_kv_ttl"), eq(deviceId.getId()), eq(0L));
+        verify(jdbcTemplate, times(1)).update(startsWith("INSERT INTO ts_kv_ttl"), any(UUID.class), anyLong());
+        assertEquals(0L, (long) getEntityTtls().get(deviceId.getId()));
+
+        service.onSave(tenantWithoutTtl, deviceId, DAY);
+
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ts_kv_ttl"), eq(deviceId.getId()), eq(DAY));
+        assertEquals(DAY, (long) getEntityTtls().get(deviceId.getId()));
+    }
+
+    @Test
+    public void testEntityWithoutTtlKeepsOnlyPartitionsWithItsData() {
+        getEntityTtls().put(deviceId.getId(), 0L);
+        mockEntityRowsExist(expired, false);
+        mockEntityRowsExist(expiredWithDataKeptForever, true);
+
+        service.cleanUp();
+
+        verify(partitioningRepository).dropPartition(expired);
+        verify(partitioningRepository, never()).dropPartition(expiredWithDataKeptForever);
+        verify(partitioningRepository, never()).dropPartition(current);
+        verify(jdbcTemplate).update(startsWith("DELETE FROM " + expiredWithDataKeptForever.getTableName()), any(PreparedStatementSetter.class));
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM " + current.getTableName()), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testSystemTtlWithoutLimitDoesNotDropPartitions() {
+        ReflectionTestUtils.setField(service, "systemTtl", 0L);
+        getEntityTtls().put(deviceId.getId(), 20 * DAY);
+
+        service.cleanUp();
+
+        verify(partitioningRepository, never()).dropPartition(any(PsqlPartition.class));
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM " + current.getTableName()), any(PreparedStatementSetter.class));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM " + expired.getTableName()), any(PreparedStatementSetter.class));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM " + expiredWithDataKeptForever.getTableName()), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testExpiredRowsAreDeletedInBatches() {
+        getEntityTtls().put(deviceId.getId(), 0L);
+        mockEntityRowsExist(expired, true);
+        mockEntityRowsExist(expiredWithDataKeptForever, true);
+        when(jdbcTemplate.update(startsWith("DELETE FROM " + expired.getTableName()), any(PreparedStatementSetter.class)))
+                .thenReturn(BATCH_SIZE, BATCH_SIZE, 1);
+
+        service.cleanUp();
+
+        verify(partitioningRepository, never()).dropPartition(any(PsqlPartition.class));
+        verify(jdbcTemplate, times(3)).update(startsWith("DELETE FROM " + expired.getTableName()), any(PreparedStatementSetter.class));
+        verify(jdbcTemplate, times(1)).update(startsWith("DELETE FROM " + expiredWithDataKeptForever.getTableName()), any(PreparedStatementSetter.class));
+    }
+
+    private void mockEntityRowsExist(PsqlPartition partition, boolean exist) {
+        doReturn(exist).when(jdbcTemplate).query(eq("SELECT EXISTS (SELECT 1 FROM " + partition.getTableName() + " WHERE entity_id = ANY (?))"),
+                any(PreparedStatementSetter.class), any(ResultSetExtractor.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<UUID, Long> getEntityTtls() {
+        return (Map<UUID, Long>) ReflectionTestUtils.getField(service, "entityTtls");
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.datastax.driver.core.utils.UUIDs;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Slf4j
+public class CassandraTsPartitionsCacheTest {
+
+    private static final long REFRESH_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final CassandraTsPartitionsCache cache = new CassandraTsPartitionsCache(1000, REFRESH_INTERVAL_MS);
+
+    @Test
+    public void partitionWithoutTtlIsCachedUntilEvicted() {
+        CassandraPartitionCacheKey key = newKey(UUIDs.timeBased(), 0L);
+        assertFalse(cache.has(key, 0, 0L));
+        cache.put(key, 0, 0L);
+        assertTrue(cache.has(key, 0, TimeUnit.DAYS.toMillis(365)));
+        assertTrue(cache.has(key, 100, TimeUnit.DAYS.toMillis(365)));
+    }
+
+    @Test
+    public void partitionWithTtlIsWrittenAgainAfterRefreshInterval() {
+        CassandraPartitionCacheKey key = newKey(UUIDs.timeBased(), 0L);
+        long ttl = TimeUnit.DAYS.toSeconds(1);
+        cache.put(key, ttl, 0L);
+        assertTrue(cache.has(key, ttl, REFRESH_INTERVAL_MS - 1));
+        assertFalse(cache.has(key, ttl, REFRESH_INTERVAL_MS));
+        assertFalse(cache.has(key, 0, 1L));
+    }
+
+    @Test
+    public void partitionWithTtlShorterThanRefreshIntervalIsWrittenAgainAfterTtl() {
+        CassandraPartitionCacheKey key = newKey(UUIDs.timeBased(), 0L);
+        cache.put(key, 60, 0L);
+        assertTrue(cache.has(key, 60, TimeUnit.SECONDS.toMillis(60) - 1));
+        assertFalse(cache.has(key, 60, TimeUnit.SECONDS.toMillis(60)));
+    }
+
+    @Test
+    public void partitionWithShorterTtlIsWrittenAgainForLongerTtl() {
+        CassandraPartitionCacheKey key = newKey(UUIDs.timeBased(), 0L);
+        long ttl = TimeUnit.DAYS.toSeconds(1);
+        cache.put(key, ttl, 0L);
+        assertTrue(cache.has(key, ttl / 2, 1L));
+        assertFalse(cache.has(key, ttl * 2, 1L));
+        cache.put(key, ttl * 2, 1L);
+        assertTrue(cache.has(key, ttl, 2L));
+    }
+
+    @Test
+    public void invalidateRemovesOnlyMatchingPartitions() {
+        UUID entityId = UUIDs.timeBased();
+        cache.put(newKey(entityId, 1L), 0, 0L);
+        cache.put(newKey(entityId, 2L), 0, 0L);
+        cache.put(newKey(entityId, 3L), 0, 0L);
+        cache.invalidate(new DeviceId(entityId), "temperature", 2L, 3L);
+        assertTrue(cache.has(newKey(entityId, 1L), 0, 0L));
+        assertFalse(cache.has(newKey(entityId, 2L), 0, 0L));
+        assertFalse(cache.has(newKey(entityId, 3L), 0, 0L));
+    }
+
+    @Test
+    public void invalidateAfterEvictionAndPutAgain() {
+        CassandraTsPartitionsCache smallCache = new CassandraTsPartitionsCache(1, REFRESH_INTERVAL_MS);
+        UUID entityId = UUIDs.timeBased();
+        CassandraPartitionCacheKey key = newKey(entityId, 1L);
+        smallCache.put(key, 0, 0L);
+        smallCache.put(newKey(UUIDs.timeBased(), 1L), 0, 0L);
+        smallCache.put(key, 0, 0L);
+        smallCache.invalidate(new DeviceId(entityId), "temperature", 1L, 1L);
+        assertFalse(smallCache.has(key, 0, 0L));
+    }
+
+    @Test
+    public void invalidateDoesNotRemoveOtherKeys() {
+        UUID entityId = UUIDs.timeBased();
+        CassandraPartitionCacheKey otherKey = new CassandraPartitionCacheKey(EntityType.DEVICE, entityId, "humidity", 1L);
+        CassandraPartitionCacheKey otherEntity = newKey(UUIDs.timeBased(), 1L);
+        cache.put(newKey(entityId, 1L), 0, 0L);
+        cache.put(otherKey, 0, 0L);
+        cache.put(otherEntity, 0, 0L);
+        cache.invalidate(new DeviceId(entityId), "temperature", 0L, 10L);
+        assertFalse(cache.has(newKey(entityId, 1L), 0, 0L));
+        assertTrue(cache.has(otherKey, 0, 0L));
+        assertTrue(cache.has(otherEntity, 0, 0L));
+    }
+
+    @Test
+    public void monthlyPartitionsWriteReduction() {
+        int devices = 100;
+        int keys = 5;
+        int days = 31;
+        List<UUID> deviceIds = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            deviceIds.add(UUIDs.timeBased());
+        }
+        CassandraTsPartitionsCache monthlyCache = new CassandraTsPartitionsCache(devices * keys * 2, REFRESH_INTERVAL_MS);
+        long startTs = LocalDateTime.of(2019, 1, 15, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+        long savePartitionCalls = 0;
+        long partitionWrites = 0;
+        long started = System.nanoTime();
+        for (long ts = startTs; ts < startTs + TimeUnit.DAYS.toMillis(days); ts += TimeUnit.MINUTES.toMillis(1)) {
+            long partition = toMonthPartition(ts);
+            for (UUID deviceId : deviceIds) {
+                for (int k = 0; k < keys; k++) {
+                    savePartitionCalls++;
+                    CassandraPartitionCacheKey key = new CassandraPartitionCacheKey(EntityType.DEVICE, deviceId, "key" + k, partition);
+                    if (!monthlyCache.has(key, 0, ts)) {
+                        partitionWrites++;
+                        monthlyCache.put(key, 0, ts);
+                    }
+                }
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("savePartition calls [{}] partition writes [{}] write reduction [{}%] in [{}] ms",
+                savePartitionCalls, partitionWrites, 100 - partitionWrites * 100.0 / savePartitionCalls, elapsedMs);
+        // 31 days starting from the middle of the month cross exactly one month boundary
+        assertEquals(devices * keys * 2, partitionWrites);
+        assertEquals(partitionWrites, monthlyCache.getAndResetMisses());
+    }
+
+    private static long toMonthPartition(long ts) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), ZoneOffset.UTC);
+        return TsPartitionDate.MONTHS.truncatedTo(time).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static CassandraPartitionCacheKey newKey(UUID entityId, long partition) {
+        return new CassandraPartitionCacheKey(EntityType.DEVICE, entityId, "temperature", partition);
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import com.datastax.driver.core.utils.UUIDs;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.Data;
+import org.junit.After;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AbstractBufferedRateExecutorTest {
+
+    private TestExecutor executor;
+
+    @After
+    public void after() {
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void tenantsAreDispatchedRoundRobin() throws Exception {
+        executor = new TestExecutor(100, 1, 10000);
+        TenantId tenantA = new TenantId(UUIDs.timeBased());
+        TenantId tenantB = new TenantId(UUIDs.timeBased());
+        ListenableFuture<String> first = executor.submit(new TestTask(tenantA, "a0"));
+        awaitExecuted(1);
+        for (int i = 1; i <= 3; i++) {
+            executor.submit(new TestTask(tenantA, "a" + i));
+        }
+        executor.submit(new TestTask(tenantB, "b1"));
+        executor.submit(new TestTask(tenantB, "b2"));
+        for (int i = 1; i <= 5; i++) {
+            executor.results.get(i - 1).set("done");
+            awaitExecuted(i + 1);
+        }
+        assertEquals("done", first.get(1, TimeUnit.SECONDS));
+        List<String> order = executor.executedNames();
+        assertTrue(order.indexOf("b2") < order.indexOf("a3"));
+        assertTrue(order.indexOf("b1") < order.indexOf("a2"));
+    }
+
+    @Test
+    public void expiredTaskReleasesPermit() throws Exception {
+        executor = new TestExecutor(100, 1, 200);
+        ListenableFuture<String> hanging = executor.submit(new TestTask(TenantId.SYS_TENANT_ID, "hanging"));
+        try {
+            hanging.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        ListenableFuture<String> next = executor.submit(new TestTask(TenantId.SYS_TENANT_ID, "next"));
+        awaitExecuted(2);
+        executor.results.get(1).set("done");
+        assertEquals("done", next.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void expiredTaskIsCancelledAndCompletedOffTimerThread() throws Exception {
+        executor = new TestExecutor(100, 1, 200);
+        ListenableFuture<String> hanging = executor.submit(new TestTask(TenantId.SYS_TENANT_ID, "hanging"));
+        AtomicReference<String> callbackThread = new AtomicReference<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        hanging.addListener(() -> {
+            callbackThread.set(Thread.currentThread().getName());
+            completed.countDown();
+        }, MoreExecutors.directExecutor());
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.results.get(0).isCancelled());
+        assertFalse(callbackThread.get().startsWith("buffered-rate-executor-timeout"));
+    }
+
+    @Test
+    public void idleTenantQueuesAreEvicted() throws Exception {
+        executor = new TestExecutor(100, 2, 10000);
+        TenantId tenantA = new TenantId(UUIDs.timeBased());
+        TenantId tenantB = new TenantId(UUIDs.timeBased());
+        executor.submit(new TestTask(tenantA, "a0"));
+        executor.submit(new TestTask(tenantB, "b0"));
+        awaitExecuted(2);
+        executor.submit(new TestTask(tenantA, "a1"));
+        assertEquals(2, executor.getTenantQueuesCount());
+
+        // a1 waits for a permit, so only the queue of the tenant B is idle
+        executor.evictIdleTenantQueues();
+        assertEquals(1, executor.getTenantQueuesCount());
+
+        executor.results.get(0).set("done");
+        awaitExecuted(3);
+        ListenableFuture<String> b1 = executor.submit(new TestTask(tenantB, "b1"));
+        executor.results.get(1).set("done");
+        awaitExecuted(4);
+        executor.results.get(3).set("done");
+        assertEquals("done", b1.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void tasksOverQueueLimitAreRejected() throws Exception {
+        executor = new TestExecutor(2, 1, 10000);
+        executor.submit(new TestTask(TenantId.SYS_TENANT_ID, "t0"));
+        awaitExecuted(1);
+        executor.submit(new TestTask(TenantId.SYS_TENANT_ID, "t1"));
+        executor.submit(new TestTask(TenantId.SYS_TENANT_ID, "t2"));
+        ListenableFuture<String> rejected = executor.submit(new TestTask(TenantId.SYS_TENANT_ID, "t3"));
+        try {
+            rejected.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(2, executor.getQueueSize());
+    }
+
+    private void awaitExecuted(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (executor.executed.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, executor.executed.size());
+    }
+
+    @Data
+    private static class TestTask implements AsyncTask {
+        private final TenantId tenantId;
+        private final String name;
+    }
+
+    private static class TestExecutor extends AbstractBufferedRateExecutor<TestTask, ListenableFuture<String>, String> {
+
+        private final List<TestTask> executed = new CopyOnWriteArrayList<>();
+        private final List<SettableFuture<String>> results = new CopyOnWriteArrayList<>();
+
+        TestExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime) {
+            super(queueLimit, concurrencyLimit, maxWaitTime, 1, 1, 10, false, null);
+        }
+
+        List<String> executedNames() {
+            List<String> names = new CopyOnWriteArrayList<>();
+            executed.forEach(task -> names.add(task.getName()));
+            return names;
+        }
+
+        @Override
+        protected SettableFuture<String> create() {
+            return SettableFuture.create();
+        }
+
+        @Override
+        protected ListenableFuture<String> wrap(TestTask task, SettableFuture<String> future) {
+            return future;
+        }
+
+        @Override
+        protected ListenableFuture<String> execute(AsyncTaskContext<TestTask, String> taskCtx) {
+            SettableFuture<String> result = SettableFuture.create();
+            results.add(result);
+            executed.add(taskCtx.getTask());
+            return result;
+        }
+    }
+}
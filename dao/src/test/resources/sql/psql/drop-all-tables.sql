@@ -0,0 +1,25 @@
+DROP TABLE IF EXISTS admin_settings CASCADE;
+DROP TABLE IF EXISTS alarm CASCADE;
+DROP TABLE IF EXISTS asset CASCADE;
+DROP TABLE IF EXISTS audit_log CASCADE;
+DROP TABLE IF EXISTS attribute_kv CASCADE;
+DROP TABLE IF EXISTS component_descriptor CASCADE;
+DROP TABLE IF EXISTS customer CASCADE;
+DROP TABLE IF EXISTS dashboard CASCADE;
+DROP TABLE IF EXISTS device CASCADE;
+DROP TABLE IF EXISTS device_credentials CASCADE;
+DROP TABLE IF EXISTS event CASCADE;
+DROP TABLE IF EXISTS relation CASCADE;
+DROP TABLE IF EXISTS tb_user CASCADE;
+DROP TABLE IF EXISTS tenant CASCADE;
+DROP TABLE IF EXISTS ts_kv CASCADE;
+DROP TABLE IF EXISTS ts_kv_latest CASCADE;
+DROP TABLE IF EXISTS user_credentials CASCADE;
+DROP TABLE IF EXISTS widget_type CASCADE;
+DROP TABLE IF EXISTS widgets_bundle CASCADE;
+DROP TABLE IF EXISTS rule_node CASCADE;
+DROP TABLE IF EXISTS rule_chain CASCADE;
+DROP TABLE IF EXISTS entity_view CASCADE;
+DROP TABLE IF EXISTS ts_kv_compact CASCADE;
+DROP TABLE IF EXISTS ts_kv_dictionary CASCADE;
+DROP TABLE IF EXISTS ts_kv_ttl CASCADE;
@@ -20,14 +20,16 @@ const config = require('config'),
       Utils = require('./utils'),
       js = require('./jsinvoke.proto').js,
       KeyedMessage = require('kafka-node').KeyedMessage,
-      JsExecutor = require('./jsExecutor');
+      JsExecutor = require('./jsExecutor'),
+      ScriptCache = require('./scriptCache');
 
 const scriptBodyTraceFrequency = Number(config.get('script.script_body_trace_frequency'));
+const maxActiveScripts = Number(config.get('script.max_active_scripts'));
 
 function JsInvokeMessageProcessor(producer) {
     this.producer = producer;
     this.executor = new JsExecutor();
-    this.scriptMap = {};
+    this.scriptMap = new ScriptCache(maxActiveScripts);
     this.executedScriptsCounter = 0;
 }
 
@@ -62,7 +64,7 @@ JsInvokeMessageProcessor.prototype.processCompileRequest = function(requestId, r
 
     this.executor.compileScript(compileRequest.scriptBody).then(
         (script) => {
-            this.scriptMap[scriptId] = script;
+            this.putScript(scriptId, script);
             var compileResponse = createCompileResponse(scriptId, true);
             logger.debug('[%s] Sending success compile response, scriptId: [%s]', requestId, scriptId);
             this.sendResponse(requestId, responseTopic, scriptId, compileResponse);
@@ -107,8 +109,9 @@ JsInvokeMessageProcessor.prototype.processInvokeRequest = function(requestId, re
             )
         },
         (err) => {
-            var invokeResponse = createInvokeResponse("", false, js.JsInvokeErrorCode.COMPILATION_ERROR, err);
-            logger.debug('[%s] Sending failed invoke response, scriptId: [%s], errorCode: [%s]', requestId, scriptId, js.JsInvokeErrorCode.COMPILATION_ERROR);
+            var errorCode = err ? js.JsInvokeErrorCode.COMPILATION_ERROR : js.JsInvokeErrorCode.NOT_FOUND_ERROR;
+            var invokeResponse = createInvokeResponse("", false, errorCode, err);
+            logger.debug('[%s] Sending failed invoke response, scriptId: [%s], errorCode: [%s]', requestId, scriptId, errorCode);
             this.sendResponse(requestId, responseTopic, scriptId, null, invokeResponse);
         }
     );
@@ -117,9 +120,7 @@ JsInvokeMessageProcessor.prototype.processInvokeRequest = function(requestId, re
 JsInvokeMessageProcessor.prototype.processReleaseRequest = function(requestId, responseTopic, releaseRequest) {
     var scriptId = getScriptId(releaseRequest);
     logger.debug('[%s] Processing release request, scriptId: [%s]', requestId, scriptId);
-    if (this.scriptMap[scriptId]) {
-        delete this.scriptMap[scriptId];
-    }
+    this.scriptMap.delete(scriptId);
     var releaseResponse = createReleaseResponse(scriptId, true);
     logger.debug('[%s] Sending success release response, scriptId: [%s]', requestId, scriptId);
     this.sendResponse(requestId, responseTopic, scriptId, null, null, releaseResponse);
@@ -141,12 +142,16 @@ JsInvokeMessageProcessor.prototype.sendResponse = function (requestId, responseT
 JsInvokeMessageProcessor.prototype.getOrCompileScript = function(scriptId, scriptBody) {
     var self = this;
     return new Promise(function(resolve, reject) {
-        if (self.scriptMap[scriptId]) {
-            resolve(self.scriptMap[scriptId]);
+        var script = self.scriptMap.get(scriptId);
+        if (script) {
+            resolve(script);
+        } else if (!scriptBody) {
+            // Rejected without an error, so the caller resends the request along with the script body
+            reject();
         } else {
             self.executor.compileScript(scriptBody).then(
                 (script) => {
-                    self.scriptMap[scriptId] = script;
+                    self.putScript(scriptId, script);
                     resolve(script);
                 },
                 (err) => {
@@ -157,6 +162,13 @@ JsInvokeMessageProcessor.prototype.getOrCompileScript = function(scriptId, scrip
     });
 }
 
+JsInvokeMessageProcessor.prototype.putScript = function(scriptId, script) {
+    var evictedScriptId = this.scriptMap.put(scriptId, script);
+    if (evictedScriptId) {
+        logger.debug('[%s] Evicted least recently used script', evictedScriptId);
+    }
+}
+
 function createRemoteResponse(requestId, compileResponse, invokeResponse, releaseResponse) {
     const requestIdBits = Utils.UUIDToBits(requestId);
     return js.RemoteJsResponse.create(
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+'use strict';
+
+/**
+ * Compiled scripts by script id. Keeps at most maxSize scripts and evicts the least recently used one.
+ * Relies on the insertion order of the Map: the most recently used script is re-inserted at the end.
+ */
+function ScriptCache(maxSize) {
+    this.maxSize = maxSize;
+    this.scripts = new Map();
+}
+
+ScriptCache.prototype.get = function(scriptId) {
+    var script = this.scripts.get(scriptId);
+    if (script) {
+        this.scripts.delete(scriptId);
+        this.scripts.set(scriptId, script);
+    }
+    return script;
+}
+
+/**
+ * @return the id of the evicted script, if any
+ */
+ScriptCache.prototype.put = function(scriptId, script) {
+    this.scripts.delete(scriptId);
+    this.scripts.set(scriptId, script);
+    if (this.scripts.size > this.maxSize) {
+        var leastRecentlyUsedScriptId = this.scripts.keys().next().value;
+        this.scripts.delete(leastRecentlyUsedScriptId);
+        return leastRecentlyUsedScriptId;
+    }
+}
+
+ScriptCache.prototype.delete = function(scriptId) {
+    this.scripts.delete(scriptId);
+}
+
+ScriptCache.prototype.size = function() {
+    return this.scripts.size;
+}
+
+module.exports = ScriptCache;
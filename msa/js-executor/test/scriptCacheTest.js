@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+'use strict';
+
+const assert = require('assert'),
+      ScriptCache = require('../api/scriptCache');
+
+function testLeastRecentlyUsedScriptIsEvicted() {
+    var cache = new ScriptCache(2);
+    assert.strictEqual(cache.put('a', 'scriptA'), undefined);
+    assert.strictEqual(cache.put('b', 'scriptB'), undefined);
+    assert.strictEqual(cache.get('a'), 'scriptA');
+
+    assert.strictEqual(cache.put('c', 'scriptC'), 'b');
+    assert.strictEqual(cache.size(), 2);
+    assert.strictEqual(cache.get('b'), undefined);
+    assert.strictEqual(cache.get('a'), 'scriptA');
+    assert.strictEqual(cache.get('c'), 'scriptC');
+}
+
+function testPutOfExistingScriptDoesNotEvict() {
+    var cache = new ScriptCache(2);
+    cache.put('a', 'scriptA');
+    cache.put('b', 'scriptB');
+    assert.strictEqual(cache.put('a', 'scriptA2'), undefined);
+    assert.strictEqual(cache.size(), 2);
+
+    assert.strictEqual(cache.put('c', 'scriptC'), 'b');
+    assert.strictEqual(cache.get('a'), 'scriptA2');
+}
+
+function testDeletedScriptIsNotFound() {
+    var cache = new ScriptCache(2);
+    cache.put('a', 'scriptA');
+    cache.delete('a');
+    cache.delete('unknown');
+    assert.strictEqual(cache.get('a'), undefined);
+    assert.strictEqual(cache.size(), 0);
+}
+
+testLeastRecentlyUsedScriptIsEvicted();
+testPutOfExistingScriptDoesNotEvict();
+testDeletedScriptIsNotFound();
+console.log('ScriptCache tests passed');
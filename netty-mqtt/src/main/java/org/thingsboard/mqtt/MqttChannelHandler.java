@@ -201,7 +201,7 @@ final class MqttChannelHandler extends SimpleChannelInboundHandler<MqttMessage>
                     MqttIncomingQos2Publish incomingQos2Publish = new MqttIncomingQos2Publish(message, pubrecMessage);
                     this.client.getQos2PendingIncomingPublishes().put(message.variableHeader().messageId(), incomingQos2Publish);
                     message.payload().retain();
-                    incomingQos2Publish.startPubrecRetransmitTimer(this.client.getEventLoop().next(), this.client::sendAndFlushPacket);
+                    incomingQos2Publish.startPubrecRetransmitTimer(this.client.getEventLoop().next(), this.client.getClientConfig(), this.client::sendAndFlushPacket);
 
                     channel.writeAndFlush(pubrecMessage);
                 }
@@ -241,7 +241,7 @@ final class MqttChannelHandler extends SimpleChannelInboundHandler<MqttMessage>
         channel.writeAndFlush(pubrelMessage);
 
         pendingPublish.setPubrelMessage(pubrelMessage);
-        pendingPublish.startPubrelRetransmissionTimer(this.client.getEventLoop().next(), this.client::sendAndFlushPacket);
+        pendingPublish.startPubrelRetransmissionTimer(this.client.getEventLoop().next(), this.client.getClientConfig(), this.client::sendAndFlushPacket);
     }
 
     private void handlePubrel(Channel channel, MqttMessage message) {
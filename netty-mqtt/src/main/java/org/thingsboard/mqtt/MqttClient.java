@@ -63,7 +63,7 @@ public interface MqttClient {
     EventLoopGroup getEventLoop();
 
     /**
-     * By default we use the netty {@link NioEventLoopGroup}.
+     * By default we use the netty {@link NioEventLoopGroup} that is shared by all the clients of the JVM, so it should not be shut down by the client.
      * If you change the EventLoopGroup to another type, make sure to change the {@link Channel} class using {@link MqttClientConfig#setChannelClass(Class)}
      * If you want to force the MqttClient to use another {@link EventLoopGroup}, call this function before calling {@link #connect(String, int)}
      *
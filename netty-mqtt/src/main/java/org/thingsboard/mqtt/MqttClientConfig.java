@@ -19,6 +19,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.mqtt.MqttVersion;
 import io.netty.handler.ssl.SslContext;
+import io.netty.util.Timer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -43,6 +44,12 @@ public final class MqttClientConfig {
     private long reconnectDelay = 1L;
     private int maxBytesInMessage = 8092;
 
+    private long retransmissionInitialDelayMs = 10000L;
+    private long retransmissionMaxDelayMs = 60000L;
+    private double retransmissionBackoffMultiplier = 1.5;
+    @Nullable private Timer retransmissionTimer;
+    private int maxInflightMessages = 0;
+
     public MqttClientConfig() {
         this(null);
     }
@@ -182,4 +189,81 @@ public final class MqttClientConfig {
         }
         this.maxBytesInMessage = maxBytesInMessage;
     }
+
+    public long getRetransmissionInitialDelayMs() {
+        return retransmissionInitialDelayMs;
+    }
+
+    /**
+     * Sets the delay before the first retransmission of an unacknowledged message. Defaults to 10 seconds.
+     * @param retransmissionInitialDelayMs
+     * @throws IllegalArgumentException if retransmissionInitialDelayMs is smaller than 1.
+     */
+    public void setRetransmissionInitialDelayMs(long retransmissionInitialDelayMs) {
+        if (retransmissionInitialDelayMs <= 0) {
+            throw new IllegalArgumentException("retransmissionInitialDelayMs must be > 0");
+        }
+        this.retransmissionInitialDelayMs = retransmissionInitialDelayMs;
+    }
+
+    public long getRetransmissionMaxDelayMs() {
+        return retransmissionMaxDelayMs;
+    }
+
+    /**
+     * Sets the upper bound of the delay between retransmissions. Defaults to 60 seconds.
+     * @param retransmissionMaxDelayMs
+     * @throws IllegalArgumentException if retransmissionMaxDelayMs is smaller than 1.
+     */
+    public void setRetransmissionMaxDelayMs(long retransmissionMaxDelayMs) {
+        if (retransmissionMaxDelayMs <= 0) {
+            throw new IllegalArgumentException("retransmissionMaxDelayMs must be > 0");
+        }
+        this.retransmissionMaxDelayMs = retransmissionMaxDelayMs;
+    }
+
+    public double getRetransmissionBackoffMultiplier() {
+        return retransmissionBackoffMultiplier;
+    }
+
+    /**
+     * Sets the multiplier applied to the delay after each retransmission. Defaults to 1.5.
+     * @param retransmissionBackoffMultiplier
+     * @throws IllegalArgumentException if retransmissionBackoffMultiplier is smaller than 1.
+     */
+    public void setRetransmissionBackoffMultiplier(double retransmissionBackoffMultiplier) {
+        if (retransmissionBackoffMultiplier < 1) {
+            throw new IllegalArgumentException("retransmissionBackoffMultiplier must be >= 1");
+        }
+        this.retransmissionBackoffMultiplier = retransmissionBackoffMultiplier;
+    }
+
+    /**
+     * @return the timer used to schedule the retransmissions. By default one timer is shared by all the clients of the JVM.
+     */
+    @Nonnull
+    public Timer getRetransmissionTimer() {
+        return retransmissionTimer != null ? retransmissionTimer : MqttSharedResources.retransmissionTimer();
+    }
+
+    public void setRetransmissionTimer(@Nullable Timer retransmissionTimer) {
+        this.retransmissionTimer = retransmissionTimer;
+    }
+
+    public int getMaxInflightMessages() {
+        return maxInflightMessages;
+    }
+
+    /**
+     * Sets the maximum number of QoS 1 and QoS 2 messages published by the client and not yet acknowledged by the server.
+     * Publishing over the limit fails immediately. Defaults to 0, that means no limit.
+     * @param maxInflightMessages
+     * @throws IllegalArgumentException if maxInflightMessages is negative.
+     */
+    public void setMaxInflightMessages(int maxInflightMessages) {
+        if (maxInflightMessages < 0) {
+            throw new IllegalArgumentException("maxInflightMessages must be >= 0");
+        }
+        this.maxInflightMessages = maxInflightMessages;
+    }
 }
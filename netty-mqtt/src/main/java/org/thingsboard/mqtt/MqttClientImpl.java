@@ -110,7 +110,7 @@ final class MqttClientImpl implements MqttClient {
 
     private Future<MqttConnectResult> connect(String host, int port, boolean reconnect) {
         if (this.eventLoop == null) {
-            this.eventLoop = new NioEventLoopGroup();
+            this.eventLoop = MqttSharedResources.eventLoopGroup();
         }
         this.host = host;
         this.port = port;
@@ -183,7 +183,7 @@ final class MqttClientImpl implements MqttClient {
     }
 
     /**
-     * By default we use the netty {@link NioEventLoopGroup}.
+     * By default we use the netty {@link NioEventLoopGroup} that is shared by all the clients of the JVM, so it should not be shut down by the client.
      * If you change the EventLoopGroup to another type, make sure to change the {@link Channel} class using {@link MqttClientConfig#setChannelClass(Class)}
      * If you want to force the MqttClient to use another {@link EventLoopGroup}, call this function before calling {@link #connect(String, int)}
      *
@@ -336,6 +336,12 @@ final class MqttClientImpl implements MqttClient {
     @Override
     public Future<Void> publish(String topic, ByteBuf payload, MqttQoS qos, boolean retain) {
         Promise<Void> future = new DefaultPromise<>(this.eventLoop.next());
+        int maxInflightMessages = clientConfig.getMaxInflightMessages();
+        if (qos != MqttQoS.AT_MOST_ONCE && maxInflightMessages > 0 && this.pendingPublishes.size() >= maxInflightMessages) {
+            payload.release();
+            future.setFailure(new IllegalStateException("Maximum number of in-flight messages " + maxInflightMessages + " is reached!"));
+            return future;
+        }
         MqttFixedHeader fixedHeader = new MqttFixedHeader(MqttMessageType.PUBLISH, false, qos, retain, 0);
         MqttPublishVariableHeader variableHeader = new MqttPublishVariableHeader(topic, getNewMessageId().messageId());
         MqttPublishMessage message = new MqttPublishMessage(fixedHeader, variableHeader, payload);
@@ -353,7 +359,7 @@ final class MqttClientImpl implements MqttClient {
             pendingPublish.getFuture().setSuccess(null); //We don't get an ACK for QOS 0
         } else if (pendingPublish.isSent()) {
             this.pendingPublishes.put(pendingPublish.getMessageId(), pendingPublish);
-            pendingPublish.startPublishRetransmissionTimer(this.eventLoop.next(), this::sendAndFlushPacket);
+            pendingPublish.startPublishRetransmissionTimer(this.eventLoop.next(), this.clientConfig, this::sendAndFlushPacket);
         }
         return future;
     }
@@ -439,7 +445,7 @@ final class MqttClientImpl implements MqttClient {
         this.pendingSubscribeTopics.add(topic);
         pendingSubscription.setSent(this.sendAndFlushPacket(message) != null); //If not sent, we will send it when the connection is opened
 
-        pendingSubscription.startRetransmitTimer(this.eventLoop.next(), this::sendAndFlushPacket);
+        pendingSubscription.startRetransmitTimer(this.eventLoop.next(), this.clientConfig, this::sendAndFlushPacket);
 
         return future;
     }
@@ -453,7 +459,7 @@ final class MqttClientImpl implements MqttClient {
 
             MqttPendingUnsubscription pendingUnsubscription = new MqttPendingUnsubscription(promise, topic, message);
             this.pendingServerUnsubscribes.put(variableHeader.messageId(), pendingUnsubscription);
-            pendingUnsubscription.startRetransmissionTimer(this.eventLoop.next(), this::sendAndFlushPacket);
+            pendingUnsubscription.startRetransmissionTimer(this.eventLoop.next(), this.clientConfig, this::sendAndFlushPacket);
 
             this.sendAndFlushPacket(message);
         } else {
@@ -36,10 +36,10 @@ final class MqttIncomingQos2Publish {
         return incomingPublish;
     }
 
-    void startPubrecRetransmitTimer(EventLoop eventLoop, Consumer<Object> sendPacket) {
+    void startPubrecRetransmitTimer(EventLoop eventLoop, MqttClientConfig config, Consumer<Object> sendPacket) {
         this.retransmissionHandler.setHandle((fixedHeader, originalMessage) ->
                 sendPacket.accept(new MqttMessage(fixedHeader, originalMessage.variableHeader())));
-        this.retransmissionHandler.start(eventLoop);
+        this.retransmissionHandler.start(eventLoop, config);
     }
 
     void onPubrelReceived() {
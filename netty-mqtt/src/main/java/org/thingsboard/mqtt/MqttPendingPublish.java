@@ -75,10 +75,10 @@ final class MqttPendingPublish {
         return qos;
     }
 
-    void startPublishRetransmissionTimer(EventLoop eventLoop, Consumer<Object> sendPacket) {
+    void startPublishRetransmissionTimer(EventLoop eventLoop, MqttClientConfig config, Consumer<Object> sendPacket) {
         this.publishRetransmissionHandler.setHandle(((fixedHeader, originalMessage) ->
                 sendPacket.accept(new MqttPublishMessage(fixedHeader, originalMessage.variableHeader(), this.payload.retain()))));
-        this.publishRetransmissionHandler.start(eventLoop);
+        this.publishRetransmissionHandler.start(eventLoop, config);
     }
 
     void onPubackReceived() {
@@ -89,10 +89,10 @@ final class MqttPendingPublish {
         this.pubrelRetransmissionHandler.setOriginalMessage(pubrelMessage);
     }
 
-    void startPubrelRetransmissionTimer(EventLoop eventLoop, Consumer<Object> sendPacket) {
+    void startPubrelRetransmissionTimer(EventLoop eventLoop, MqttClientConfig config, Consumer<Object> sendPacket) {
         this.pubrelRetransmissionHandler.setHandle((fixedHeader, originalMessage) ->
                 sendPacket.accept(new MqttMessage(fixedHeader, originalMessage.variableHeader())));
-        this.pubrelRetransmissionHandler.start(eventLoop);
+        this.pubrelRetransmissionHandler.start(eventLoop, config);
     }
 
     void onPubcompReceived() {
@@ -70,11 +70,11 @@ final class MqttPendingSubscription {
         return handlers;
     }
 
-    void startRetransmitTimer(EventLoop eventLoop, Consumer<Object> sendPacket) {
+    void startRetransmitTimer(EventLoop eventLoop, MqttClientConfig config, Consumer<Object> sendPacket) {
         if(this.sent){ //If the packet is sent, we can start the retransmit timer
             this.retransmissionHandler.setHandle((fixedHeader, originalMessage) ->
                     sendPacket.accept(new MqttSubscribeMessage(fixedHeader, originalMessage.variableHeader(), originalMessage.payload())));
-            this.retransmissionHandler.start(eventLoop);
+            this.retransmissionHandler.start(eventLoop, config);
         }
     }
 
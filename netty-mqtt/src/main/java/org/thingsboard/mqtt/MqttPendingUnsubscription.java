@@ -43,10 +43,10 @@ final class MqttPendingUnsubscription {
         return topic;
     }
 
-    void startRetransmissionTimer(EventLoop eventLoop, Consumer<Object> sendPacket) {
+    void startRetransmissionTimer(EventLoop eventLoop, MqttClientConfig config, Consumer<Object> sendPacket) {
         this.retransmissionHandler.setHandle((fixedHeader, originalMessage) ->
                 sendPacket.accept(new MqttUnsubscribeMessage(fixedHeader, originalMessage.variableHeader(), originalMessage.payload())));
-        this.retransmissionHandler.start(eventLoop);
+        this.retransmissionHandler.start(eventLoop, config);
     }
 
     void onUnsubackReceived(){
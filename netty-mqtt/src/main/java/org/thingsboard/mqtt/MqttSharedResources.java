@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resources shared by all the clients of the JVM that do not provide their own ones.
+ * Both are created on the first use and run on daemon threads.
+ */
+final class MqttSharedResources {
+
+    private MqttSharedResources() {
+    }
+
+    static Timer retransmissionTimer() {
+        return TimerHolder.TIMER;
+    }
+
+    static EventLoopGroup eventLoopGroup() {
+        return EventLoopGroupHolder.EVENT_LOOP_GROUP;
+    }
+
+    private static final class TimerHolder {
+        private static final Timer TIMER = new HashedWheelTimer(
+                new DefaultThreadFactory("netty-mqtt-retransmission", true), 100, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class EventLoopGroupHolder {
+        private static final EventLoopGroup EVENT_LOOP_GROUP = new NioEventLoopGroup(0,
+                new DefaultThreadFactory("netty-mqtt-client", true));
+    }
+}
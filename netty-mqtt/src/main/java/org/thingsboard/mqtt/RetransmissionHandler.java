@@ -18,41 +18,65 @@ package org.thingsboard.mqtt;
 import io.netty.channel.EventLoop;
 import io.netty.handler.codec.mqtt.MqttFixedHeader;
 import io.netty.handler.codec.mqtt.MqttMessage;
-import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.Timeout;
 
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
+/**
+ * Resends the message until it is acknowledged. The delays are tracked by the retransmission timer of the client config,
+ * that is shared by all the clients by default, and the resend itself is executed on the event loop of the client.
+ */
 final class RetransmissionHandler<T extends MqttMessage> {
 
-    private ScheduledFuture<?> timer;
-    private int timeout = 10;
+    private volatile Timeout timeout;
+    private volatile boolean stopped;
+    private long delayMs;
+    private EventLoop eventLoop;
+    private MqttClientConfig config;
+    private MqttFixedHeader dupFixedHeader;
     private BiConsumer<MqttFixedHeader, T> handler;
     private T originalMessage;
 
-    void start(EventLoop eventLoop){
+    void start(EventLoop eventLoop, MqttClientConfig config){
         if(eventLoop == null){
             throw new NullPointerException("eventLoop");
         }
+        if(config == null){
+            throw new NullPointerException("config");
+        }
         if(this.handler == null){
             throw new NullPointerException("handler");
         }
-        this.timeout = 10;
-        this.startTimer(eventLoop);
+        this.eventLoop = eventLoop;
+        this.config = config;
+        this.delayMs = config.getRetransmissionInitialDelayMs();
+        this.stopped = false;
+        this.startTimer();
     }
 
-    private void startTimer(EventLoop eventLoop){
-        this.timer = eventLoop.schedule(() -> {
-            this.timeout += 5;
-            MqttFixedHeader fixedHeader = new MqttFixedHeader(this.originalMessage.fixedHeader().messageType(), true, this.originalMessage.fixedHeader().qosLevel(), this.originalMessage.fixedHeader().isRetain(), this.originalMessage.fixedHeader().remainingLength());
-            handler.accept(fixedHeader, originalMessage);
-            startTimer(eventLoop);
-        }, timeout, TimeUnit.SECONDS);
+    private void startTimer(){
+        this.timeout = config.getRetransmissionTimer().newTimeout(t -> eventLoop.execute(this::retransmit), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void retransmit(){
+        if(this.stopped){
+            return;
+        }
+        if(this.dupFixedHeader == null){
+            MqttFixedHeader fixedHeader = this.originalMessage.fixedHeader();
+            this.dupFixedHeader = new MqttFixedHeader(fixedHeader.messageType(), true, fixedHeader.qosLevel(), fixedHeader.isRetain(), fixedHeader.remainingLength());
+        }
+        handler.accept(this.dupFixedHeader, originalMessage);
+        this.delayMs = Math.min((long) (this.delayMs * config.getRetransmissionBackoffMultiplier()), config.getRetransmissionMaxDelayMs());
+        startTimer();
     }
 
     void stop(){
-        if(this.timer != null){
-            this.timer.cancel(true);
+        this.stopped = true;
+        Timeout timeout = this.timeout;
+        if(timeout != null){
+            timeout.cancel();
         }
     }
 
@@ -62,5 +86,6 @@ final class RetransmissionHandler<T extends MqttMessage> {
 
     void setOriginalMessage(T originalMessage) {
         this.originalMessage = originalMessage;
+        this.dupFixedHeader = null;
     }
 }
@@ -0,0 +1,161 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RetransmissionHandlerTest {
+
+    private final ManualTimer timer = new ManualTimer();
+    private final List<MqttFixedHeader> sentHeaders = new ArrayList<>();
+
+    private EmbeddedChannel channel;
+    private MqttClientConfig config;
+    private RetransmissionHandler<MqttMessage> handler;
+
+    @Before
+    public void before() {
+        channel = new EmbeddedChannel();
+        config = new MqttClientConfig();
+        config.setRetransmissionTimer(timer);
+        config.setRetransmissionInitialDelayMs(1000);
+        config.setRetransmissionBackoffMultiplier(2);
+        config.setRetransmissionMaxDelayMs(5000);
+
+        handler = new RetransmissionHandler<>();
+        handler.setHandle((fixedHeader, message) -> sentHeaders.add(fixedHeader));
+        handler.setOriginalMessage(new MqttMessage(new MqttFixedHeader(MqttMessageType.PUBREL, false, MqttQoS.AT_LEAST_ONCE, false, 2)));
+    }
+
+    @After
+    public void after() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testDelayGrowsUntilMaxDelay() {
+        handler.start(channel.eventLoop(), config);
+        for (int i = 0; i < 5; i++) {
+            timer.fireLast();
+            channel.runPendingTasks();
+        }
+
+        assertEquals(Arrays.asList(1000L, 2000L, 4000L, 5000L, 5000L, 5000L), timer.delays);
+        assertEquals(5, sentHeaders.size());
+        MqttFixedHeader dupHeader = sentHeaders.get(0);
+        assertTrue(dupHeader.isDup());
+        sentHeaders.forEach(header -> assertSame(dupHeader, header));
+    }
+
+    @Test
+    public void testStopCancelsTimeoutAndSkipsResend() {
+        handler.start(channel.eventLoop(), config);
+        handler.stop();
+        assertTrue(timer.timeouts.get(0).isCancelled());
+
+        timer.fireLast();
+        channel.runPendingTasks();
+        assertTrue(sentHeaders.isEmpty());
+        assertEquals(1, timer.delays.size());
+    }
+
+    private static class ManualTimer implements Timer {
+
+        private final List<Long> delays = new ArrayList<>();
+        private final List<ManualTimeout> timeouts = new ArrayList<>();
+
+        @Override
+        public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+            ManualTimeout timeout = new ManualTimeout(this, task);
+            delays.add(unit.toMillis(delay));
+            timeouts.add(timeout);
+            return timeout;
+        }
+
+        void fireLast() {
+            ManualTimeout timeout = timeouts.get(timeouts.size() - 1);
+            try {
+                timeout.task.run(timeout);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Set<Timeout> stop() {
+            return Collections.emptySet();
+        }
+    }
+
+    private static class ManualTimeout implements Timeout {
+
+        private final Timer timer;
+        private final TimerTask task;
+        private boolean cancelled;
+
+        ManualTimeout(Timer timer, TimerTask task) {
+            this.timer = timer;
+            this.task = task;
+        }
+
+        @Override
+        public Timer timer() {
+            return timer;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean cancel() {
+            cancelled = true;
+            return true;
+        }
+    }
+}
@@ -57,4 +57,6 @@ public @interface RuleNode {
 
     boolean customRelations() default false;
 
+    boolean stateless() default false;
+
 }
@@ -99,6 +99,8 @@ public interface TbContext {
 
     ListeningExecutor getDbCallbackExecutor();
 
+    ListeningExecutor getDbCallbackExecutor(EntityId entityId);
+
     ListeningExecutor getExternalCallExecutor();
 
     MailService getMailService();
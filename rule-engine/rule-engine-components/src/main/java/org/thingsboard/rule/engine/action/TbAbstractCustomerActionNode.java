@@ -64,7 +64,7 @@ public abstract class TbAbstractCustomerActionNode<C extends TbAbstractCustomerA
     public void onMsg(TbContext ctx, TbMsg msg) {
         withCallback(processCustomerAction(ctx, msg),
                 m -> ctx.tellNext(msg, "Success"),
-                t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor());
+                t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     private ListenableFuture<Void> processCustomerAction(TbContext ctx, TbMsg msg) {
@@ -72,7 +72,7 @@ public abstract class TbAbstractCustomerActionNode<C extends TbAbstractCustomerA
         return Futures.transform(customerIdFeature, customerId -> {
                     doProcessCustomerAction(ctx, msg, customerId);
                     return null;
-                }, ctx.getDbCallbackExecutor()
+                }, ctx.getDbCallbackExecutor(msg.getOriginator())
         );
     }
 
@@ -81,7 +81,7 @@ public abstract class TbAbstractCustomerActionNode<C extends TbAbstractCustomerA
     protected ListenableFuture<CustomerId> getCustomer(TbContext ctx, TbMsg msg) {
         String customerTitle = TbNodeUtils.processPattern(this.config.getCustomerNamePattern(), msg.getMetaData());
         CustomerKey key = new CustomerKey(customerTitle);
-        return ctx.getDbCallbackExecutor().executeAsync(() -> {
+        return ctx.getDbCallbackExecutor(msg.getOriginator()).executeAsync(() -> {
             Optional<CustomerId> customerId = customerIdCache.get(key);
             if (!customerId.isPresent()) {
                 throw new RuntimeException("No customer found with name '" + key.getCustomerTitle() + "'.");
@@ -79,7 +79,7 @@ public abstract class TbAbstractRelationActionNode<C extends TbAbstractRelationA
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
         withCallback(processEntityRelationAction(ctx, msg),
-                filterResult -> ctx.tellNext(filterResult.getMsg(), filterResult.isResult() ? SUCCESS : FAILURE), t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor());
+                filterResult -> ctx.tellNext(filterResult.getMsg(), filterResult.isResult() ? SUCCESS : FAILURE), t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     @Override
@@ -106,7 +106,7 @@ public abstract class TbAbstractRelationActionNode<C extends TbAbstractRelationA
         }
         EntityType entityType = EntityType.valueOf(this.config.getEntityType());
         EntityKey key = new EntityKey(entityName, type, entityType);
-        return ctx.getDbCallbackExecutor().executeAsync(() -> {
+        return ctx.getDbCallbackExecutor(msg.getOriginator()).executeAsync(() -> {
             EntityContainer entityContainer = entityIdCache.get(key);
             if (entityContainer.getEntityId() == null) {
                 throw new RuntimeException("No entity found with type '" + key.getEntityType() + "' and name '" + key.getEntityName() + "'.");
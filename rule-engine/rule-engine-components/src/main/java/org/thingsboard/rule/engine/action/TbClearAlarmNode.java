@@ -61,7 +61,7 @@ public class TbClearAlarmNode extends TbAbstractAlarmNode<TbClearAlarmNodeConfig
                 return clearAlarm(ctx, msg, a);
             }
             return Futures.immediateFuture(new AlarmResult(false, false, false, null));
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     private ListenableFuture<AlarmResult> clearAlarm(TbContext ctx, TbMsg msg, Alarm alarm) {
@@ -75,6 +75,6 @@ public class TbClearAlarmNode extends TbAbstractAlarmNode<TbClearAlarmNodeConfig
                 alarm.setStatus(alarm.getStatus().isAck() ? AlarmStatus.CLEARED_ACK : AlarmStatus.CLEARED_UNACK);
                 return Futures.immediateFuture(new AlarmResult(false, false, true, alarm));
             });
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 }
@@ -84,7 +84,7 @@ public class TbCreateAlarmNode extends TbAbstractAlarmNode<TbCreateAlarmNodeConf
             } else {
                 return updateAlarm(ctx, msg, existingAlarm, msgAlarm);
             }
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
 
     }
 
@@ -110,7 +110,7 @@ public class TbCreateAlarmNode extends TbAbstractAlarmNode<TbCreateAlarmNodeConf
                     details -> buildAlarm(msg, details, ctx.getTenantId()));
         }
         ListenableFuture<Alarm> asyncCreated = Futures.transform(asyncAlarm,
-                alarm -> ctx.getAlarmService().createOrUpdateAlarm(alarm), ctx.getDbCallbackExecutor());
+                alarm -> ctx.getAlarmService().createOrUpdateAlarm(alarm), ctx.getDbCallbackExecutor(msg.getOriginator()));
         return Futures.transform(asyncCreated, alarm -> new AlarmResult(true, false, false, alarm));
     }
 
@@ -126,7 +126,7 @@ public class TbCreateAlarmNode extends TbAbstractAlarmNode<TbCreateAlarmNodeConf
             existingAlarm.setDetails(details);
             existingAlarm.setEndTs(System.currentTimeMillis());
             return ctx.getAlarmService().createOrUpdateAlarm(existingAlarm);
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
 
         return Futures.transform(asyncUpdated, a -> new AlarmResult(false, true, false, a));
     }
@@ -90,19 +90,19 @@ public class TbCreateRelationNode extends TbAbstractRelationActionNode<TbCreateR
         ListenableFuture<Boolean> checkRelationFuture = Futures.transformAsync(ctx.getRelationService().checkRelation(ctx.getTenantId(), sdId.getFromId(), sdId.getToId(), relationType, RelationTypeGroup.COMMON), result -> {
             if (!result) {
                 if (config.isRemoveCurrentRelations()) {
-                    return processDeleteRelations(ctx, processFindRelations(ctx, msg, sdId));
+                    return processDeleteRelations(ctx, msg, processFindRelations(ctx, msg, sdId));
                 }
                 return Futures.immediateFuture(false);
             }
             return Futures.immediateFuture(true);
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
 
         return Futures.transformAsync(checkRelationFuture, result -> {
             if (!result) {
-                return processCreateRelation(ctx, entityContainer, sdId);
+                return processCreateRelation(ctx, msg, entityContainer, sdId);
             }
             return Futures.immediateFuture(true);
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     private ListenableFuture<List<EntityRelation>> processFindRelations(TbContext ctx, TbMsg msg, SearchDirectionIds sdId) {
@@ -113,7 +113,7 @@ public class TbCreateRelationNode extends TbAbstractRelationActionNode<TbCreateR
         }
     }
 
-    private ListenableFuture<Boolean> processDeleteRelations(TbContext ctx, ListenableFuture<List<EntityRelation>> listListenableFuture) {
+    private ListenableFuture<Boolean> processDeleteRelations(TbContext ctx, TbMsg msg, ListenableFuture<List<EntityRelation>> listListenableFuture) {
         return Futures.transformAsync(listListenableFuture, entityRelations -> {
             if (!entityRelations.isEmpty()) {
                 List<ListenableFuture<Boolean>> list = new ArrayList<>();
@@ -123,35 +123,35 @@ public class TbCreateRelationNode extends TbAbstractRelationActionNode<TbCreateR
                 return Futures.transform(Futures.allAsList(list), result -> false);
             }
             return Futures.immediateFuture(false);
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
-    private ListenableFuture<Boolean> processCreateRelation(TbContext ctx, EntityContainer entityContainer, SearchDirectionIds sdId) {
+    private ListenableFuture<Boolean> processCreateRelation(TbContext ctx, TbMsg msg, EntityContainer entityContainer, SearchDirectionIds sdId) {
         switch (entityContainer.getEntityType()) {
             case ASSET:
-                return processAsset(ctx, entityContainer, sdId);
+                return processAsset(ctx, msg, entityContainer, sdId);
             case DEVICE:
                 return processDevice(ctx, entityContainer, sdId);
             case CUSTOMER:
-                return processCustomer(ctx, entityContainer, sdId);
+                return processCustomer(ctx, msg, entityContainer, sdId);
             case DASHBOARD:
-                return processDashboard(ctx, entityContainer, sdId);
+                return processDashboard(ctx, msg, entityContainer, sdId);
             case ENTITY_VIEW:
-                return processView(ctx, entityContainer, sdId);
+                return processView(ctx, msg, entityContainer, sdId);
             case TENANT:
-                return processTenant(ctx, entityContainer, sdId);
+                return processTenant(ctx, msg, entityContainer, sdId);
         }
         return Futures.immediateFuture(true);
     }
 
-    private ListenableFuture<Boolean> processView(TbContext ctx, EntityContainer entityContainer, SearchDirectionIds sdId) {
+    private ListenableFuture<Boolean> processView(TbContext ctx, TbMsg msg, EntityContainer entityContainer, SearchDirectionIds sdId) {
         return Futures.transformAsync(ctx.getEntityViewService().findEntityViewByIdAsync(ctx.getTenantId(), new EntityViewId(entityContainer.getEntityId().getId())), entityView -> {
             if (entityView != null) {
                 return processSave(ctx, sdId);
             } else {
                 return Futures.immediateFuture(true);
             }
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     private ListenableFuture<Boolean> processDevice(TbContext ctx, EntityContainer entityContainer, SearchDirectionIds sdId) {
@@ -164,44 +164,44 @@ public class TbCreateRelationNode extends TbAbstractRelationActionNode<TbCreateR
         });
     }
 
-    private ListenableFuture<Boolean> processAsset(TbContext ctx, EntityContainer entityContainer, SearchDirectionIds sdId) {
+    private ListenableFuture<Boolean> processAsset(TbContext ctx, TbMsg msg, EntityContainer entityContainer, SearchDirectionIds sdId) {
         return Futures.transformAsync(ctx.getAssetService().findAssetByIdAsync(ctx.getTenantId(), new AssetId(entityContainer.getEntityId().getId())), asset -> {
             if (asset != null) {
                 return processSave(ctx, sdId);
             } else {
                 return Futures.immediateFuture(true);
             }
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
-    private ListenableFuture<Boolean> processCustomer(TbContext ctx, EntityContainer entityContainer, SearchDirectionIds sdId) {
+    private ListenableFuture<Boolean> processCustomer(TbContext ctx, TbMsg msg, EntityContainer entityContainer, SearchDirectionIds sdId) {
         return Futures.transformAsync(ctx.getCustomerService().findCustomerByIdAsync(ctx.getTenantId(), new CustomerId(entityContainer.getEntityId().getId())), customer -> {
             if (customer != null) {
                 return processSave(ctx, sdId);
             } else {
                 return Futures.immediateFuture(true);
             }
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
-    private ListenableFuture<Boolean> processDashboard(TbContext ctx, EntityContainer entityContainer, SearchDirectionIds sdId) {
+    private ListenableFuture<Boolean> processDashboard(TbContext ctx, TbMsg msg, EntityContainer entityContainer, SearchDirectionIds sdId) {
         return Futures.transformAsync(ctx.getDashboardService().findDashboardByIdAsync(ctx.getTenantId(), new DashboardId(entityContainer.getEntityId().getId())), dashboard -> {
             if (dashboard != null) {
                 return processSave(ctx, sdId);
             } else {
                 return Futures.immediateFuture(true);
             }
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
-    private ListenableFuture<Boolean> processTenant(TbContext ctx, EntityContainer entityContainer, SearchDirectionIds sdId) {
+    private ListenableFuture<Boolean> processTenant(TbContext ctx, TbMsg msg, EntityContainer entityContainer, SearchDirectionIds sdId) {
         return Futures.transformAsync(ctx.getTenantService().findTenantByIdAsync(ctx.getTenantId(), new TenantId(entityContainer.getEntityId().getId())), tenant -> {
             if (tenant != null) {
                 return processSave(ctx, sdId);
             } else {
                 return Futures.immediateFuture(true);
             }
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     private ListenableFuture<Boolean> processSave(TbContext ctx, SearchDirectionIds sdId) {
@@ -0,0 +1,95 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.aws.sns;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.sns.AmazonSNSAsync;
+import com.amazonaws.services.sns.AmazonSNSAsyncClientBuilder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Async SNS clients shared by the SNS rule nodes with the same credentials, region and service endpoint.
+ * Every async client owns a thread pool, so the client is shut down only when the last node releases it.
+ */
+@Slf4j
+final class TbSnsClients {
+
+    private static final Map<ClientKey, SharedClient> clients = new HashMap<>();
+
+    private TbSnsClients() {
+    }
+
+    static synchronized AmazonSNSAsync acquire(TbSnsNodeConfiguration config) {
+        SharedClient sharedClient = clients.computeIfAbsent(new ClientKey(config), key -> new SharedClient(createClient(config)));
+        sharedClient.refCount++;
+        return sharedClient.client;
+    }
+
+    static synchronized void release(TbSnsNodeConfiguration config) {
+        ClientKey key = new ClientKey(config);
+        SharedClient sharedClient = clients.get(key);
+        if (sharedClient != null && --sharedClient.refCount == 0) {
+            clients.remove(key);
+            try {
+                sharedClient.client.shutdown();
+            } catch (Exception e) {
+                log.error("Failed to shutdown SNS client", e);
+            }
+        }
+    }
+
+    private static AmazonSNSAsync createClient(TbSnsNodeConfiguration config) {
+        BasicAWSCredentials awsCredentials = new BasicAWSCredentials(config.getAccessKeyId(), config.getSecretAccessKey());
+        AmazonSNSAsyncClientBuilder builder = AmazonSNSAsyncClientBuilder.standard().withCredentials(new AWSStaticCredentialsProvider(awsCredentials));
+        if (StringUtils.isEmpty(config.getServiceEndpoint())) {
+            builder.withRegion(config.getRegion());
+        } else {
+            builder.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(config.getServiceEndpoint(), config.getRegion()));
+        }
+        return builder.build();
+    }
+
+    @Data
+    private static class ClientKey {
+        private final String accessKeyId;
+        private final String secretAccessKey;
+        private final String region;
+        private final String serviceEndpoint;
+
+        ClientKey(TbSnsNodeConfiguration config) {
+            this.accessKeyId = config.getAccessKeyId();
+            this.secretAccessKey = config.getSecretAccessKey();
+            this.region = config.getRegion();
+            this.serviceEndpoint = config.getServiceEndpoint();
+        }
+    }
+
+    private static class SharedClient {
+        private final AmazonSNSAsync client;
+        private int refCount;
+
+        SharedClient(AmazonSNSAsync client) {
+            this.client = client;
+        }
+    }
+}
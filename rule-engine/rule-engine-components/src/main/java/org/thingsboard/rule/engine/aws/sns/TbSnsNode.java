@@ -15,14 +15,10 @@
  */
 package org.thingsboard.rule.engine.aws.sns;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.services.sns.AmazonSNS;
-import com.amazonaws.services.sns.AmazonSNSClient;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sns.AmazonSNSAsync;
 import com.amazonaws.services.sns.model.PublishRequest;
 import com.amazonaws.services.sns.model.PublishResult;
-import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.rule.engine.api.*;
@@ -32,8 +28,6 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 
 import java.util.concurrent.ExecutionException;
 
-import static org.thingsboard.rule.engine.api.util.DonAsynchron.withCallback;
-
 @Slf4j
 @RuleNode(
         type = ComponentType.EXTERNAL,
@@ -54,44 +48,44 @@ public class TbSnsNode implements TbNode {
     private static final String ERROR = "error";
 
     private TbSnsNodeConfiguration config;
-    private AmazonSNS snsClient;
+    private AmazonSNSAsync snsClient;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbSnsNodeConfiguration.class);
-        AWSCredentials awsCredentials = new BasicAWSCredentials(this.config.getAccessKeyId(), this.config.getSecretAccessKey());
-        AWSStaticCredentialsProvider credProvider = new AWSStaticCredentialsProvider(awsCredentials);
         try {
-            this.snsClient = AmazonSNSClient.builder()
-                    .withCredentials(credProvider)
-                    .withRegion(this.config.getRegion())
-                    .build();
+            this.snsClient = acquireSnsClient();
         } catch (Exception e) {
             throw new TbNodeException(e);
         }
     }
 
-    @Override
-    public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
-        withCallback(publishMessageAsync(ctx, msg),
-                m -> ctx.tellNext(m, TbRelationTypes.SUCCESS),
-                t -> {
-                    TbMsg next = processException(ctx, msg, t);
-                    ctx.tellFailure(next, t);
-                });
+    AmazonSNSAsync acquireSnsClient() {
+        return TbSnsClients.acquire(this.config);
     }
 
-    private ListenableFuture<TbMsg> publishMessageAsync(TbContext ctx, TbMsg msg) {
-        return ctx.getExternalCallExecutor().executeAsync(() -> publishMessage(ctx, msg));
+    void releaseSnsClient() {
+        TbSnsClients.release(this.config);
     }
 
-    private TbMsg publishMessage(TbContext ctx, TbMsg msg) {
+    @Override
+    public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
         String topicArn = TbNodeUtils.processPattern(this.config.getTopicArnPattern(), msg.getMetaData());
         PublishRequest publishRequest = new PublishRequest()
                 .withTopicArn(topicArn)
                 .withMessage(msg.getData());
-        PublishResult result = this.snsClient.publish(publishRequest);
-        return processPublishResult(ctx, msg, result);
+        this.snsClient.publishAsync(publishRequest, new AsyncHandler<PublishRequest, PublishResult>() {
+            @Override
+            public void onError(Exception e) {
+                TbMsg next = processException(ctx, msg, e);
+                ctx.tellFailure(next, e);
+            }
+
+            @Override
+            public void onSuccess(PublishRequest request, PublishResult result) {
+                ctx.tellNext(processPublishResult(ctx, msg, result), TbRelationTypes.SUCCESS);
+            }
+        });
     }
 
     private TbMsg processPublishResult(TbContext ctx, TbMsg origMsg, PublishResult result) {
@@ -110,11 +104,8 @@ public class TbSnsNode implements TbNode {
     @Override
     public void destroy() {
         if (this.snsClient != null) {
-            try {
-                this.snsClient.shutdown();
-            } catch (Exception e) {
-                log.error("Failed to shutdown SNS client during destroy()", e);
-            }
+            releaseSnsClient();
+            this.snsClient = null;
         }
     }
 }
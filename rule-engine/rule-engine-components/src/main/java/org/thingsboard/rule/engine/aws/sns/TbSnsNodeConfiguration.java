@@ -25,6 +25,7 @@ public class TbSnsNodeConfiguration implements NodeConfiguration<TbSnsNodeConfig
     private String accessKeyId;
     private String secretAccessKey;
     private String region;
+    private String serviceEndpoint;
 
     @Override
     public TbSnsNodeConfiguration defaultConfiguration() {
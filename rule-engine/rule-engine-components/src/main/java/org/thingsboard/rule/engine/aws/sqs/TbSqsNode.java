@@ -15,15 +15,16 @@
  */
 package org.thingsboard.rule.engine.aws.sqs;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageResult;
-import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
@@ -32,12 +33,15 @@ import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
-import static org.thingsboard.rule.engine.api.util.DonAsynchron.withCallback;
-
 @Slf4j
 @RuleNode(
         type = ComponentType.EXTERNAL,
@@ -47,7 +51,9 @@ import static org.thingsboard.rule.engine.api.util.DonAsynchron.withCallback;
         nodeDetails = "Will publish message payload and metadata attributes to the AWS SQS queue. Outbound message will contain " +
                 "response fields (<code>messageId</code>, <code>requestId</code>, <code>messageBodyMd5</code>, <code>messageAttributesMd5</code>" +
                 ", <code>sequenceNumber</code>) in the Message Metadata from the AWS SQS." +
-                " For example <b>requestId</b> field can be accessed with <code>metadata.requestId</code>.",
+                " For example <b>requestId</b> field can be accessed with <code>metadata.requestId</code>." +
+                " If batching is enabled, messages are grouped per queue url and published with a single SendMessageBatch call" +
+                " once the batch is full, would exceed the 256 KB SQS batch payload limit or the linger interval expires.",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         configDirective = "tbActionNodeSqsConfig",
         iconUrl = "data:image/svg+xml;base64,PHN2ZyB4bWxucz0iaHR0cDovL3d3dy53My5vcmcvMjAwMC9zdmciIHZpZXdCb3g9IjAgMCAyNCAyNCIgd2lkdGg9IjQ4IiBoZWlnaHQ9IjQ4Ij48cGF0aCBkPSJNMTMuMjMgMTAuNTZWMTBjLTEuOTQgMC0zLjk5LjM5LTMuOTkgMi42NyAwIDEuMTYuNjEgMS45NSAxLjYzIDEuOTUuNzYgMCAxLjQzLS40NyAxLjg2LTEuMjIuNTItLjkzLjUtMS44LjUtMi44NG0yLjcgNi41M2MtLjE4LjE2LS40My4xNy0uNjMuMDYtLjg5LS43NC0xLjA1LTEuMDgtMS41NC0xLjc5LTEuNDcgMS41LTIuNTEgMS45NS00LjQyIDEuOTUtMi4yNSAwLTQuMDEtMS4zOS00LjAxLTQuMTcgMC0yLjE4IDEuMTctMy42NCAyLjg2LTQuMzggMS40Ni0uNjQgMy40OS0uNzYgNS4wNC0uOTNWNy41YzAtLjY2LjA1LTEuNDEtLjMzLTEuOTYtLjMyLS40OS0uOTUtLjctMS41LS43LTEuMDIgMC0xLjkzLjUzLTIuMTUgMS42MS0uMDUuMjQtLjI1LjQ4LS40Ny40OWwtMi42LS4yOGMtLjIyLS4wNS0uNDYtLjIyLS40LS41Ni42LTMuMTUgMy40NS00LjEgNi00LjEgMS4zIDAgMyAuMzUgNC4wMyAxLjMzQzE3LjExIDQuNTUgMTcgNi4xOCAxNyA3Ljk1djQuMTdjMCAxLjI1LjUgMS44MSAxIDIuNDguMTcuMjUuMjEuNTQgMCAuNzFsLTIuMDYgMS43OGgtLjAxIj48L3BhdGg+PHBhdGggZD0iTTIwLjE2IDE5LjU0QzE4IDIxLjE0IDE0LjgyIDIyIDEyLjEgMjJjLTMuODEgMC03LjI1LTEuNDEtOS44NS0zLjc2LS4yLS4xOC0uMDItLjQzLjI1LS4yOSAyLjc4IDEuNjMgNi4yNSAyLjYxIDkuODMgMi42MSAyLjQxIDAgNS4wNy0uNSA3LjUxLTEuNTMuMzctLjE2LjY2LjI0LjMyLjUxIj48L3BhdGg+PHBhdGggZD0iTTIxLjA3IDE4LjVjLS4yOC0uMzYtMS44NS0uMTctMi41Ny0uMDgtLjE5LjAyLS4yMi0uMTYtLjAzLS4zIDEuMjQtLjg4IDMuMjktLjYyIDMuNTMtLjMzLjI0LjMtLjA3IDIuMzUtMS4yNCAzLjMyLS4xOC4xNi0uMzUuMDctLjI2LS4xMS4yNi0uNjcuODUtMi4xNC41Ny0yLjV6Ij48L3BhdGg+PC9zdmc+"
@@ -60,75 +66,201 @@ public class TbSqsNode implements TbNode {
     private static final String MESSAGE_ATTRIBUTES_MD5 = "messageAttributesMd5";
     private static final String SEQUENCE_NUMBER = "sequenceNumber";
     private static final String ERROR = "error";
+    private static final String TB_SQS_NODE_FLUSH_MSG = "TbSqsNodeFlushMsg";
+    private static final int SQS_MAX_BATCH_SIZE = 10;
+    // SQS limits the total size of the message bodies and attributes of a batch to 256 KB
+    static final int SQS_MAX_BATCH_PAYLOAD_SIZE = 256 * 1024;
 
     private TbSqsNodeConfiguration config;
-    private AmazonSQS sqsClient;
+    private AmazonSQSAsync sqsClient;
+
+    private int maxBatchSize;
+    private final Map<String, PendingBatch> pendingBatches = new LinkedHashMap<>();
+    private UUID nextFlushTickId;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbSqsNodeConfiguration.class);
-        AWSCredentials awsCredentials = new BasicAWSCredentials(this.config.getAccessKeyId(), this.config.getSecretAccessKey());
-        AWSStaticCredentialsProvider credProvider = new AWSStaticCredentialsProvider(awsCredentials);
+        this.maxBatchSize = this.config.getMaxBatchSize() > 0 ? Math.min(this.config.getMaxBatchSize(), SQS_MAX_BATCH_SIZE) : SQS_MAX_BATCH_SIZE;
         try {
-            this.sqsClient = AmazonSQSClientBuilder.standard()
-                    .withCredentials(credProvider)
-                    .withRegion(this.config.getRegion())
-                    .build();
+            this.sqsClient = acquireSqsClient();
         } catch (Exception e) {
             throw new TbNodeException(e);
         }
     }
 
+    AmazonSQSAsync acquireSqsClient() {
+        return TbSqsClients.acquire(this.config);
+    }
+
+    void releaseSqsClient() {
+        TbSqsClients.release(this.config);
+    }
+
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
-        withCallback(publishMessageAsync(ctx, msg),
-                m -> ctx.tellNext(m, TbRelationTypes.SUCCESS),
-                t -> {
-                    TbMsg next = processException(ctx, msg, t);
-                    ctx.tellFailure(next, t);
-                });
+        if (msg.getType().equals(TB_SQS_NODE_FLUSH_MSG)) {
+            if (msg.getId().equals(nextFlushTickId)) {
+                nextFlushTickId = null;
+                flushPendingBatches(ctx);
+            }
+        } else if (this.config.isBatchingEnabled()) {
+            addToBatch(ctx, msg);
+        } else {
+            publishMessage(ctx, msg);
+        }
     }
 
-    private ListenableFuture<TbMsg> publishMessageAsync(TbContext ctx, TbMsg msg) {
-        return ctx.getExternalCallExecutor().executeAsync(() -> publishMessage(ctx, msg));
+    private void addToBatch(TbContext ctx, TbMsg msg) {
+        String queueUrl = TbNodeUtils.processPattern(this.config.getQueueUrlPattern(), msg.getMetaData());
+        SendMessageBatchRequestEntry entry = buildBatchEntry(msg);
+        int payloadSize = getPayloadSize(entry);
+        PendingBatch batch = pendingBatches.get(queueUrl);
+        if (batch != null && batch.payloadSize + payloadSize > SQS_MAX_BATCH_PAYLOAD_SIZE) {
+            pendingBatches.remove(queueUrl);
+            publishBatch(ctx, queueUrl, batch);
+            batch = null;
+        }
+        if (batch == null) {
+            batch = new PendingBatch(maxBatchSize);
+            pendingBatches.put(queueUrl, batch);
+        }
+        batch.add(msg, entry, payloadSize);
+        if (batch.msgs.size() >= maxBatchSize) {
+            pendingBatches.remove(queueUrl);
+            publishBatch(ctx, queueUrl, batch);
+        } else if (nextFlushTickId == null) {
+            scheduleFlushTick(ctx);
+        }
     }
 
-    private TbMsg publishMessage(TbContext ctx, TbMsg msg) {
+    private void scheduleFlushTick(TbContext ctx) {
+        TbMsg tickMsg = ctx.newMsg(TB_SQS_NODE_FLUSH_MSG, ctx.getSelfId(), new TbMsgMetaData(), "");
+        nextFlushTickId = tickMsg.getId();
+        ctx.tellSelf(tickMsg, Math.max(0L, this.config.getBatchLingerMs()));
+    }
+
+    private void flushPendingBatches(TbContext ctx) {
+        pendingBatches.forEach((queueUrl, batch) -> publishBatch(ctx, queueUrl, batch));
+        pendingBatches.clear();
+    }
+
+    private SendMessageBatchRequestEntry buildBatchEntry(TbMsg msg) {
+        SendMessageBatchRequestEntry entry = new SendMessageBatchRequestEntry()
+                .withMessageBody(msg.getData())
+                .withMessageAttributes(buildMessageAttributes(msg));
+        if (this.config.getQueueType() == TbSqsNodeConfiguration.QueueType.STANDARD) {
+            entry.withDelaySeconds(this.config.getDelaySeconds());
+        } else {
+            entry.withMessageDeduplicationId(msg.getId().toString());
+            entry.withMessageGroupId(msg.getOriginator().toString());
+        }
+        return entry;
+    }
+
+    private static int getPayloadSize(SendMessageBatchRequestEntry entry) {
+        int size = utf8Length(entry.getMessageBody());
+        for (Map.Entry<String, MessageAttributeValue> attribute : entry.getMessageAttributes().entrySet()) {
+            size += utf8Length(attribute.getKey()) + utf8Length(attribute.getValue().getDataType()) + utf8Length(attribute.getValue().getStringValue());
+        }
+        return size;
+    }
+
+    private static int utf8Length(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+
+    private void publishBatch(TbContext ctx, String queueUrl, PendingBatch pendingBatch) {
+        List<TbMsg> batch = pendingBatch.msgs;
+        SendMessageBatchRequest batchRequest = new SendMessageBatchRequest(queueUrl, pendingBatch.entries);
+        this.sqsClient.sendMessageBatchAsync(batchRequest, new AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult>() {
+            @Override
+            public void onError(Exception e) {
+                batch.forEach(msg -> ctx.tellFailure(processException(ctx, msg, e), e));
+            }
+
+            @Override
+            public void onSuccess(SendMessageBatchRequest request, SendMessageBatchResult result) {
+                processSendMessageBatchResult(ctx, batch, result);
+            }
+        });
+    }
+
+    private void processSendMessageBatchResult(TbContext ctx, List<TbMsg> batch, SendMessageBatchResult result) {
+        String requestId = result.getSdkResponseMetadata() != null ? result.getSdkResponseMetadata().getRequestId() : null;
+        for (SendMessageBatchResultEntry entry : result.getSuccessful()) {
+            TbMsg origMsg = batch.get(Integer.parseInt(entry.getId()));
+            TbMsgMetaData metaData = origMsg.getMetaData().copy();
+            metaData.putValue(MESSAGE_ID, entry.getMessageId());
+            if (!StringUtils.isEmpty(requestId)) {
+                metaData.putValue(REQUEST_ID, requestId);
+            }
+            putResultMetaData(metaData, entry.getMD5OfMessageBody(), entry.getMD5OfMessageAttributes(), entry.getSequenceNumber());
+            ctx.tellNext(ctx.transformMsg(origMsg, origMsg.getType(), origMsg.getOriginator(), metaData, origMsg.getData()), TbRelationTypes.SUCCESS);
+        }
+        for (BatchResultErrorEntry error : result.getFailed()) {
+            TbMsg origMsg = batch.get(Integer.parseInt(error.getId()));
+            RuntimeException e = new RuntimeException("Failed to send message to SQS [" + error.getCode() + "]: " + error.getMessage());
+            ctx.tellFailure(processException(ctx, origMsg, e), e);
+        }
+    }
+
+    private void publishMessage(TbContext ctx, TbMsg msg) {
         String queueUrl = TbNodeUtils.processPattern(this.config.getQueueUrlPattern(), msg.getMetaData());
         SendMessageRequest sendMsgRequest =  new SendMessageRequest();
         sendMsgRequest.withQueueUrl(queueUrl);
         sendMsgRequest.withMessageBody(msg.getData());
-        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
-        this.config.getMessageAttributes().forEach((k,v) -> {
-            String name = TbNodeUtils.processPattern(k, msg.getMetaData());
-            String val = TbNodeUtils.processPattern(v, msg.getMetaData());
-            messageAttributes.put(name, new MessageAttributeValue().withDataType("String").withStringValue(val));
-        });
-        sendMsgRequest.setMessageAttributes(messageAttributes);
+        sendMsgRequest.setMessageAttributes(buildMessageAttributes(msg));
         if (this.config.getQueueType() == TbSqsNodeConfiguration.QueueType.STANDARD) {
             sendMsgRequest.withDelaySeconds(this.config.getDelaySeconds());
         } else {
             sendMsgRequest.withMessageDeduplicationId(msg.getId().toString());
             sendMsgRequest.withMessageGroupId(msg.getOriginator().toString());
         }
-        SendMessageResult result = this.sqsClient.sendMessage(sendMsgRequest);
-        return processSendMessageResult(ctx, msg, result);
+        this.sqsClient.sendMessageAsync(sendMsgRequest, new AsyncHandler<SendMessageRequest, SendMessageResult>() {
+            @Override
+            public void onError(Exception e) {
+                TbMsg next = processException(ctx, msg, e);
+                ctx.tellFailure(next, e);
+            }
+
+            @Override
+            public void onSuccess(SendMessageRequest request, SendMessageResult result) {
+                ctx.tellNext(processSendMessageResult(ctx, msg, result), TbRelationTypes.SUCCESS);
+            }
+        });
+    }
+
+    private Map<String, MessageAttributeValue> buildMessageAttributes(TbMsg msg) {
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
+        this.config.getMessageAttributes().forEach((k,v) -> {
+            String name = TbNodeUtils.processPattern(k, msg.getMetaData());
+            String val = TbNodeUtils.processPattern(v, msg.getMetaData());
+            messageAttributes.put(name, new MessageAttributeValue().withDataType("String").withStringValue(val));
+        });
+        return messageAttributes;
     }
 
     private TbMsg processSendMessageResult(TbContext ctx, TbMsg origMsg, SendMessageResult result) {
         TbMsgMetaData metaData = origMsg.getMetaData().copy();
         metaData.putValue(MESSAGE_ID, result.getMessageId());
-        metaData.putValue(REQUEST_ID, result.getSdkResponseMetadata().getRequestId());
-        if (!StringUtils.isEmpty(result.getMD5OfMessageBody())) {
-            metaData.putValue(MESSAGE_BODY_MD5, result.getMD5OfMessageBody());
+        if (result.getSdkResponseMetadata() != null) {
+            metaData.putValue(REQUEST_ID, result.getSdkResponseMetadata().getRequestId());
         }
-        if (!StringUtils.isEmpty(result.getMD5OfMessageAttributes())) {
-            metaData.putValue(MESSAGE_ATTRIBUTES_MD5, result.getMD5OfMessageAttributes());
+        putResultMetaData(metaData, result.getMD5OfMessageBody(), result.getMD5OfMessageAttributes(), result.getSequenceNumber());
+        return ctx.transformMsg(origMsg, origMsg.getType(), origMsg.getOriginator(), metaData, origMsg.getData());
+    }
+
+    private void putResultMetaData(TbMsgMetaData metaData, String messageBodyMd5, String messageAttributesMd5, String sequenceNumber) {
+        if (!StringUtils.isEmpty(messageBodyMd5)) {
+            metaData.putValue(MESSAGE_BODY_MD5, messageBodyMd5);
         }
-        if (!StringUtils.isEmpty(result.getSequenceNumber())) {
-            metaData.putValue(SEQUENCE_NUMBER, result.getSequenceNumber());
+        if (!StringUtils.isEmpty(messageAttributesMd5)) {
+            metaData.putValue(MESSAGE_ATTRIBUTES_MD5, messageAttributesMd5);
+        }
+        if (!StringUtils.isEmpty(sequenceNumber)) {
+            metaData.putValue(SEQUENCE_NUMBER, sequenceNumber);
         }
-        return ctx.transformMsg(origMsg, origMsg.getType(), origMsg.getOriginator(), metaData, origMsg.getData());
     }
 
     private TbMsg processException(TbContext ctx, TbMsg origMsg, Throwable t) {
@@ -139,12 +271,30 @@ public class TbSqsNode implements TbNode {
 
     @Override
     public void destroy() {
+        if (!pendingBatches.isEmpty()) {
+            log.warn("[{}] Dropping {} pending SQS batch(es) on destroy", this.config.getQueueUrlPattern(), pendingBatches.size());
+            pendingBatches.clear();
+        }
         if (this.sqsClient != null) {
-            try {
-                this.sqsClient.shutdown();
-            } catch (Exception e) {
-                log.error("Failed to shutdown SQS client during destroy()", e);
-            }
+            releaseSqsClient();
+            this.sqsClient = null;
+        }
+    }
+
+    private static class PendingBatch {
+        private final List<TbMsg> msgs;
+        private final List<SendMessageBatchRequestEntry> entries;
+        private int payloadSize;
+
+        PendingBatch(int maxBatchSize) {
+            this.msgs = new ArrayList<>(maxBatchSize);
+            this.entries = new ArrayList<>(maxBatchSize);
+        }
+
+        void add(TbMsg msg, SendMessageBatchRequestEntry entry, int entryPayloadSize) {
+            entries.add(entry.withId(Integer.toString(msgs.size())));
+            msgs.add(msg);
+            payloadSize += entryPayloadSize;
         }
     }
 }
@@ -31,6 +31,10 @@ public class TbSqsNodeConfiguration implements NodeConfiguration<TbSqsNodeConfig
     private String accessKeyId;
     private String secretAccessKey;
     private String region;
+    private String serviceEndpoint;
+    private boolean batchingEnabled;
+    private int maxBatchSize;
+    private long batchLingerMs;
 
     @Override
     public TbSqsNodeConfiguration defaultConfiguration() {
@@ -40,6 +44,9 @@ public class TbSqsNodeConfiguration implements NodeConfiguration<TbSqsNodeConfig
         configuration.setDelaySeconds(0);
         configuration.setMessageAttributes(Collections.emptyMap());
         configuration.setRegion("us-east-1");
+        configuration.setBatchingEnabled(false);
+        configuration.setMaxBatchSize(10);
+        configuration.setBatchLingerMs(100);
         return configuration;
     }
 
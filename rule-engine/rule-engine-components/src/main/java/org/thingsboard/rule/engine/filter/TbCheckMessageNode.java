@@ -35,6 +35,7 @@ import java.util.Map;
         name = "check existence fields",
         relationTypes = {"True", "False"},
         configClazz = TbCheckMessageNodeConfiguration.class,
+        stateless = true,
         nodeDescription = "Checks the existence of the selected keys from message data and metadata.",
         nodeDetails = "If selected checkbox 'Check that all selected keys are present'\" and all keys in message data and metadata are exist - send Message via <b>True</b> chain, otherwise <b>False</b> chain is used.\n" +
                 "Else if the checkbox is not selected, and at least one of the keys from data or metadata of the message exists - send Message via <b>True</b> chain, otherwise, <b>False</b> chain is used. ",
@@ -68,7 +68,7 @@ public class TbCheckRelationNode implements TbNode {
         } else {
             checkRelationFuture = processList(ctx, msg);
         }
-        withCallback(checkRelationFuture, filterResult -> ctx.tellNext(msg, filterResult ? "True" : "False"), t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor());
+        withCallback(checkRelationFuture, filterResult -> ctx.tellNext(msg, filterResult ? "True" : "False"), t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     private ListenableFuture<Boolean> processSingle(TbContext ctx, TbMsg msg) {
@@ -28,6 +28,7 @@ import static org.thingsboard.rule.engine.api.util.DonAsynchron.withCallback;
         type = ComponentType.FILTER,
         name = "script", relationTypes = {"True", "False"},
         configClazz = TbJsFilterNodeConfiguration.class,
+        stateless = true,
         nodeDescription = "Filter incoming messages using JS script",
         nodeDetails = "Evaluate incoming Message with configured JS condition. " +
                 "If <b>True</b> - send Message via <b>True</b> chain, otherwise <b>False</b> chain is used." +
@@ -31,6 +31,7 @@ import static org.thingsboard.rule.engine.api.util.DonAsynchron.withCallback;
         name = "switch", customRelations = true,
         relationTypes = {},
         configClazz = TbJsSwitchNodeConfiguration.class,
+        stateless = true,
         nodeDescription = "Route incoming Message to one or multiple output chains",
         nodeDetails = "Node executes configured JS script. Script should return array of next Chain names where Message should be routed. " +
                 "If Array is empty - message not routed to next Node. " +
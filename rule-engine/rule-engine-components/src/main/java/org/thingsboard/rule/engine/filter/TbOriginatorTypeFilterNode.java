@@ -27,6 +27,7 @@ import org.thingsboard.server.common.msg.TbMsg;
         type = ComponentType.FILTER,
         name = "originator type",
         configClazz = TbOriginatorTypeFilterNodeConfiguration.class,
+        stateless = true,
         relationTypes = {"True", "False"},
         nodeDescription = "Filter incoming messages by message Originator Type",
         nodeDetails = "If Originator Type of incoming message is expected - send Message via <b>True</b> chain, otherwise <b>False</b> chain is used.",
@@ -53,7 +53,7 @@ public abstract class TbAbstractGetAttributesNode<C extends TbGetAttributesNodeC
             withCallback(
                     findEntityIdAsync(ctx, msg.getOriginator()),
                     entityId -> safePutAttributes(ctx, msg, entityId),
-                    t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor());
+                    t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor(msg.getOriginator()));
         } catch (Throwable th) {
             ctx.tellFailure(msg, th);
         }
@@ -70,7 +70,7 @@ public abstract class TbAbstractGetAttributesNode<C extends TbGetAttributesNodeC
                 putAttrAsync(ctx, entityId, msg, SHARED_SCOPE, config.getSharedAttributeNames(), "shared_"),
                 putAttrAsync(ctx, entityId, msg, SERVER_SCOPE, config.getServerAttributeNames(), "ss_")
         );
-        withCallback(allFutures, i -> ctx.tellNext(msg, SUCCESS), t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor());
+        withCallback(allFutures, i -> ctx.tellNext(msg, SUCCESS), t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     private ListenableFuture<Void> putAttrAsync(TbContext ctx, EntityId entityId, TbMsg msg, String scope, List<String> keys, String prefix) {
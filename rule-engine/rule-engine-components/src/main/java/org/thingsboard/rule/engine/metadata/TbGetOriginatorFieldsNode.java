@@ -52,7 +52,7 @@ public class TbGetOriginatorFieldsNode implements TbNode {
     public void onMsg(TbContext ctx, TbMsg msg) throws TbNodeException {
         try {
             withCallback(putEntityFields(ctx, msg.getOriginator(), msg),
-                    i -> ctx.tellNext(msg, SUCCESS), t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor());
+                    i -> ctx.tellNext(msg, SUCCESS), t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor(msg.getOriginator()));
         } catch (Throwable th) {
             ctx.tellFailure(msg, th);
         }
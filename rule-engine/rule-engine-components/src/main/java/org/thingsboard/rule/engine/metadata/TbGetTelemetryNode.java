@@ -106,7 +106,7 @@ public class TbGetTelemetryNode implements TbNode {
                     process(data, msg);
                     TbMsg newMsg = ctx.transformMsg(msg, msg.getType(), msg.getOriginator(), msg.getMetaData(), msg.getData());
                     ctx.tellNext(newMsg, SUCCESS);
-                }, error -> ctx.tellFailure(msg, error), ctx.getDbCallbackExecutor());
+                }, error -> ctx.tellFailure(msg, error), ctx.getDbCallbackExecutor(msg.getOriginator()));
             } catch (Exception e) {
                 ctx.tellFailure(msg, e);
             }
@@ -41,6 +41,7 @@ import java.util.Map;
         type = ComponentType.ACTION,
         name = "save timeseries",
         configClazz = TbMsgTimeseriesNodeConfiguration.class,
+        stateless = true,
         nodeDescription = "Saves timeseries data",
         nodeDetails = "Saves timeseries telemetry data based on configurable TTL parameter. Expects messages with 'POST_TELEMETRY_REQUEST' message type",
         uiResources = {"static/rulenode/rulenode-core-config.js", "static/rulenode/rulenode-core-config.css"},
@@ -39,6 +39,7 @@ import java.util.HashSet;
         type = ComponentType.TRANSFORMATION,
         name = "change originator",
         configClazz = TbChangeOriginatorNodeConfiguration.class,
+        stateless = true,
         nodeDescription = "Change Message Originator To Tenant/Customer/Related Entity",
         nodeDetails = "Related Entity found using configured relation direction and Relation Type. " +
                 "If multiple Related Entities are found, only first Entity is used as new Originator, other entities are discarded. ",
@@ -69,7 +70,7 @@ public class TbChangeOriginatorNode extends TbAbstractTransformNode {
                 return null;
             }
             return ctx.transformMsg(msg, msg.getType(), n, msg.getMetaData(), msg.getData());
-        }, ctx.getDbCallbackExecutor());
+        }, ctx.getDbCallbackExecutor(msg.getOriginator()));
     }
 
     private ListenableFuture<? extends EntityId> getNewOriginator(TbContext ctx, EntityId original) {
@@ -25,6 +25,7 @@ import org.thingsboard.server.common.msg.TbMsg;
         type = ComponentType.TRANSFORMATION,
         name = "script",
         configClazz = TbTransformMsgNodeConfiguration.class,
+        stateless = true,
         nodeDescription = "Change Message payload, Metadata or Message type using JavaScript",
         nodeDetails = "JavaScript function receive 3 input parameters <br/> " +
                 "<code>metadata</code> - is a Message metadata.<br/>" +
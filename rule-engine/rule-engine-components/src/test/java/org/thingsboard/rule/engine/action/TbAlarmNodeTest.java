@@ -155,7 +155,7 @@ public class TbAlarmNodeTest {
         verify(ctx).createJsScriptEngine("DETAILS");
         verify(ctx, times(1)).getJsExecutor();
         verify(ctx).getAlarmService();
-        verify(ctx, times(3)).getDbCallbackExecutor();
+        verify(ctx, times(3)).getDbCallbackExecutor(any());
         verify(ctx).getTenantId();
         verify(alarmService).findLatestByOriginatorAndType(tenantId, originator, "SomeType");
 
@@ -319,7 +319,7 @@ public class TbAlarmNodeTest {
             when(ctx.getTenantId()).thenReturn(tenantId);
             when(ctx.getJsExecutor()).thenReturn(executor);
             when(ctx.getAlarmService()).thenReturn(alarmService);
-            when(ctx.getDbCallbackExecutor()).thenReturn(dbExecutor);
+            when(ctx.getDbCallbackExecutor(any())).thenReturn(dbExecutor);
 
             mockJsExecutor();
 
@@ -343,7 +343,7 @@ public class TbAlarmNodeTest {
             when(ctx.getTenantId()).thenReturn(tenantId);
             when(ctx.getJsExecutor()).thenReturn(executor);
             when(ctx.getAlarmService()).thenReturn(alarmService);
-            when(ctx.getDbCallbackExecutor()).thenReturn(dbExecutor);
+            when(ctx.getDbCallbackExecutor(any())).thenReturn(dbExecutor);
 
             mockJsExecutor();
 
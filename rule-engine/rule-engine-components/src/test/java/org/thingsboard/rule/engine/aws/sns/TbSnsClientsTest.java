@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.aws.sns;
+
+import com.amazonaws.services.sns.AmazonSNSAsync;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TbSnsClientsTest {
+
+    @Test
+    public void clientIsSharedBetweenNodesWithSameSettings() {
+        TbSnsNodeConfiguration config = newConfig();
+        TbSnsNodeConfiguration otherConfig = newConfig();
+        otherConfig.setRegion("eu-west-1");
+
+        AmazonSNSAsync client = TbSnsClients.acquire(config);
+        try {
+            assertSame(client, TbSnsClients.acquire(newConfig()));
+            TbSnsClients.release(config);
+            AmazonSNSAsync otherClient = TbSnsClients.acquire(otherConfig);
+            assertNotSame(client, otherClient);
+            TbSnsClients.release(otherConfig);
+        } finally {
+            TbSnsClients.release(config);
+        }
+        AmazonSNSAsync newClient = TbSnsClients.acquire(config);
+        assertNotSame(client, newClient);
+        TbSnsClients.release(config);
+    }
+
+    private TbSnsNodeConfiguration newConfig() {
+        TbSnsNodeConfiguration config = new TbSnsNodeConfiguration().defaultConfiguration();
+        config.setServiceEndpoint("http://localhost:9911");
+        config.setAccessKeyId("x");
+        config.setSecretAccessKey("x");
+        return config;
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.aws.sqs;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+import com.datastax.driver.core.utils.UUIDs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.api.TbNodeException;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.thingsboard.rule.engine.api.TbRelationTypes.SUCCESS;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TbSqsNodeTest {
+
+    private static final String QUEUE_URL = "http://localhost:9324/queue/tb";
+    private static final String FLUSH_MSG_TYPE = "TbSqsNodeFlushMsg";
+
+    private TbSqsNode node;
+
+    @Mock
+    private TbContext ctx;
+    @Mock
+    private AmazonSQSAsync sqsClient;
+
+    private RuleChainId ruleChainId = new RuleChainId(UUIDs.timeBased());
+    private RuleNodeId ruleNodeId = new RuleNodeId(UUIDs.timeBased());
+
+    @Before
+    public void before() {
+        when(ctx.getSelfId()).thenReturn(ruleNodeId);
+        when(ctx.newMsg(eq(FLUSH_MSG_TYPE), any(), any(), anyString())).thenAnswer(invocation ->
+                new TbMsg(UUIDs.timeBased(), FLUSH_MSG_TYPE, ruleNodeId, new TbMsgMetaData(), "", ruleChainId, ruleNodeId, 0L));
+        when(ctx.transformMsg(any(), anyString(), any(), any(), anyString())).thenAnswer(invocation -> {
+            TbMsg origMsg = (TbMsg) invocation.getArguments()[0];
+            return new TbMsg(origMsg.getId(), origMsg.getType(), origMsg.getOriginator(), (TbMsgMetaData) invocation.getArguments()[3],
+                    origMsg.getData(), ruleChainId, ruleNodeId, 0L);
+        });
+    }
+
+    @Test
+    public void fullBatchIsSentImmediately() throws Exception {
+        init(2, 1000);
+        List<TbMsg> msgs = newMsgs(2);
+        node.onMsg(ctx, msgs.get(0));
+        node.onMsg(ctx, msgs.get(1));
+
+        ArgumentCaptor<SendMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatchAsync(requestCaptor.capture(), any(AsyncHandler.class));
+        assertEquals(QUEUE_URL, requestCaptor.getValue().getQueueUrl());
+        assertEquals(2, requestCaptor.getValue().getEntries().size());
+        assertEquals(msgs.get(1).getData(), requestCaptor.getValue().getEntries().get(1).getMessageBody());
+        verify(ctx, times(1)).tellSelf(any(), eq(1000L));
+    }
+
+    @Test
+    public void batchIsSplitByPayloadSize() throws Exception {
+        init(10, 1000);
+        DeviceId deviceId = new DeviceId(UUIDs.timeBased());
+        String data = StringUtils.repeat('x', TbSqsNode.SQS_MAX_BATCH_PAYLOAD_SIZE / 3);
+        List<TbMsg> msgs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            msgs.add(new TbMsg(UUIDs.timeBased(), "POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), data, ruleChainId, ruleNodeId, 0L));
+        }
+        for (TbMsg msg : msgs) {
+            node.onMsg(ctx, msg);
+        }
+
+        ArgumentCaptor<SendMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatchAsync(requestCaptor.capture(), any(AsyncHandler.class));
+        assertEquals(3, requestCaptor.getValue().getEntries().size());
+        assertEquals("2", requestCaptor.getValue().getEntries().get(2).getId());
+
+        ArgumentCaptor<TbMsg> tickCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(1)).tellSelf(tickCaptor.capture(), anyLong());
+        node.onMsg(ctx, tickCaptor.getValue());
+        verify(sqsClient, times(2)).sendMessageBatchAsync(requestCaptor.capture(), any(AsyncHandler.class));
+        assertEquals(1, requestCaptor.getValue().getEntries().size());
+        assertEquals("0", requestCaptor.getValue().getEntries().get(0).getId());
+    }
+
+    @Test
+    public void pendingBatchIsSentOnFlushTick() throws Exception {
+        init(10, 50);
+        List<TbMsg> msgs = newMsgs(3);
+        for (TbMsg msg : msgs) {
+            node.onMsg(ctx, msg);
+        }
+        verify(sqsClient, never()).sendMessageBatchAsync(any(SendMessageBatchRequest.class), any(AsyncHandler.class));
+
+        ArgumentCaptor<TbMsg> tickCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx).tellSelf(tickCaptor.capture(), anyLong());
+        node.onMsg(ctx, tickCaptor.getValue());
+
+        ArgumentCaptor<SendMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatchAsync(requestCaptor.capture(), any(AsyncHandler.class));
+        assertEquals(3, requestCaptor.getValue().getEntries().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void batchResultIsFannedOutPerMessage() throws Exception {
+        init(2, 1000);
+        List<TbMsg> msgs = newMsgs(2);
+        node.onMsg(ctx, msgs.get(0));
+        node.onMsg(ctx, msgs.get(1));
+
+        ArgumentCaptor<AsyncHandler> handlerCaptor = ArgumentCaptor.forClass(AsyncHandler.class);
+        verify(sqsClient).sendMessageBatchAsync(any(SendMessageBatchRequest.class), handlerCaptor.capture());
+        SendMessageBatchResult result = new SendMessageBatchResult()
+                .withSuccessful(new SendMessageBatchResultEntry().withId("0").withMessageId("sqs-msg-id"))
+                .withFailed(new BatchResultErrorEntry().withId("1").withCode("InvalidParameterValue").withMessage("bad"));
+        handlerCaptor.getValue().onSuccess(null, result);
+
+        ArgumentCaptor<TbMsg> successCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx).tellNext(successCaptor.capture(), same(SUCCESS));
+        assertEquals(msgs.get(0).getId(), successCaptor.getValue().getId());
+        assertEquals("sqs-msg-id", successCaptor.getValue().getMetaData().getValue("messageId"));
+
+        ArgumentCaptor<TbMsg> failureCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx).tellFailure(failureCaptor.capture(), any());
+        assertEquals(msgs.get(1).getId(), failureCaptor.getValue().getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void unbatchedMessageIsSentAsync() throws Exception {
+        init(false, 10, 100);
+        TbMsg msg = newMsgs(1).get(0);
+        node.onMsg(ctx, msg);
+
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        ArgumentCaptor<AsyncHandler> handlerCaptor = ArgumentCaptor.forClass(AsyncHandler.class);
+        verify(sqsClient).sendMessageAsync(requestCaptor.capture(), handlerCaptor.capture());
+        verify(sqsClient, never()).sendMessage(any(SendMessageRequest.class));
+        assertEquals(QUEUE_URL, requestCaptor.getValue().getQueueUrl());
+        assertEquals(msg.getData(), requestCaptor.getValue().getMessageBody());
+
+        handlerCaptor.getValue().onSuccess(requestCaptor.getValue(), new SendMessageResult().withMessageId("sqs-msg-id"));
+        ArgumentCaptor<TbMsg> successCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx).tellNext(successCaptor.capture(), same(SUCCESS));
+        assertEquals("sqs-msg-id", successCaptor.getValue().getMetaData().getValue("messageId"));
+    }
+
+    @Test
+    public void clientIsSharedBetweenNodesWithSameSettings() {
+        TbSqsNodeConfiguration config = newConfig();
+        TbSqsNodeConfiguration otherConfig = newConfig();
+        otherConfig.setRegion("eu-west-1");
+
+        AmazonSQSAsync client = TbSqsClients.acquire(config);
+        try {
+            assertSame(client, TbSqsClients.acquire(newConfig()));
+            TbSqsClients.release(config);
+            AmazonSQSAsync otherClient = TbSqsClients.acquire(otherConfig);
+            assertNotSame(client, otherClient);
+            TbSqsClients.release(otherConfig);
+        } finally {
+            TbSqsClients.release(config);
+        }
+        AmazonSQSAsync newClient = TbSqsClients.acquire(config);
+        assertNotSame(client, newClient);
+        TbSqsClients.release(config);
+    }
+
+    private List<TbMsg> newMsgs(int count) {
+        List<TbMsg> msgs = new ArrayList<>();
+        DeviceId deviceId = new DeviceId(UUIDs.timeBased());
+        for (int i = 0; i < count; i++) {
+            msgs.add(new TbMsg(UUIDs.timeBased(), "POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "{\"temperature\":" + i + "}", ruleChainId, ruleNodeId, 0L));
+        }
+        return msgs;
+    }
+
+    private TbSqsNodeConfiguration newConfig() {
+        TbSqsNodeConfiguration config = new TbSqsNodeConfiguration().defaultConfiguration();
+        config.setQueueUrlPattern(QUEUE_URL);
+        config.setServiceEndpoint("http://localhost:9324");
+        config.setAccessKeyId("x");
+        config.setSecretAccessKey("x");
+        return config;
+    }
+
+    private void init(int maxBatchSize, long lingerMs) throws TbNodeException {
+        init(true, maxBatchSize, lingerMs);
+    }
+
+    private void init(boolean batchingEnabled, int maxBatchSize, long lingerMs) throws TbNodeException {
+        TbSqsNodeConfiguration config = newConfig();
+        config.setBatchingEnabled(batchingEnabled);
+        config.setMaxBatchSize(maxBatchSize);
+        config.setBatchLingerMs(lingerMs);
+        ObjectMapper mapper = new ObjectMapper();
+        TbNodeConfiguration nodeConfiguration = new TbNodeConfiguration(mapper.valueToTree(config));
+
+        node = new TbSqsNode() {
+            @Override
+            AmazonSQSAsync acquireSqsClient() {
+                return sqsClient;
+            }
+
+            @Override
+            void releaseSqsClient() {
+            }
+        };
+        node.init(ctx, nodeConfiguration);
+    }
+}
@@ -161,7 +161,7 @@ public class TbChangeOriginatorNodeTest {
         ObjectMapper mapper = new ObjectMapper();
         TbNodeConfiguration nodeConfiguration = new TbNodeConfiguration(mapper.valueToTree(config));
 
-        when(ctx.getDbCallbackExecutor()).thenReturn(dbExecutor);
+        when(ctx.getDbCallbackExecutor(any())).thenReturn(dbExecutor);
 
         node = new TbChangeOriginatorNode();
         node.init(null, nodeConfiguration);
@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapHandler;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+
+/**
+ * Device that posts telemetry to the CoAP device API with confirmable requests.
+ * The telemetry is acknowledged when the response is received.
+ */
+class CoapDeviceSession implements DeviceSession {
+
+    private final String name;
+    private final CoapClient client;
+    private final TelemetryGenerator generator;
+
+    CoapDeviceSession(LoadTestConfig config, String name, String accessToken, TelemetryGenerator generator) {
+        this.name = name;
+        this.client = new CoapClient("coap", config.getCoapHost(), config.getCoapPort(), "api", "v1", accessToken, "telemetry").useCONs();
+        this.generator = generator;
+    }
+
+    @Override
+    public ListenableFuture<Void> connect() {
+        return Futures.immediateFuture(null);
+    }
+
+    @Override
+    public ListenableFuture<Void> publishTelemetry() {
+        SettableFuture<Void> result = SettableFuture.create();
+        client.post(new CoapHandler() {
+            @Override
+            public void onLoad(CoapResponse response) {
+                if (response.isSuccess()) {
+                    result.set(null);
+                } else {
+                    result.setException(new IllegalStateException("[" + name + "] Request failed: " + response.getCode()));
+                }
+            }
+
+            @Override
+            public void onError() {
+                result.setException(new IllegalStateException("[" + name + "] Request timed out or was rejected"));
+            }
+        }, generator.devicePayload(), MediaTypeRegistry.APPLICATION_JSON);
+        return result;
+    }
+
+    @Override
+    public void disconnect() {
+        client.shutdown();
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Connection of a simulated device or gateway to one of the transports.
+ */
+interface DeviceSession {
+
+    ListenableFuture<Void> connect();
+
+    /**
+     * Publishes the next telemetry message.
+     *
+     * @return future that is completed when the message is acknowledged by the server.
+     */
+    ListenableFuture<Void> publishTelemetry();
+
+    void disconnect();
+}
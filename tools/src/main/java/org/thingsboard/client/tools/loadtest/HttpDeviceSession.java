@@ -0,0 +1,67 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Device that posts telemetry to the HTTP device API. The requests are blocking and run on a shared thread pool.
+ */
+class HttpDeviceSession implements DeviceSession {
+
+    private static final HttpHeaders HEADERS = new HttpHeaders();
+
+    static {
+        HEADERS.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    private final RestTemplate restTemplate;
+    private final ListeningExecutorService executor;
+    private final String url;
+    private final String accessToken;
+    private final TelemetryGenerator generator;
+
+    HttpDeviceSession(LoadTestConfig config, String accessToken, RestTemplate restTemplate, ListeningExecutorService executor, TelemetryGenerator generator) {
+        this.restTemplate = restTemplate;
+        this.executor = executor;
+        this.url = config.getHttpUrl() + "/api/v1/{accessToken}/telemetry";
+        this.accessToken = accessToken;
+        this.generator = generator;
+    }
+
+    @Override
+    public ListenableFuture<Void> connect() {
+        return Futures.immediateFuture(null);
+    }
+
+    @Override
+    public ListenableFuture<Void> publishTelemetry() {
+        return executor.submit(() -> {
+            restTemplate.postForEntity(url, new HttpEntity<>(generator.devicePayload(), HEADERS), Void.class, accessToken);
+            return null;
+        });
+    }
+
+    @Override
+    public void disconnect() {
+    }
+}
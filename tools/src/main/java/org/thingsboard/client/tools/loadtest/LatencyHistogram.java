@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets. Values are recorded in microseconds
+ * and reported with about 2% precision, which is enough for percentiles of network round trips.
+ */
+class LatencyHistogram {
+
+    private static final double BUCKET_GROWTH = 1.02;
+    private static final double LOG_BUCKET_GROWTH = Math.log(BUCKET_GROWTH);
+    // 1 us .. ~1000 s
+    private static final int BUCKETS = (int) Math.ceil(Math.log(TimeUnit.SECONDS.toMicros(1000)) / LOG_BUCKET_GROWTH) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        int index = Math.min(BUCKETS - 1, (int) (Math.log(micros) / LOG_BUCKET_GROWTH));
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long currentMax;
+        while (micros > (currentMax = max.get()) && !max.compareAndSet(currentMax, micros)) {
+        }
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    double getMeanMs() {
+        long currentCount = count.get();
+        return currentCount > 0 ? sum.get() / 1000.0 / currentCount : 0;
+    }
+
+    double getMaxMs() {
+        return max.get() / 1000.0;
+    }
+
+    /**
+     * @return the upper bound of the bucket that contains the given percentile, in milliseconds.
+     */
+    double getPercentileMs(double percentile) {
+        long currentCount = count.get();
+        if (currentCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(currentCount * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(Math.pow(BUCKET_GROWTH, i + 1), max.get()) / 1000.0;
+            }
+        }
+        return getMaxMs();
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.RestTemplate;
+import org.thingsboard.client.tools.RestClient;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for sizing a Thingsboard installation.
+ * <p>
+ * Provisions the devices through the REST API, opens a session per device (or per gateway in gateway mode)
+ * to the MQTT, HTTP or CoAP transport, publishes telemetry at a fixed total rate and reports the throughput
+ * and the latency percentiles of the acknowledged messages. See {@link LoadTestConfig} for the settings, e.g.
+ * <pre>
+ * mvn -pl tools exec:java -Dexec.mainClass=org.thingsboard.client.tools.loadtest.LoadTest -Dtransport=MQTT -Ddevices=1000 -Drate=2000 -Dduration=300
+ * </pre>
+ */
+@Slf4j
+public class LoadTest {
+
+    private static final int PROVISIONING_THREADS = 8;
+    private static final long CONNECT_TIMEOUT_SECONDS = 60;
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+    private final LoadTestConfig config;
+    private final TelemetryGenerator generator;
+    private final LoadTestStats stats = new LoadTestStats();
+    private final List<ProvisionedDevice> provisionedDevices = new ArrayList<>();
+    private final List<DeviceSession> sessions = new ArrayList<>();
+    private ListeningExecutorService httpExecutor;
+
+    public LoadTest(LoadTestConfig config) {
+        this.config = config;
+        this.generator = new TelemetryGenerator(config);
+    }
+
+    public static void main(String[] args) {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        log.info("Starting load test: {}", config);
+        try {
+            new LoadTest(config).run();
+        } catch (Exception e) {
+            log.error("Load test failed", e);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        RestClient restClient = new RestClient(config.getRestUrl());
+        restClient.login(config.getUsername(), config.getPassword());
+        try {
+            provisionDevices(restClient);
+            createSessions();
+            connectSessions();
+            publishTelemetry();
+        } finally {
+            sessions.forEach(DeviceSession::disconnect);
+            if (httpExecutor != null) {
+                httpExecutor.shutdownNow();
+            }
+            if (config.isCleanup()) {
+                deleteDevices(restClient);
+            }
+        }
+    }
+
+    private void provisionDevices(RestClient restClient) throws InterruptedException, ExecutionException {
+        log.info("Provisioning [{}] devices", config.getDevices());
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(PROVISIONING_THREADS));
+        try {
+            List<ListenableFuture<ProvisionedDevice>> futures = new ArrayList<>();
+            for (int i = 0; i < config.getDevices(); i++) {
+                String name = config.getDevicePrefix() + i;
+                futures.add(executor.submit(() -> provisionDevice(restClient, name, false)));
+            }
+            if (config.isGateway()) {
+                for (int i = 0; i < config.getGateways(); i++) {
+                    String name = config.getDevicePrefix() + "Gateway-" + i;
+                    futures.add(executor.submit(() -> provisionDevice(restClient, name, true)));
+                }
+            }
+            provisionedDevices.addAll(Futures.allAsList(futures).get());
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Provisioned [{}] devices", provisionedDevices.size());
+    }
+
+    private ProvisionedDevice provisionDevice(RestClient restClient, String name, boolean gateway) {
+        Optional<Device> existing = restClient.findDevice(name);
+        if (existing.isPresent()) {
+            DeviceId deviceId = existing.get().getId();
+            return new ProvisionedDevice(name, deviceId, restClient.getCredentials(deviceId).getCredentialsId(), gateway);
+        }
+        Device device = new Device();
+        device.setName(name);
+        device.setType(config.getDeviceType());
+        if (gateway) {
+            device.setAdditionalInfo(new ObjectMapper().createObjectNode().put("gateway", true));
+        }
+        device = restClient.createDevice(device);
+        String accessToken = UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+        restClient.updateDeviceCredentials(device.getId(), accessToken);
+        return new ProvisionedDevice(name, device.getId(), accessToken, gateway);
+    }
+
+    private void createSessions() {
+        RestTemplate httpTemplate = null;
+        if (config.getTransport() == TransportType.HTTP) {
+            // HttpURLConnection keeps only 5 idle connections per host by default
+            if (System.getProperty("http.maxConnections") == null) {
+                System.setProperty("http.maxConnections", Integer.toString(config.getHttpThreads()));
+            }
+            httpTemplate = new RestTemplate();
+            httpExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(config.getHttpThreads()));
+        }
+        List<String> deviceNames = new ArrayList<>();
+        List<ProvisionedDevice> gateways = new ArrayList<>();
+        for (ProvisionedDevice device : provisionedDevices) {
+            if (device.isGateway()) {
+                gateways.add(device);
+            } else {
+                deviceNames.add(device.getName());
+            }
+        }
+        if (config.isGateway()) {
+            for (int i = 0; i < gateways.size(); i++) {
+                List<String> gatewayDevices = new ArrayList<>();
+                for (int j = i; j < deviceNames.size(); j += gateways.size()) {
+                    gatewayDevices.add(deviceNames.get(j));
+                }
+                ProvisionedDevice gateway = gateways.get(i);
+                sessions.add(new MqttGatewaySession(config, gateway.getName(), gateway.getAccessToken(), gatewayDevices, generator));
+            }
+            return;
+        }
+        for (ProvisionedDevice device : provisionedDevices) {
+            switch (config.getTransport()) {
+                case MQTT:
+                    sessions.add(new MqttDeviceSession(config, device.getName(), device.getAccessToken(), generator));
+                    break;
+                case HTTP:
+                    sessions.add(new HttpDeviceSession(config, device.getAccessToken(), httpTemplate, httpExecutor, generator));
+                    break;
+                case COAP:
+                    sessions.add(new CoapDeviceSession(config, device.getName(), device.getAccessToken(), generator));
+                    break;
+            }
+        }
+    }
+
+    private void connectSessions() throws InterruptedException, ExecutionException, TimeoutException {
+        log.info("Connecting [{}] {} sessions", sessions.size(), config.getTransport());
+        AtomicInteger failed = new AtomicInteger();
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (DeviceSession session : sessions) {
+            ListenableFuture<Void> future = session.connect();
+            Futures.addCallback(future, new FutureCallback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    log.warn("Failed to connect session: {}", t.getMessage());
+                    failed.incrementAndGet();
+                }
+            }, MoreExecutors.directExecutor());
+            futures.add(future);
+        }
+        Futures.successfulAsList(futures).get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (failed.get() > 0) {
+            throw new IllegalStateException("Failed to connect [" + failed.get() + "] of [" + sessions.size() + "] sessions!");
+        }
+        log.info("Connected [{}] sessions", sessions.size());
+    }
+
+    private void publishTelemetry() throws InterruptedException {
+        log.info("Publishing [{}] msg/s for [{}] seconds", config.getRate(), config.getDuration());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(stats::printIntervalStats, config.getReportInterval(), config.getReportInterval(), TimeUnit.SECONDS);
+        RateLimiter rateLimiter = RateLimiter.create(config.getRate());
+        Semaphore inflight = new Semaphore(config.getMaxInflight());
+        long endTs = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getDuration());
+        int next = 0;
+        stats.start();
+        try {
+            while (System.nanoTime() < endTs) {
+                rateLimiter.acquire();
+                DeviceSession session = sessions.get(next);
+                next = (next + 1) % sessions.size();
+                if (!inflight.tryAcquire()) {
+                    stats.onSkipped();
+                    continue;
+                }
+                long startTs = System.nanoTime();
+                stats.onPublished();
+                Futures.addCallback(session.publishTelemetry(), new FutureCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void result) {
+                        stats.onSuccess(System.nanoTime() - startTs);
+                        inflight.release();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        log.debug("Failed to publish telemetry", t);
+                        stats.onFailure();
+                        inflight.release();
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+            if (!inflight.tryAcquire(config.getMaxInflight(), DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Not all messages are acknowledged in [{}] seconds after the test", DRAIN_TIMEOUT_SECONDS);
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+        stats.printSummary();
+    }
+
+    private void deleteDevices(RestClient restClient) {
+        log.info("Deleting [{}] devices", provisionedDevices.size());
+        for (ProvisionedDevice device : provisionedDevices) {
+            try {
+                restClient.deleteDevice(device.getDeviceId());
+            } catch (Exception e) {
+                log.warn("[{}] Failed to delete device: {}", device.getName(), e.getMessage());
+            }
+        }
+    }
+
+    @Data
+    private static class ProvisionedDevice {
+        private final String name;
+        private final DeviceId deviceId;
+        private final String accessToken;
+        private final boolean gateway;
+    }
+}
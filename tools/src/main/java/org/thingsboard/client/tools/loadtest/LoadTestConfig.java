@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import lombok.Data;
+import lombok.ToString;
+
+/**
+ * Load test settings. Every setting is read from the system property with the same name, e.g.
+ * {@code -Dtransport=COAP -Ddevices=1000 -Drate=5000}.
+ * <ul>
+ * <li>{@code rest.url}, {@code rest.username}, {@code rest.password} - REST API used to provision the devices;</li>
+ * <li>{@code transport} - MQTT, HTTP or COAP;</li>
+ * <li>{@code mqtt.host}, {@code mqtt.port}, {@code mqtt.qos} - MQTT transport; with QoS 1 the latency is measured up to PUBACK;</li>
+ * <li>{@code http.url}, {@code http.threads} - HTTP transport;</li>
+ * <li>{@code coap.host}, {@code coap.port} - CoAP transport;</li>
+ * <li>{@code devices}, {@code device.prefix}, {@code device.type} - provisioned devices;</li>
+ * <li>{@code gateway} - publish through MQTT gateways instead of the devices themselves;</li>
+ * <li>{@code gateways}, {@code gateway.devices_per_msg} - number of gateways sharing the devices and devices per gateway message;</li>
+ * <li>{@code rate} - total messages per second, {@code duration} - test duration in seconds;</li>
+ * <li>{@code max_inflight} - messages waiting for acknowledgement, the publishing is skipped above the limit;</li>
+ * <li>{@code payload.keys}, {@code payload.string_keys}, {@code payload.ts} - payload shape: number of numeric and string keys
+ * and whether the values are wrapped into a timestamped object;</li>
+ * <li>{@code report_interval} - seconds between progress reports;</li>
+ * <li>{@code cleanup} - delete the provisioned devices at the end of the test.</li>
+ * </ul>
+ */
+@Data
+@ToString(exclude = "password")
+public class LoadTestConfig {
+
+    private String restUrl = "http://localhost:8080";
+    private String username = "tenant@thingsboard.org";
+    private String password = "tenant";
+
+    private TransportType transport = TransportType.MQTT;
+    private String mqttHost = "localhost";
+    private int mqttPort = 1883;
+    private int mqttQos = 1;
+    private String httpUrl = "http://localhost:8080";
+    private int httpThreads = 32;
+    private String coapHost = "localhost";
+    private int coapPort = 5683;
+
+    private int devices = 100;
+    private String devicePrefix = "LoadTest-";
+    private String deviceType = "load-test";
+    private boolean gateway = false;
+    private int gateways = 1;
+    private int gatewayDevicesPerMsg = 1;
+
+    private int rate = 100;
+    private int duration = 60;
+    private int maxInflight = 10000;
+    private int payloadKeys = 5;
+    private int payloadStringKeys = 1;
+    private boolean payloadTs = false;
+    private int reportInterval = 5;
+    private boolean cleanup = true;
+
+    public static LoadTestConfig fromSystemProperties() {
+        LoadTestConfig config = new LoadTestConfig();
+        config.restUrl = System.getProperty("rest.url", config.restUrl);
+        config.username = System.getProperty("rest.username", config.username);
+        config.password = System.getProperty("rest.password", config.password);
+        config.transport = TransportType.valueOf(System.getProperty("transport", config.transport.name()).toUpperCase());
+        config.mqttHost = System.getProperty("mqtt.host", config.mqttHost);
+        config.mqttPort = Integer.getInteger("mqtt.port", config.mqttPort);
+        config.mqttQos = Integer.getInteger("mqtt.qos", config.mqttQos);
+        config.httpUrl = System.getProperty("http.url", config.restUrl);
+        config.httpThreads = Integer.getInteger("http.threads", config.httpThreads);
+        config.coapHost = System.getProperty("coap.host", config.coapHost);
+        config.coapPort = Integer.getInteger("coap.port", config.coapPort);
+        config.devices = Integer.getInteger("devices", config.devices);
+        config.devicePrefix = System.getProperty("device.prefix", config.devicePrefix);
+        config.deviceType = System.getProperty("device.type", config.deviceType);
+        config.gateway = Boolean.parseBoolean(System.getProperty("gateway", Boolean.toString(config.gateway)));
+        config.gateways = Integer.getInteger("gateways", config.gateways);
+        config.gatewayDevicesPerMsg = Integer.getInteger("gateway.devices_per_msg", config.gatewayDevicesPerMsg);
+        config.rate = Integer.getInteger("rate", config.rate);
+        config.duration = Integer.getInteger("duration", config.duration);
+        config.maxInflight = Integer.getInteger("max_inflight", config.maxInflight);
+        config.payloadKeys = Integer.getInteger("payload.keys", config.payloadKeys);
+        config.payloadStringKeys = Integer.getInteger("payload.string_keys", config.payloadStringKeys);
+        config.payloadTs = Boolean.parseBoolean(System.getProperty("payload.ts", Boolean.toString(config.payloadTs)));
+        config.reportInterval = Integer.getInteger("report_interval", config.reportInterval);
+        config.cleanup = Boolean.parseBoolean(System.getProperty("cleanup", Boolean.toString(config.cleanup)));
+        config.validate();
+        return config;
+    }
+
+    private void validate() {
+        if (gateway && transport != TransportType.MQTT) {
+            throw new IllegalArgumentException("Gateway mode is supported only by the MQTT transport!");
+        }
+        if (devices <= 0 || rate <= 0 || duration <= 0 || maxInflight <= 0 || reportInterval <= 0) {
+            throw new IllegalArgumentException("Devices, rate, duration, max_inflight and report_interval should be positive!");
+        }
+        if (gateway && (gateways <= 0 || gateways > devices || gatewayDevicesPerMsg <= 0)) {
+            throw new IllegalArgumentException("Gateways should be between 1 and the number of devices, devices per message should be positive!");
+        }
+        if (mqttQos < 0 || mqttQos > 1) {
+            throw new IllegalArgumentException("Only MQTT QoS 0 and 1 are supported!");
+        }
+    }
+}
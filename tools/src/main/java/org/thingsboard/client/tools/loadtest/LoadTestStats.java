@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counters and latency histograms of the load test, both for the whole test and for the current report interval.
+ */
+@Slf4j
+class LoadTestStats {
+
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final AtomicReference<LatencyHistogram> interval = new AtomicReference<>(new LatencyHistogram());
+
+    private final AtomicInteger totalPublished = new AtomicInteger();
+    private final AtomicInteger totalFailed = new AtomicInteger();
+    private final AtomicInteger totalSkipped = new AtomicInteger();
+
+    private volatile long startTs = System.nanoTime();
+    private volatile long intervalStartTs = startTs;
+
+    void start() {
+        startTs = System.nanoTime();
+        intervalStartTs = startTs;
+    }
+
+    void onPublished() {
+        totalPublished.incrementAndGet();
+    }
+
+    void onSuccess(long latencyNanos) {
+        total.recordNanos(latencyNanos);
+        interval.get().recordNanos(latencyNanos);
+    }
+
+    void onFailure() {
+        totalFailed.incrementAndGet();
+    }
+
+    void onSkipped() {
+        totalSkipped.incrementAndGet();
+    }
+
+    void printIntervalStats() {
+        long now = System.nanoTime();
+        LatencyHistogram current = interval.getAndSet(new LatencyHistogram());
+        double seconds = (now - intervalStartTs) / (double) TimeUnit.SECONDS.toNanos(1);
+        intervalStartTs = now;
+        log.info("[{}s] Published: [{}], acknowledged: [{}], failed: [{}], skipped: [{}], throughput: [{}] msg/s, latency: {}",
+                TimeUnit.NANOSECONDS.toSeconds(now - startTs), totalPublished.get(), total.getCount(), totalFailed.get(), totalSkipped.get(),
+                String.format("%.1f", current.getCount() / seconds), toString(current));
+    }
+
+    void printSummary() {
+        double seconds = (System.nanoTime() - startTs) / (double) TimeUnit.SECONDS.toNanos(1);
+        log.info("Summary: published [{}], acknowledged [{}], failed [{}], skipped [{}] messages in [{}] s",
+                totalPublished.get(), total.getCount(), totalFailed.get(), totalSkipped.get(), String.format("%.1f", seconds));
+        log.info("Summary: throughput [{}] msg/s, latency: {}", String.format("%.1f", total.getCount() / seconds), toString(total));
+    }
+
+    private static String toString(LatencyHistogram histogram) {
+        return String.format("mean %.2f ms, p50 %.2f ms, p90 %.2f ms, p95 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                histogram.getMeanMs(), histogram.getPercentileMs(50), histogram.getPercentileMs(90), histogram.getPercentileMs(95),
+                histogram.getPercentileMs(99), histogram.getPercentileMs(99.9), histogram.getMaxMs());
+    }
+}
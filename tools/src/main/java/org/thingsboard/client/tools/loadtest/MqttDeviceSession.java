@@ -0,0 +1,95 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.MqttClient;
+import org.thingsboard.mqtt.MqttClientConfig;
+import org.thingsboard.mqtt.MqttConnectResult;
+
+/**
+ * Device connected with the netty-mqtt client. The device access token is used as the MQTT user name.
+ */
+@Slf4j
+class MqttDeviceSession implements DeviceSession {
+
+    private static final String TELEMETRY_TOPIC = "v1/devices/me/telemetry";
+
+    protected final String name;
+    protected final MqttQoS qos;
+    protected final TelemetryGenerator generator;
+    private final String host;
+    private final int port;
+    private final MqttClient client;
+
+    MqttDeviceSession(LoadTestConfig config, String name, String accessToken, TelemetryGenerator generator) {
+        this.name = name;
+        this.qos = MqttQoS.valueOf(config.getMqttQos());
+        this.generator = generator;
+        this.host = config.getMqttHost();
+        this.port = config.getMqttPort();
+        MqttClientConfig clientConfig = new MqttClientConfig();
+        clientConfig.setClientId(name);
+        clientConfig.setUsername(accessToken);
+        clientConfig.setReconnect(false);
+        this.client = MqttClient.create(clientConfig, (topic, payload) -> log.trace("[{}] Received message on topic: {}", name, topic));
+    }
+
+    @Override
+    public ListenableFuture<Void> connect() {
+        SettableFuture<Void> result = SettableFuture.create();
+        client.connect(host, port).addListener(f -> {
+            Future<MqttConnectResult> future = (Future<MqttConnectResult>) f;
+            if (!future.isSuccess()) {
+                result.setException(future.cause());
+            } else if (!future.getNow().isSuccess()) {
+                result.setException(new IllegalStateException("[" + name + "] Connection refused: " + future.getNow().getReturnCode()));
+            } else {
+                result.set(null);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public ListenableFuture<Void> publishTelemetry() {
+        return publish(TELEMETRY_TOPIC, generator.devicePayload());
+    }
+
+    protected ListenableFuture<Void> publish(String topic, byte[] payload) {
+        SettableFuture<Void> result = SettableFuture.create();
+        client.publish(topic, Unpooled.wrappedBuffer(payload), qos).addListener(future -> {
+            if (future.isSuccess()) {
+                result.set(null);
+            } else {
+                result.setException(future.cause());
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void disconnect() {
+        if (client.isConnected()) {
+            client.disconnect();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gateway connected with the netty-mqtt client that publishes telemetry on behalf of its devices.
+ * All the devices are connected with a single message on connect, the telemetry messages then cycle through the devices.
+ */
+class MqttGatewaySession extends MqttDeviceSession {
+
+    private static final String GATEWAY_CONNECT_TOPIC = "v1/gateway/connect";
+    private static final String GATEWAY_TELEMETRY_TOPIC = "v1/gateway/telemetry";
+
+    private final List<String> deviceNames;
+    private final String deviceType;
+    private final int devicesPerMsg;
+    private int nextDevice;
+
+    MqttGatewaySession(LoadTestConfig config, String name, String accessToken, List<String> deviceNames, TelemetryGenerator generator) {
+        super(config, name, accessToken, generator);
+        this.deviceNames = deviceNames;
+        this.deviceType = config.getDeviceType();
+        this.devicesPerMsg = Math.min(config.getGatewayDevicesPerMsg(), deviceNames.size());
+    }
+
+    @Override
+    public ListenableFuture<Void> connect() {
+        return Futures.transformAsync(super.connect(), connected -> publish(GATEWAY_CONNECT_TOPIC, connectPayload()), MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public ListenableFuture<Void> publishTelemetry() {
+        List<String> names = new ArrayList<>(devicesPerMsg);
+        synchronized (this) {
+            for (int i = 0; i < devicesPerMsg; i++) {
+                names.add(deviceNames.get(nextDevice));
+                nextDevice = (nextDevice + 1) % deviceNames.size();
+            }
+        }
+        return publish(GATEWAY_TELEMETRY_TOPIC, generator.gatewayPayload(names));
+    }
+
+    private byte[] connectPayload() {
+        StringBuilder json = new StringBuilder("{\"devices\":[");
+        for (int i = 0; i < deviceNames.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"device\":\"").append(deviceNames.get(i)).append("\",\"type\":\"").append(deviceType).append("\"}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
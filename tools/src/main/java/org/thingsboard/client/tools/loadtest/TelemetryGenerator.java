@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.client.tools.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates telemetry payloads of the configured shape with random values.
+ */
+class TelemetryGenerator {
+
+    private final int numericKeys;
+    private final int stringKeys;
+    private final boolean withTs;
+
+    TelemetryGenerator(LoadTestConfig config) {
+        this.numericKeys = config.getPayloadKeys();
+        this.stringKeys = config.getPayloadStringKeys();
+        this.withTs = config.isPayloadTs();
+    }
+
+    /**
+     * Payload for the device API, e.g. {"key0":12.5,"str0":"value42"} or {"ts":1550000000000,"values":{...}}.
+     */
+    byte[] devicePayload() {
+        StringBuilder json = new StringBuilder();
+        appendTelemetry(json);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Payload for the gateway API, e.g. {"Device A":[{"key0":12.5}],"Device B":[{"key0":7.1}]}.
+     */
+    byte[] gatewayPayload(List<String> deviceNames) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < deviceNames.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(deviceNames.get(i)).append("\":[");
+            appendTelemetry(json);
+            json.append(']');
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void appendTelemetry(StringBuilder json) {
+        if (withTs) {
+            json.append("{\"ts\":").append(System.currentTimeMillis()).append(",\"values\":");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        json.append('{');
+        for (int i = 0; i < numericKeys; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"key").append(i).append("\":").append(Math.round(random.nextDouble(100) * 100) / 100.0);
+        }
+        for (int i = 0; i < stringKeys; i++) {
+            if (numericKeys > 0 || i > 0) {
+                json.append(',');
+            }
+            json.append("\"str").append(i).append("\":\"value").append(random.nextInt(1000)).append('"');
+        }
+        json.append('}');
+        if (withTs) {
+            json.append('}');
+        }
+    }
+}
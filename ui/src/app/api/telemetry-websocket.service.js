@@ -169,28 +169,38 @@ function TelemetryWebsocketService($rootScope, $websocket, $timeout, $window, $m
     function onMessage (message) {
         if (message.data) {
             var data = angular.fromJson(message.data);
-            if (data.errorCode) {
-                showWsError(data.errorCode, data.errorMsg);
-            } else if (data.subscriptionId) {
-                var subscriber = subscribers[data.subscriptionId];
-                if (subscriber && data) {
-                    var keys = fetchKeys(data.subscriptionId);
-                    if (!data.data) {
-                        data.data = {};
-                    }
-                    for (var k = 0; k < keys.length; k++) {
-                        var key = keys[k];
-                        if (!data.data[key]) {
-                            data.data[key] = [];
-                        }
-                    }
-                    subscriber.onData(data, data.subscriptionId);
+            if (angular.isArray(data)) {
+                for (var i = 0; i < data.length; i++) {
+                    processUpdate(data[i]);
                 }
+            } else {
+                processUpdate(data);
             }
         }
         checkToClose();
     }
 
+    function processUpdate (data) {
+        if (data.errorCode) {
+            showWsError(data.errorCode, data.errorMsg);
+        } else if (data.subscriptionId) {
+            var subscriber = subscribers[data.subscriptionId];
+            if (subscriber && data) {
+                var keys = fetchKeys(data.subscriptionId);
+                if (!data.data) {
+                    data.data = {};
+                }
+                for (var k = 0; k < keys.length; k++) {
+                    var key = keys[k];
+                    if (!data.data[key]) {
+                        data.data[key] = [];
+                    }
+                }
+                subscriber.onData(data, data.subscriptionId);
+            }
+        }
+    }
+
     function showWsError(errorCode, errorMsg) {
         var message = 'WebSocket Error: ';
         if (errorMsg) {